@@ -3,6 +3,7 @@ package org.oddjob.beanbus.destinations;
 import org.oddjob.arooa.ArooaSession;
 import org.oddjob.arooa.ArooaTools;
 import org.oddjob.arooa.beanutils.MagicBeanClassCreator;
+import org.oddjob.arooa.convert.ArooaConverter;
 import org.oddjob.arooa.deploy.annotations.ArooaHidden;
 import org.oddjob.arooa.life.ArooaSessionAware;
 import org.oddjob.arooa.reflect.ArooaClass;
@@ -58,15 +59,22 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 	
 	private PropertyAccessor accessor;
 	
+	private ArooaConverter converter;
+	
 	private final Map<String, String> mappings =
 			new LinkedHashMap<>();
 		
+	/** Getters and setters resolved once per class of bean. */
+	private volatile BeanCopyPlan plan;
+	
 	@ArooaHidden
 	@Override
 	public void setArooaSession(ArooaSession session) {
 		ArooaTools tools = session.getTools();
+		this.converter = tools.getArooaConverter();
 		this.accessor = tools.getPropertyAccessor().accessorWithConversions(
-				tools.getArooaConverter());
+				converter);
+		this.plan = null;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -79,15 +87,13 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 		
 		Object toBean = arooaClass.newInstance();
 		
-		
-		for (Map.Entry<String, String> mapping : mappings.entrySet()) {
-			
-			String from = mapping.getKey();
-			String to = mapping.getValue();
-			
-			accessor.setProperty(toBean, to, 
-					accessor.getProperty(bean, from));
+		BeanCopyPlan plan = this.plan;
+		if (plan == null) {
+			plan = new BeanCopyPlan(mappings, accessor, converter);
+			this.plan = plan;
 		}
+		
+		plan.copy(bean, toBean);
 
 		to.accept((T) toBean);
 	}
@@ -135,6 +141,7 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 	
 	public void setMappings(String from, String to) {
 		mappings.put(from, to);
+		plan = null;
 	}
 
 	public String getName() {
@@ -0,0 +1,327 @@
+package org.oddjob.beanbus.destinations;
+
+import org.oddjob.arooa.convert.ArooaConversionException;
+import org.oddjob.arooa.convert.ArooaConverter;
+import org.oddjob.arooa.reflect.PropertyAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies mapped properties from one bean to another for {@link BeanCopy}. The getters
+ * and setters are resolved once for each class of bean as {@link MethodHandle}s so
+ * copying a bean is just a few direct invocations rather than a property lookup
+ * by name for every mapping. When a property type differs the conversion to
+ * the setter type is the only lookup that remains.
+ * <p>
+ * Properties that can't be resolved to public getters and setters, such as nested or
+ * indexed properties or those of Dyna Beans, are copied using the
+ * {@link PropertyAccessor} as before.
+ * </p>
+ * <p>
+ * The plan for the last class of bean copied is checked first, so a stream of one
+ * type of bean never touches the map. Streams of mixed types have a plan for
+ * each type.
+ * </p>
+ */
+class BeanCopyPlan {
+
+    private static final Logger logger = LoggerFactory.getLogger(BeanCopyPlan.class);
+
+    private static final MethodType GETTER_TYPE =
+            MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String[] froms;
+
+    private final String[] tos;
+
+    private final PropertyAccessor accessor;
+
+    private final ArooaConverter converter;
+
+    private final Map<Class<?>, Compiled> compiled = new ConcurrentHashMap<>();
+
+    private volatile Compiled last;
+
+    /**
+     * Create a new instance.
+     *
+     * @param mappings Property names, from to to.
+     * @param accessor Accessor used when a property can't be resolved.
+     * @param converter Converter for properties of different types.
+     */
+    BeanCopyPlan(Map<String, String> mappings,
+                 PropertyAccessor accessor,
+                 ArooaConverter converter) {
+        this.froms = mappings.keySet().toArray(new String[0]);
+        this.tos = mappings.values().toArray(new String[0]);
+        this.accessor = Objects.requireNonNull(accessor);
+        this.converter = Objects.requireNonNull(converter);
+    }
+
+    /**
+     * Copy the mapped properties.
+     *
+     * @param from The bean to copy from.
+     * @param to The bean to copy to.
+     */
+    void copy(Object from, Object to) {
+
+        Compiled plan = last;
+        if (plan == null || plan.fromClass != from.getClass() || plan.toClass != to.getClass()) {
+            plan = compiled.get(from.getClass());
+            if (plan == null || plan.toClass != to.getClass()) {
+                plan = compile(from.getClass(), to.getClass());
+                compiled.put(from.getClass(), plan);
+            }
+            last = plan;
+        }
+
+        for (PropertyCopy copy : plan.copies) {
+            try {
+                copy.copy(from, to);
+            }
+            catch (RuntimeException | Error e) {
+                throw e;
+            }
+            catch (Throwable t) {
+                throw new IllegalStateException("Failed copying " + copy + " from [" +
+                        from + "] to [" + to + "]", t);
+            }
+        }
+    }
+
+    /**
+     * The number of classes of bean a plan has been created for.
+     *
+     * @return The number of classes.
+     */
+    int getCompiledCount() {
+        return compiled.size();
+    }
+
+    Compiled compile(Class<?> fromClass, Class<?> toClass) {
+
+        List<PropertyCopy> copies = new ArrayList<>(froms.length);
+
+        for (int i = 0; i < froms.length; ++i) {
+            copies.add(compileProperty(fromClass, froms[i], toClass, tos[i]));
+        }
+
+        logger.debug("Compiled copy plan from [{}] to [{}]: {}", fromClass, toClass, copies);
+
+        return new Compiled(fromClass, toClass, copies.toArray(new PropertyCopy[0]));
+    }
+
+    PropertyCopy compileProperty(Class<?> fromClass, String from,
+                                 Class<?> toClass, String to) {
+
+        Method getter = findMethod(fromClass, from, true);
+        Method setter = findMethod(toClass, to, false);
+
+        if (getter == null || setter == null) {
+            return new AccessorCopy(from, to);
+        }
+
+        MethodHandle getterHandle;
+        MethodHandle setterHandle;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            getterHandle = lookup.unreflect(getter).asType(GETTER_TYPE);
+            setterHandle = lookup.unreflect(setter).asType(SETTER_TYPE);
+        }
+        catch (IllegalAccessException e) {
+            logger.debug("Can't access [{}] or [{}], using accessor.", getter, setter);
+            return new AccessorCopy(from, to);
+        }
+
+        Class<?> getterType = wrap(getter.getReturnType());
+        Class<?> setterType = setter.getParameterTypes()[0];
+
+        if (setterType.isAssignableFrom(getterType) || wrap(setterType).isAssignableFrom(getterType)) {
+            return new DirectCopy(from, to, getterHandle, setterHandle, setterType.isPrimitive());
+        }
+        else {
+            return new ConvertingCopy(from, to, getterHandle, setterHandle, setterType);
+        }
+    }
+
+    /**
+     * Find a public getter or setter for a simple property.
+     *
+     * @return The method or null if there isn't one.
+     */
+    static Method findMethod(Class<?> beanClass, String property, boolean read) {
+
+        if (property.indexOf('.') >= 0 || property.indexOf('(') >= 0 || property.indexOf('[') >= 0) {
+            return null;
+        }
+
+        BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(beanClass);
+        }
+        catch (IntrospectionException e) {
+            return null;
+        }
+
+        for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+            if (property.equals(descriptor.getName())) {
+                return read ? descriptor.getReadMethod() : descriptor.getWriteMethod();
+            }
+        }
+        return null;
+    }
+
+    static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * The copies for one class of bean.
+     */
+    static class Compiled {
+
+        private final Class<?> fromClass;
+
+        private final Class<?> toClass;
+
+        private final PropertyCopy[] copies;
+
+        Compiled(Class<?> fromClass, Class<?> toClass, PropertyCopy[] copies) {
+            this.fromClass = fromClass;
+            this.toClass = toClass;
+            this.copies = copies;
+        }
+    }
+
+    /**
+     * Copy of a single property.
+     */
+    abstract static class PropertyCopy {
+
+        final String from;
+
+        final String to;
+
+        PropertyCopy(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        abstract void copy(Object fromBean, Object toBean) throws Throwable;
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " " + from + "->" + to;
+        }
+    }
+
+    /**
+     * Copy using the accessor, as BeanCopy always used to.
+     */
+    class AccessorCopy extends PropertyCopy {
+
+        AccessorCopy(String from, String to) {
+            super(from, to);
+        }
+
+        @Override
+        void copy(Object fromBean, Object toBean) {
+            accessor.setProperty(toBean, to,
+                    accessor.getProperty(fromBean, from));
+        }
+    }
+
+    /**
+     * Copy where the types are compatible.
+     */
+    class DirectCopy extends PropertyCopy {
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private final boolean primitive;
+
+        DirectCopy(String from, String to,
+                   MethodHandle getter, MethodHandle setter,
+                   boolean primitive) {
+            super(from, to);
+            this.getter = getter;
+            this.setter = setter;
+            this.primitive = primitive;
+        }
+
+        @Override
+        void copy(Object fromBean, Object toBean) throws Throwable {
+            Object value = (Object) getter.invokeExact(fromBean);
+            if (value == null && primitive) {
+                // Leave nulls for primitives to the accessor.
+                accessor.setProperty(toBean, to, null);
+            }
+            else {
+                setter.invokeExact(toBean, value);
+            }
+        }
+    }
+
+    /**
+     * Copy where the value must be converted.
+     */
+    class ConvertingCopy extends PropertyCopy {
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private final Class<?> setterType;
+
+        private final boolean primitive;
+
+        ConvertingCopy(String from, String to,
+                       MethodHandle getter, MethodHandle setter,
+                       Class<?> setterType) {
+            super(from, to);
+            this.getter = getter;
+            this.setter = setter;
+            this.setterType = wrap(setterType);
+            this.primitive = setterType.isPrimitive();
+        }
+
+        @Override
+        void copy(Object fromBean, Object toBean) throws Throwable {
+            Object value = (Object) getter.invokeExact(fromBean);
+            Object converted;
+            try {
+                converted = converter.convert(value, setterType);
+            }
+            catch (ArooaConversionException e) {
+                throw new IllegalArgumentException("Failed converting [" + value +
+                        "] for property " + to + " of [" + toBean + "]", e);
+            }
+            if (converted == null && primitive) {
+                accessor.setProperty(toBean, to, null);
+            }
+            else {
+                setter.invokeExact(toBean, converted);
+            }
+        }
+    }
+}
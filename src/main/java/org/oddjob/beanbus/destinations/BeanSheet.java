@@ -21,6 +21,12 @@ import java.util.function.Consumer;
  * @author rob
  * @oddjob.description Create a simple database style report from a list
  * of beans.
+ * <p>
+ * By default all beans are collected until the bus is flushed so that every column
+ * is as wide as its widest value. For long streams set streaming so that memory
+ * use is bounded. Column widths are then taken from the first sampleSize beans,
+ * or the columnWidths given, and each row is written as it arrives.
+ * </p>
  */
 public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<Object>,
         Runnable, Flushable, Closeable {
@@ -43,6 +49,13 @@ public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<
      */
     private static final char UNDERLINE = '-';
 
+    /**
+     * The default number of beans used to size columns when streaming.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 100;
+
+    private static final String EOL = System.lineSeparator();
+
     private OutputStream output;
 
     private boolean noHeaders;
@@ -53,8 +66,36 @@ public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<
 
     private BeanViews beanViews;
 
+    /**
+     * @oddjob.property
+     * @oddjob.description Write rows as they arrive instead of when the bus is
+     * flushed. A value that is wider than its column is written in full so
+     * the rest of that row won't line up.
+     * @oddjob.required No, defaults to false.
+     */
+    private boolean streaming;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description When streaming, the number of beans used to work
+     * out column widths before any rows are written.
+     * @oddjob.required No, defaults to 100.
+     */
+    private int sampleSize = DEFAULT_SAMPLE_SIZE;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The smallest width of each column, in order. With
+     * streaming and a sampleSize of 0 these are fixed widths.
+     * @oddjob.required No.
+     */
+    private int[] columnWidths;
+
     private final List<Object> beans = new ArrayList<>();
 
+    /** The batch being streamed. Null until the first bean of a batch. */
+    private Stream stream;
+
     private String name;
 
     private Consumer<? super Object> to;
@@ -77,14 +118,35 @@ public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<
 
     @Override
     public void flush() throws IOException {
-        writeBeans(beans);
-        beans.clear();
+        if (streaming) {
+            if (stream != null) {
+                stream.finish();
+                stream = null;
+            }
+        }
+        else {
+            writeBeans(beans);
+            beans.clear();
+        }
     }
 
     @Override
     public void accept(Object bean) {
 
-        beans.add(bean);
+        if (streaming) {
+            if (stream == null) {
+                stream = new Stream();
+            }
+            try {
+                stream.accept(bean);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        else {
+            beans.add(bean);
+        }
 
         if (to != null) {
             to.accept(bean);
@@ -102,67 +164,137 @@ public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<
             throw new NullPointerException("No beans.");
         }
 
-        PrintStream out = new PrintStream(output);
-
-        List<Row> rows = new ArrayList<>();
+        List<String[]> lines = new ArrayList<>();
 
         Header header = null;
 
-        int count = 0;
         for (Object bean : beans) {
 
             if (header == null) {
                 header = new Header(bean);
-                rows.add(header);
             }
 
-            Line line = header.process(bean);
-            rows.add(line);
-            ++count;
+            lines.add(header.widen(header.valuesOf(bean)));
         }
 
-        logger.info("Reporting on " + count + " beans");
+        logger.info("Reporting on " + lines.size() + " beans");
 
-        for (Row row : rows) {
-            row.printTo(out);
+        if (header == null) {
+            return;
         }
 
-        out.flush();
+        try {
+            RowWriter writer = new RowWriter();
+            header.writeTo(writer);
+            for (String[] values : lines) {
+                writer.write(values, header.widths);
+            }
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    interface Row {
+    /**
+     * Writes rows as beans arrive once the columns have been sized from a sample. Only
+     * the sample is held so memory use doesn't grow with the number of beans.
+     */
+    class Stream {
 
-        void printTo(PrintStream out);
-    }
+        private final RowWriter writer = new RowWriter();
 
-    class Line implements Row {
+        private List<String[]> sample = new ArrayList<>();
 
-        String[] values;
+        private Header header;
 
-        Header header;
+        private long count;
 
-        Line(String[] values, Header header) {
-            this.values = values;
-            this.header = header;
+        void accept(Object bean) throws IOException {
+
+            if (header == null) {
+                header = new Header(bean);
+            }
+
+            ++count;
+
+            String[] values = header.valuesOf(bean);
+
+            if (sample != null) {
+                if (sample.size() < sampleSize) {
+                    sample.add(header.widen(values));
+                    return;
+                }
+                writeSample();
+            }
+
+            writer.write(values, header.widths);
+        }
+
+        private void writeSample() throws IOException {
+            header.writeTo(writer);
+            for (String[] values : sample) {
+                writer.write(values, header.widths);
+            }
+            sample = null;
+        }
+
+        void finish() throws IOException {
+            if (header == null) {
+                return;
+            }
+            if (sample != null) {
+                writeSample();
+            }
+            writer.flush();
+            logger.info("Reported on " + count + " beans");
         }
+    }
+
+    /**
+     * Formats rows into one reused buffer and writes them through a buffered writer.
+     * The writer is never closed as the output is closed by the sheet.
+     */
+    class RowWriter {
+
+        private final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(output), 64 * 1024);
+
+        private final StringBuilder builder = new StringBuilder(256);
 
-        @Override
-        public void printTo(PrintStream out) {
+        void write(String[] values, int[] widths) throws IOException {
+            builder.setLength(0);
             for (int i = 0; i < values.length; ++i) {
                 if (i != 0) {
-                    out.print(COLUMN_SPACE);
+                    builder.append(COLUMN_SPACE);
                 }
-                out.print(values[i]);
+                builder.append(values[i]);
                 if (i != values.length - 1) {
-                    out.print(pad(PADDING,
-                            header.widths[i] - values[i].length()));
+                    pad(builder, PADDING, widths[i] - values[i].length());
+                }
+            }
+            builder.append(EOL);
+            writer.append(builder);
+        }
+
+        void underline(int[] widths) throws IOException {
+            builder.setLength(0);
+            for (int i = 0; i < widths.length; ++i) {
+                if (i != 0) {
+                    builder.append(COLUMN_SPACE);
                 }
+                pad(builder, UNDERLINE, widths[i]);
             }
-            out.println();
+            builder.append(EOL);
+            writer.append(builder);
+        }
+
+        void flush() throws IOException {
+            writer.flush();
         }
     }
 
-    class Header implements Row {
+    class Header {
 
         private final String[] properties;
 
@@ -206,37 +338,23 @@ public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<
             for (int i = 0; i < properties.length; ++i) {
                 headings[i] = view.titleFor(properties[i]);
                 widths[i] = headings[i].length();
+                if (columnWidths != null && i < columnWidths.length
+                        && widths[i] < columnWidths[i]) {
+                    widths[i] = columnWidths[i];
+                }
             }
             logger.info("Headings: " + Arrays.toString(headings));
         }
 
-        @Override
-        public void printTo(PrintStream out) {
+        void writeTo(RowWriter writer) throws IOException {
             if (noHeaders) {
                 return;
             }
-
-            for (int i = 0; i < headings.length; ++i) {
-                if (i != 0) {
-                    out.print(COLUMN_SPACE);
-                }
-                out.print(headings[i]);
-                if (i != headings.length - 1)
-                    out.print(pad(PADDING,
-                            widths[i] - headings[i].length()));
-            }
-            out.println();
-            for (int i = 0; i < headings.length; ++i) {
-                if (i != 0) {
-                    out.print(COLUMN_SPACE);
-                }
-                out.print(pad(UNDERLINE,
-                        widths[i]));
-            }
-            out.println();
+            writer.write(headings, widths);
+            writer.underline(widths);
         }
 
-        Line process(Object bean) {
+        String[] valuesOf(Object bean) {
             String[] values = new String[properties.length];
 
             for (int i = 0; i < properties.length; ++i) {
@@ -253,20 +371,34 @@ public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<
                 if (string == null) {
                     string = "";
                 }
-                if (widths[i] < string.length()) {
-                    widths[i] = string.length();
-                }
 
                 values[i] = string;
             }
 
-            return new Line(values, this);
+            return values;
+        }
+
+        /**
+         * Make columns wide enough for the values.
+         */
+        String[] widen(String[] values) {
+            for (int i = 0; i < values.length; ++i) {
+                if (widths[i] < values[i].length()) {
+                    widths[i] = values[i].length();
+                }
+            }
+            return values;
         }
     }
 
 
     public int getBeanCount() {
-        return beans.size();
+        if (stream == null) {
+            return beans.size();
+        }
+        else {
+            return (int) Math.min(stream.count, Integer.MAX_VALUE);
+        }
     }
 
     public OutputStream getOutput() {
@@ -293,6 +425,36 @@ public class BeanSheet implements Consumer<Object>, ArooaSessionAware, Outbound<
         this.beanViews = beanViews;
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    public int[] getColumnWidths() {
+        return columnWidths;
+    }
+
+    public void setColumnWidths(int[] columnWidths) {
+        this.columnWidths = columnWidths;
+    }
+
+    private static void pad(StringBuilder builder, char padding, int size) {
+        for (int i = 0; i < size; ++i) {
+            builder.append(padding);
+        }
+    }
+
     private static String pad(char padding, int size) {
         if (size < 1) {
             return "";
@@ -0,0 +1,510 @@
+package org.oddjob.beanbus.destinations;
+
+import org.oddjob.FailedToStopException;
+import org.oddjob.arooa.deploy.annotations.ArooaHidden;
+import org.oddjob.beanbus.BusFilter;
+import org.oddjob.framework.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @oddjob.description Apply a {@link Function} to beans in a Bean Bus using several
+ * threads at once. This is for a stage of a bus that is expensive to compute, such as a
+ * script, that would otherwise hold up the driver.
+ * <p>
+ * Beans are passed to worker threads from Oddjob's executor. At most
+ * <code>capacity</code> beans may be waiting, in progress or, when ordered, held back
+ * for an earlier result, after that the component sending beans will block until a
+ * result is passed on. Results are passed to the next
+ * component one at a time so the next component doesn't need to be thread safe.
+ * With <code>ordered</code> results are passed on in the order beans arrived, otherwise
+ * results are passed on as soon as they are ready.
+ * </p>
+ * <p>
+ * When the bus is flushed or stopped this component waits for all beans
+ * in progress to be passed on first. If the function fails, the next bean sent
+ * or the next flush will fail with the exception, which will crash the bus.
+ * </p>
+ *
+ * @oddjob.example Double the price of fruit with 4 threads keeping the order.
+ *
+ * {@oddjob.xml.resource org/oddjob/beanbus/destinations/BusParallelExample.xml}
+ *
+ * @param <F> The accepting from type.
+ * @param <T> The onward to type.
+ */
+public class BusParallel<F, T> implements Service, BusFilter<F, T>, Flushable {
+
+	private static final Logger logger = LoggerFactory.getLogger(BusParallel.class);
+
+	/** Default number of beans waiting or in progress. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final Object STOP = new Object();
+
+	/** How long to wait for workers to finish once they have been told to stop. */
+	static final long STOP_TIMEOUT_MILLIS = 30_000L;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The next component in a bus. Set automatically in a
+	 * {@link org.oddjob.beanbus.bus.BasicBusService}.
+	 * @oddjob.required No.
+	 */
+	private volatile Consumer<? super T> to;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The name of this component.
+	 * @oddjob.required No.
+	 */
+	private volatile String name;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The function to apply to beans on the bus. It will be called from
+	 * several threads at once so must be thread safe.
+	 * @oddjob.required Yes.
+	 */
+	private volatile Function<? super F, ? extends T> function;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of worker threads.
+	 * @oddjob.required No, defaults to the number of available processors.
+	 */
+	private volatile int workers;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of beans that may be waiting or in progress before
+	 * the sending component is blocked.
+	 * @oddjob.required No, defaults to 1024.
+	 */
+	private volatile int capacity;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description Pass results on in the order the beans arrived.
+	 * @oddjob.required No, defaults to false.
+	 */
+	private volatile boolean ordered;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The executor that provides worker threads. This will
+	 * be automatically set by Oddjob.
+	 * @oddjob.required No.
+	 */
+	private volatile ExecutorService executorService;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of beans accepted.
+	 * @oddjob.required Read only.
+	 */
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of results passed on.
+	 * @oddjob.required Read only.
+	 */
+	private final AtomicInteger delivered = new AtomicInteger();
+
+	private volatile Workers<F, T> running;
+
+	@Override
+	public void start() {
+
+		Objects.requireNonNull(function, "Function Required");
+
+		ExecutorService executorService = Objects.requireNonNull(
+				this.executorService, "No Executor");
+
+		int workers = this.workers < 1 ?
+				Runtime.getRuntime().availableProcessors() : this.workers;
+		int capacity = this.capacity < 1 ? DEFAULT_CAPACITY : this.capacity;
+
+		count.set(0);
+		delivered.set(0);
+
+		Workers<F, T> running = new Workers<>(function, to, ordered,
+				workers, capacity, delivered);
+		for (int i = 0; i < workers; ++i) {
+			executorService.execute(running::work);
+		}
+		this.running = running;
+
+		logger.info("Started {} workers, capacity {}, {}.", workers, capacity,
+				ordered ? "ordered" : "unordered");
+	}
+
+	@Override
+	public void stop() throws FailedToStopException {
+		Workers<F, T> running = this.running;
+		if (running == null) {
+			return;
+		}
+		this.running = null;
+		try {
+			if (!running.stop(STOP_TIMEOUT_MILLIS)) {
+				throw new FailedToStopException(this, "Workers still busy after " +
+						STOP_TIMEOUT_MILLIS + "ms.");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FailedToStopException(this, "Interrupted waiting for workers.", e);
+		}
+		catch (IllegalStateException e) {
+			throw new FailedToStopException(this, "Worker failed while stopping.", e.getCause());
+		}
+	}
+
+	@Override
+	public void accept(F bean) {
+		Workers<F, T> running = Objects.requireNonNull(this.running, "Not Started");
+		try {
+			running.submit(bean);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting to submit " + bean, e);
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Wait for all beans in progress to be passed on.
+	 */
+	@Override
+	public void flush() throws IOException {
+		Workers<F, T> running = this.running;
+		if (running == null) {
+			return;
+		}
+		try {
+			running.awaitIdle();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for beans in progress.", e);
+		}
+	}
+
+	/**
+	 * The workers for one run of the bus.
+	 */
+	static class Workers<F, T> {
+
+		private final Function<? super F, ? extends T> function;
+
+		private final Consumer<? super T> to;
+
+		private final boolean ordered;
+
+		private final AtomicInteger delivered;
+
+		private final BlockingQueue<Object> queue;
+
+		/** Taken for each bean submitted and given back when it is passed on. */
+		private final Semaphore permits;
+
+		/** Beans accepted but not yet passed on. Guarded by lock. */
+		private int pending;
+
+		/** Next sequence to be passed on when ordered. Guarded by lock. */
+		private long nextToDeliver;
+
+		/** Results waiting for an earlier result when ordered. Guarded by lock. */
+		private final Map<Long, Completed<T>> reorder = new HashMap<>();
+
+		private final int workers;
+
+		private final CountDownLatch finished;
+
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		/** Set once the failure has been thrown to someone. */
+		private volatile boolean failureReported;
+
+		private final Object lock = new Object();
+
+		/** Only used by the sending thread. */
+		private long nextSequence;
+
+		Workers(Function<? super F, ? extends T> function,
+				Consumer<? super T> to,
+				boolean ordered,
+				int workers,
+				int capacity,
+				AtomicInteger delivered) {
+			this.function = function;
+			this.to = to;
+			this.ordered = ordered;
+			this.workers = workers;
+			this.finished = new CountDownLatch(workers);
+			this.delivered = delivered;
+			this.queue = new ArrayBlockingQueue<>(Math.max(capacity, workers));
+			this.permits = new Semaphore(capacity);
+		}
+
+		void submit(F bean) throws InterruptedException {
+			checkFailure();
+			permits.acquire();
+			try {
+				checkFailure();
+			}
+			catch (IllegalStateException e) {
+				permits.release();
+				throw e;
+			}
+			// Nothing can fail from here on. The permit means there is room
+			// so adding to the queue doesn't block.
+			synchronized (lock) {
+				++pending;
+			}
+			queue.add(new Submitted<>(nextSequence++, bean));
+		}
+
+		@SuppressWarnings("unchecked")
+		void work() {
+			try {
+				while (true) {
+					Object next = queue.take();
+					if (next == STOP) {
+						break;
+					}
+					Submitted<F> submitted = (Submitted<F>) next;
+
+					T result = null;
+					Throwable exception = null;
+					try {
+						result = function.apply(submitted.bean);
+					}
+					catch (RuntimeException | Error e) {
+						exception = e;
+					}
+					complete(new Completed<>(submitted.sequence, result, exception));
+				}
+			}
+			catch (InterruptedException e) {
+				logger.debug("Worker interrupted.");
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				finished.countDown();
+			}
+		}
+
+		void complete(Completed<T> completed) {
+			synchronized (lock) {
+				if (ordered) {
+					reorder.put(completed.sequence, completed);
+					Completed<T> next;
+					while ((next = reorder.remove(nextToDeliver)) != null) {
+						++nextToDeliver;
+						deliver(next);
+					}
+				}
+				else {
+					deliver(completed);
+				}
+			}
+		}
+
+		/**
+		 * Pass on a result. Called holding the lock so the next component only sees
+		 * one thread at a time.
+		 */
+		private void deliver(Completed<T> completed) {
+			try {
+				if (completed.exception != null) {
+					failure.compareAndSet(null, completed.exception);
+				}
+				else if (completed.result != null && to != null
+						&& failure.get() == null) {
+					to.accept(completed.result);
+					delivered.incrementAndGet();
+				}
+			}
+			catch (RuntimeException | Error e) {
+				failure.compareAndSet(null, e);
+			}
+			finally {
+				--pending;
+				permits.release();
+				lock.notifyAll();
+			}
+		}
+
+		void awaitIdle() throws InterruptedException {
+			waitForIdleOrFailure();
+			checkFailure();
+		}
+
+		private void waitForIdleOrFailure() throws InterruptedException {
+			synchronized (lock) {
+				while (pending > 0 && failure.get() == null) {
+					lock.wait();
+				}
+			}
+		}
+
+		/**
+		 * Stop the workers once everything in progress has been passed on. The
+		 * workers are always told to stop, even if one fails or this thread is
+		 * interrupted while waiting.
+		 *
+		 * @param timeoutMillis How long to wait for the workers to finish after they
+		 *                      have been told to stop.
+		 * @return false if they didn't finish in time.
+		 *
+		 * @throws IllegalStateException If a worker failed and this hasn't been
+		 * reported already.
+		 */
+		boolean stop(long timeoutMillis) throws InterruptedException {
+			try {
+				waitForIdleOrFailure();
+			}
+			finally {
+				// Anything left won't be passed on, and there is then room for the stops.
+				queue.clear();
+				for (int i = 0; i < workers; ++i) {
+					queue.add(STOP);
+				}
+			}
+			boolean stopped = finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+			if (!failureReported) {
+				checkFailure();
+			}
+			return stopped;
+		}
+
+		private void checkFailure() {
+			Throwable exception = failure.get();
+			if (exception != null) {
+				failureReported = true;
+				throw new IllegalStateException("Worker failed.", exception);
+			}
+		}
+	}
+
+	static class Submitted<F> {
+
+		private final long sequence;
+
+		private final F bean;
+
+		Submitted(long sequence, F bean) {
+			this.sequence = sequence;
+			this.bean = bean;
+		}
+	}
+
+	static class Completed<T> {
+
+		private final long sequence;
+
+		private final T result;
+
+		private final Throwable exception;
+
+		Completed(long sequence, T result, Throwable exception) {
+			this.sequence = sequence;
+			this.result = result;
+			this.exception = exception;
+		}
+	}
+
+	public int getCount() {
+		return count.get();
+	}
+
+	public int getDelivered() {
+		return delivered.get();
+	}
+
+	public Function<? super F, ? extends T> getFunction() {
+		return function;
+	}
+
+	public void setFunction(Function<? super F, ? extends T> function) {
+		this.function = function;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	@ArooaHidden
+	@Inject
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+
+	public Consumer<? super T> getTo() {
+		return to;
+	}
+
+	@Override
+	public void setTo(Consumer<? super T> to) {
+		this.to = to;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+
+		if (name == null) {
+			return getClass().getSimpleName();
+		}
+		else {
+			return name;
+		}
+	}
+}
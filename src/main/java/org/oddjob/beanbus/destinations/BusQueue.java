@@ -6,15 +6,26 @@ import org.oddjob.framework.adapt.SoftReset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Iterator;
-import java.util.Objects;
-import java.util.Queue;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
  * @oddjob.description A Queue for beans. A work in progress.
+ * <p>
+ * By default the queue is a standard Java blocking queue. For high throughput
+ * the <code>lockFree</code> property provides a bounded lock-free ring buffer
+ * that many producers and consumers can use without contending on a lock.
+ * Consumers can take beans off the queue in batches with the
+ * <code>batchSize</code> property, which works with either kind of queue.
+ * </p>
  *
  * @oddjob.example A simple example.
  * <p>
@@ -34,6 +45,9 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
 
     private final static Object STOP = new Object();
 
+    /** Capacity of a ring buffer if none is given. */
+    public static final int DEFAULT_RING_CAPACITY = 1024;
+
     /**
      * @oddjob.property
      * @oddjob.description Capacity of the queue before it blocks.
@@ -41,7 +55,25 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
      */
     private volatile int capacity;
 
-    private volatile CompletableFuture<BlockingQueue<Object>> queueFuture = new CompletableFuture<>();
+    /**
+     * @oddjob.property
+     * @oddjob.description Use a lock-free ring buffer rather than a blocking queue.
+     * The ring buffer is always bounded, so if no capacity is given a capacity of
+     * 1024 is used. Capacity is rounded up to a power of 2.
+     * @oddjob.required No, defaults to false.
+     */
+    private volatile boolean lockFree;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The maximum number of beans a consumer will take from the queue
+     * at once. Taking beans in batches reduces the cost of each bean when there is
+     * a lot of contention. Beans taken in a batch are not available to other consumers.
+     * @oddjob.required No, defaults to 1.
+     */
+    private volatile int batchSize;
+
+    private volatile CompletableFuture<Channel<Object>> queueFuture = new CompletableFuture<>();
 
     /**
      * @oddjob.property
@@ -64,12 +96,22 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
      */
     private final  AtomicInteger waitingConsumers = new AtomicInteger();
 
+    /**
+     * @oddjob.property producerBlockedMillis
+     * @oddjob.description The total time producers have spent waiting for space on a full queue.
+     * @oddjob.required Read only.
+     */
+    private final AtomicLong producerBlockedNanos = new AtomicLong();
+
     @Override
     public void start() {
-        if (capacity == 0) {
-            queueFuture.complete(new LinkedBlockingDeque<>());
+        if (lockFree) {
+            queueFuture.complete(new RingChannel<>(
+                    capacity == 0 ? DEFAULT_RING_CAPACITY : capacity, waitingConsumers));
+        } else if (capacity == 0) {
+            queueFuture.complete(new BlockingChannel(new LinkedBlockingDeque<>(), waitingConsumers));
         } else {
-            queueFuture.complete(new ArrayBlockingQueue<>(capacity));
+            queueFuture.complete(new BlockingChannel(new ArrayBlockingQueue<>(capacity), waitingConsumers));
         }
     }
 
@@ -78,7 +120,7 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
     public void stop() {
         logger.debug("Stopping Queue.");
         try {
-            queueFuture.get().put(STOP);
+            queueFuture.get().stop();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } catch (ExecutionException e) {
@@ -88,16 +130,23 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
 
     @Override
     public void accept(E bean) {
+        Channel<Object> channel = queueFuture.getNow(null);
+        if (channel.offer(bean)) {
+            return;
+        }
+        long start = System.nanoTime();
         try {
-            queueFuture.getNow(null).put(bean);
+            channel.put(bean);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } finally {
+            producerBlockedNanos.addAndGet(System.nanoTime() - start);
         }
     }
 
     @Override
     public Iterator<E> iterator() {
-        return new BlockerIterator<>(queueFuture, waitingConsumers, taken, toString() );
+        return new BlockerIterator<>(queueFuture, taken, Math.max(1, batchSize), toString() );
     }
 
     @HardReset
@@ -105,6 +154,408 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
     public void onReset() {
         this.queueFuture = new CompletableFuture<>();
         this.taken.set(0);
+        this.producerBlockedNanos.set(0);
+    }
+
+    /**
+     * The queue behind Bus Queue.
+     *
+     * @param <T> The type of element.
+     */
+    interface Channel<T> {
+
+        /**
+         * Add an element without waiting.
+         *
+         * @return false if the queue is full.
+         */
+        boolean offer(T element);
+
+        /**
+         * Add an element, waiting for space if the queue is full.
+         */
+        void put(T element) throws InterruptedException;
+
+        /**
+         * Take at least one and up to max elements, waiting if the queue is empty.
+         *
+         * @param batch The collection to take elements into.
+         * @param max The maximum number of elements to take.
+         *
+         * @return false if the queue has been stopped and there are no more elements.
+         */
+        boolean takeBatch(Collection<? super T> batch, int max) throws InterruptedException;
+
+        /**
+         * Stop the queue. All consumers will finish once the queue is empty.
+         */
+        void stop() throws InterruptedException;
+
+        int size();
+    }
+
+    /**
+     * Channel using a Blocking Queue. The stop is signalled with a marker that
+     * each consumer puts back so the next consumer will see it.
+     */
+    static class BlockingChannel implements Channel<Object> {
+
+        private final BlockingQueue<Object> queue;
+
+        private final AtomicInteger waitingConsumers;
+
+        BlockingChannel(BlockingQueue<Object> queue, AtomicInteger waitingConsumers) {
+            this.queue = queue;
+            this.waitingConsumers = waitingConsumers;
+        }
+
+        @Override
+        public boolean offer(Object element) {
+            return queue.offer(element);
+        }
+
+        @Override
+        public void put(Object element) throws InterruptedException {
+            queue.put(element);
+        }
+
+        @Override
+        public boolean takeBatch(Collection<? super Object> batch, int max) throws InterruptedException {
+
+            Object first = queue.poll();
+
+            if (first == null) {
+
+                // queue must be empty.
+                try {
+                    waitingConsumers.incrementAndGet();
+
+                    first = queue.take();
+                } finally {
+                    waitingConsumers.decrementAndGet();
+                }
+            }
+
+            if (first == STOP) {
+                queue.put(STOP);
+                return false;
+            }
+
+            batch.add(first);
+
+            if (max > 1) {
+                List<Object> more = new ArrayList<>(max - 1);
+                queue.drainTo(more, max - 1);
+                int stopAt = more.indexOf(STOP);
+                if (stopAt < 0) {
+                    batch.addAll(more);
+                }
+                else {
+                    // Leave the stop for the next take.
+                    batch.addAll(more.subList(0, stopAt));
+                    for (Object after : more.subList(stopAt, more.size())) {
+                        queue.put(after);
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void stop() throws InterruptedException {
+            queue.put(STOP);
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Channel using a bounded lock-free ring buffer that supports many producers
+     * and many consumers. Each slot has a sequence number that tells a producer
+     * or consumer whether the slot is theirs to use, so the only contention is
+     * a compare and set on the head or tail position. This is the well known
+     * design of Dmitry Vyukov's bounded MPMC queue.
+     * <p>
+     * Waiting producers and consumers spin briefly then park for increasing
+     * periods. If they are still waiting after that they block on a condition
+     * that is only signalled when someone is known to be blocked, so an idle
+     * queue doesn't use any CPU. Stop is a flag all consumers see, so each
+     * finishes once the buffer is empty. Producers can't put on a full
+     * buffer once it is stopped.
+     * </p>
+     */
+    static class RingChannel<T> implements Channel<T> {
+
+        /** Spinning only helps if another thread can run at the same time. */
+        private static final int SPINS =
+                Runtime.getRuntime().availableProcessors() > 1 ? 1_000 : 0;
+
+        private static final int YIELDS = 100;
+
+        private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+        /** About 2 milliseconds of parking before blocking. */
+        private static final int PARKS = 25;
+
+        private final int mask;
+
+        private final AtomicReferenceArray<T> elements;
+
+        private final AtomicLongArray sequences;
+
+        private final AtomicLong head = new AtomicLong();
+
+        private final AtomicLong tail = new AtomicLong();
+
+        private final AtomicInteger waitingConsumers;
+
+        private volatile boolean stopped;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition notEmpty = lock.newCondition();
+
+        private final Condition notFull = lock.newCondition();
+
+        private final AtomicInteger blockedConsumers = new AtomicInteger();
+
+        private final AtomicInteger blockedProducers = new AtomicInteger();
+
+        RingChannel(int capacity, AtomicInteger waitingConsumers) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be positive.");
+            }
+            int size = Integer.highestOneBit(capacity);
+            if (size < capacity) {
+                size = size << 1;
+            }
+            this.mask = size - 1;
+            this.elements = new AtomicReferenceArray<>(size);
+            this.sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; ++i) {
+                sequences.set(i, i);
+            }
+            this.waitingConsumers = waitingConsumers;
+        }
+
+        @Override
+        public boolean offer(T element) {
+            Objects.requireNonNull(element);
+            long position = tail.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        elements.lazySet(index, element);
+                        sequences.set(index, position + 1);
+                        if (blockedConsumers.get() > 0) {
+                            signal(notEmpty);
+                        }
+                        return true;
+                    }
+                    position = tail.get();
+                }
+                else if (difference < 0) {
+                    return false;
+                }
+                else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        /**
+         * Take an element without waiting.
+         *
+         * @return The element or null if the buffer is empty.
+         */
+        T poll() {
+            long position = head.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - (position + 1);
+                if (difference == 0) {
+                    if (head.compareAndSet(position, position + 1)) {
+                        T element = elements.get(index);
+                        elements.lazySet(index, null);
+                        sequences.set(index, position + mask + 1);
+                        return element;
+                    }
+                    position = head.get();
+                }
+                else if (difference < 0) {
+                    return null;
+                }
+                else {
+                    position = head.get();
+                }
+            }
+        }
+
+        @Override
+        public void put(T element) throws InterruptedException {
+            Backoff backoff = new Backoff();
+            while (!offer(element)) {
+                if (stopped) {
+                    throw new IllegalStateException("Queue has been stopped.");
+                }
+                if (!backoff.idle()) {
+                    putBlocking(element);
+                    return;
+                }
+            }
+        }
+
+        private void putBlocking(T element) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                // Counted before trying again so a consumer that takes after the
+                // try is bound to see us.
+                blockedProducers.incrementAndGet();
+                try {
+                    while (!offer(element)) {
+                        if (stopped) {
+                            throw new IllegalStateException("Queue has been stopped.");
+                        }
+                        notFull.await();
+                    }
+                } finally {
+                    blockedProducers.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private T takeBlocking() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                blockedConsumers.incrementAndGet();
+                try {
+                    T element;
+                    while ((element = poll()) == null && !stopped) {
+                        notEmpty.await();
+                    }
+                    return element;
+                } finally {
+                    blockedConsumers.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void signal(Condition condition) {
+            lock.lock();
+            try {
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean takeBatch(Collection<? super T> batch, int max) throws InterruptedException {
+
+            T first = poll();
+            if (first == null) {
+                waitingConsumers.incrementAndGet();
+                try {
+                    Backoff backoff = new Backoff();
+                    while ((first = poll()) == null) {
+                        if (stopped) {
+                            // Check again in case an element arrived before the stop.
+                            first = poll();
+                            if (first == null) {
+                                return false;
+                            }
+                            break;
+                        }
+                        if (!backoff.idle()) {
+                            first = takeBlocking();
+                            if (first == null) {
+                                return false;
+                            }
+                            break;
+                        }
+                    }
+                } finally {
+                    waitingConsumers.decrementAndGet();
+                }
+            }
+
+            batch.add(first);
+
+            for (int i = 1; i < max; ++i) {
+                T next = poll();
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+
+            if (blockedProducers.get() > 0) {
+                signal(notFull);
+            }
+            return true;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+            signal(notEmpty);
+            signal(notFull);
+        }
+
+        @Override
+        public int size() {
+            long size = tail.get() - head.get();
+            return (int) Math.max(0, Math.min(size, mask + 1));
+        }
+
+        /**
+         * Spin, yield, then park for increasing periods.
+         */
+        static class Backoff {
+
+            private int spins;
+
+            private int parks;
+
+            private long parkNanos = 1_000;
+
+            /**
+             * Wait a little.
+             *
+             * @return false if it's time to stop backing off and block.
+             */
+            boolean idle() throws InterruptedException {
+                if (spins < SPINS) {
+                    ++spins;
+                    Thread.onSpinWait();
+                    return true;
+                }
+                if (spins < SPINS + YIELDS) {
+                    ++spins;
+                    Thread.yield();
+                    return true;
+                }
+                if (parks == PARKS) {
+                    return false;
+                }
+                ++parks;
+                LockSupport.parkNanos(parkNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                return true;
+            }
+        }
     }
 
     /**
@@ -116,19 +567,22 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
 
         private int taken;
 
-        private final Future<BlockingQueue<Object>> queue;
-
-        private final AtomicInteger waitingConsumers;
+        private final Future<Channel<Object>> queue;
 
         private final AtomicInteger queueTaken;
 
+        private final int batchSize;
+
+        private final Deque<Object> batch;
+
         private final String name;
 
-        BlockerIterator(Future<BlockingQueue<Object>> queue, AtomicInteger waitingConsumers,
-                AtomicInteger queueTaken, String name) {
+        BlockerIterator(Future<Channel<Object>> queue,
+                AtomicInteger queueTaken, int batchSize, String name) {
             this.queue = Objects.requireNonNull(queue, "Queue Not Started");
-            this.waitingConsumers = waitingConsumers;
             this.queueTaken = queueTaken;
+            this.batchSize = batchSize;
+            this.batch = new ArrayDeque<>(batchSize);
             this.name = name;
         }
 
@@ -140,49 +594,36 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
                 return true;
             }
 
-            BlockingQueue<Object> queue = null;
-            try {
-                queue = this.queue.get();
-            } catch (InterruptedException e) {
-                logger.info("Interrupted waiting for queue.");
-                Thread.currentThread().interrupt();
-            } catch (ExecutionException e) {
-                throw new RuntimeException(e);
-            }
-
-            Object first = queue.poll();
-
-            if (first == null) {
+            if (batch.isEmpty()) {
 
-                // queue must be empty.
+                Channel<Object> queue;
                 try {
-                    waitingConsumers.incrementAndGet();
-
-                    first = queue.take();
+                    queue = this.queue.get();
                 } catch (InterruptedException e) {
-                    logger.info("Interrupted waiting for next value.");
+                    logger.info("Interrupted waiting for queue.");
                     Thread.currentThread().interrupt();
                     return false;
-                } finally {
-                    waitingConsumers.decrementAndGet();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e);
                 }
-            }
 
-            if (first == STOP) {
                 try {
-                    queue.put(STOP);
+                    if (!queue.takeBatch(batch, batchSize)) {
+                        return false;
+                    }
                 } catch (InterruptedException e) {
+                    logger.info("Interrupted waiting for next value.");
                     Thread.currentThread().interrupt();
+                    return false;
                 }
-                return false;
-            } else {
-                next = (E) first;
+            }
 
-                ++this.taken;
-                queueTaken.incrementAndGet();
+            next = (E) batch.poll();
 
-                return true;
-            }
+            ++this.taken;
+            queueTaken.incrementAndGet();
+
+            return true;
         }
 
         @Override
@@ -213,7 +654,7 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
      * @oddjob.required Read only.
      */
     public int getSize() {
-        Queue<?> queue = this.queueFuture.getNow(null);
+        Channel<?> queue = this.queueFuture.getNow(null);
         return (queue == null ? 0 : queue.size());
     }
 
@@ -250,6 +691,26 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
         return waitingConsumers.get();
     }
 
+    public boolean isLockFree() {
+        return lockFree;
+    }
+
+    public void setLockFree(boolean lockFree) {
+        this.lockFree = lockFree;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getProducerBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(producerBlockedNanos.get());
+    }
+
     @Override
     public String toString() {
         if (name == null) {
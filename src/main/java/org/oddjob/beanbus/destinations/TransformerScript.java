@@ -3,15 +3,15 @@ package org.oddjob.beanbus.destinations;
 import org.oddjob.arooa.deploy.annotations.ArooaHidden;
 import org.oddjob.arooa.deploy.annotations.ArooaText;
 import org.oddjob.arooa.life.Configured;
+import org.oddjob.arooa.life.Destroy;
 import org.oddjob.beanbus.AbstractFilter;
 import org.oddjob.beanbus.BusFilter;
+import org.oddjob.script.Evaluatable;
+import org.oddjob.script.ScriptCompiler;
 
 import javax.inject.Inject;
 import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
-import java.util.Objects;
 import java.util.function.Function;
 
 /**
@@ -42,29 +42,28 @@ public class TransformerScript<F, T> extends AbstractFilter<F, T> {
 	
 	private String language;
 	
+	private ScriptCompiler compiler;
+	
 	@SuppressWarnings("unchecked")
 	@Configured
 	public void configured() throws ScriptException {
 		
-		String language = Objects.requireNonNullElse(
-				this.language, "JavaScript");
-		ClassLoader classLoader = Objects.requireNonNullElseGet(
-				this.classLoader, () -> getClass().getClassLoader());
-
-        ScriptEngineManager manager = new ScriptEngineManager(
-        		classLoader);
-
-        ScriptEngine engine = manager.getEngineByName(language);
-
-        engine.eval(script);
+		destroy();
+		
+		ScriptCompiler compiler = new ScriptCompiler(language, classLoader);
+		this.compiler = compiler;
+		
+		Evaluatable evaluatable = compiler.compileScript(script);
+		
+		evaluatable.eval(evaluatable.getScriptContext());
         
-        if (! (engine instanceof Invocable)) {
+		Invocable invocable = compiler.getInvocable();
+		
+        if (invocable == null) {
         	throw new IllegalStateException(
         			"Script Engine is not Invocable.");
         }
         
-        Invocable invocable = (Invocable) engine;
-        
         function = invocable.getInterface(Function.class);
         
         if (function == null) {
@@ -73,6 +72,19 @@ public class TransformerScript<F, T> extends AbstractFilter<F, T> {
         }
 	}
 	
+	/**
+	 * Give the script engine back to the cache.
+	 */
+	@Destroy
+	public void destroy() {
+		ScriptCompiler compiler = this.compiler;
+		if (compiler != null) {
+			this.compiler = null;
+			function = null;
+			compiler.release();
+		}
+	}
+	
 	@Override
 	protected T filter(F from) {
 		
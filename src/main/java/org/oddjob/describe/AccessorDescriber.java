@@ -1,21 +1,19 @@
 package org.oddjob.describe;
 
-import org.oddjob.arooa.ArooaAnnotations;
 import org.oddjob.arooa.ArooaSession;
-import org.oddjob.arooa.deploy.ArooaAnnotation;
-import org.oddjob.arooa.reflect.ArooaClass;
-import org.oddjob.arooa.reflect.BeanOverview;
 import org.oddjob.arooa.reflect.PropertyAccessor;
 
-import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Describe the properties of an object using a {@link PropertyAccessor}.
  * <p>
  * If a property is annotated with {@link NoDescribe} then it will not
  * be described. 
+ * <p>
+ * The properties to describe and how to read them are worked out once for
+ * each class, see {@link DescribePlan}. The description is in order of
+ * property name.
  * 
  * 
  * @author rob
@@ -44,47 +42,11 @@ public class AccessorDescriber implements Describer {
 		PropertyAccessor accessor = 
 				session.getTools().getPropertyAccessor();
 		
-		ArooaClass arooaClass = accessor.getClassName(bean);
-		
-		BeanOverview overview = arooaClass.getBeanOverview(
-				accessor);
-		
-		ArooaAnnotations annotations = 
-				session.getArooaDescriptor().getBeanDescriptor(
-						arooaClass, accessor).getAnnotations();
-		
-		Map<String, String> description = new TreeMap<>();
-
-		String[] properties = overview.getProperties();
-		
-		for (String property : properties ) {
-			
-			if (overview.hasReadableProperty(property) &&
-					!overview.isIndexed(property) &&
-					!overview.isMapped(property)) {
-
-				ArooaAnnotation annotation = 
-						annotations.annotationForProperty(
-								property, NoDescribe.class.getName());
-				if (annotation != null) {
-					continue;
-				}
-				
-				Object value = accessor.getProperty(bean, property);
-				
-				if (value == null) {
-					description.put(property, null);
-				}
-				else if (value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive()) {
-						description.put(property,
-								Arrays.toString((Object[]) value));
-				}
-				else {
-					description.put(property, value.toString());
-				}
-			}
+		DescribePlan plan = DescribePlan.planFor(session, bean);
+		if (plan == null) {
+			plan = DescribePlan.unsharedPlanFor(session, bean);
 		}
 		
-		return description;
+		return plan.describe(bean, accessor);
 	}	
 }
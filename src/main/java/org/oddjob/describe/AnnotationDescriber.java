@@ -35,14 +35,22 @@ public class AnnotationDescriber implements Describer {
 	@Override
 	public Map<String, String> describe(Object bean) {
 		
-		PropertyAccessor accessor = session.getTools().getPropertyAccessor();
-	
-		ArooaBeanDescriptor descriptor = 
-				session.getArooaDescriptor().getBeanDescriptor(
-						accessor.getClassName(bean), accessor);
+		Method method;
 		
-		Method method = descriptor.getAnnotations().methodFor(
-				DescribeWith.class.getName());
+		DescribePlan plan = DescribePlan.planFor(session, bean);
+		if (plan == null) {
+			PropertyAccessor accessor = session.getTools().getPropertyAccessor();
+			
+			ArooaBeanDescriptor descriptor = 
+					session.getArooaDescriptor().getBeanDescriptor(
+							accessor.getClassName(bean), accessor);
+			
+			method = descriptor.getAnnotations().methodFor(
+					DescribeWith.class.getName());
+		}
+		else {
+			method = plan.getDescribeWith();
+		}
 		
 		if (method == null) {
 			return null;
@@ -0,0 +1,248 @@
+package org.oddjob.describe;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.oddjob.arooa.ArooaAnnotations;
+import org.oddjob.arooa.ArooaDescriptor;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.reflect.ArooaClass;
+import org.oddjob.arooa.reflect.ArooaPropertyException;
+import org.oddjob.arooa.reflect.BeanOverview;
+import org.oddjob.arooa.reflect.PropertyAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * What is needed to describe instances of a class: the properties to describe in order,
+ * with {@link NoDescribe} properties already removed, a handle on each getter, and
+ * any {@link DescribeWith} method. A plan is worked out once for each class and descriptor
+ * and then shared.
+ * <p>
+ * Dynamic beans don't get a plan because their properties can differ between instances.
+ *
+ * @author rob
+ *
+ */
+final class DescribePlan {
+
+	private static final Logger logger = LoggerFactory.getLogger(DescribePlan.class);
+
+	private static final MethodType GETTER_TYPE =
+			MethodType.methodType(Object.class, Object.class);
+
+	/** Plans for a class keyed by the descriptor that provided the annotations. */
+	private static final ClassValue<Map<ArooaDescriptor, DescribePlan>> plans =
+			new ClassValue<Map<ArooaDescriptor, DescribePlan>>() {
+		@Override
+		protected Map<ArooaDescriptor, DescribePlan> computeValue(Class<?> type) {
+			return Collections.synchronizedMap(new WeakHashMap<>());
+		}
+	};
+
+	private final PropertyReader[] readers;
+
+	private final Method describeWith;
+
+	private DescribePlan(PropertyReader[] readers, Method describeWith) {
+		this.readers = readers;
+		this.describeWith = describeWith;
+	}
+
+	/**
+	 * Provide the shared plan for a bean.
+	 *
+	 * @param session The session that provides the accessor and descriptor.
+	 * @param bean The bean.
+	 *
+	 * @return The plan, or null if the bean can't have a shared plan.
+	 */
+	static DescribePlan planFor(ArooaSession session, Object bean) {
+
+		if (bean instanceof DynaBean) {
+			return null;
+		}
+
+		PropertyAccessor accessor = session.getTools().getPropertyAccessor();
+
+		ArooaClass arooaClass = accessor.getClassName(bean);
+		if (arooaClass.forClass() != bean.getClass()) {
+			return null;
+		}
+
+		return plans.get(bean.getClass()).computeIfAbsent(
+				session.getArooaDescriptor(),
+				descriptor -> create(arooaClass, accessor, descriptor, true));
+	}
+
+	/**
+	 * Work out a plan that isn't shared, for a bean that can't have a shared plan.
+	 *
+	 * @param session The session that provides the accessor and descriptor.
+	 * @param bean The bean.
+	 *
+	 * @return A plan. Never null.
+	 */
+	static DescribePlan unsharedPlanFor(ArooaSession session, Object bean) {
+
+		PropertyAccessor accessor = session.getTools().getPropertyAccessor();
+
+		return create(accessor.getClassName(bean), accessor,
+				session.getArooaDescriptor(), false);
+	}
+
+	private static DescribePlan create(ArooaClass arooaClass, PropertyAccessor accessor,
+			ArooaDescriptor descriptor, boolean withGetters) {
+
+		BeanOverview overview = arooaClass.getBeanOverview(accessor);
+
+		ArooaAnnotations annotations =
+				descriptor.getBeanDescriptor(arooaClass, accessor).getAnnotations();
+
+		Map<String, MethodHandle> getters = withGetters ?
+				gettersOf(arooaClass.forClass()) : Collections.emptyMap();
+
+		List<PropertyReader> readers = new ArrayList<>();
+
+		for (String property : overview.getProperties()) {
+
+			if (overview.hasReadableProperty(property) &&
+					!overview.isIndexed(property) &&
+					!overview.isMapped(property) &&
+					annotations.annotationForProperty(
+							property, NoDescribe.class.getName()) == null) {
+
+				readers.add(new PropertyReader(property, getters.get(property)));
+			}
+		}
+
+		readers.sort(Comparator.comparing(reader -> reader.name));
+
+		return new DescribePlan(readers.toArray(new PropertyReader[0]),
+				annotations.methodFor(DescribeWith.class.getName()));
+	}
+
+	/**
+	 * Find a handle on each getter that can be used. Properties without one will be
+	 * read using the accessor.
+	 */
+	private static Map<String, MethodHandle> gettersOf(Class<?> cl) {
+
+		Map<String, MethodHandle> getters = new HashMap<>();
+
+		PropertyDescriptor[] descriptors;
+		try {
+			descriptors = Introspector.getBeanInfo(cl).getPropertyDescriptors();
+		}
+		catch (IntrospectionException e) {
+			logger.debug("Failed to introspect {}, properties will be read with the accessor.",
+					cl, e);
+			return getters;
+		}
+
+		for (PropertyDescriptor descriptor : descriptors) {
+
+			Method read = descriptor.getReadMethod();
+			if (read == null || descriptor instanceof IndexedPropertyDescriptor) {
+				continue;
+			}
+			try {
+				getters.put(descriptor.getName(),
+						MethodHandles.publicLookup().unreflect(read).asType(GETTER_TYPE));
+			}
+			catch (IllegalAccessException e) {
+				logger.trace("No access to {}, property will be read with the accessor.", read);
+			}
+		}
+
+		return getters;
+	}
+
+	/**
+	 * Describe a bean. The description is in order of property name.
+	 *
+	 * @param bean The bean.
+	 * @param accessor The accessor for properties without a getter handle.
+	 *
+	 * @return The description.
+	 */
+	Map<String, String> describe(Object bean, PropertyAccessor accessor) {
+
+		Map<String, String> description = new LinkedHashMap<>(
+				readers.length * 4 / 3 + 1);
+
+		for (PropertyReader reader : readers) {
+			description.put(reader.name,
+					toString(reader.read(bean, accessor)));
+		}
+
+		return description;
+	}
+
+	/**
+	 * @return The method annotated with {@link DescribeWith}, or null if there isn't one.
+	 */
+	Method getDescribeWith() {
+		return describeWith;
+	}
+
+	int getPropertyCount() {
+		return readers.length;
+	}
+
+	static String toString(Object value) {
+		if (value == null) {
+			return null;
+		}
+		else if (value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive()) {
+			return Arrays.toString((Object[]) value);
+		}
+		else {
+			return value.toString();
+		}
+	}
+
+	static class PropertyReader {
+
+		private final String name;
+
+		private final MethodHandle getter;
+
+		PropertyReader(String name, MethodHandle getter) {
+			this.name = name;
+			this.getter = getter;
+		}
+
+		Object read(Object bean, PropertyAccessor accessor) {
+			if (getter == null) {
+				return accessor.getProperty(bean, name);
+			}
+			try {
+				return (Object) getter.invokeExact(bean);
+			}
+			catch (Error e) {
+				throw e;
+			}
+			catch (Throwable t) {
+				// Fail as the accessor would, without calling the getter again.
+				throw new ArooaPropertyException(name, "Failed to get property.", t);
+			}
+		}
+	}
+}
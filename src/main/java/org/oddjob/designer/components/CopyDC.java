@@ -7,6 +7,7 @@ import org.oddjob.arooa.design.DesignFactory;
 import org.oddjob.arooa.design.DesignInstance;
 import org.oddjob.arooa.design.DesignProperty;
 import org.oddjob.arooa.design.SimpleDesignProperty;
+import org.oddjob.arooa.design.SimpleTextAttribute;
 import org.oddjob.arooa.design.etc.FileAttribute;
 import org.oddjob.arooa.design.screem.BorderedGroup;
 import org.oddjob.arooa.design.screem.FieldSelection;
@@ -41,6 +42,12 @@ class CopyDesign extends BaseDC {
 
 	private final SimpleDesignProperty consumer;
 
+	private final SimpleTextAttribute concurrency;
+
+	private final SimpleTextAttribute incremental;
+
+	private final SimpleTextAttribute checksum;
+
 	public CopyDesign(ArooaElement element, ArooaContext parentContext) {
 		super(element, parentContext);
 		
@@ -57,10 +64,17 @@ class CopyDesign extends BaseDC {
 
 		consumer = new SimpleDesignProperty(
 				"consumer", this);
+
+		concurrency = new SimpleTextAttribute("concurrency", this);
+
+		incremental = new SimpleTextAttribute("incremental", this);
+
+		checksum = new SimpleTextAttribute("checksum", this);
 	}
 	
 	public DesignProperty[] children() {
-		return new DesignProperty[] { name, from, to, input, output, consumer };
+		return new DesignProperty[] { name, from, to, input, output, consumer,
+				concurrency, incremental, checksum };
 	}
 	
 	public Form detail() {
@@ -75,7 +89,11 @@ class CopyDesign extends BaseDC {
 					.add(new FieldSelection()
 							.add(to.view().setTitle("File/Dir"))
 							.add(output.view().setTitle("Output"))
-							.add(consumer.view().setTitle("Consumer"))));
+							.add(consumer.view().setTitle("Consumer"))))
+			.addFormItem(new BorderedGroup("Options")
+					.add(concurrency.view().setTitle("Concurrency"))
+					.add(incremental.view().setTitle("Incremental"))
+					.add(checksum.view().setTitle("Checksum")));
 	}
 	
 }
@@ -60,6 +60,12 @@ class SqlDesign extends BaseDC {
 
 	private final SimpleDesignProperty dialect;
 	
+	private final SimpleTextAttribute fetchSize;
+	
+	private final SimpleTextAttribute readAhead;
+	
+	private final SimpleTextAttribute readAheadBatchSize;
+	
 	public SqlDesign(ArooaElement element, ArooaContext parentContext) {
 		super(element, parentContext);
 
@@ -90,6 +96,12 @@ class SqlDesign extends BaseDC {
 		keepFormat = new SimpleTextAttribute("keepFormat", this);
 		
 		dialect = new SimpleDesignProperty("dialect", this);
+		
+		fetchSize = new SimpleTextAttribute("fetchSize", this);
+		
+		readAhead = new SimpleTextAttribute("readAhead", this);
+		
+		readAheadBatchSize = new SimpleTextAttribute("readAheadBatchSize", this);
 	}
 	
 	public Form detail() {
@@ -120,6 +132,9 @@ class SqlDesign extends BaseDC {
 					)
 					.add(new FieldGroup("Advanced")
 						.add(dialect.view().setTitle("Database Dialect"))
+						.add(fetchSize.view().setTitle("Fetch Size"))
+						.add(readAhead.view().setTitle("Read Ahead"))
+						.add(readAheadBatchSize.view().setTitle("Read Ahead Batch Size"))
 					)
 				);					
 	}
@@ -129,6 +144,7 @@ class SqlDesign extends BaseDC {
 		return new DesignProperty[] { name, connection, input, 
 				parameters, autocommit, callable, escapeProcessing, 
 				onError, results, expandProperties, delimiter, 
-				delimiterType, keepFormat, encoding, dialect};
+				delimiterType, keepFormat, encoding, dialect, 
+				fetchSize, readAhead, readAheadBatchSize };
 	}
 }
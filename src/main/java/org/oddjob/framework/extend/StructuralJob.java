@@ -63,7 +63,7 @@ implements
 	
 	private void completeConstruction() {
 		stateHandler = new ParentStateHandler(this);		
-		childHelper = new ChildHelper<E>(this);
+		childHelper = newChildHelper();
 		structuralState = new StructuralStateHelper(childHelper, 
 				getInitialStateOp());
 		iconHelper = new IconHelper(this, 
@@ -74,6 +74,18 @@ implements
 				new OrderedStateChanger<>(stateChanger, stateHandler));
 	}
 		
+	/**
+	 * Create the helper that tracks children. Called during construction
+	 * and deserialisation so must not rely on any subclass fields.
+	 * Subclasses that may have a very large number of children can
+	 * provide a different implementation.
+	 * 
+	 * @return A new Child Helper. Never null.
+	 */
+	protected ChildHelper<E> newChildHelper() {
+		return new ChildHelper<>(this);
+	}
+	
 	@Override
 	protected ParentStateHandler stateHandler() {
 		return stateHandler;
@@ -10,9 +10,11 @@ import java.io.ByteArrayInputStream;
 import java.io.IOError;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 
@@ -176,6 +178,16 @@ public class IconHelper implements Iconic {
 		defaultIconMap.put(ACTIVE, activeIcon);
 	}
 
+	/**
+	 * The ids of the standard icons. Components with their own icon map are
+	 * expected to provide icons for at least these.
+	 *
+	 * @return The ids. Never null.
+	 */
+	public static Set<String> standardIconIds() {
+		return Collections.unmodifiableSet(defaultIconMap.keySet());
+	}
+
 	private final Iconic source;
 	private volatile IconEvent lastEvent;
 	private final List<IconListener> listeners = new ArrayList<>();
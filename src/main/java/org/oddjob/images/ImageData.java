@@ -7,6 +7,10 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 
 /**
  * Used for serialisation for of Icons between client and server. Replaces serialisation in
@@ -23,6 +27,9 @@ public class ImageData implements Serializable {
 
     private final String description;
 
+    /** Calculated when first required. */
+    private transient volatile String digest;
+
     public ImageData(byte[] bytes, String mimeType, String description) {
         this.bytes = bytes;
         this.mimeType = mimeType;
@@ -41,6 +48,41 @@ public class ImageData implements Serializable {
         return description;
     }
 
+    /**
+     * Provide a digest of the content of this image, its bytes, mime type and description.
+     * Two images with the same digest can be used interchangeably, which allows
+     * clients to cache images by their content rather than by where they came from.
+     * The digest is only calculated once for an instance.
+     *
+     * @return The digest. Never null.
+     */
+    public String digest() {
+        String digest = this.digest;
+        if (digest == null) {
+            MessageDigest messageDigest;
+            try {
+                messageDigest = MessageDigest.getInstance("SHA-256");
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            if (bytes != null) {
+                messageDigest.update(bytes);
+            }
+            messageDigest.update((byte) 0);
+            if (mimeType != null) {
+                messageDigest.update(mimeType.getBytes(StandardCharsets.UTF_8));
+            }
+            messageDigest.update((byte) 0);
+            if (description != null) {
+                messageDigest.update(description.getBytes(StandardCharsets.UTF_8));
+            }
+            digest = Base64.getEncoder().encodeToString(messageDigest.digest());
+            this.digest = digest;
+        }
+        return digest;
+    }
+
     public static ImageData fromUrl(URL url, String description) throws IOException {
 
         URLConnection connection = url.openConnection();
@@ -0,0 +1,293 @@
+package org.oddjob.io;
+
+import org.oddjob.io.WildcardSpec.DirectorySplit;
+import org.oddjob.util.Restore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Keeps the last expansion of a {@link WildcardSpec} and updates it from
+ * file system events instead of looking in every directory again.
+ * <p>
+ * Every directory the expansion looks in is watched, using the shared
+ * {@link WatchReactor}, for files being created and deleted. A created file that matches is added, and when a new directory
+ * matches only that directory is expanded. A deleted file is removed along with
+ * anything below it. If events are lost, a watched directory goes without its
+ * parent being watched, or a directory the specification needs doesn't exist yet,
+ * the next call to {@link #findFiles()} expands the specification in full.
+ * </p>
+ *
+ * @author rob
+ */
+public class CachedWildcardSpec implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(CachedWildcardSpec.class);
+
+	private final File file;
+
+	/** The last expansion, kept up to date. */
+	private final NavigableSet<File> files = new ConcurrentSkipListSet<>();
+
+	private static final WatchEvent.Kind<?>[] KINDS = {
+			StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE };
+
+	/** Each watched directory. */
+	private final Map<Path, Watch> watched = new HashMap<>();
+
+	/** The watcher for the current expansion. Replaced by each full expansion. */
+	private Watcher watcher;
+
+	/** Must the specification be expanded in full on the next call. */
+	private boolean stale = true;
+
+	private boolean closed;
+
+	/**
+	 * Create a new instance with a file.
+	 *
+	 * @param file The file that may contain wild cards.
+	 */
+	public CachedWildcardSpec(File file) {
+		this.file = Objects.requireNonNull(file, "No file.");
+	}
+
+	/**
+	 * Find all files matching the specification. The first call looks in every
+	 * directory, later calls only do so if the last expansion can't be trusted.
+	 *
+	 * @return The files, sorted. Never null.
+	 * @throws IOException
+	 */
+	public synchronized File[] findFiles() throws IOException {
+
+		if (closed) {
+			throw new IllegalStateException("Closed.");
+		}
+
+		if (stale) {
+			expandAll();
+		}
+
+		return files.toArray(new File[0]);
+	}
+
+	/**
+	 * The file that may contain wild cards.
+	 *
+	 * @return The file. Never null.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Will the next call to {@link #findFiles()} look in every directory again.
+	 *
+	 * @return true if it will.
+	 */
+	public synchronized boolean isStale() {
+		return stale;
+	}
+
+	/**
+	 * The number of directories being watched.
+	 *
+	 * @return The number of directories.
+	 */
+	public synchronized int getWatchedDirectoryCount() {
+		return watched.size();
+	}
+
+	private void expandAll() throws IOException {
+
+		unwatchAll();
+		files.clear();
+
+		// Set by the watcher if anything can't be watched.
+		stale = false;
+
+		logger.debug("Expanding {} in full.", file);
+
+		watcher = new Watcher();
+		WildcardSpec.expand(new DirectorySplit(file), files::add, watcher);
+	}
+
+	private void unwatchAll() {
+		watched.values().forEach(watch -> watch.restore.close());
+		watched.clear();
+	}
+
+	private void created(Level level, Path path) {
+		if (!level.matcher.matches(path.getFileName())) {
+			return;
+		}
+		try {
+			WildcardSpec.matched(level.split, path, files::add, watcher);
+			if (level.recursive && path.toFile().isDirectory()) {
+				watcher.lookingIn(path, level.split, true);
+				WildcardSpec.list(path, level.split, true, files::add, watcher);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			logger.debug("Failed adding {}, expanding {} next time.", path, file, e);
+			stale = true;
+		}
+	}
+
+	/**
+	 * Remove a path and everything below it. Paths below a directory sort
+	 * together but not necessarily straight after it, so start from the
+	 * lowest possible child.
+	 */
+	private void removed(File removed) {
+		files.remove(removed);
+		String prefix = removed.getPath() + File.separator;
+		for (Iterator<File> it = files.tailSet(new File(prefix + '\0')).iterator();
+				it.hasNext(); ) {
+			if (!it.next().getPath().startsWith(prefix)) {
+				break;
+			}
+			it.remove();
+		}
+	}
+
+	/**
+	 * Stop watching.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		unwatchAll();
+		files.clear();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + file;
+	}
+
+	/**
+	 * A watched directory.
+	 */
+	static class Watch {
+
+		private final Restore restore;
+
+		private final List<Level> levels = new ArrayList<>();
+
+		Watch(Restore restore) {
+			this.restore = restore;
+		}
+	}
+
+	/**
+	 * Why a directory is being watched.
+	 */
+	static class Level {
+
+		private final DirectorySplit split;
+
+		private final boolean recursive;
+
+		private final PathMatcher matcher;
+
+		Level(Path dir, DirectorySplit split, boolean recursive) {
+			this.split = split;
+			this.recursive = recursive;
+			this.matcher = WildcardSpec.matcherFor(dir, split.getName());
+		}
+	}
+
+	/**
+	 * Watches directories for one expansion. Events for an earlier expansion are
+	 * ignored.
+	 */
+	class Watcher implements WildcardSpec.Watcher, WatchReactor.Listener {
+
+		@Override
+		public void lookingIn(Path dir, DirectorySplit split, boolean recursive) {
+			Watch watch = watched.get(dir);
+			if (watch == null) {
+				try {
+					watch = new Watch(WatchReactor.of(dir.getFileSystem())
+							.watch(dir, KINDS, this));
+				}
+				catch (IOException e) {
+					logger.debug("Can't watch {}, expanding {} every time.", dir, file, e);
+					stale = true;
+					return;
+				}
+				watched.put(dir, watch);
+			}
+			watch.levels.add(new Level(dir, split, recursive));
+		}
+
+		@Override
+		public void missing(File dir) {
+			logger.debug("{} doesn't exist, expanding {} every time.", dir, file);
+			stale = true;
+		}
+
+		@Override
+		public void onEvent(WatchEvent.Kind<?> kind, Path path) {
+			synchronized (CachedWildcardSpec.this) {
+				if (closed || watcher != this) {
+					return;
+				}
+				if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+					removed(path.toFile());
+					return;
+				}
+				Watch watch = watched.get(path.getParent());
+				if (watch != null) {
+					for (Level level : new ArrayList<>(watch.levels)) {
+						created(level, path);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void onOverflow(Path dir) {
+			synchronized (CachedWildcardSpec.this) {
+				if (watcher == this) {
+					logger.debug("Events lost for {}, expanding {} next time.", dir, file);
+					stale = true;
+				}
+			}
+		}
+
+		@Override
+		public void onInvalid(Path dir) {
+			synchronized (CachedWildcardSpec.this) {
+				if (watcher != this || watched.remove(dir) == null) {
+					return;
+				}
+				// If it exists again it may have been created before this was known.
+				if (!watched.containsKey(dir.getParent()) || Files.exists(dir)) {
+					logger.debug("{} no longer watched, expanding {} next time.", dir, file);
+					stale = true;
+				}
+			}
+		}
+	}
+}
@@ -3,16 +3,36 @@ package org.oddjob.io;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.oddjob.arooa.deploy.annotations.ArooaAttribute;
+import org.oddjob.arooa.deploy.annotations.ArooaHidden;
 import org.oddjob.beanbus.Destination;
 import org.oddjob.util.OddjobConfigException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.zip.CRC32C;
 
 
 /**
@@ -25,6 +45,13 @@ import java.util.function.Consumer;
  *   <li>An input to an output.</li>
  *   <li>A file or input by lines to a Consumer such as a Bean Bus Destination</li>
  * </ul>
+ * <p>
+ * When concurrency is set, or incremental is true, files and directories are
+ * copied with NIO channels, several files at once, using Oddjob's executor.
+ * The number of files, the bytes and the bytes per second are updated as the
+ * copy progresses. An incremental copy skips files that are already the same
+ * size with the same modified time, or the same checksum if checksum is true.
+ * </p>
  * 
  * @oddjob.example
  * 
@@ -40,6 +67,13 @@ import java.util.function.Consumer;
  * 
  * @oddjob.example
  * 
+ * Copy a directory, four files at a time, only copying files that
+ * have changed.
+ * 
+ * {@oddjob.xml.resource org/oddjob/io/CopyDirectoryIncremental.xml}
+ * 
+ * @oddjob.example
+ * 
  * Copy from a file to a buffer.
  * 
  * {@oddjob.xml.resource org/oddjob/io/CopyFileToBuffer.xml}
@@ -115,6 +149,66 @@ public class CopyJob implements Runnable, Serializable {
 	 */
 	private int directoriesCopied;
 	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of files not copied because they
+	 * were already up to date.
+	 * @oddjob.required Read Only.
+	 */
+	private int filesSkipped;
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of bytes copied.
+	 * @oddjob.required Read Only.
+	 */
+	private long bytesCopied;
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The bytes copied per second, while the copy is running
+	 * or for the last copy.
+	 * @oddjob.required Read Only.
+	 */
+	private long bytesPerSecond;
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of files to copy at the same time. Setting
+	 * this uses NIO channels to copy files and directories.
+	 * @oddjob.required No. Defaults to 0 which copies one file at a time with
+	 * streams.
+	 */
+	private int concurrency;
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description Only copy a file if the file it would replace isn't 
+	 * the same size with the same modified time. Setting this uses NIO channels 
+	 * to copy files and directories.
+	 * @oddjob.required No. Defaults to false.
+	 */
+	private boolean incremental;
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description With incremental, compare a checksum of the contents 
+	 * of files of the same size instead of their modified times.
+	 * @oddjob.required No. Defaults to false.
+	 */
+	private boolean checksum;
+	
+	/**
+	 * @oddjob.property executorService
+	 * @oddjob.description The executor used to copy files at the same time. 
+	 * This will be automatically set by Oddjob.
+	 * @oddjob.required No.
+	 */
+	private transient volatile ExecutorService executorService;
+	
+	/** Progress of the copy while it's running. */
+	private transient volatile CopyStats stats;
+	
 	/**
 	 * Get the name.
 	 * 
@@ -189,26 +283,89 @@ public class CopyJob implements Runnable, Serializable {
 	}
 
 	public int getFilesCopied() {
-		return filesCopied;
+		CopyStats stats = this.stats;
+		return stats == null ? filesCopied : stats.files.get();
 	}
 	
 	public int getDirectoriesCopied() {
-		return directoriesCopied;
+		CopyStats stats = this.stats;
+		return stats == null ? directoriesCopied : stats.directories.get();
+	}
+	
+	public int getFilesSkipped() {
+		CopyStats stats = this.stats;
+		return stats == null ? filesSkipped : stats.skipped.get();
+	}
+	
+	public long getBytesCopied() {
+		CopyStats stats = this.stats;
+		return stats == null ? bytesCopied : stats.bytes.get();
+	}
+	
+	public long getBytesPerSecond() {
+		CopyStats stats = this.stats;
+		return stats == null ? bytesPerSecond : stats.bytesPerSecond();
 	}
 	
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public boolean isChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(boolean checksum) {
+		this.checksum = checksum;
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	@ArooaHidden
+	@Inject
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+
 	public void run() {
+		
+		CopyStats stats = new CopyStats();
+		this.stats = stats;
+		
 		try (CopyCommand command = command()) {
 
 			logger.info("Performing {}", command);
 			
-			CopyStats stats = new CopyStats();
 			command.copy(stats);
-			logger.info("Copied {} files, {} directories.", stats.files, stats.directories );
-			this.filesCopied = stats.files;
-			this.directoriesCopied = stats.directories;
+			logger.info("Copied {} files, {} directories, {} bytes at {} bytes per second, skipped {} files.", 
+					stats.files, stats.directories, stats.bytes, 
+					stats.bytesPerSecond(), stats.skipped);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+		finally {
+			stats.finish();
+			this.filesCopied = stats.files.get();
+			this.directoriesCopied = stats.directories.get();
+			this.filesSkipped = stats.skipped.get();
+			this.bytesCopied = stats.bytes.get();
+			this.bytesPerSecond = stats.bytesPerSecond();
+			this.stats = null;
+		}
 	}
 		
 	private CopyCommand command() throws IOException {
@@ -249,7 +406,16 @@ public class CopyJob implements Runnable, Serializable {
 			else if (output != null) {
 				return new StreamCopy(singleFrom, output);
 			}
-			else if (singleFrom.isDirectory()) {
+		}
+		
+		if (concurrency > 0 || incremental) {
+			return new ChannelCopy(possiblyMany, to, 
+					Math.max(1, concurrency), executorService,
+					incremental, checksum);
+		}
+		
+		if (singleFrom != null) {
+			if (singleFrom.isDirectory()) {
 				return new DirectoryCopy(singleFrom, to);
 			} else {
 				return new FileCopy(singleFrom, to);
@@ -324,9 +490,9 @@ public class CopyJob implements Runnable, Serializable {
 		
 		@Override
 		public void copy(CopyStats stats) throws IOException {
-			IOUtils.copy(in, out);
+			stats.bytes.addAndGet(IOUtils.copyLarge(in, out));
 
-			stats.files++;
+			stats.files.incrementAndGet();
 		}
 
 		@Override
@@ -362,7 +528,8 @@ public class CopyJob implements Runnable, Serializable {
 			else {
 				FileUtils.copyFile(from, to);
 			}
-			stats.files++;
+			stats.bytes.addAndGet(from.length());
+			stats.files.incrementAndGet();
 		}
 
 		@Override
@@ -399,7 +566,7 @@ public class CopyJob implements Runnable, Serializable {
 		@Override
 		public void copy(CopyStats stats) throws IOException {
 			FileUtils.copyDirectory(fromDir, toDir);
-			stats.directories++;
+			stats.directories.incrementAndGet();
 		}
 
 		@Override
@@ -475,7 +642,7 @@ public class CopyJob implements Runnable, Serializable {
 					.lines()
 					.forEach(out);
 
-			stats.files++;
+			stats.files.incrementAndGet();
 		}
 
 		@Override
@@ -489,8 +656,276 @@ public class CopyJob implements Runnable, Serializable {
 		}
 	}
 
+	/**
+	 * Copies files and directories using {@link FileChannel#transferTo}, which lets
+	 * the operating system move the bytes without them passing through the JVM. 
+	 * Directories are walked on the job thread and their files copied on the
+	 * executor, no more than concurrency at once. Directories are created as they
+	 * are found and have their modified times set once all their files are copied.
+	 */
+	static class ChannelCopy implements CopyCommand {
+		
+		private final List<Path> sources = new ArrayList<>();
+		
+		private final List<Path> targets = new ArrayList<>();
+		
+		private final int concurrency;
+		
+		private final Executor executor;
+		
+		private final boolean incremental;
+		
+		private final boolean checksum;
+		
+		private final Semaphore permits;
+		
+		private final AtomicReference<Exception> failure = new AtomicReference<>();
+		
+		ChannelCopy(File[] from, File to, int concurrency, Executor executor,
+				boolean incremental, boolean checksum) {
+			
+			if (from.length == 1) {
+				File single = from[0];
+				if (single.isDirectory()) {
+					if (to == null) {
+						throw new RuntimeException("To dir not specified.");
+					}
+					if (to.exists()) {
+						if (!to.isDirectory()) {
+							throw new OddjobConfigException("To must be a directory.");	    		
+						}
+						add(single, new File(to, single.getName()));
+					}
+					else {
+						add(single, to);
+					}
+				}
+				else {
+					Objects.requireNonNull(to, "Nothing to copy the file to.");
+					add(single, to.isDirectory() ? new File(to, single.getName()) : to);
+				}
+			}
+			else {
+		    	if (to == null) {
+		    		throw new RuntimeException("To dir is not specified.");
+		    	}
+		    	if (!to.isDirectory()) {
+		    		throw new RuntimeException("To must be a directory.");	    		
+		    	}
+		    	for (File file : from) {
+		    		add(file, new File(to, file.getName()));
+		    	}
+			}
+			
+			this.concurrency = concurrency;
+			this.executor = concurrency > 1 && executor != null ? executor : Runnable::run;
+			this.incremental = incremental;
+			this.checksum = checksum;
+			this.permits = new Semaphore(concurrency);
+		}
+		
+		private void add(File source, File target) {
+			sources.add(source.toPath());
+			targets.add(target.toPath());
+		}
+		
+		@Override
+		public void copy(CopyStats stats) throws IOException {
+			
+			List<Path> directories = new ArrayList<>();
+			List<FileTime> directoryTimes = new ArrayList<>();
+			
+			try {
+				for (int i = 0; i < sources.size() && failure.get() == null; ++i) {
+					Path source = sources.get(i);
+					Path target = targets.get(i);
+					
+					if (Files.isDirectory(source)) {
+						Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+							
+							@Override
+							public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) 
+									throws IOException {
+								Path dirTarget = target.resolve(source.relativize(dir).toString());
+								Files.createDirectories(dirTarget);
+								directories.add(dirTarget);
+								directoryTimes.add(attrs.lastModifiedTime());
+								return FileVisitResult.CONTINUE;
+							}
+							
+							@Override
+							public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) 
+									throws IOException {
+								submit(file, target.resolve(source.relativize(file).toString()), stats);
+								return failure.get() == null ? 
+										FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+							}
+						});
+						stats.directories.incrementAndGet();
+					}
+					else {
+						Path parent = target.toAbsolutePath().getParent();
+						if (parent != null) {
+							Files.createDirectories(parent);
+						}
+						submit(source, target, stats);
+					}
+				}
+			}
+			finally {
+				awaitAll();
+			}
+			
+			Exception e = failure.get();
+			if (e instanceof IOException) {
+				throw (IOException) e;
+			}
+			if (e != null) {
+				throw (RuntimeException) e;
+			}
+			
+			for (int i = 0; i < directories.size(); ++i) {
+				Files.setLastModifiedTime(directories.get(i), directoryTimes.get(i));
+			}
+		}
+		
+		private void submit(Path source, Path target, CopyStats stats) throws IOException {
+			
+			try {
+				permits.acquire();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted copying " + source);
+			}
+			
+			try {
+				executor.execute(() -> {
+					try {
+						if (failure.get() == null) {
+							copyFile(source, target, stats);
+						}
+					}
+					catch (IOException | RuntimeException e) {
+						failure.compareAndSet(null, e);
+					}
+					finally {
+						permits.release();
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				permits.release();
+				throw new IOException("Failed to copy " + source, e);
+			}
+		}
+		
+		private void awaitAll() throws InterruptedIOException {
+			try {
+				permits.acquire(concurrency);
+				permits.release(concurrency);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for files to copy.");
+			}
+		}
+		
+		private void copyFile(Path source, Path target, CopyStats stats) throws IOException {
+			
+			// Truncating the target would destroy the source.
+			if (Files.exists(target) && Files.isSameFile(source, target)) {
+				throw new IOException("Source " + source + " and target " + target + 
+						" are the same file.");
+			}
+			
+			if (incremental && upToDate(source, target)) {
+				stats.skipped.incrementAndGet();
+				return;
+			}
+			
+			try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				 FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+						 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				
+				long size = in.size();
+				long position = 0;
+				while (position < size) {
+					long transferred = in.transferTo(position, size - position, out);
+					if (transferred <= 0) {
+						break;
+					}
+					position += transferred;
+					stats.bytes.addAndGet(transferred);
+				}
+			}
+			
+			Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+			stats.files.incrementAndGet();
+		}
+		
+		private boolean upToDate(Path source, Path target) throws IOException {
+			
+			if (!Files.isRegularFile(target) || Files.size(source) != Files.size(target)) {
+				return false;
+			}
+			if (checksum) {
+				return checksumOf(source) == checksumOf(target);
+			}
+			else {
+				return Files.getLastModifiedTime(source).toMillis() ==
+						Files.getLastModifiedTime(target).toMillis();
+			}
+		}
+		
+		static long checksumOf(Path path) throws IOException {
+			CRC32C crc = new CRC32C();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				while (channel.read(buffer) >= 0) {
+					buffer.flip();
+					crc.update(buffer);
+					buffer.clear();
+				}
+			}
+			return crc.getValue();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			// Channels are closed as each file is copied.
+		}
+		
+		@Override
+		public String toString() {
+			return "Channel copy of " + sources.size() + " files or directories to " +
+					(targets.size() == 1 ? targets.get(0) : targets.get(0).getParent()) +
+					", concurrency " + concurrency + (incremental ? ", incremental" : "");
+		}
+	}
+	
 	static class CopyStats {
-		int files;
-		int directories;
+		
+		final AtomicInteger files = new AtomicInteger();
+		
+		final AtomicInteger directories = new AtomicInteger();
+		
+		final AtomicInteger skipped = new AtomicInteger();
+		
+		final AtomicLong bytes = new AtomicLong();
+		
+		private final long started = System.nanoTime();
+		
+		private volatile long finished;
+		
+		void finish() {
+			finished = System.nanoTime();
+		}
+		
+		long bytesPerSecond() {
+			long end = finished == 0 ? System.nanoTime() : finished;
+			long nanos = end - started;
+			return nanos <= 0 ? 0 : (long) (bytes.get() * 1e9 / nanos);
+		}
 	}
 }
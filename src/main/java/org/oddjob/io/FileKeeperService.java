@@ -0,0 +1,719 @@
+package org.oddjob.io;
+
+import org.oddjob.scheduling.Keeper;
+import org.oddjob.scheduling.LoosingOutcome;
+import org.oddjob.scheduling.Outcome;
+import org.oddjob.scheduling.WinningOutcome;
+import org.oddjob.state.IsAnyState;
+import org.oddjob.state.IsStoppable;
+import org.oddjob.state.JobState;
+import org.oddjob.state.JobStateHandler;
+import org.oddjob.state.StateEvent;
+import org.oddjob.state.StateListener;
+import org.oddjob.util.Restore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @oddjob.description Provides a {@link Keeper} that uses lease files in a
+ * directory shared by Oddjob processes on the same host.
+ * <p>
+ * The first to write a lease file for a keeper key and instance wins. Who
+ * wins is decided holding a {@link FileChannel} lock on a lock file in the
+ * directory so only one process decides at a time. The lease file holds
+ * the winner, the time of its last heartbeat, and whether the work is
+ * complete.
+ * <p>
+ * The winner updates its heartbeat every <code>heartbeatInterval</code>
+ * until the work is complete or the service is stopped. A lease that hasn't
+ * had a heartbeat for <code>leaseExpiry</code> is taken over by the next
+ * grab, which wins.
+ * <p>
+ * A {@link LoosingOutcome} watches the directory with the
+ * {@link WatchReactor} instead of polling, so it completes as soon as the
+ * file system reports the lease has changed. If the winner stops heart
+ * beating the loosing outcome flags an exception state, and a retry will
+ * take the work over. How soon changes are reported depends on the file
+ * system's watch service, some platforms poll.
+ * <p>
+ * This service does not tidy up lease files so they will grow indefinitely.
+ * A separate tidy job should be used.
+ *
+ * @oddjob.example
+ *
+ * See the User Guide.
+ *
+ * @author rob
+ */
+public class FileKeeperService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileKeeperService.class);
+
+    /** The default time between heartbeats in milliseconds. */
+    public static final long DEFAULT_HEARTBEAT_INTERVAL = 1000L;
+
+    /** The default time without a heartbeat before a lease expires. */
+    public static final long DEFAULT_LEASE_EXPIRY = 5000L;
+
+    /** The name of the file locked while deciding the winner. */
+    public static final String LOCK_FILE = "keeper.lock";
+
+    /** The suffix of lease files. */
+    public static final String LEASE_SUFFIX = ".lease";
+
+    private static final WatchEvent.Kind<?>[] LEASE_EVENTS = {
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY };
+
+    /** A file lock is held by the whole JVM, so threads in it must also take turns. */
+    private static final Object JVM_LOCK = new Object();
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The name.
+     * @oddjob.required No.
+     */
+    private volatile String name;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The directory for lease files. It must be shared
+     * by all the processes that grab from this keeper.
+     * @oddjob.required Yes.
+     */
+    private volatile Path dir;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The time between a winner's heartbeats in
+     * milliseconds.
+     * @oddjob.required No - defaults to 1000.
+     */
+    private volatile long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The time in milliseconds without a heartbeat
+     * after which a winner is taken to have died. This should be several
+     * heartbeat intervals.
+     * @oddjob.required No - defaults to 5000.
+     */
+    private volatile long leaseExpiry = DEFAULT_LEASE_EXPIRY;
+
+    /**
+     * @oddjob.property scheduleExecutorService
+     * @oddjob.description The scheduling service for heartbeats and for
+     * checking leases have expired.
+     * @oddjob.required No - provided by Oddjob.
+     */
+    private volatile ScheduledExecutorService scheduler;
+
+    /** Flag to indicate service is running. */
+    private volatile boolean running;
+
+    /** Winners heart beating so they can be stopped. */
+    private final List<AWinningOutcome> winners = new ArrayList<>();
+
+    /** Loosers watching so they can be stopped. */
+    private final List<ALoosingOutcome> loosers = new ArrayList<>();
+
+    /**
+     * Start the service.
+     *
+     * @throws IOException If the directory can't be created.
+     */
+    public void start() throws IOException {
+
+        Path dir = Objects.requireNonNull(this.dir, "No Directory.");
+        Objects.requireNonNull(this.scheduler, "No Scheduler.");
+
+        Files.createDirectories(dir);
+
+        running = true;
+    }
+
+    /**
+     * Stop the service. Winners stop heart beating, so their work will be
+     * taken over if it isn't completed before the lease expires. Loosers
+     * are stopped.
+     */
+    public void stop() {
+
+        running = false;
+
+        List<AWinningOutcome> winners;
+        synchronized (this.winners) {
+            winners = new ArrayList<>(this.winners);
+            this.winners.clear();
+        }
+        winners.forEach(AWinningOutcome::stopHeartbeat);
+
+        List<ALoosingOutcome> loosers;
+        synchronized (this.loosers) {
+            loosers = new ArrayList<>(this.loosers);
+        }
+        loosers.forEach(ALoosingOutcome::stop);
+    }
+
+    /**
+     * Provide a {@link Keeper}.
+     *
+     * @param keeperKey The keepers key. Must not be null.
+     *
+     * @return A keeper. Never null.
+     */
+    public Keeper getKeeper(final String keeperKey) {
+
+        Objects.requireNonNull(keeperKey, "No Identifier.");
+
+        return new Keeper() {
+
+            @Override
+            public Outcome grab(String ourIdentifier, Object instanceIdentifier) {
+
+                if (!running) {
+                    throw new IllegalStateException(
+                            "FileKeeperService not Running.");
+                }
+                Objects.requireNonNull(ourIdentifier,
+                        "The Grabber Identifier must not be null.");
+                Objects.requireNonNull(instanceIdentifier,
+                        "The Instance Identifier must not be null.");
+
+                Path leaseFile = leaseFileFor(keeperKey, instanceIdentifier);
+
+                try {
+                    Lease lease = locked(() -> {
+                        long now = System.currentTimeMillis();
+                        Lease existing = Lease.read(leaseFile);
+                        if (existing == null) {
+                            logger.info("{} won grab for {}", ourIdentifier,
+                                    instanceIdentifier);
+                        }
+                        else if (existing.isExpired(now, leaseExpiry)) {
+                            logger.info("{} took over grab for {} from {}, " +
+                                    "last heartbeat {}", ourIdentifier,
+                                    instanceIdentifier, existing.winner,
+                                    Instant.ofEpochMilli(existing.heartbeat));
+                        }
+                        else if (ourIdentifier.equals(existing.winner)
+                                && !existing.complete) {
+                            // Winner must be restarting
+                            logger.info("{} resumed grab for {}", ourIdentifier,
+                                    instanceIdentifier);
+                        }
+                        else {
+                            logger.info("{} lost grab for {}", ourIdentifier,
+                                    instanceIdentifier);
+                            return existing;
+                        }
+                        Lease ours = new Lease(ourIdentifier, now, false);
+                        ours.write(leaseFile);
+                        return ours;
+                    });
+
+                    if (ourIdentifier.equals(lease.winner) && !lease.complete) {
+                        return new AWinningOutcome(ourIdentifier, leaseFile);
+                    }
+                    // We could be the last winner and we completed which means
+                    // we're restarting without persistence. So return a complete looser
+                    // to avoid re-running.
+                    return new ALoosingOutcome(lease.winner, leaseFile);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "The Keeper: " + keeperKey;
+            }
+        };
+    }
+
+    /**
+     * Provide the lease file for a key and instance. The name is encoded so
+     * that it is a valid file name on any platform.
+     *
+     * @param keeperKey The keeper key.
+     * @param instanceIdentifier The instance.
+     *
+     * @return The path of the lease file.
+     */
+    protected Path leaseFileFor(String keeperKey, Object instanceIdentifier) {
+        return dir.resolve(encode(keeperKey) + "_" +
+                encode(String.valueOf(instanceIdentifier)) + LEASE_SUFFIX);
+    }
+
+    static String encode(String text) {
+        try {
+            return URLEncoder.encode(text, "UTF-8").replace("*", "%2A");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Do something holding the lock on the lock file.
+     */
+    private <T> T locked(LockedAction<T> action) throws IOException {
+        synchronized (JVM_LOCK) {
+            try (FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                return action.call();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface LockedAction<T> {
+
+        T call() throws IOException;
+    }
+
+    /**
+     * The contents of a lease file.
+     */
+    static class Lease {
+
+        private final String winner;
+
+        private final long heartbeat;
+
+        private final boolean complete;
+
+        Lease(String winner, long heartbeat, boolean complete) {
+            this.winner = Objects.requireNonNull(winner);
+            this.heartbeat = heartbeat;
+            this.complete = complete;
+        }
+
+        /**
+         * Read a lease. Leases are always replaced in one move so a reader
+         * doesn't need the lock to see the whole of one.
+         *
+         * @param file The lease file.
+         * @return The lease or null if there isn't one.
+         * @throws IOException If the file can't be read.
+         */
+        static Lease read(Path file) throws IOException {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            catch (NoSuchFileException e) {
+                return null;
+            }
+            String winner = properties.getProperty("winner");
+            if (winner == null) {
+                throw new IOException("No winner in lease " + file);
+            }
+            try {
+                return new Lease(winner,
+                        Long.parseLong(properties.getProperty("heartbeat", "0")),
+                        Boolean.parseBoolean(properties.getProperty("complete")));
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Bad heartbeat in lease " + file, e);
+            }
+        }
+
+        /**
+         * Replace a lease. Must be called holding the lock.
+         *
+         * @param file The lease file.
+         * @throws IOException If the file can't be written.
+         */
+        void write(Path file) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("winner", winner);
+            properties.setProperty("heartbeat", Long.toString(heartbeat));
+            properties.setProperty("complete", Boolean.toString(complete));
+
+            Path temp = Files.createTempFile(file.getParent(),
+                    file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    properties.store(out, null);
+                }
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        boolean isExpired(long now, long expiry) {
+            return !complete && now - heartbeat > expiry;
+        }
+    }
+
+    /**
+     * Winning Outcome. Heart beats until complete.
+     */
+    class AWinningOutcome implements WinningOutcome {
+
+        private final String winner;
+
+        private final Path leaseFile;
+
+        /** Guarded by this. */
+        private Future<?> heartbeat;
+
+        AWinningOutcome(String winner, Path leaseFile) {
+            this.winner = winner;
+            this.leaseFile = leaseFile;
+
+            synchronized (winners) {
+                winners.add(this);
+            }
+            synchronized (this) {
+                heartbeat = scheduler.scheduleWithFixedDelay(this::heartbeat,
+                        heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public boolean isWon() {
+            return true;
+        }
+
+        @Override
+        public String getWinner() {
+            return winner;
+        }
+
+        @Override
+        public void complete() {
+            stopHeartbeat();
+            try {
+                boolean ours = update(true);
+                logger.info("Set lease {} complete, still winner [{}]",
+                        leaseFile.getFileName(), ours);
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void heartbeat() {
+            try {
+                if (!update(false)) {
+                    logger.warn("Lease {} has been taken over, stopping heartbeat.",
+                            leaseFile.getFileName());
+                    stopHeartbeat();
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                logger.error("Failed to update heartbeat of lease {}.",
+                        leaseFile.getFileName(), e);
+            }
+        }
+
+        /**
+         * Update the lease if it is still ours.
+         *
+         * @return false if it is no longer ours.
+         */
+        private boolean update(boolean complete) throws IOException {
+            return locked(() -> {
+                Lease existing = Lease.read(leaseFile);
+                if (existing == null || !winner.equals(existing.winner)
+                        || existing.complete) {
+                    return false;
+                }
+                new Lease(winner, System.currentTimeMillis(), complete)
+                        .write(leaseFile);
+                return true;
+            });
+        }
+
+        void stopHeartbeat() {
+            synchronized (this) {
+                if (heartbeat != null) {
+                    heartbeat.cancel(false);
+                    heartbeat = null;
+                }
+            }
+            synchronized (winners) {
+                winners.remove(this);
+            }
+        }
+    }
+
+    /**
+     * A Loosing Outcome. Watches the lease while it has listeners.
+     */
+    class ALoosingOutcome implements LoosingOutcome, WatchReactor.Listener {
+
+        private final String winner;
+
+        private final Path leaseFile;
+
+        private final JobStateHandler stateHandler =
+                new JobStateHandler(this);
+
+        /** Guarded by this. */
+        private Restore watch;
+
+        /** Guarded by this. */
+        private Future<?> expiryCheck;
+
+        /** Guarded by this. */
+        private boolean watching;
+
+        ALoosingOutcome(String winner, Path leaseFile) {
+            this.winner = winner;
+            this.leaseFile = leaseFile;
+        }
+
+        @Override
+        public void addStateListener(StateListener listener) {
+            if (stateHandler.listenerCount() == 0) {
+                stateHandler.waitToWhen(new IsAnyState(),
+                        () -> stateHandler.setState(JobState.EXECUTING));
+                startWatching();
+            }
+            stateHandler.addStateListener(listener);
+        }
+
+        @Override
+        public void removeStateListener(StateListener listener) {
+            stateHandler.removeStateListener(listener);
+            if (stateHandler.listenerCount() == 0) {
+                stopWatching();
+            }
+        }
+
+        @Override
+        public StateEvent lastStateEvent() {
+            return stateHandler.lastStateEvent();
+        }
+
+        @Override
+        public String getWinner() {
+            return winner;
+        }
+
+        @Override
+        public boolean isWon() {
+            return false;
+        }
+
+        private void startWatching() {
+            synchronized (this) {
+                watching = true;
+                try {
+                    watch = WatchReactor.of(leaseFile.getFileSystem()).watch(
+                            leaseFile.getParent(), LEASE_EVENTS, this);
+                }
+                catch (IOException e) {
+                    finish(() -> stateHandler.setStateException(
+                            JobState.EXCEPTION, e));
+                    return;
+                }
+            }
+            synchronized (loosers) {
+                loosers.add(this);
+            }
+            check();
+        }
+
+        @Override
+        public void onEvent(WatchEvent.Kind<?> kind, Path path) {
+            if (leaseFile.getFileName().equals(path.getFileName())) {
+                check();
+            }
+        }
+
+        @Override
+        public void onOverflow(Path dir) {
+            check();
+        }
+
+        @Override
+        public void onInvalid(Path dir) {
+            finish(() -> stateHandler.setStateException(JobState.EXCEPTION,
+                    new Exception("Lease directory " + dir +
+                            " is no longer being watched.")));
+        }
+
+        /**
+         * Check the lease because it may have changed or expired.
+         */
+        synchronized void check() {
+            if (!watching) {
+                return;
+            }
+
+            Lease lease;
+            try {
+                lease = Lease.read(leaseFile);
+            }
+            catch (IOException e) {
+                // Possibly being replaced, try again soon.
+                logger.debug("Failed reading lease {}, will try again.",
+                        leaseFile.getFileName(), e);
+                checkIn(heartbeatInterval);
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            if (lease == null) {
+                finish(() -> stateHandler.setStateException(JobState.EXCEPTION,
+                        new Exception("Lease " + leaseFile + " has gone.")));
+            }
+            else if (lease.complete) {
+                finish(() -> stateHandler.setState(JobState.COMPLETE));
+            }
+            else if (lease.isExpired(now, leaseExpiry)) {
+                finish(() -> stateHandler.setStateException(JobState.EXCEPTION,
+                        new Exception("Winner " + lease.winner +
+                                " stopped heart beating at " +
+                                Instant.ofEpochMilli(lease.heartbeat))));
+            }
+            else {
+                checkIn(lease.heartbeat + leaseExpiry - now + 1);
+            }
+        }
+
+        /**
+         * Check again if the lease hasn't changed by then. Called holding
+         * the lock.
+         */
+        private void checkIn(long delay) {
+            if (expiryCheck != null) {
+                expiryCheck.cancel(false);
+            }
+            expiryCheck = scheduler.schedule(this::check, delay,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        private void finish(Runnable setState) {
+            stopWatching();
+            stateHandler.waitToWhen(new IsAnyState(), () -> {
+                setState.run();
+                stateHandler.fireEvent();
+            });
+        }
+
+        private void stopWatching() {
+            synchronized (this) {
+                watching = false;
+                if (watch != null) {
+                    watch.close();
+                    watch = null;
+                }
+                if (expiryCheck != null) {
+                    expiryCheck.cancel(false);
+                    expiryCheck = null;
+                }
+            }
+            synchronized (loosers) {
+                loosers.remove(this);
+            }
+        }
+
+        void stop() {
+            stopWatching();
+            stateHandler.waitToWhen(new IsStoppable(), () -> {
+                stateHandler.setState(JobState.INCOMPLETE);
+                stateHandler.fireEvent();
+            });
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public void setDir(Path dir) {
+        this.dir = dir;
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(long heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public long getLeaseExpiry() {
+        return leaseExpiry;
+    }
+
+    public void setLeaseExpiry(long leaseExpiry) {
+        this.leaseExpiry = leaseExpiry;
+    }
+
+    /**
+     * @oddjob.property loosingCount
+     * @oddjob.description The number of loosing outcomes watching for
+     * their winner to complete.
+     * @oddjob.required Read only.
+     *
+     * @return The number.
+     */
+    public int getLoosingCount() {
+        synchronized (loosers) {
+            return loosers.size();
+        }
+    }
+
+    @Inject
+    public void setScheduleExecutorService(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public String toString() {
+        if (name == null) {
+            return getClass().getSimpleName();
+        }
+        return name;
+    }
+}
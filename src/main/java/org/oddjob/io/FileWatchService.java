@@ -6,6 +6,7 @@ import org.oddjob.framework.Service;
 import org.oddjob.util.Restore;
 
 import java.io.IOException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -27,7 +28,7 @@ import java.util.function.Consumer;
  * to know that it has stopped.
  * <p/>
  * Consumers will receive creation and modification events on a different thread to the initial event if the
- * file exists.
+ * file exists. All directories are watched with one thread so consumers should not block.
  * <p>
  * <em>Implementation Note:</em> This facility is still a work in progress. Requiring this service
  * in a configuration is messy. In future releases this service should be hidden from users.
@@ -207,6 +208,26 @@ public class FileWatchService implements FileWatch, Service, Outbound<Path> {
                 .orElse(0);
     }
 
+    /**
+     * @oddjob.property registeredKeys
+     * @oddjob.description The number of directories being watched by all watches on the
+     * default file system, not just this service.
+     * @oddjob.required Read only.
+     */
+    public int getRegisteredKeys() {
+        return WatchReactor.of(FileSystems.getDefault()).getRegisteredKeys();
+    }
+
+    /**
+     * @oddjob.property eventRate
+     * @oddjob.description The number of file system events a second, over about the
+     * last second, for all watches on the default file system.
+     * @oddjob.required Read only.
+     */
+    public double getEventRate() {
+        return WatchReactor.of(FileSystems.getDefault()).getEventRate();
+    }
+
     public String getName() {
         return name;
     }
@@ -16,6 +16,7 @@ import org.oddjob.arooa.convert.ConvertletException;
 import org.oddjob.arooa.convert.convertlets.FileConvertlets;
 import org.oddjob.arooa.convert.ConversionProvider;
 import org.oddjob.arooa.convert.ConversionRegistry;
+import org.oddjob.arooa.life.ArooaLifeAware;
 
 /**
  * @oddjob.description Specify files using a wild card pattern, or a
@@ -53,7 +54,7 @@ import org.oddjob.arooa.convert.ConversionRegistry;
  * 
  * @author Rob Gordon.
  */
-public class FilesType implements ArooaValue, Serializable {
+public class FilesType implements ArooaValue, ArooaLifeAware, Serializable {
 	private static final long serialVersionUID = 2009072300L;
 
 	public static int A_FEW = 5;
@@ -88,6 +89,20 @@ public class FilesType implements ArooaValue, Serializable {
      */
     private final List<File[]> list = new CopyOnWriteArrayList<>();
 
+    /**
+     * @oddjob.property 
+     * @oddjob.description Keep the files found and update them when files
+     * are created or deleted, instead of looking in every directory each
+     * time the files are required. Useful when a timer repeatedly uses
+     * large directories. The directories are watched until this type 
+     * is destroyed.
+     * @oddjob.required No, defaults to false.
+     */
+    private volatile boolean cached;
+    
+    /** The cached expansion of files. */
+    private transient volatile CachedWildcardSpec cache;
+
     /** Remember last conversion for to string. */
     private volatile File[] lastConversion; 
     
@@ -104,6 +119,14 @@ public class FilesType implements ArooaValue, Serializable {
     	return files;
     }
     
+    public boolean isCached() {
+    	return cached;
+    }
+    
+    public void setCached(boolean cached) {
+    	this.cached = cached;
+    }
+    
     public void setList(int index, File[] files) {
     	if (files == null) {
     		list.remove(index);
@@ -117,8 +140,14 @@ public class FilesType implements ArooaValue, Serializable {
     	
     	List<File> all = new ArrayList<File>();
     	
-    	if (files != null) {
-    		addFileArray(all, FilesUtil.expand(new File(files)));
+    	String spec = this.files;
+    	if (spec != null) {
+    		if (cached) {
+    			addFileArray(all, cacheFor(spec).findFiles());
+    		}
+    		else {
+    			addFileArray(all, FilesUtil.expand(new File(spec)));
+    		}
     	}
     	
     	for (File[] files : list) {
@@ -130,6 +159,36 @@ public class FilesType implements ArooaValue, Serializable {
     	return this.lastConversion;
     }
     
+    private synchronized CachedWildcardSpec cacheFor(String spec) {
+    	
+    	CachedWildcardSpec cache = this.cache;
+    	if (cache == null || !cache.getFile().equals(new File(spec))) {
+    		if (cache != null) {
+    			cache.close();
+    		}
+    		cache = new CachedWildcardSpec(new File(spec));
+    		this.cache = cache;
+    	}
+    	return cache;
+    }
+    
+    @Override
+    public void initialised() {
+    }
+    
+    @Override
+    public void configured() {
+    }
+    
+    @Override
+    public synchronized void destroy() {
+    	CachedWildcardSpec cache = this.cache;
+    	if (cache != null) {
+    		cache.close();
+    		this.cache = null;
+    	}
+    }
+    
     private void addFileArray(List<File> list, File[] array) {
     	
     	for (File file : array) {
@@ -33,6 +33,8 @@ class FilesDesign extends DesignValueBase {
 	
 	private final IndexedDesignProperty list;
 	
+	private final SimpleTextAttribute cached;
+	
 	public FilesDesign(ArooaElement element, ArooaContext parentContext) {
 		super(element, parentContext);
 		
@@ -41,17 +43,23 @@ class FilesDesign extends DesignValueBase {
 		
 		list = new IndexedDesignProperty(
 				"list", this);
+		
+		cached = new SimpleTextAttribute(
+				"cached", this);
 	}
 	
 	public Form detail() {
 		return new StandardForm(this).addFormItem(
 				new BorderedGroup("Files")
 				.add(files.view().setTitle("File Spec"))
-				.add(list.view().setTitle("Files List")));
+				.add(list.view().setTitle("Files List")))
+			.addFormItem(
+				new BorderedGroup("Options")
+				.add(cached.view().setTitle("Cached")));
 	}
 
 	@Override
 	public DesignProperty[] children() {
-		return new DesignProperty[] { files, list };
+		return new DesignProperty[] { files, list, cached };
 	}
 }
@@ -1,22 +1,44 @@
 package org.oddjob.io;
 
+import org.oddjob.arooa.deploy.annotations.ArooaHidden;
+import org.oddjob.beanbus.Destination;
+
+import javax.inject.Inject;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * @oddjob.description Search files or an input stream for lines containing
  * a text value or matches for a regular expression.
+ * <p>
+ * When concurrency is set files are searched that many at a time using Oddjob's
+ * executor. Large files are memory mapped and, for plain text, the bytes of the
+ * text are looked for before any line is decoded. Results are still given in the
+ * order of the files and lines. In this mode only a new line ends a line.
+ * </p>
  * 
  * @oddjob.example
  * 
@@ -26,8 +48,6 @@ import java.util.regex.Pattern;
  * 
  * {@oddjob.xml.resource org/oddjob/io/GrepJobExample.xml}
  * 
- * 
- * 
  * @author rob
  *
  */
@@ -144,6 +164,31 @@ public class GrepJob implements Callable<Integer> {
 	 */
 	private boolean invert;
 	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description A consumer of {@link GrepLineResult} beans, such as
+	 * the next component in a Bean Bus.
+	 * @oddjob.required No. Will be set automatically in a Bean Bus.
+	 */
+	private Consumer<? super GrepLineResult> consumer;
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of files to search at the same time. 
+	 * Setting this also searches files with memory mapping and a byte level 
+	 * search for plain text.
+	 * @oddjob.required No. Defaults to 0 which searches one line at a time.
+	 */
+	private int concurrency;
+	
+	/**
+	 * @oddjob.property executorService
+	 * @oddjob.description The executor used to search files at the same time. 
+	 * This will be automatically set by Oddjob.
+	 * @oddjob.required No. If not set files are searched on the job thread.
+	 */
+	private ExecutorService executorService;
+	
 	public Integer call() throws IOException {
 		
 		matchedLineCount = 0;
@@ -173,6 +218,18 @@ public class GrepJob implements Callable<Integer> {
 			resultStream = new PrintStream(out);
 		}
 		
+		if (files != null && concurrency > 0) {
+			try {
+				searchConcurrently(grep, new FilesGrepHandler(resultStream));
+			}
+			finally {
+				if (resultStream != null) {
+					resultStream.close();
+				}
+			}
+			return 0;
+		}
+		
 		GrepHandler grepHandler;
 		if (files != null) {
 			grepHandler = new FilesGrepHandler(resultStream);
@@ -229,6 +286,171 @@ public class GrepJob implements Callable<Integer> {
 		return 0;
 	}
 	
+	/**
+	 * Search files on the executor, no more than concurrency at once, and
+	 * report the results in file order on this thread.
+	 * <p>
+	 * Matches in the file being reported go straight to the handler. Matches
+	 * found in later files wait in a bounded queue, so a search that gets too
+	 * far ahead waits for its file to be reported. If the search of the file
+	 * being reported hasn't started, because the executor is busy, it is done
+	 * on this thread.
+	 * </p>
+	 */
+	private void searchConcurrently(Pattern grep, FilesGrepHandler handler) 
+			throws IOException {
+		
+		MappedGrep mappedGrep = new MappedGrep(grep, regexp ? null : text, 
+				ignoreCase, invert, Charset.defaultCharset());
+		
+		ExecutorService executorService = this.executorService;
+		
+		Deque<FileSearch> pending = new ArrayDeque<>();
+		
+		// The search being reported, which is no longer pending.
+		FileSearch current = null;
+		
+		int submitted = 0;
+		int reported = 0;
+		
+		try {
+			while (reported < files.length) {
+				
+				int fileIndex = reported;
+				MappedGrep.MatchConsumer direct = (lineNumber, line, match) -> {
+					matchedLineCount++;
+					handler.processResult(fileIndex, lineNumber, line, match);
+				};
+				
+				if (executorService == null) {
+					mappedGrep.search(files[reported++].toPath(), direct);
+					continue;
+				}
+				
+				while (submitted < files.length && pending.size() < concurrency) {
+					FileSearch search = new FileSearch(mappedGrep, 
+							files[submitted++].toPath());
+					search.future = executorService.submit(search);
+					pending.add(search);
+				}
+				
+				FileSearch search = pending.remove();
+				current = search;
+				
+				if (search.claim()) {
+					mappedGrep.search(search.path, direct);
+				}
+				else {
+					for (FileSearch.Match match = search.matches.take(); 
+							match != FileSearch.END; 
+							match = search.matches.take()) {
+						direct.accept(match.lineNumber, match.line, match.match);
+					}
+					search.future.get();
+				}
+				current = null;
+				++reported;
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted searching " + files[reported]);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException("Failed searching " + files[reported], cause);
+		}
+		finally {
+			// Or a search could wait forever for space in its queue.
+			if (current != null) {
+				current.future.cancel(true);
+			}
+			pending.forEach(search -> search.future.cancel(true));
+		}
+	}
+	
+	/**
+	 * The search of a file on the executor.
+	 */
+	static class FileSearch implements Callable<Void> {
+		
+		/** The most matches held for a file waiting to be reported. */
+		static final int MAX_WAITING = 1024;
+		
+		static final Match END = new Match(0, null, null);
+		
+		private final MappedGrep mappedGrep;
+		
+		private final Path path;
+		
+		private final BlockingQueue<Match> matches = 
+				new ArrayBlockingQueue<>(MAX_WAITING);
+		
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		
+		private Future<Void> future;
+		
+		FileSearch(MappedGrep mappedGrep, Path path) {
+			this.mappedGrep = mappedGrep;
+			this.path = path;
+		}
+		
+		/**
+		 * Claim the search so only one thread does it.
+		 * 
+		 * @return true if this thread should do the search.
+		 */
+		boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+		
+		@Override
+		public Void call() throws IOException, InterruptedException {
+			if (!claim()) {
+				return null;
+			}
+			try {
+				mappedGrep.search(path, (lineNumber, line, match) -> {
+					try {
+						matches.put(new Match(lineNumber, line, match));
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted searching " + path);
+					}
+				});
+			}
+			finally {
+				matches.put(END);
+			}
+			return null;
+		}
+		
+		/**
+		 * A match waiting to be reported.
+		 */
+		static class Match {
+			
+			final int lineNumber;
+			
+			final String line;
+			
+			final String match;
+			
+			Match(int lineNumber, String line, String match) {
+				this.lineNumber = lineNumber;
+				this.line = line;
+				this.match = match;
+			}
+		}
+	}
+	
 	/**
 	 * Allow for different handling when reading files and streams.
 	 *
@@ -258,6 +480,12 @@ public class GrepJob implements Callable<Integer> {
 			return new LineNumberReader(new FileReader(files[fileIndex]));
 		}
 		
+		void processResult(int fileIndex, int lineNumber, 
+				String line, String match) {
+			this.fileIndex = fileIndex;
+			processResult(lineNumber, line, match);
+		}
+		
 		@Override
 		public void processResult(int lineNumber, 
 				String line, String match) {
@@ -273,9 +501,15 @@ public class GrepJob implements Callable<Integer> {
 				resultStream.println(resultLine.toString());
 			}
 			
-			if (results != null) {
-				results.add(new GrepLineResult(files[fileIndex],
-						lineNumber, line, match));
+			if (results != null || consumer != null) {
+				GrepLineResult result = new GrepLineResult(files[fileIndex],
+						lineNumber, line, match);
+				if (results != null) {
+					results.add(result);
+				}
+				if (consumer != null) {
+					consumer.accept(result);
+				}
 			}
 		}
 	}
@@ -311,8 +545,14 @@ public class GrepJob implements Callable<Integer> {
 				resultStream.println(resultLine.toString());
 			}
 
-			if (results != null) {
-				results.add(new GrepLineResult(lineNumber, line, match));
+			if (results != null || consumer != null) {
+				GrepLineResult result = new GrepLineResult(lineNumber, line, match);
+				if (results != null) {
+					results.add(result);
+				}
+				if (consumer != null) {
+					consumer.accept(result);
+				}
 			}
 		}
 	}
@@ -469,6 +709,33 @@ public class GrepJob implements Callable<Integer> {
 		this.invert = invert;
 	}
 	
+	public Consumer<? super GrepLineResult> getConsumer() {
+		return consumer;
+	}
+
+	@Destination
+	public void setConsumer(Consumer<? super GrepLineResult> consumer) {
+		this.consumer = consumer;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	@ArooaHidden
+	@Inject
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+	
 	@Override
 	public String toString() {
 		if (name == null) {
@@ -0,0 +1,322 @@
+package org.oddjob.io;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches a whole file for the {@link GrepJob}. Large files are memory mapped and
+ * smaller ones read in one go. For plain text the bytes of the text are searched for
+ * first, so only lines that might match are decoded. Each of these lines is then
+ * checked with the pattern so the result is the same as reading line by line.
+ * <p>
+ * Lines end with a new line, and a carriage return before it is removed. If the
+ * character set can't be searched as bytes the file is read line by line.
+ *
+ * @author rob
+ *
+ */
+class MappedGrep {
+
+	/** Files smaller than this are read rather than mapped. */
+	static final int MAP_THRESHOLD = 1024 * 1024;
+
+	/** The most of a file mapped at once. */
+	static final int WINDOW = 1 << 30;
+
+	private static final byte NEW_LINE = '\n';
+
+	private static final byte CARRIAGE_RETURN = '\r';
+
+	private final Pattern pattern;
+
+	private final boolean invert;
+
+	private final Charset charset;
+
+	private final boolean bytes;
+
+	/** Null if every line must be checked. */
+	private final LiteralSearch literal;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pattern The pattern every line is checked with.
+	 * @param text The plain text being searched for, or null if the pattern is a
+	 * regular expression.
+	 * @param ignoreCase Is the search case insensitive.
+	 * @param invert Are lines that don't match wanted.
+	 * @param charset The character set of files.
+	 */
+	MappedGrep(Pattern pattern, String text, boolean ignoreCase, boolean invert,
+			Charset charset) {
+		this.pattern = pattern;
+		this.invert = invert;
+		this.charset = charset;
+		this.bytes = isAsciiCompatible(charset);
+
+		if (bytes && text != null && !text.isEmpty() && !invert
+				&& (!ignoreCase || isAscii(text))) {
+			this.literal = new LiteralSearch(text.getBytes(charset), ignoreCase);
+		}
+		else {
+			this.literal = null;
+		}
+	}
+
+	/**
+	 * Receives the matches in a file as they are found.
+	 */
+	interface MatchConsumer {
+
+		/**
+		 * Called for each match.
+		 *
+		 * @param lineNumber The line number, starting at 1.
+		 * @param line The line.
+		 * @param match The text that matched, null if lines are inverted.
+		 *
+		 * @throws IOException To stop the search.
+		 */
+		void accept(int lineNumber, String line, String match) throws IOException;
+	}
+
+	/**
+	 * Search a file. Nothing is held in memory for the matches so there can be
+	 * any number of them.
+	 *
+	 * @param file The file.
+	 * @param matches Given the matches in the order they are in the file.
+	 *
+	 * @throws IOException If the file can't be read or the consumer fails.
+	 */
+	void search(Path file, MatchConsumer matches) throws IOException {
+
+		if (!bytes) {
+			try (LineNumberReader reader = new LineNumberReader(
+					Files.newBufferedReader(file, charset))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					check(reader.getLineNumber(), line, matches);
+				}
+			}
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			long size = channel.size();
+
+			if (size < MAP_THRESHOLD) {
+				ByteBuffer buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+					// Keep reading.
+				}
+				search(buffer, buffer.position(), 0, matches);
+				return;
+			}
+
+			long position = 0;
+			int lines = 0;
+			while (position < size) {
+				int length = (int) Math.min(size - position, WINDOW);
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+				int end = length;
+				if (position + length < size) {
+					// Only whole lines, the rest will be in the next window.
+					int lastNewLine = lastIndexOf(buffer, NEW_LINE, 0, length);
+					if (lastNewLine >= 0) {
+						end = lastNewLine + 1;
+					}
+				}
+
+				lines = search(buffer, end, lines, matches);
+				position += end;
+			}
+		}
+	}
+
+	/**
+	 * Search the buffer up to end.
+	 *
+	 * @return The number of lines so far.
+	 */
+	private int search(ByteBuffer buffer, int end, int lines, MatchConsumer matches)
+			throws IOException {
+
+		byte[] scratch = new byte[256];
+
+		int position = 0;
+
+		while (position < end) {
+
+			int lineStart;
+			if (literal == null) {
+				lineStart = position;
+			}
+			else {
+				int found = literal.indexOf(buffer, position, end);
+				if (found < 0) {
+					lines += count(buffer, NEW_LINE, position, end);
+					break;
+				}
+				int newLine = lastIndexOf(buffer, NEW_LINE, position, found);
+				lineStart = newLine < 0 ? position : newLine + 1;
+				lines += count(buffer, NEW_LINE, position, lineStart);
+			}
+
+			int lineEnd = indexOf(buffer, NEW_LINE, lineStart, end);
+			int next;
+			if (lineEnd < 0) {
+				lineEnd = end;
+				next = end;
+			}
+			else {
+				next = lineEnd + 1;
+			}
+
+			++lines;
+
+			int length = lineEnd - lineStart;
+			if (length > 0 && buffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+				--length;
+			}
+			if (scratch.length < length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			ByteBuffer line = buffer.duplicate();
+			line.position(lineStart);
+			line.get(scratch, 0, length);
+
+			check(lines, new String(scratch, 0, length, charset), matches);
+
+			position = next;
+		}
+
+		return lines;
+	}
+
+	private void check(int lineNumber, String line, MatchConsumer matches)
+			throws IOException {
+
+		Matcher matcher = pattern.matcher(line);
+
+		if (matcher.find() ^ invert) {
+			matches.accept(lineNumber, line, invert ? null : matcher.group());
+		}
+	}
+
+	static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			if (buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static int lastIndexOf(ByteBuffer buffer, byte b, int from, int to) {
+		for (int i = to - 1; i >= from; --i) {
+			if (buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static int count(ByteBuffer buffer, byte b, int from, int to) {
+		int count = 0;
+		for (int i = from; i < to; ++i) {
+			if (buffer.get(i) == b) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Can text be searched for as bytes. True if the ASCII characters are
+	 * single bytes with their ASCII values.
+	 */
+	static boolean isAsciiCompatible(Charset charset) {
+		byte[] ascii = new byte[128];
+		for (int i = 0; i < ascii.length; ++i) {
+			ascii[i] = (byte) i;
+		}
+		return Arrays.equals(ascii,
+				new String(ascii, StandardCharsets.US_ASCII).getBytes(charset));
+	}
+
+	static boolean isAscii(String text) {
+		for (int i = 0; i < text.length(); ++i) {
+			if (text.charAt(i) > 127) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Boyer-Moore-Horspool search for bytes, optionally ignoring the case of ASCII
+	 * letters.
+	 */
+	static class LiteralSearch {
+
+		private static final byte[] LOWER = new byte[256];
+
+		static {
+			for (int i = 0; i < LOWER.length; ++i) {
+				LOWER[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+			}
+		}
+
+		private final byte[] pattern;
+
+		private final boolean ignoreCase;
+
+		private final int[] skip = new int[256];
+
+		LiteralSearch(byte[] pattern, boolean ignoreCase) {
+			this.ignoreCase = ignoreCase;
+			this.pattern = new byte[pattern.length];
+			for (int i = 0; i < pattern.length; ++i) {
+				this.pattern[i] = fold(pattern[i]);
+			}
+			Arrays.fill(skip, pattern.length);
+			for (int i = 0; i < pattern.length - 1; ++i) {
+				skip[this.pattern[i] & 0xff] = pattern.length - 1 - i;
+			}
+		}
+
+		private byte fold(byte b) {
+			return ignoreCase ? LOWER[b & 0xff] : b;
+		}
+
+		int indexOf(ByteBuffer buffer, int from, int to) {
+			int last = pattern.length - 1;
+			int i = from;
+			while (i + last < to) {
+				int j = last;
+				while (fold(buffer.get(i + j)) == pattern[j]) {
+					if (j == 0) {
+						return i;
+					}
+					--j;
+				}
+				i += skip[fold(buffer.get(i + last)) & 0xff];
+			}
+			return -1;
+		}
+	}
+}
@@ -19,7 +19,8 @@ import java.util.stream.StreamSupport;
 import static java.nio.file.StandardWatchEventKinds.*;
 
 /**
- * Watch a directory for files and changes.
+ * Watch a directory for files and changes. All directories are watched by the
+ * one {@link WatchReactor} so events are received on its thread.
  *
  * @author rob
  */
@@ -80,69 +81,11 @@ public class PathWatchEvents implements Outbound<Path>, Service {
             }
         };
 
-        FileSystem fs = FileSystems.getDefault();
-
-        WatchService watchService = fs.newWatchService();
-
-        WatchKey regKey = path.register(watchService, kindArray);
-
-        Thread thread = new Thread(() -> {
-            while (true) {
-
-                WatchKey key;
-                try {
-                    key = watchService.take();
-                }
-                catch (InterruptedException e) {
-                    return;
-                }
-
-                WatchEvent<?> lastEvent = null;
-
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    WatchEvent.Kind<?> kind = event.kind();
-
-                    // This key is registered only
-                    // for ENTRY_CREATE events,
-                    // but an OVERFLOW event can
-                    // occur regardless if events
-                    // are lost or discarded.
-                    if (kind == StandardWatchEventKinds.OVERFLOW) {
-                        continue;
-                    }
-
-                    // The filename is the
-                    // context of the event.
-                    @SuppressWarnings("unchecked")
-                    WatchEvent<Path> ev = (WatchEvent<Path>) event;
-
-                    if (ev.equals(lastEvent)) {
-                        logger.debug("Ignoring as same as last, WatchEvent: {}, Path={} (count {})",
-                                event.kind(), event.context(), event.count());
-                    }
-                    else {
-                        logger.debug("WatchEvent: {}, Path={} (count {})",
-                                event.kind(), event.context(), event.count());
-                        Path found = path.resolve(ev.context());
-                        filterConsumer.accept(found);
-                    }
-                    lastEvent = ev;
-                }
-
-                // Reset the key -- this step is critical if you want to
-                // receive further watch events.  If the key is no longer valid,
-                // the directory is inaccessible so exit the loop.
-                boolean valid = key.reset();
-                if (!valid) {
-                    break;
-                }
-
-            }
-        });
-        thread.setUncaughtExceptionHandler((t, e) ->
-                logger.error("Unexpected Exception in Thread {} while watching {}",
-                        t.getName(), path, e));
-        thread.start();
+        Restore restore = WatchReactor.of(path.getFileSystem()).watch(
+                path, kindArray, (kind, found) -> {
+                    logger.debug("WatchEvent: {}, Path={}", kind, found);
+                    filterConsumer.accept(found);
+                });
 
         if (!newOnly) {
             try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dir)) {
@@ -152,20 +95,7 @@ public class PathWatchEvents implements Outbound<Path>, Service {
             }
         }
 
-        return () -> {
-            regKey.cancel();
-            thread.interrupt();
-            try {
-                thread.join();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            try {
-                watchService.close();
-            } catch (IOException e) {
-                // ignore
-            }
-        };
+        return restore;
     }
 
     private WatchEvent.Kind<?>[] toKinds(String kinds) {
@@ -0,0 +1,504 @@
+package org.oddjob.io;
+
+import org.oddjob.util.Restore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches any number of directories with one {@link WatchService} and one thread
+ * for each {@link FileSystem}. Subscribers are found from the key of the directory
+ * an event is for, so the cost of an event doesn't depend on how many directories
+ * are watched.
+ * <p>
+ * Events are given to subscribers a short window after they happen. If the same
+ * path has the same kind of event again within the window, and nothing else has
+ * happened to it in between, the events are given as one. A create followed by a
+ * delete are both given.
+ * </p>
+ * <p>
+ * The thread is started when the first directory is watched and ends when the last
+ * subscription is closed.
+ * </p>
+ *
+ * @author rob
+ */
+public class WatchReactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchReactor.class);
+
+    /** The default time duplicate events are coalesced over. */
+    public static final long DEFAULT_COALESCE_MILLIS = 20;
+
+    private static final Map<FileSystem, WatchReactor> reactors = new ConcurrentHashMap<>();
+
+    /**
+     * Something that receives events for a watched directory. Events are
+     * received on the reactor thread so should be dealt with quickly.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * An event happened.
+         *
+         * @param kind The kind of event, one of those subscribed to.
+         * @param path The path, resolved against the directory subscribed to.
+         */
+        void onEvent(WatchEvent.Kind<?> kind, Path path);
+
+        /**
+         * Events for the directory have been lost.
+         *
+         * @param dir The directory subscribed to.
+         */
+        default void onOverflow(Path dir) {
+        }
+
+        /**
+         * The directory is no longer watched, probably because it has been
+         * deleted. No more events will be received.
+         *
+         * @param dir The directory subscribed to.
+         */
+        default void onInvalid(Path dir) {
+        }
+    }
+
+    private final FileSystem fileSystem;
+
+    private final long coalesceNanos;
+
+    /** Registrations by key. Read by the reactor thread without locking. */
+    private final Map<WatchKey, Registration> registrations = new ConcurrentHashMap<>();
+
+    /** Registrations by directory. Guarded by this. */
+    private final Map<Path, Registration> byDir = new HashMap<>();
+
+    private final AtomicLong eventsReceived = new AtomicLong();
+
+    private final AtomicLong eventsDispatched = new AtomicLong();
+
+    private final AtomicLong eventsCoalesced = new AtomicLong();
+
+    private final EventRate eventRate = new EventRate();
+
+    /** Guarded by this. */
+    private WatchService watchService;
+
+    WatchReactor(FileSystem fileSystem, long coalesceMillis) {
+        this.fileSystem = Objects.requireNonNull(fileSystem);
+        this.coalesceNanos = TimeUnit.MILLISECONDS.toNanos(coalesceMillis);
+    }
+
+    /**
+     * Provide the shared reactor for a file system.
+     *
+     * @param fileSystem The file system.
+     * @return The reactor. Never null.
+     */
+    public static WatchReactor of(FileSystem fileSystem) {
+        return reactors.computeIfAbsent(fileSystem,
+                fs -> new WatchReactor(fs, DEFAULT_COALESCE_MILLIS));
+    }
+
+    /**
+     * Watch a directory.
+     *
+     * @param dir The directory.
+     * @param kinds The kinds of event wanted.
+     * @param listener The listener.
+     *
+     * @return Something to close the subscription with.
+     *
+     * @throws IOException If the directory can't be watched.
+     */
+    public synchronized Restore watch(Path dir, WatchEvent.Kind<?>[] kinds, Listener listener)
+            throws IOException {
+
+        if (dir.getFileSystem() != fileSystem) {
+            throw new IllegalArgumentException(dir + " is not on " + fileSystem);
+        }
+
+        if (watchService == null) {
+            watchService = fileSystem.newWatchService();
+            Thread thread = new Thread(new Reactor(watchService),
+                    "WatchReactor-" + fileSystem.getClass().getSimpleName());
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler((t, e) ->
+                    logger.error("Unexpected Exception in Thread {}", t.getName(), e));
+            thread.start();
+        }
+
+        Subscriber subscriber = new Subscriber(dir, kinds, listener);
+
+        Path dirKey = dir.toAbsolutePath().normalize();
+
+        // Registering a directory again replaces the kinds of its key so always
+        // register all the kinds wanted.
+        Set<WatchEvent.Kind<?>> union = new HashSet<>(subscriber.kinds);
+        Optional.ofNullable(byDir.get(dirKey)).ifPresent(r -> union.addAll(r.kinds));
+
+        WatchKey key = dir.register(watchService, union.toArray(new WatchEvent.Kind<?>[0]));
+
+        Registration registration = registrations.get(key);
+        if (registration == null) {
+            registration = new Registration(key, dirKey);
+            registrations.put(key, registration);
+            byDir.put(dirKey, registration);
+        }
+        else if (!union.containsAll(registration.kinds)) {
+            // The same directory by another path.
+            union.addAll(registration.kinds);
+            dir.register(watchService, union.toArray(new WatchEvent.Kind<?>[0]));
+        }
+        registration.kinds.addAll(union);
+        registration.subscribers.add(subscriber);
+
+        logger.debug("Watching {} for {}, {} directories watched.",
+                dir, subscriber.kinds, registrations.size());
+
+        Registration finalRegistration = registration;
+        return () -> unsubscribe(finalRegistration, subscriber);
+    }
+
+    synchronized void unsubscribe(Registration registration, Subscriber subscriber) {
+
+        if (registration.subscribers.remove(subscriber)
+                && registration.subscribers.isEmpty()) {
+            registration.key.cancel();
+            remove(registration);
+        }
+
+        closeIfIdle(watchService);
+    }
+
+    private void remove(Registration registration) {
+        registrations.remove(registration.key, registration);
+        byDir.remove(registration.dirKey, registration);
+    }
+
+    /**
+     * Close the watch service, which ends its thread, if nothing is watched.
+     */
+    private void closeIfIdle(WatchService service) {
+        if (registrations.isEmpty() && service != null && service == watchService) {
+            try {
+                watchService.close();
+            }
+            catch (IOException e) {
+                // ignore
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * The number of directories watched.
+     *
+     * @return The number of keys registered.
+     */
+    public int getRegisteredKeys() {
+        return registrations.size();
+    }
+
+    /**
+     * The number of subscriptions.
+     *
+     * @return The number of subscriptions.
+     */
+    public int getSubscriberCount() {
+        return registrations.values().stream()
+                .mapToInt(r -> r.subscribers.size()).sum();
+    }
+
+    /**
+     * @return The number of events received from the file system.
+     */
+    public long getEventsReceived() {
+        return eventsReceived.get();
+    }
+
+    /**
+     * @return The number of events given to subscribers, once for each subscriber.
+     */
+    public long getEventsDispatched() {
+        return eventsDispatched.get();
+    }
+
+    /**
+     * @return The number of events dropped as duplicates.
+     */
+    public long getEventsCoalesced() {
+        return eventsCoalesced.get();
+    }
+
+    /**
+     * @return The events received a second, over the last second or so.
+     */
+    public double getEventRate() {
+        return eventRate.get(System.nanoTime());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " for " + fileSystem +
+                ", " + registrations.size() + " keys";
+    }
+
+    /**
+     * The subscribers for a key.
+     */
+    static class Registration {
+
+        private final WatchKey key;
+
+        private final Path dirKey;
+
+        /** The kinds registered with the key. Guarded by the reactor. */
+        private final Set<WatchEvent.Kind<?>> kinds = new HashSet<>();
+
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        Registration(WatchKey key, Path dirKey) {
+            this.key = key;
+            this.dirKey = dirKey;
+        }
+    }
+
+    static class Subscriber {
+
+        private final Path dir;
+
+        private final Set<WatchEvent.Kind<?>> kinds;
+
+        private final Listener listener;
+
+        Subscriber(Path dir, WatchEvent.Kind<?>[] kinds, Listener listener) {
+            this.dir = Objects.requireNonNull(dir);
+            this.kinds = new HashSet<>(Arrays.asList(kinds));
+            this.listener = Objects.requireNonNull(listener);
+        }
+    }
+
+    /**
+     * An event waiting for the coalesce window to end. A null kind means the key
+     * is no longer valid.
+     */
+    static class Pending {
+
+        private final Registration registration;
+
+        private final WatchEvent.Kind<?> kind;
+
+        private final Path context;
+
+        private final long due;
+
+        Pending(Registration registration, WatchEvent.Kind<?> kind, Path context, long due) {
+            this.registration = registration;
+            this.kind = kind;
+            this.context = context;
+            this.due = due;
+        }
+    }
+
+    /**
+     * The reactor thread. Each watch service gets its own so a new one can be started
+     * while an old one is finishing.
+     */
+    class Reactor implements Runnable {
+
+        private final WatchService watchService;
+
+        /** Pending events in the order they happened. */
+        private final Deque<Pending> pending = new ArrayDeque<>();
+
+        /** The last pending event for each path, for coalescing. */
+        private final Map<Path, Pending> lastByPath = new HashMap<>();
+
+        Reactor(WatchService watchService) {
+            this.watchService = watchService;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                WatchKey key;
+                try {
+                    if (pending.isEmpty()) {
+                        key = watchService.take();
+                    }
+                    else {
+                        key = watchService.poll(
+                                Math.max(0, pending.peekFirst().due - System.nanoTime()),
+                                TimeUnit.NANOSECONDS);
+                    }
+                }
+                catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+
+                if (key != null) {
+                    received(key);
+                }
+
+                dispatchDue(System.nanoTime());
+            }
+        }
+
+        void received(WatchKey key) {
+
+            Registration registration = registrations.get(key);
+
+            long now = System.nanoTime();
+            long due = now + coalesceNanos;
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+
+                eventsReceived.incrementAndGet();
+                eventRate.add(now);
+
+                if (registration == null) {
+                    continue;
+                }
+
+                WatchEvent.Kind<?> kind = event.kind();
+                if (kind == StandardWatchEventKinds.OVERFLOW) {
+                    pending.add(new Pending(registration, kind, null, due));
+                    continue;
+                }
+
+                Path context = (Path) event.context();
+                Path path = ((Path) key.watchable()).resolve(context);
+
+                Pending last = lastByPath.get(path);
+                if (last != null && last.kind == kind) {
+                    eventsCoalesced.incrementAndGet();
+                    continue;
+                }
+                Pending next = new Pending(registration, kind, context, due);
+                pending.add(next);
+                lastByPath.put(path, next);
+            }
+
+            if (!key.reset() && registration != null) {
+                pending.add(new Pending(registration, null, null, due));
+            }
+        }
+
+        void dispatchDue(long now) {
+            while (!pending.isEmpty() && pending.peekFirst().due - now <= 0) {
+                Pending next = pending.removeFirst();
+                if (next.context != null) {
+                    Path path = ((Path) next.registration.key.watchable()).resolve(next.context);
+                    lastByPath.remove(path, next);
+                }
+                dispatch(next);
+            }
+        }
+
+        void dispatch(Pending event) {
+
+            Registration registration = event.registration;
+
+            if (event.kind == null) {
+                synchronized (WatchReactor.this) {
+                    remove(registration);
+                    closeIfIdle(watchService);
+                }
+            }
+
+            for (Subscriber subscriber : registration.subscribers) {
+                try {
+                    if (event.kind == null) {
+                        subscriber.listener.onInvalid(subscriber.dir);
+                    }
+                    else if (event.kind == StandardWatchEventKinds.OVERFLOW) {
+                        subscriber.listener.onOverflow(subscriber.dir);
+                    }
+                    else if (subscriber.kinds.contains(event.kind)) {
+                        eventsDispatched.incrementAndGet();
+                        subscriber.listener.onEvent(event.kind,
+                                subscriber.dir.resolve(event.context));
+                    }
+                }
+                catch (RuntimeException e) {
+                    logger.error("Listener for {} failed.", subscriber.dir, e);
+                }
+            }
+
+            if (event.kind == null) {
+                registration.subscribers.clear();
+            }
+        }
+    }
+
+    /**
+     * Counts events in one second buckets.
+     */
+    static class EventRate {
+
+        private static final long BUCKET = TimeUnit.SECONDS.toNanos(1);
+
+        private long bucketStart;
+
+        private long count;
+
+        private long lastCount;
+
+        private long lastNanos = BUCKET;
+
+        synchronized void add(long now) {
+            roll(now);
+            ++count;
+        }
+
+        synchronized double get(long now) {
+            roll(now);
+            return lastCount * (double) TimeUnit.SECONDS.toNanos(1) / lastNanos;
+        }
+
+        private void roll(long now) {
+            if (bucketStart == 0) {
+                bucketStart = now;
+            }
+            long elapsed = now - bucketStart;
+            if (elapsed >= BUCKET) {
+                if (elapsed >= 2 * BUCKET) {
+                    // Nothing in the last bucket.
+                    lastCount = 0;
+                    lastNanos = BUCKET;
+                }
+                else {
+                    lastCount = count;
+                    lastNanos = elapsed;
+                }
+                count = 0;
+                bucketStart = now;
+            }
+        }
+    }
+}
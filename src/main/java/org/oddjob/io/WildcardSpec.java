@@ -6,19 +6,24 @@ package org.oddjob.io;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import org.apache.commons.io.IOCase;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 
 /**
- * Utility class for wild-card file matching. Note that the File objects
- * returned are all in the canonical file format.
+ * Utility class for wild-card file matching. Note that the directories 
+ * of the File objects returned are all in the canonical file format. Only
+ * the directory is made canonical, not each file, so a link that matches
+ * a wild card is given as the link.
  */
 public class WildcardSpec {
 
@@ -76,7 +81,49 @@ public class WildcardSpec {
      * @throws IOException 
      */
     protected File[] findFiles(DirectorySplit split) throws IOException {
-    	Set<File> results = new TreeSet<File>();
+    	List<File> results = new ArrayList<>();
+    	
+    	expand(split, results::add, null);
+    	
+    	return sortedDistinct(results);
+    }
+
+    /**
+     * Something that wants to know which directories an expansion 
+     * depends on.
+     */
+    interface Watcher {
+    	
+    	/**
+    	 * Called before a directory is looked in.
+    	 * 
+    	 * @param dir The canonical directory.
+    	 * @param split The split whose current name is being matched.
+    	 * @param recursive Will sub directories also be looked in.
+    	 */
+    	void lookingIn(Path dir, DirectorySplit split, boolean recursive);
+    	
+    	/**
+    	 * Called when a directory doesn't exist so can't be looked in.
+    	 * 
+    	 * @param dir The directory.
+    	 */
+    	void missing(File dir);
+    }
+    
+    /**
+     * Expand a split, passing each match to the results. The directory being 
+     * looked in is made canonical once, rather than every file found.
+     * 
+     * @param split The split.
+     * @param results Receives the matches. They may be given more than once
+     * and are in no particular order.
+     * @param watcher Told about directories. May be null.
+     * 
+     * @throws IOException
+     */
+    static void expand(DirectorySplit split, Consumer<? super File> results,
+    		Watcher watcher) throws IOException {
     	
     	File currentFile = split.currentFile();
     	File currentParent = currentFile.getAbsoluteFile().getParentFile();
@@ -84,41 +131,129 @@ public class WildcardSpec {
     	// currentParent will be null when file is "/" 
     	// noWildCard should catch this too - lets be certain.
     	if (currentParent == null) {
-        	results.add(currentFile.getCanonicalFile());
+    		results.accept(currentFile.getCanonicalFile());
+    		return;
     	}
-    	else if (currentParent.exists()) {
-
-    		// Find all files matching the current paths name. This
-    		// may or may not be a wild card match.
-    		List<File> matching = new ArrayList<>();
-    		
-    		possiblyRecursiveMatch(currentParent, 
-    				currentFile.getName(), matching);
+    	
+    	if (!currentParent.exists()) {
+    		if (watcher != null) {
+    			watcher.missing(currentParent);
+    		}
+    		return;
+    	}
+    	
+    	Path dir = currentParent.getCanonicalFile().toPath();
+    	
+    	String name = currentFile.getName();
+    	String singleWildcards = name.replace("**", "*");
+    	boolean recursive = !singleWildcards.equals(name);
+    	
+    	if (watcher != null) {
+    		watcher.lookingIn(dir, split, recursive);
+    	}
+    	
+    	if (noWildcard(name)) {
+    		// No need to list the directory.
+    		File match = new File(dir.toFile(), name);
+    		if (match.exists()) {
+    			matched(split, match.getCanonicalFile().toPath(), results, watcher);
+    		}
+    		return;
+    	}
+    	
+    	if (recursive && "*".equals(singleWildcards)) {
+    		matched(split, dir, results, watcher);
+    	}
+    	
+    	list(dir, split, recursive, results, watcher);
+    }
+    
+    /**
+     * List a directory for names matching the splits current name.
+     */
+    static void list(Path dir, DirectorySplit split, boolean recursive, 
+    		Consumer<? super File> results, Watcher watcher) throws IOException {
+    	
+    	PathMatcher matcher = matcherFor(dir, split.getName());
+    	
+    	List<Path> directories = new ArrayList<>();
+    	
+    	try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, 
+    			entry -> matcher.matches(entry.getFileName()))) {
     		
-    		// for each match, either move down the tree and continue
-    		// to match or add the result if we are at the bottom of
-    		// the path.
-    		for (File match: matching) {
+    		for (Path match : stream) {
+    			matched(split, match, results, watcher);
     			
-    			if (split.isBottom()) {
-    				results.add(match.getCanonicalFile());
-    			}
-    			else {
-    				if (match.isDirectory()) {
-
-    					// recursive call.
-    					File[] more = findFiles(
-    							split.next(match));
-    					results.addAll(Arrays.asList(more));
-    				}
-    				else {
-    					// Ignore if the match is not a directory.
-    				}
+    			if (recursive && Files.isDirectory(match)) {
+    				directories.add(match);
     			}
     		}
     	}
+    	catch (IOException e) {
+    		throw new IllegalArgumentException("Can't list files for directory " +
+    				dir + " and name spec " + split.getName().replace("**", "*"), e);
+    	}
     	
-    	return results.toArray(new File[results.size()]);
+    	for (Path directory : directories) {
+    		if (watcher != null) {
+    			watcher.lookingIn(directory, split, true);
+    		}
+    		list(directory, split, true, results, watcher);
+    	}
+    }
+    
+    /**
+     * Either add a match to the results or move down the tree and continue
+     * matching.
+     */
+    static void matched(DirectorySplit split, Path match, 
+    		Consumer<? super File> results, Watcher watcher) throws IOException {
+    	if (split.isBottom()) {
+    		results.accept(match.toFile());
+    	}
+    	else if (Files.isDirectory(match)) {
+    		expand(split.next(match.toFile()), results, watcher);
+    	}
+    	else {
+    		// Ignore if the match is not a directory.
+    	}
+    }
+    
+    /**
+     * Provide a matcher for the file name of a path. Only * and ? are 
+     * wild cards so any other glob characters are escaped. A double
+     * wild card matches the same names as a single one.
+     * 
+     * @param dir The directory, for its file system.
+     * @param namespec The name that may contain wild cards.
+     * 
+     * @return A matcher. Never null.
+     */
+    static PathMatcher matcherFor(Path dir, String namespec) {
+    	StringBuilder glob = new StringBuilder("glob:");
+    	for (char c : namespec.replace("**", "*").toCharArray()) {
+    		if ("\\[]{}".indexOf(c) >= 0) {
+    			glob.append('\\');
+    		}
+    		glob.append(c);
+    	}
+    	return dir.getFileSystem().getPathMatcher(glob.toString());
+    }
+    
+    /**
+     * Sort files and remove duplicates.
+     */
+    static File[] sortedDistinct(List<File> files) {
+    	files.sort(null);
+    	List<File> distinct = new ArrayList<>(files.size());
+    	File last = null;
+    	for (File file : files) {
+    		if (!file.equals(last)) {
+    			distinct.add(file);
+    			last = file;
+    		}
+    	}
+    	return distinct.toArray(new File[0]);
     }
 
     /**
@@ -85,8 +85,7 @@ abstract public class ClientBase extends SimpleService {
 		else {
 			logger().info("Connecting to [" + connection + "] ...");
 			
-			JMXServiceURL address = new JMXServiceURLHelper().parse(connection);
-			cntor = JMXConnectorFactory.connect(address, environment);
+			cntor = connect(connection, environment);
 			mbsc = cntor.getMBeanServerConnection();
 			
 			cntor.addConnectionNotificationListener(
@@ -98,6 +97,21 @@ abstract public class ClientBase extends SimpleService {
 		doStart(mbsc, notificationProcessor);
 	}
 	
+	/**
+	 * Connect to the server. The default is a JMX connection, subclasses
+	 * may use a different transport.
+	 * 
+	 * @param connection The connection text. Never null.
+	 * @param environment The environment. May be null.
+	 * @return A connected connector.
+	 * @throws IOException If the connection fails.
+	 */
+	protected JMXConnector connect(String connection, Map<String, ?> environment)
+	throws IOException {
+		JMXServiceURL address = new JMXServiceURLHelper().parse(connection);
+		return JMXConnectorFactory.connect(address, environment);
+	}
+	
 	/**
 	 * Overridden by subclasses to provide a specific startup. 
 	 * 
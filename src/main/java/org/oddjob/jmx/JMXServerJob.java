@@ -8,6 +8,7 @@ import org.oddjob.arooa.life.ArooaSessionAware;
 import org.oddjob.describe.NoDescribe;
 import org.oddjob.jmx.server.*;
 import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.util.NotificationDispatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -130,6 +131,26 @@ public class JMXServerJob implements ArooaSessionAware, JmxServer {
      */
     private HandlerFactoryProvider handlerFactories;
 
+    /**
+     * @oddjob.property
+     * @oddjob.description The most notifications queued for each client listener.
+     * If this is set notifications are sent to clients on separate threads, each
+     * client listener with its own queue, so that a slow or stuck client can't hold
+     * up the jobs. If it isn't set notifications are sent on the job's thread. The queues
+     * can be monitored with any JMX console.
+     * @oddjob.required No, defaults to no queues.
+     */
+    private int notificationQueueSize;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description What to do when a client listener's queue is full. DROP_OLDEST
+     * drops the oldest notification and the client will catch up by asking for the latest
+     * state. DISCONNECT stops sending notifications to the listener.
+     * @oddjob.required No, defaults to DROP_OLDEST.
+     */
+    private NotificationDispatch.OverflowPolicy notificationOverflow;
+
     /**
      * @oddjob.property
      * @oddjob.description The address of this server. This is mainly
@@ -265,6 +286,7 @@ public class JMXServerJob implements ArooaSessionAware, JmxServer {
                 .andEnvironment(environment)
                 .andHandlerFactories(this.handlerFactories)
                 .andLogFormat(this.logFormat)
+                .andNotificationQueues(this.notificationQueueSize, this.notificationOverflow)
                 .buildWith(server,
                         serverStrategy.serverIdText(),
                         root);
@@ -320,4 +342,20 @@ public class JMXServerJob implements ArooaSessionAware, JmxServer {
     public void setEnvironment(Map<String, ?> environment) {
         this.environment = environment;
     }
+
+    public int getNotificationQueueSize() {
+        return notificationQueueSize;
+    }
+
+    public void setNotificationQueueSize(int notificationQueueSize) {
+        this.notificationQueueSize = notificationQueueSize;
+    }
+
+    public NotificationDispatch.OverflowPolicy getNotificationOverflow() {
+        return notificationOverflow;
+    }
+
+    public void setNotificationOverflow(NotificationDispatch.OverflowPolicy notificationOverflow) {
+        this.notificationOverflow = notificationOverflow;
+    }
 }
@@ -0,0 +1,41 @@
+package org.oddjob.jmx;
+
+import org.oddjob.jmx.client.SocketJMXConnector;
+import org.oddjob.remote.socket.SocketRemoteConnector;
+
+import javax.management.remote.JMXConnector;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * @oddjob.description Connect to an Oddjob {@link SocketServerJob}. This is
+ * the same as a {@link JMXClientJob} in every way except the transport. All calls and
+ * notifications share one TCP connection and notifications are pushed by the server
+ * as they happen rather than being polled for.
+ * <p>
+ * The connection property is the host and port of the server in the form
+ * <code>host:port</code>. Only the credentials of the environment are used, for instance
+ * from {@link org.oddjob.jmx.client.UsernamePassword}.
+ * </p>
+ *
+ * @oddjob.example Connect to a socket server and run a job on it.
+ * <p>
+ * {@oddjob.xml.resource org/oddjob/jmx/SocketClientExample.xml}
+ * <p>
+ * The server is the example in {@link SocketServerJob}.
+ */
+public class SocketClientJob extends JMXClientJob {
+
+    @Override
+    protected JMXConnector connect(String connection, Map<String, ?> environment) throws IOException {
+
+        ClassLoader classLoader = Optional.ofNullable(Thread.currentThread().getContextClassLoader())
+                .orElse(getClass().getClassLoader());
+
+        SocketJMXConnector connector = new SocketJMXConnector(
+                SocketRemoteConnector.parseAddress(connection), classLoader);
+        connector.connect(environment);
+        return connector;
+    }
+}
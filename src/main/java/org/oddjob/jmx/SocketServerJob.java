@@ -0,0 +1,404 @@
+package org.oddjob.jmx;
+
+import org.oddjob.OddjobException;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.deploy.annotations.ArooaAttribute;
+import org.oddjob.arooa.deploy.annotations.ArooaHidden;
+import org.oddjob.arooa.life.ArooaSessionAware;
+import org.oddjob.describe.NoDescribe;
+import org.oddjob.jmx.server.HandlerFactoryProvider;
+import org.oddjob.jmx.server.JmxServer;
+import org.oddjob.jmx.server.MBeanServerSocketHandler;
+import org.oddjob.jmx.server.PasswordFileAuthenticator;
+import org.oddjob.jmx.server.ServerSide;
+import org.oddjob.jmx.server.ServerSideBuilder;
+import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.socket.SocketServer;
+import org.oddjob.remote.util.NotificationDispatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXAuthenticator;
+import javax.management.remote.JMXConnectorServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * @oddjob.description A service which allows a job hierarchy to be monitored
+ * and managed remotely using a {@link SocketClientJob}. This provides
+ * exactly what a {@link JMXServerJob} provides, with the same handler factories, but
+ * clients connect with a compact binary protocol over a single TCP connection rather
+ * than JMX over RMI. Many calls from a client can be in progress at once and
+ * notifications are pushed to clients as they happen.
+ * <p>
+ * The server uses its own MBean Server that is not visible to JMX clients.
+ * By default it only listens on the loopback interface. Clients are authenticated
+ * when the environment contains a password file, <code>jmx.remote.x.password.file</code>,
+ * or a {@link JMXAuthenticator} under <code>jmx.remote.authenticator</code>, and the
+ * Oddjob access file, {@link JMXServerJob#ACCESS_FILE_PROPERTY}, then restricts
+ * the operations of the authenticated user as it does for a {@link JMXServerJob}.
+ * The server won't start with an access file and no way to authenticate, because
+ * the access file would have no user to apply to.
+ * </p>
+ * <p>
+ * Only Oddjob's own classes and common JDK value types, such as strings, numbers, dates
+ * and simple collections, are accepted from clients.
+ * Others that jobs expect to be passed remotely can be allowed with the
+ * <code>allowedClasses</code> property.
+ * </p>
+ *
+ * @oddjob.example A server that clients can connect to on a port given by a property.
+ * <p>
+ * {@oddjob.xml.resource org/oddjob/jmx/SocketServerExample.xml}
+ */
+public class SocketServerJob implements ArooaSessionAware, JmxServer {
+    private static final Logger logger = LoggerFactory.getLogger(SocketServerJob.class);
+
+    /**
+     * @oddjob.property
+     * @oddjob.description A name, can be any text.
+     * @oddjob.required No.
+     */
+    private String name;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The root node.
+     * @oddjob.required Yes.
+     */
+    private Object root;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The host name or address of the interface to listen on.
+     * Use 0.0.0.0 to listen on all interfaces.
+     * @oddjob.required No, defaults to the loopback interface.
+     */
+    private String host;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The port to listen on.
+     * @oddjob.required No, defaults to any free port which will be available from the
+     * address property once started.
+     */
+    private int port;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The log format for formatting log messages.
+     * @oddjob.required No.
+     */
+    private String logFormat;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description Additional handler factories that allow
+     * any interface to be invoked from a remote Oddjob.
+     * @oddjob.required No.
+     */
+    private HandlerFactoryProvider handlerFactories;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description An environment such as the access file property
+     * {@link JMXServerJob#ACCESS_FILE_PROPERTY}.
+     * @oddjob.required No.
+     */
+    private Map<String, ?> environment;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The most notifications held for a client subscription
+     * that hasn't caught up before the oldest are dropped.
+     * @oddjob.required No, defaults to 1000.
+     */
+    private int notificationBacklog = SocketServer.DEFAULT_NOTIFICATION_BACKLOG;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The most notifications queued for each client listener.
+     * If this is set notifications are sent to clients on separate threads, each
+     * client listener with its own queue, so that a slow or stuck client can't hold
+     * up the jobs. If it isn't set notifications are sent on the job's thread. The queues
+     * can be monitored with any JMX console.
+     * @oddjob.required No, defaults to no queues.
+     */
+    private int notificationQueueSize;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description What to do when a client listener's queue is full. DROP_OLDEST
+     * drops the oldest notification and the client will catch up by asking for the latest
+     * state. DISCONNECT stops sending notifications to the listener.
+     * @oddjob.required No, defaults to DROP_OLDEST.
+     */
+    private NotificationDispatch.OverflowPolicy notificationOverflow;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The executor that remote calls are run on. This will
+     * be automatically set by Oddjob.
+     * @oddjob.required No.
+     */
+    private ExecutorService executorService;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description Patterns, in the form of an {@link java.io.ObjectInputFilter},
+     * for further classes that clients may send, separated by ';'. For example
+     * <code>com.acme.**;org.example.Thing</code>.
+     * @oddjob.required No.
+     */
+    private String allowedClasses;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The address clients connect to, in the form <code>host:port</code>.
+     * @oddjob.required Read only.
+     */
+    private volatile String address;
+
+    private ArooaSession session;
+
+    private volatile ServerSide serverSide;
+
+    private volatile SocketServer socketServer;
+
+    @ArooaHidden
+    @Override
+    public void setArooaSession(ArooaSession session) {
+        this.session = session;
+    }
+
+    public void start() throws IOException, RemoteException {
+        if (root == null) {
+            throw new OddjobException("No root node.");
+        }
+
+        JMXAuthenticator authenticator = authenticator(environment);
+        if (authenticator == null && environment != null
+                && environment.get(JMXServerJob.ACCESS_FILE_PROPERTY) != null) {
+            throw new OddjobException("An access file requires a password file or authenticator " +
+                    "so that clients have a user to apply it to.");
+        }
+
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+        SocketServer socketServer = new SocketServer(new MBeanServerSocketHandler(mBeanServer),
+                executorService, getClass().getClassLoader());
+        socketServer.setNotificationBacklog(notificationBacklog);
+        socketServer.setAuthenticator(authenticator);
+        socketServer.setSerialFilter(allowedClasses);
+
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        InetSocketAddress bindTo = host == null ? new InetSocketAddress(loopback, port) :
+                new InetSocketAddress(host, port);
+
+        socketServer.start(bindTo);
+
+        String address = (host == null ? loopback.getHostAddress() : host) + ":" +
+                socketServer.getAddress().getPort();
+
+        try {
+            this.serverSide = ServerSideBuilder.withSession(session)
+                    .andEnvironment(environment)
+                    .andHandlerFactories(handlerFactories)
+                    .andLogFormat(logFormat)
+                    .andNotificationQueues(notificationQueueSize, notificationOverflow)
+                    .buildWith(mBeanServer, "//" + address, root);
+        }
+        catch (RemoteException | RuntimeException e) {
+            socketServer.close();
+            throw e;
+        }
+
+        this.socketServer = socketServer;
+        this.address = address;
+
+        logger.info("Server started. Clients may connect to: {}", address);
+    }
+
+    public void stop() {
+        SocketServer socketServer = this.socketServer;
+        if (socketServer == null) {
+            return;
+        }
+        this.socketServer = null;
+        this.address = null;
+
+        socketServer.close();
+        serverSide.close();
+        serverSide = null;
+    }
+
+    static JMXAuthenticator authenticator(Map<String, ?> environment) throws IOException {
+        if (environment == null) {
+            return null;
+        }
+        Object authenticator = environment.get(JMXConnectorServer.AUTHENTICATOR);
+        if (authenticator != null) {
+            if (authenticator instanceof JMXAuthenticator) {
+                return (JMXAuthenticator) authenticator;
+            }
+            throw new OddjobException(JMXConnectorServer.AUTHENTICATOR +
+                    " must be a " + JMXAuthenticator.class.getName());
+        }
+        Object passwordFile = environment.get(PasswordFileAuthenticator.PASSWORD_FILE_PROPERTY);
+        if (passwordFile != null) {
+            return PasswordFileAuthenticator.fromFile(passwordFile.toString());
+        }
+        return null;
+    }
+
+    @NoDescribe
+    @Override
+    public RemoteIdMappings getRemoteIdMappings() {
+        return Optional.ofNullable(serverSide)
+                .map(ServerSide::getRemoteIdMappings)
+                .orElse(null);
+    }
+
+    @NoDescribe
+    @Override
+    public MBeanServerConnection getServerConnection() {
+        return Optional.ofNullable(serverSide)
+                .map(ServerSide::getServerConnection)
+                .orElse(null);
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public int getConnections() {
+        return Optional.ofNullable(socketServer).map(SocketServer::getConnections).orElse(0);
+    }
+
+    public long getInvocations() {
+        return Optional.ofNullable(socketServer).map(SocketServer::getInvocations).orElse(0L);
+    }
+
+    public long getNotificationsSent() {
+        return Optional.ofNullable(socketServer).map(SocketServer::getNotificationsSent).orElse(0L);
+    }
+
+    public long getNotificationsDropped() {
+        return Optional.ofNullable(socketServer).map(SocketServer::getNotificationsDropped).orElse(0L);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @ArooaAttribute
+    public void setRoot(Object root) {
+        this.root = root;
+    }
+
+    public Object getRoot() {
+        return root;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getLogFormat() {
+        return logFormat;
+    }
+
+    public void setLogFormat(String logFormat) {
+        this.logFormat = logFormat;
+    }
+
+    public HandlerFactoryProvider getHandlerFactories() {
+        return handlerFactories;
+    }
+
+    public void setHandlerFactories(HandlerFactoryProvider handlerFactories) {
+        this.handlerFactories = handlerFactories;
+    }
+
+    public Map<String, ?> getEnvironment() {
+        return environment;
+    }
+
+    public void setEnvironment(Map<String, ?> environment) {
+        this.environment = environment;
+    }
+
+    public String getAllowedClasses() {
+        return allowedClasses;
+    }
+
+    public void setAllowedClasses(String allowedClasses) {
+        this.allowedClasses = allowedClasses;
+    }
+
+    public int getNotificationBacklog() {
+        return notificationBacklog;
+    }
+
+    public void setNotificationBacklog(int notificationBacklog) {
+        this.notificationBacklog = notificationBacklog;
+    }
+
+    public int getNotificationQueueSize() {
+        return notificationQueueSize;
+    }
+
+    public void setNotificationQueueSize(int notificationQueueSize) {
+        this.notificationQueueSize = notificationQueueSize;
+    }
+
+    public NotificationDispatch.OverflowPolicy getNotificationOverflow() {
+        return notificationOverflow;
+    }
+
+    public void setNotificationOverflow(NotificationDispatch.OverflowPolicy notificationOverflow) {
+        this.notificationOverflow = notificationOverflow;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @ArooaHidden
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    @Override
+    public String toString() {
+        if (name == null) {
+            return "Oddjob Socket Server";
+        }
+        return name;
+    }
+}
@@ -0,0 +1,379 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.jmx.RemoteOperation;
+import org.oddjob.jmx.Utils;
+import org.oddjob.jmx.handlers.RemoteOddjobHandlerFactory;
+import org.oddjob.jmx.handlers.RemoteOddjobHandlerFactory.BatchInvocation;
+import org.oddjob.jmx.handlers.RemoteOddjobHandlerFactory.BatchResult;
+import org.oddjob.jmx.server.OddjobMBeanFactory;
+import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.RemoteInvocationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.RuntimeMBeanException;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends remote operations for a {@link ClientSessionImpl} to the server in batches.
+ * <p>
+ * Asynchronous invocations are queued and sent by a single thread of the session,
+ * so invocations made while a previous batch is in flight are all sent together
+ * in the next one. An explicit {@link RemoteBatch} is sent by the thread that
+ * executes it.
+ * </p>
+ * <p>
+ * A batch is a single invocation of {@link RemoteOddjobHandlerFactory#BATCH} on the
+ * node of the first operation. If the server doesn't understand batches, which
+ * will be the case for an older server, operations are sent one at a time from
+ * then on.
+ * </p>
+ */
+class BatchInvoker {
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchInvoker.class);
+
+	/** How ServerInterfaceManagerImpl starts the message for an unknown operation. */
+	static final String UNKNOWN_OPERATION_MESSAGE = "No interface supports method ";
+
+	/** The most asynchronous invocations sent in one batch. */
+	static final int MAX_ASYNC_BATCH = 256;
+
+	private final ClientSessionImpl clientSession;
+
+	private final Executor executor;
+
+	private final Queue<Pending<?>> queue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private volatile boolean unsupported;
+
+	private final AtomicLong roundTrips = new AtomicLong();
+
+	BatchInvoker(ClientSessionImpl clientSession, Executor executor) {
+		this.clientSession = Objects.requireNonNull(clientSession);
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * Queue an invocation to be sent with the next batch.
+	 */
+	<T> CompletableFuture<T> submit(long remoteId, RemoteOperation<T> remoteOperation, Object[] args) {
+		Pending<T> pending = new Pending<>(remoteId, remoteOperation, args);
+		queue.add(pending);
+		startDraining();
+		return pending.future;
+	}
+
+	private void startDraining() {
+		if (!draining.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::drain);
+		}
+		catch (RejectedExecutionException e) {
+			draining.set(false);
+			Pending<?> next;
+			while ((next = queue.poll()) != null) {
+				next.fail(e);
+			}
+		}
+	}
+
+	private void drain() {
+		try {
+			while (true) {
+				List<Pending<?>> batch = new ArrayList<>();
+				Pending<?> next;
+				while (batch.size() < MAX_ASYNC_BATCH && (next = queue.poll()) != null) {
+					batch.add(next);
+				}
+				if (batch.isEmpty()) {
+					break;
+				}
+				try {
+					invokeAll(batch);
+				}
+				catch (RemoteException e) {
+					logger.debug("Batch of {} failed.", batch.size(), e);
+				}
+			}
+		}
+		finally {
+			draining.set(false);
+		}
+		// Something may have been added after the last poll but before draining was reset.
+		if (!queue.isEmpty()) {
+			startDraining();
+		}
+	}
+
+	/**
+	 * Create a new explicit batch.
+	 */
+	RemoteBatch newBatch(long defaultRemoteId) {
+		return new Batch(defaultRemoteId);
+	}
+
+	/**
+	 * Invoke the operations, completing all their futures.
+	 *
+	 * @throws RemoteException If the batch as a whole failed.
+	 */
+	void invokeAll(List<Pending<?>> batch) throws RemoteException {
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		if (batch.size() == 1 || unsupported) {
+			for (Pending<?> pending : batch) {
+				pending.invokeDirect();
+			}
+			return;
+		}
+
+		List<Pending<?>> sending = new ArrayList<>(batch.size());
+		List<BatchInvocation> invocations = new ArrayList<>(batch.size());
+		for (Pending<?> pending : batch) {
+			try {
+				invocations.add(new BatchInvocation(pending.remoteId,
+						pending.remoteOperation.getActionName(),
+						pending.remoteOperation.getSignature(),
+						Utils.export(pending.args)));
+				sending.add(pending);
+			}
+			catch (NotSerializableException e) {
+				pending.fail(e);
+			}
+		}
+
+		if (sending.isEmpty()) {
+			return;
+		}
+
+		long batchRemoteId = sending.get(0).remoteId;
+
+		BatchResult[] results;
+		try {
+			roundTrips.incrementAndGet();
+			results = (BatchResult[]) clientSession.getServerConnection().invoke(
+					OddjobMBeanFactory.objectName(batchRemoteId),
+					RemoteOddjobHandlerFactory.BATCH.getActionName(),
+					new Object[] { invocations.toArray(new BatchInvocation[0]) },
+					RemoteOddjobHandlerFactory.BATCH.getSignature());
+		}
+		catch (InstanceNotFoundException e) {
+			// The node has gone, send them individually so each gets its own failure.
+			for (Pending<?> pending : sending) {
+				pending.invokeDirect();
+			}
+			return;
+		}
+		catch (Exception e) {
+			if (isUnknownOperation(e)) {
+				logger.info("Server doesn't support batches, operations will be sent one at a time ({}).",
+						e.toString());
+				unsupported = true;
+				for (Pending<?> pending : sending) {
+					pending.invokeDirect();
+				}
+				return;
+			}
+			// The operations may have been carried out, so they mustn't be sent again.
+			RemoteException remoteException = RemoteInvocationException.of(batchRemoteId,
+					RemoteOddjobHandlerFactory.BATCH.getActionName(),
+					RemoteOddjobHandlerFactory.BATCH.getSignature(),
+					e);
+			for (Pending<?> pending : sending) {
+				pending.fail(remoteException);
+			}
+			throw remoteException;
+		}
+
+		logger.trace("Invoked batch of {} on remote {}", sending.size(), batchRemoteId);
+
+		for (int i = 0; i < sending.size(); ++i) {
+			sending.get(i).complete(results[i]);
+		}
+	}
+
+	/**
+	 * Is the failure of a batch because the server doesn't have the batch operation.
+	 * A plain MBean reports this as a {@link NoSuchMethodException} in a
+	 * {@link ReflectionException}. An older Oddjob server throws an
+	 * {@link IllegalArgumentException} saying no interface supports the batch
+	 * operation, which the MBean Server wraps in a {@link RuntimeMBeanException}.
+	 */
+	static boolean isUnknownOperation(Exception e) {
+		if (e instanceof ReflectionException) {
+			return ((ReflectionException) e).getTargetException() instanceof NoSuchMethodException;
+		}
+		if (e instanceof RuntimeMBeanException) {
+			Exception target = ((RuntimeMBeanException) e).getTargetException();
+			return target instanceof IllegalArgumentException
+					&& target.getMessage() != null
+					&& target.getMessage().startsWith(UNKNOWN_OPERATION_MESSAGE + "[" +
+							RemoteOddjobHandlerFactory.BATCH + "]");
+		}
+		return false;
+	}
+
+	/**
+	 * The number of times the server has been called.
+	 *
+	 * @return The number of round trips.
+	 */
+	long getRoundTrips() {
+		return roundTrips.get();
+	}
+
+	/**
+	 * Invoke a single operation directly.
+	 */
+	Object invoke(long remoteId, RemoteOperation<?> remote, Object[] args) throws RemoteException {
+		return invoke(remoteId, OddjobMBeanFactory.objectName(remoteId), remote, args);
+	}
+
+	/**
+	 * Invoke a single operation directly when the object name is already known.
+	 */
+	Object invoke(long remoteId, ObjectName objectName, RemoteOperation<?> remote, Object[] args)
+			throws RemoteException {
+
+		Object result;
+		try {
+			Object[] exported = Utils.export(args);
+
+			roundTrips.incrementAndGet();
+			result = clientSession.getServerConnection().invoke(
+					objectName,
+					remote.getActionName(),
+					exported,
+					remote.getSignature());
+
+		} catch (ReflectionException e) {
+
+			throw RemoteInvocationException.of(remoteId, remote.getActionName(),
+					remote.getSignature(), args, e.getTargetException());
+		} catch (MBeanException e) {
+
+			throw RemoteInvocationException.of(remoteId, remote.getActionName(),
+					remote.getSignature(), args, e.getTargetException());
+		} catch (Throwable t) {
+
+			throw RemoteInvocationException.of(remoteId, remote.getActionName(),
+					remote.getSignature(), args, t);
+		}
+
+		return Utils.importResolve(result, clientSession);
+	}
+
+	/**
+	 * An invocation waiting to be sent.
+	 */
+	class Pending<T> {
+
+		private final long remoteId;
+
+		private final RemoteOperation<T> remoteOperation;
+
+		private final Object[] args;
+
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Pending(long remoteId, RemoteOperation<T> remoteOperation, Object[] args) {
+			this.remoteId = remoteId;
+			this.remoteOperation = Objects.requireNonNull(remoteOperation);
+			this.args = args;
+		}
+
+		@SuppressWarnings("unchecked")
+		void invokeDirect() {
+			try {
+				future.complete((T) invoke(remoteId, remoteOperation, args));
+			}
+			catch (RemoteException | RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		void complete(BatchResult result) {
+			if (result.getException() == null) {
+				future.complete((T) Utils.importResolve(result.getValue(), clientSession));
+			}
+			else {
+				fail(result.getException());
+			}
+		}
+
+		void fail(Throwable t) {
+			if (t instanceof RemoteException) {
+				future.completeExceptionally(t);
+			}
+			else {
+				future.completeExceptionally(RemoteInvocationException.of(remoteId,
+						remoteOperation.getActionName(), remoteOperation.getSignature(),
+						args, t));
+			}
+		}
+	}
+
+	/**
+	 * An explicit batch.
+	 */
+	class Batch implements RemoteBatch {
+
+		private final long defaultRemoteId;
+
+		private final List<Pending<?>> pending = new ArrayList<>();
+
+		private boolean executed;
+
+		Batch(long defaultRemoteId) {
+			this.defaultRemoteId = defaultRemoteId;
+		}
+
+		@Override
+		public <T> CompletableFuture<T> add(RemoteOperation<T> remoteOperation, Object... args) {
+			return add(defaultRemoteId, remoteOperation, args);
+		}
+
+		@Override
+		public <T> CompletableFuture<T> add(long remoteId, RemoteOperation<T> remoteOperation, Object... args) {
+			if (executed) {
+				throw new IllegalStateException("Batch already executed.");
+			}
+			Pending<T> p = new Pending<>(remoteId, remoteOperation, args);
+			pending.add(p);
+			return p.future;
+		}
+
+		@Override
+		public void execute() throws RemoteException {
+			if (executed) {
+				throw new IllegalStateException("Batch already executed.");
+			}
+			executed = true;
+			invokeAll(pending);
+		}
+	}
+}
@@ -54,4 +54,13 @@ public interface ClientSession extends RemoteIdMappings {
 
 	ClientInterfaceManagerFactory getInterfaceManagerFactory();
 
+	/**
+	 * Provide the cache of icons shared by all the nodes of this session.
+	 *
+	 * @return The cache. Null if icons aren't cached.
+	 */
+	default IconCache getIconCache() {
+		return null;
+	}
+
 }
@@ -5,6 +5,9 @@ import org.slf4j.Logger;
 
 import javax.management.MBeanServerConnection;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
@@ -32,6 +35,16 @@ public class ClientSessionImpl implements ClientSession {
 
 	private final ClientInterfaceManagerFactory interfaceManagerFactory;
 
+	private final IconCache iconCache = new IconCache();
+
+	private final BatchInvoker batchInvoker;
+
+	/** Sends asynchronous invocations. Created when first needed. */
+	private ExecutorService asyncExecutor;
+
+	/** Set once destroyed so the async executor isn't created again. */
+	private boolean destroyed;
+
 	/**
 	 * Constructor.
 	 * 
@@ -51,6 +64,8 @@ public class ClientSessionImpl implements ClientSession {
 		this.interfaceManagerFactory = Objects.requireNonNull(interfaceManagerFactory);
 		this.arooaSession = Objects.requireNonNull(arooaSession);
 		this.logger = Objects.requireNonNull(logger);
+		this.batchInvoker = new BatchInvoker(this,
+				runnable -> asyncExecutor().execute(runnable));
 	}
 
 	@Override
@@ -132,11 +147,42 @@ public class ClientSessionImpl implements ClientSession {
 		return interfaceManagerFactory;
 	}
 
+	BatchInvoker getBatchInvoker() {
+		return batchInvoker;
+	}
+
+	private synchronized ExecutorService asyncExecutor() {
+		if (destroyed) {
+			throw new RejectedExecutionException("Client session has been destroyed.");
+		}
+		if (asyncExecutor == null) {
+			asyncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Oddjob Client Async Invoker");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return asyncExecutor;
+	}
+
+	@Override
+	public IconCache getIconCache() {
+		return iconCache;
+	}
+
 	@Override
 	public void destroyAll() {
 		List<Object> proxies = new ArrayList<>(names.keySet());
 		for (Object proxy : proxies) {
 			destroy(proxy);
 		}
+		iconCache.clear();
+		synchronized (this) {
+			destroyed = true;
+			if (asyncExecutor != null) {
+				asyncExecutor.shutdown();
+				asyncExecutor = null;
+			}
+		}
 	}
 }
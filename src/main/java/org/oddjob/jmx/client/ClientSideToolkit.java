@@ -4,6 +4,9 @@ import org.oddjob.jmx.RemoteOperation;
 import org.oddjob.remote.NotificationListener;
 import org.oddjob.remote.NotificationType;
 import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.RemoteInvocationException;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Provide tools to {@link ClientInterfaceHandlerFactory} to allow
@@ -35,6 +38,61 @@ public interface ClientSideToolkit {
 	 */
 	<T> T invoke(RemoteOperation<T> remoteOperation, Object... args)
 	throws RemoteException;
+
+	/**
+	 * Invoke a remote operation on another node of the same server. This
+	 * default can't reach other nodes and always fails.
+	 *
+	 * @param <T> The return type of the operation.
+	 * @param remoteId The remote id of the node.
+	 * @param remoteOperation The Remote Operation.
+	 * @param args The arguments to pass.
+	 *
+	 * @return The result of the remote operation.
+	 *
+	 * @throws RemoteException If something goes wrong.
+	 */
+	default <T> T invoke(long remoteId, RemoteOperation<T> remoteOperation, Object... args)
+	throws RemoteException {
+		throw RemoteInvocationException.of(remoteId, remoteOperation.getActionName(),
+				remoteOperation.getSignature(), args,
+				new UnsupportedOperationException("Other nodes can't be reached by " +
+						getClass().getName()));
+	}
+
+	/**
+	 * Invoke a remote operation without waiting for the result. Implementations
+	 * may send invocations made close together to the server in one batch.
+	 * This default just invokes the operation and so does wait.
+	 *
+	 * @param <T> The return type of the operation.
+	 * @param remoteOperation The Remote Operation.
+	 * @param args The arguments to pass.
+	 *
+	 * @return A future result of the remote operation. If the operation fails the
+	 * future will complete with a {@link RemoteException}.
+	 */
+	default <T> CompletableFuture<T> invokeAsync(RemoteOperation<T> remoteOperation, Object... args) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			future.complete(invoke(remoteOperation, args));
+		}
+		catch (RemoteException | RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Start a batch of remote operations that will be sent to the server
+	 * in one go. This default returns a batch that invokes the operations
+	 * one at a time when it is executed, and only for this node.
+	 *
+	 * @return A new batch. Never null.
+	 */
+	default RemoteBatch batch() {
+		return new OneAtATimeBatch(this);
+	}
 	
 	/**
 	 * Add a NotificationListener.
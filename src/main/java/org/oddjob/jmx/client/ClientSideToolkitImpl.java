@@ -2,22 +2,19 @@ package org.oddjob.jmx.client;
 
 import org.oddjob.arooa.utils.Pair;
 import org.oddjob.jmx.RemoteOperation;
-import org.oddjob.jmx.Utils;
 import org.oddjob.jmx.general.RemoteBridge;
 import org.oddjob.jmx.server.OddjobMBeanFactory;
 import org.oddjob.remote.NotificationListener;
 import org.oddjob.remote.NotificationType;
 import org.oddjob.remote.RemoteException;
-import org.oddjob.remote.RemoteInvocationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.management.MBeanException;
 import javax.management.ObjectName;
-import javax.management.ReflectionException;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -55,36 +52,33 @@ class ClientSideToolkitImpl implements ClientSideToolkit {
 	public <T> T invoke(RemoteOperation<T> remote, Object... args) throws RemoteException {
 		Objects.requireNonNull(remote);
 
-		Object result;
-		try {
-			Object[] exported = Utils.export(args);
-
-			result = clientSession.getServerConnection().invoke(
-					objectName, 
-					remote.getActionName(), 
-					exported,
-					remote.getSignature());
+		Object result = clientSession.getBatchInvoker().invoke(remoteId, objectName, remote, args);
 
-			logger.trace("Invoked {} on remote {}, args {}, result {}", remote, remoteId,
-					Arrays.toString(args), result);
+		logger.trace("Invoked {} on remote {}, args {}, result {}", remote, remoteId,
+				Arrays.toString(args), result);
 
-		} catch (ReflectionException e) {
+		return (T) result;
+	}
 
-			throw RemoteInvocationException.of(remoteId, remote.getActionName(),
-					remote.getSignature(), args, e.getTargetException());
-		} catch (MBeanException e) {
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T invoke(long remoteId, RemoteOperation<T> remote, Object... args) throws RemoteException {
+		Objects.requireNonNull(remote);
 
-			throw RemoteInvocationException.of(remoteId, remote.getActionName(),
-					remote.getSignature(), args, e.getTargetException());
-		} catch (Throwable t) {
+		return (T) clientSession.getBatchInvoker().invoke(remoteId, remote, args);
+	}
 
-			throw RemoteInvocationException.of(remoteId, remote.getActionName(),
-					remote.getSignature(), args, t);
-		}
+	@Override
+	public <T> CompletableFuture<T> invokeAsync(RemoteOperation<T> remote, Object... args) {
+		Objects.requireNonNull(remote);
 
-		return (T) Utils.importResolve(result, clientSession);
+		return clientSession.getBatchInvoker().submit(remoteId, remote, args);
 	}
 
+	@Override
+	public RemoteBatch batch() {
+		return clientSession.getBatchInvoker().newBatch(remoteId);
+	}
 
 	@Override
 	public <T> void registerNotificationListener(NotificationType<T> eventType,
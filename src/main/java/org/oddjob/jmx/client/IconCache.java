@@ -0,0 +1,100 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.images.ImageData;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of icons shared by all the client nodes of a {@link ClientSession}, and
+ * so of one server. Icons are cached by their content digest, see
+ * {@link ImageData#digest()}, not by their id, because different nodes on the same
+ * server may provide different icons for the same id. A node that knows the digest of
+ * the icon it wants can get it from the cache without a remote call.
+ * <p>
+ * Because entries are keyed by content an entry is never stale and nothing needs
+ * to be invalidated when a server provides custom icons. A custom icon
+ * simply has a different digest and so will be fetched once.
+ * </p>
+ */
+public class IconCache {
+
+    private final Map<String, ImageData> icons = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean primed = new AtomicBoolean();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Get an icon.
+     *
+     * @param digest The digest of the icon.
+     *
+     * @return The icon or null if it isn't cached.
+     */
+    public ImageData get(String digest) {
+        ImageData imageData = icons.get(Objects.requireNonNull(digest));
+        if (imageData == null) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        return imageData;
+    }
+
+    /**
+     * Add an icon to the cache.
+     *
+     * @param imageData The icon. Must not be null.
+     *
+     * @return The cached icon with the same content, which may be a previously
+     * cached instance.
+     */
+    public ImageData put(ImageData imageData) {
+        ImageData previous = icons.putIfAbsent(imageData.digest(), imageData);
+        return previous == null ? imageData : previous;
+    }
+
+    /**
+     * Used by the first node that connects so that it, and only it, fetches all
+     * the icons the server has in bulk.
+     *
+     * @return true if the caller should prime the cache, false if it's already been
+     * done.
+     */
+    public boolean startPriming() {
+        return primed.compareAndSet(false, true);
+    }
+
+    public int getSize() {
+        return icons.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Remove all cached icons. The next node to connect will prime the cache again.
+     */
+    public void clear() {
+        icons.clear();
+        primed.set(false);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ", size=" + icons.size() +
+                ", hits=" + hits.get() + ", misses=" + misses.get();
+    }
+}
@@ -0,0 +1,70 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.jmx.RemoteOperation;
+import org.oddjob.remote.RemoteException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The {@link RemoteBatch} of a {@link ClientSideToolkit} that doesn't provide its own.
+ * Operations are invoked one at a time with the toolkit when the batch is executed.
+ */
+class OneAtATimeBatch implements RemoteBatch {
+
+	private final ClientSideToolkit toolkit;
+
+	private final List<Runnable> invocations = new ArrayList<>();
+
+	private boolean executed;
+
+	OneAtATimeBatch(ClientSideToolkit toolkit) {
+		this.toolkit = Objects.requireNonNull(toolkit);
+	}
+
+	@Override
+	public <T> CompletableFuture<T> add(RemoteOperation<T> remoteOperation, Object... args) {
+		Objects.requireNonNull(remoteOperation);
+		return queue(() -> toolkit.invoke(remoteOperation, args));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> add(long remoteId, RemoteOperation<T> remoteOperation, Object... args) {
+		Objects.requireNonNull(remoteOperation);
+		return queue(() -> toolkit.invoke(remoteId, remoteOperation, args));
+	}
+
+	private <T> CompletableFuture<T> queue(Invocation<T> invocation) {
+		if (executed) {
+			throw new IllegalStateException("Batch already executed.");
+		}
+		CompletableFuture<T> future = new CompletableFuture<>();
+		invocations.add(() -> {
+			try {
+				future.complete(invocation.invoke());
+			}
+			catch (RemoteException | RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	@Override
+	public void execute() {
+		if (executed) {
+			throw new IllegalStateException("Batch already executed.");
+		}
+		executed = true;
+		for (Runnable invocation : invocations) {
+			invocation.run();
+		}
+	}
+
+	interface Invocation<T> {
+
+		T invoke() throws RemoteException;
+	}
+}
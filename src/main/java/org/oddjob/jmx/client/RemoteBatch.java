@@ -0,0 +1,50 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.jmx.RemoteOperation;
+import org.oddjob.remote.RemoteException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A batch of remote operations that will be sent to the server in a single
+ * round trip. Operations may be for different nodes of the same server. Each
+ * operation has its own result and a failure of one does not affect the others.
+ * <p>
+ * A batch is used by one thread and is executed once.
+ * </p>
+ *
+ * @see ClientSideToolkit#batch()
+ */
+public interface RemoteBatch {
+
+	/**
+	 * Add an operation on the node the batch was created for.
+	 *
+	 * @param remoteOperation The operation.
+	 * @param args The arguments.
+	 * @param <T> The return type of the operation.
+	 *
+	 * @return A future that will be completed when the batch is executed.
+	 */
+	<T> CompletableFuture<T> add(RemoteOperation<T> remoteOperation, Object... args);
+
+	/**
+	 * Add an operation on another node.
+	 *
+	 * @param remoteId The remote id of the node.
+	 * @param remoteOperation The operation.
+	 * @param args The arguments.
+	 * @param <T> The return type of the operation.
+	 *
+	 * @return A future that will be completed when the batch is executed.
+	 */
+	<T> CompletableFuture<T> add(long remoteId, RemoteOperation<T> remoteOperation, Object... args);
+
+	/**
+	 * Send the batch to the server and wait for all the results.
+	 *
+	 * @throws RemoteException If the batch as a whole fails. All the futures
+	 * will have been completed with the exception.
+	 */
+	void execute() throws RemoteException;
+}
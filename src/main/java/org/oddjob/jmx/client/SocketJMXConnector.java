@@ -0,0 +1,130 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.remote.socket.SocketRemoteConnection;
+
+import javax.management.MBeanServerConnection;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ListenerNotFoundException;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+import javax.security.auth.Subject;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link JMXConnector} that connects to an Oddjob
+ * {@link org.oddjob.jmx.SocketServerJob} so that it can be used anywhere a JMX connection
+ * is used by an Oddjob client. A {@link JMXConnectionNotification#CLOSED} notification is
+ * sent if the server closes the connection. Credentials are taken from the
+ * {@link JMXConnector#CREDENTIALS} of the environment as they are for JMX.
+ */
+public class SocketJMXConnector implements JMXConnector {
+
+    private final InetSocketAddress address;
+
+    private final ClassLoader classLoader;
+
+    private final NotificationBroadcasterSupport broadcaster = new NotificationBroadcasterSupport();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile SocketRemoteConnection connection;
+
+    private volatile SocketMBeanServerConnection serverConnection;
+
+    public SocketJMXConnector(InetSocketAddress address, ClassLoader classLoader) {
+        this.address = Objects.requireNonNull(address);
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        connect(null);
+    }
+
+    @Override
+    public synchronized void connect(Map<String, ?> env) throws IOException {
+        if (connection != null) {
+            return;
+        }
+        String username = null;
+        String password = null;
+        Object credentials = env == null ? null : env.get(JMXConnector.CREDENTIALS);
+        if (credentials instanceof String[]) {
+            String[] usernamePassword = (String[]) credentials;
+            username = usernamePassword.length > 0 ? usernamePassword[0] : null;
+            password = usernamePassword.length > 1 ? usernamePassword[1] : null;
+        }
+        else if (credentials != null) {
+            throw new IOException("Credentials must be a username and password, not " + credentials);
+        }
+        SocketRemoteConnection connection = SocketRemoteConnection.connect(address, classLoader,
+                SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW, username, password);
+        connection.addClosedListener(cause -> broadcaster.sendNotification(
+                new JMXConnectionNotification(JMXConnectionNotification.CLOSED,
+                        this,
+                        getConnectionId(),
+                        sequence.incrementAndGet(),
+                        "Connection closed: " + cause,
+                        null)));
+        this.connection = connection;
+        this.serverConnection = new SocketMBeanServerConnection(connection);
+    }
+
+    @Override
+    public MBeanServerConnection getMBeanServerConnection() throws IOException {
+        SocketMBeanServerConnection serverConnection = this.serverConnection;
+        if (serverConnection == null) {
+            throw new IOException("Not connected.");
+        }
+        return serverConnection;
+    }
+
+    @Override
+    public MBeanServerConnection getMBeanServerConnection(Subject delegationSubject) throws IOException {
+        return getMBeanServerConnection();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+            serverConnection = null;
+        }
+    }
+
+    @Override
+    public void addConnectionNotificationListener(NotificationListener listener,
+                                                  NotificationFilter filter, Object handback) {
+        broadcaster.addNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public void removeConnectionNotificationListener(NotificationListener listener)
+            throws ListenerNotFoundException {
+        broadcaster.removeNotificationListener(listener);
+    }
+
+    @Override
+    public void removeConnectionNotificationListener(NotificationListener listener,
+                                                     NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException {
+        broadcaster.removeNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public String getConnectionId() {
+        return "oddjob-socket://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " to " + address;
+    }
+}
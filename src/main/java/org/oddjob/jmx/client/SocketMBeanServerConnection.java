@@ -0,0 +1,251 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.jmx.general.RemoteBridge;
+import org.oddjob.jmx.server.OddjobMBeanFactory;
+import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.socket.SocketRemoteConnection;
+
+import javax.management.*;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provides the parts of an {@link MBeanServerConnection} that an Oddjob client uses over a
+ * {@link SocketRemoteConnection}, so that the client side handler factories work unchanged.
+ * Only Oddjob MBeans may be used and only invocations and notifications are supported.
+ */
+public class SocketMBeanServerConnection implements MBeanServerConnection {
+
+    private final SocketRemoteConnection connection;
+
+    private final ConcurrentMap<ListenerKey, List<Integer>> subscriptions = new ConcurrentHashMap<>();
+
+    public SocketMBeanServerConnection(SocketRemoteConnection connection) {
+        this.connection = Objects.requireNonNull(connection);
+    }
+
+    @Override
+    public Object invoke(ObjectName name, String operationName, Object[] params, String[] signature)
+            throws InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+        try {
+            return connection.invoke(OddjobMBeanFactory.remoteIdFor(name), operationName, signature, params);
+        }
+        catch (InstanceNotFoundException | MBeanException | ReflectionException | IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new MBeanException(e);
+        }
+    }
+
+    @Override
+    public boolean isRegistered(ObjectName name) throws IOException {
+        try {
+            return connection.exists(OddjobMBeanFactory.remoteIdFor(name));
+        }
+        catch (IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void addNotificationListener(ObjectName name, NotificationListener listener,
+                                        NotificationFilter filter, Object handback)
+            throws InstanceNotFoundException, IOException {
+
+        NotificationType<?> type = RemoteBridge.typeOfFilter(filter).orElseThrow(
+                () -> new UnsupportedOperationException("Only filters for one notification type are supported."));
+
+        org.oddjob.remote.NotificationListener<Object> remoteListener = notification ->
+                listener.handleNotification(RemoteBridge.toJmxNotification(name, notification), handback);
+
+        int id;
+        try {
+            id = connection.subscribe(OddjobMBeanFactory.remoteIdFor(name),
+                    new NotificationType<>(type.getName(), Object.class), remoteListener);
+        }
+        catch (InstanceNotFoundException | IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+        subscriptions.computeIfAbsent(new ListenerKey(name, listener),
+                k -> Collections.synchronizedList(new ArrayList<>())).add(id);
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, NotificationListener listener)
+            throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+        List<Integer> ids = subscriptions.remove(new ListenerKey(name, listener));
+        if (ids == null) {
+            throw new ListenerNotFoundException("No listener " + listener + " for " + name);
+        }
+        synchronized (ids) {
+            for (int id : ids) {
+                try {
+                    connection.unsubscribe(id);
+                }
+                catch (InstanceNotFoundException | IOException | RuntimeException e) {
+                    throw e;
+                }
+                catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, NotificationListener listener,
+                                           NotificationFilter filter, Object handback)
+            throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+        removeNotificationListener(name, listener);
+    }
+
+    @Override
+    public String getDefaultDomain() {
+        return "oddjob";
+    }
+
+    @Override
+    public String[] getDomains() {
+        return new String[] { "oddjob" };
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name, ObjectName loaderName) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name, Object[] params, String[] signature) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name, ObjectName loaderName,
+                                      Object[] params, String[] signature) {
+        throw unsupported();
+    }
+
+    @Override
+    public void unregisterMBean(ObjectName name) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance getObjectInstance(ObjectName name) {
+        throw unsupported();
+    }
+
+    @Override
+    public Set<ObjectInstance> queryMBeans(ObjectName name, QueryExp query) {
+        throw unsupported();
+    }
+
+    @Override
+    public Set<ObjectName> queryNames(ObjectName name, QueryExp query) {
+        throw unsupported();
+    }
+
+    @Override
+    public Integer getMBeanCount() {
+        throw unsupported();
+    }
+
+    @Override
+    public Object getAttribute(ObjectName name, String attribute) {
+        throw unsupported();
+    }
+
+    @Override
+    public AttributeList getAttributes(ObjectName name, String[] attributes) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setAttribute(ObjectName name, Attribute attribute) {
+        throw unsupported();
+    }
+
+    @Override
+    public AttributeList setAttributes(ObjectName name, AttributeList attributes) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addNotificationListener(ObjectName name, ObjectName listener,
+                                        NotificationFilter filter, Object handback) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, ObjectName listener) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, ObjectName listener,
+                                           NotificationFilter filter, Object handback) {
+        throw unsupported();
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo(ObjectName name) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isInstanceOf(ObjectName name, String className) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported over an Oddjob socket connection.");
+    }
+
+    public SocketRemoteConnection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " over " + connection;
+    }
+
+    static class ListenerKey {
+
+        private final ObjectName objectName;
+
+        private final NotificationListener listener;
+
+        ListenerKey(ObjectName objectName, NotificationListener listener) {
+            this.objectName = Objects.requireNonNull(objectName);
+            this.listener = Objects.requireNonNull(listener);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ListenerKey that = (ListenerKey) o;
+            return objectName.equals(that.objectName) && listener.equals(that.listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(objectName, listener);
+        }
+    }
+}
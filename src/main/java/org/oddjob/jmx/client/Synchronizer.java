@@ -2,6 +2,10 @@ package org.oddjob.jmx.client;
 
 import org.oddjob.remote.Notification;
 import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.util.NotificationGap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,17 +19,50 @@ import java.util.List;
  * During the synchronisation phase any asynchronous events are queued and
  * processed after synchronisation. Duplicates are detected by the
  * notification number and removed.
+ * <p>
+ * If a {@link NotificationGap} marker is received because the server dropped
+ * notifications the last notifications are fetched again and anything older
+ * that arrives afterwards is ignored.
  *
  * @author rob
  */
 public class Synchronizer<T> implements NotificationListener<T> {
 
+    private static final Logger logger = LoggerFactory.getLogger(Synchronizer.class);
+
+    /**
+     * Provides the last notifications, the same as used for {@link #synchronize(List)}.
+     *
+     * @param <T> The type of the notification data.
+     */
+    @FunctionalInterface
+    public interface Resync<T> {
+
+        List<Notification<T>> lastNotifications() throws RemoteException;
+    }
+
     private final NotificationListener<T> listener;
 
+    private final Resync<T> resync;
+
     private LinkedList<Notification<T>> pending = new LinkedList<>();
 
+    /** Notifications before this are older than the last resync. */
+    private long floor;
+
     public Synchronizer(NotificationListener<T> listener) {
+        this(listener, null);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param listener The listener to pass notifications on to.
+     * @param resync Used to catch up if notifications are missed. May be null.
+     */
+    public Synchronizer(NotificationListener<T> listener, Resync<T> resync) {
         this.listener = listener;
+        this.resync = resync;
     }
 
     public void handleNotification(Notification<T> notification) {
@@ -34,8 +71,16 @@ public class Synchronizer<T> implements NotificationListener<T> {
                 pending.addLast(notification);
                 return;
             }
+            if (notification.getSequence() < floor) {
+                return;
+            }
+        }
+        if (NotificationGap.isGap(notification)) {
+            resync(notification);
+        }
+        else {
+            listener.handleNotification(notification);
         }
-        listener.handleNotification(notification);
     }
 
     public final void synchronize(Notification<T> last) {
@@ -76,7 +121,50 @@ public class Synchronizer<T> implements NotificationListener<T> {
                     continue;
                 }
             }
+            if (NotificationGap.isGap(notification)) {
+                seq = resync(notification);
+            }
+            else {
+                listener.handleNotification(notification);
+            }
+        }
+    }
+
+    /**
+     * Catch up after a gap.
+     *
+     * @param gap The gap marker.
+     *
+     * @return The sequence caught up to.
+     */
+    private long resync(Notification<T> gap) {
+        if (resync == null) {
+            logger.warn("Missed {} notifications of type {} for {}, unable to resynchronize.",
+                    NotificationGap.gapOf(gap).getMissed(), gap.getType(), gap.getRemoteId());
+            return gap.getSequence();
+        }
+
+        List<Notification<T>> last;
+        try {
+            last = resync.lastNotifications();
+        }
+        catch (RemoteException | RuntimeException e) {
+            logger.error("Failed to resynchronize after missing {} notifications of type {} for {}",
+                    NotificationGap.gapOf(gap).getMissed(), gap.getType(), gap.getRemoteId(), e);
+            return gap.getSequence();
+        }
+
+        logger.debug("Resynchronizing after missing {} notifications of type {} for {}",
+                NotificationGap.gapOf(gap).getMissed(), gap.getType(), gap.getRemoteId());
+
+        long seq = gap.getSequence();
+        for (Notification<T> notification : last) {
             listener.handleNotification(notification);
+            seq = Math.max(seq, notification.getSequence());
+        }
+        synchronized (this) {
+            floor = seq;
         }
+        return seq;
     }
 }
@@ -258,6 +258,16 @@ public class LocalRemoteConnection implements RemoteConnection {
             }
         }
 
+        @Override
+        public Object invoke(long remoteId, String actionName, Object[] params, String[] signature)
+                throws RemoteException {
+            ServerInterfaceManager sim = nodes.get(remoteId);
+            if (sim == null) {
+                throw new RemoteComponentException(remoteId, "No remote Id");
+            }
+            return sim.invoke(actionName, params, signature);
+        }
+
         @Override
         public ArooaSession getArooaSession() {
             return session;
@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -315,6 +316,23 @@ public class RemoteBridge implements RemoteConnection {
         }
     }
 
+    /**
+     * Find the Notification Type a Filter is for. Only works for filters created with
+     * {@link #createTypeFilterFor(NotificationType)}.
+     *
+     * @param filter The filter. May be null.
+     *
+     * @return The Notification Type if known.
+     */
+    public static Optional<NotificationType<?>> typeOfFilter(NotificationFilter filter) {
+        if (filter instanceof FilterAdaptor) {
+            return Optional.of(((FilterAdaptor) filter).notificationType);
+        }
+        else {
+            return Optional.empty();
+        }
+    }
+
     /**
      * Convert an {@link NotificationType} to {@link MBeanNotificationInfo}.
      *
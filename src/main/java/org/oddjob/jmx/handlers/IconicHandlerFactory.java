@@ -7,6 +7,7 @@ import org.oddjob.images.IconListener;
 import org.oddjob.images.ImageData;
 import org.oddjob.jmx.RemoteOperation;
 import org.oddjob.jmx.client.*;
+import org.oddjob.jmx.server.GapAwareHandlerFactory;
 import org.oddjob.jmx.server.JMXOperationPlus;
 import org.oddjob.jmx.server.ServerInterfaceHandler;
 import org.oddjob.jmx.server.ServerInterfaceHandlerFactory;
@@ -19,6 +20,7 @@ import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanOperationInfo;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A MBean which wraps an object providing an Oddjob management interface to the
@@ -26,11 +28,11 @@ import java.util.*;
  */
 
 public class IconicHandlerFactory
-        implements ServerInterfaceHandlerFactory<Iconic, Iconic> {
+        implements ServerInterfaceHandlerFactory<Iconic, Iconic>, GapAwareHandlerFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(IconicHandlerFactory.class);
 
-    public static final HandlerVersion VERSION = new HandlerVersion(4, 0);
+    public static final HandlerVersion VERSION = new HandlerVersion(4, 1);
 
     public static final NotificationType<IconData> ICON_CHANGED_NOTIF_TYPE =
             NotificationType.ofName("org.oddjob.iconchanged")
@@ -52,6 +54,14 @@ public class IconicHandlerFactory
                     MBeanOperationInfo.INFO)
                     .addParam("iconId", String.class, "The icon id.");
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static final JMXOperationPlus<Map<String, ImageData>> ALL_ICONS =
+            new JMXOperationPlus(
+                    "Iconic.allIcons",
+                    "Retrieve all the standard Icons in one go.",
+                    Map.class,
+                    MBeanOperationInfo.INFO);
+
     /*
      *  (non-Javadoc)
      * @see org.oddjob.jmx.server.InterfaceInfo#interfaceClass()
@@ -88,7 +98,8 @@ public class IconicHandlerFactory
     public MBeanOperationInfo[] getMBeanOperationInfo() {
         return new MBeanOperationInfo[]{
                 SYNCHRONIZE.getOpInfo(),
-                ICON_FOR.getOpInfo()};
+                ICON_FOR.getOpInfo(),
+                ALL_ICONS.getOpInfo()};
     }
 
 
@@ -144,6 +155,11 @@ public class IconicHandlerFactory
 
         private Synchronizer<IconData> synchronizer;
 
+        /**
+         * The digests of icons for this node by icon id, as told by the server.
+         */
+        private final Map<String, String> digests = new ConcurrentHashMap<>();
+
         ClientIconicHandler(Iconic proxy, ClientSideToolkit toolkit) {
             this.owner = proxy;
             this.toolkit = toolkit;
@@ -151,8 +167,39 @@ public class IconicHandlerFactory
             lastEvent = new IconEvent(owner, IconHelper.NULL);
         }
 
+        /**
+         * Provide the icon. If the server has told us the digest of the icon for this id
+         * and the icon is in the session's cache then no remote call is made.
+         *
+         * @param id The icon id.
+         * @return The icon.
+         */
         @Override
         public ImageData iconForId(String id) {
+
+            IconCache iconCache = iconCache();
+            if (iconCache == null) {
+                return fetchIcon(id);
+            }
+
+            String digest = digests.get(id);
+            if (digest != null) {
+                ImageData imageData = iconCache.get(digest);
+                if (imageData != null) {
+                    return imageData;
+                }
+            }
+
+            ImageData imageData = fetchIcon(id);
+            if (imageData == null) {
+                return null;
+            }
+            imageData = iconCache.put(imageData);
+            digests.put(id, imageData.digest());
+            return imageData;
+        }
+
+        ImageData fetchIcon(String id) {
             try {
                 return toolkit.invoke(
                         ICON_FOR,
@@ -162,7 +209,45 @@ public class IconicHandlerFactory
             }
         }
 
+        IconCache iconCache() {
+            ClientSession clientSession = toolkit.getClientSession();
+            if (clientSession == null) {
+                return null;
+            }
+            return clientSession.getIconCache();
+        }
+
+        /**
+         * Fetch all the standard icons in bulk if this is the first node of the session
+         * to connect.
+         */
+        void maybePrimeIconCache() {
+            IconCache iconCache = iconCache();
+            if (iconCache == null || !iconCache.startPriming()) {
+                return;
+            }
+            Map<String, ImageData> all;
+            try {
+                all = toolkit.invoke(ALL_ICONS);
+            }
+            catch (RemoteException e) {
+                // Probably an older server.
+                logger.debug("Failed fetching all icons, they will be fetched individually.", e);
+                return;
+            }
+            if (all != null) {
+                all.values().stream()
+                        .filter(Objects::nonNull)
+                        .forEach(iconCache::put);
+                logger.debug("Primed icon cache with {} icons.", all.size());
+            }
+        }
+
         void iconEvent(IconData event) {
+            if (event.getDigest() != null) {
+                digests.put(event.getIconId(), event.getDigest());
+            }
+
             // The event that comes over the wire has a null source, so create a new one
             // job node client as the source.
             IconEvent iconEvent = new IconEvent(owner, event.getIconId());
@@ -181,11 +266,16 @@ public class IconicHandlerFactory
             synchronized (this) {
                 if (synchronizer == null) {
 
+                    maybePrimeIconCache();
+
                     synchronizer = new Synchronizer<>(
                             notification -> {
                                 IconData ie = notification.getData();
                                 iconEvent(ie);
-                            });
+                            },
+                            () -> Optional.ofNullable(toolkit.invoke(SYNCHRONIZE))
+                                    .map(Collections::singletonList)
+                                    .orElse(Collections.emptyList()));
                     try {
                         toolkit.registerNotificationListener(
                                 ICON_CHANGED_NOTIF_TYPE, synchronizer);
@@ -267,8 +357,10 @@ public class IconicHandlerFactory
         @Override
         public void iconEvent(final IconEvent event) {
             toolkit.runSynchronized(() -> {
-                // send a dummy source accross the wire
-                IconData newEvent = new IconData(event.getIconId());
+                // send a dummy source accross the wire, and the digest so that
+                // clients can use an icon they have already cached.
+                IconData newEvent = new IconData(event.getIconId(),
+                        digestFor(event.getIconId()));
                 Notification<IconData> notification =
                         toolkit.createNotification(ICON_CHANGED_NOTIF_TYPE, newEvent);
                 toolkit.sendNotification(notification);
@@ -276,6 +368,17 @@ public class IconicHandlerFactory
             });
         }
 
+        String digestFor(String iconId) {
+            try {
+                ImageData imageData = iconic.iconForId(iconId);
+                return imageData == null ? null : imageData.digest();
+            }
+            catch (RuntimeException e) {
+                logger.debug("Failed getting icon {} from {}, no digest sent.", iconId, iconic, e);
+                return null;
+            }
+        }
+
         @Override
         public Object invoke(RemoteOperation<?> operation, Object[] params) throws NoSuchOperationException {
 
@@ -287,6 +390,17 @@ public class IconicHandlerFactory
                 return lastNotification;
             }
 
+            if (ALL_ICONS.equals(operation)) {
+                Map<String, ImageData> all = new HashMap<>();
+                for (String iconId : IconHelper.standardIconIds()) {
+                    ImageData imageData = iconic.iconForId(iconId);
+                    if (imageData != null) {
+                        all.put(iconId, imageData);
+                    }
+                }
+                return all;
+            }
+
             throw NoSuchOperationException.of(toolkit.getRemoteId(),
                     operation.getActionName(), operation.getSignature());
         }
@@ -302,14 +416,28 @@ public class IconicHandlerFactory
 
         final private String id;
 
+        /** Null from older servers. */
+        final private String digest;
+
         /**
          * Event constructor.
          *
          * @param iconId The icon id.
          */
         public IconData(String iconId) {
+            this(iconId, null);
+        }
+
+        /**
+         * Event constructor.
+         *
+         * @param iconId The icon id.
+         * @param digest The digest of the icon. May be null.
+         */
+        public IconData(String iconId, String digest) {
 
             this.id = iconId;
+            this.digest = digest;
         }
 
         /**
@@ -323,10 +451,20 @@ public class IconicHandlerFactory
             return id;
         }
 
+        /**
+         * Get the digest of the icon.
+         *
+         * @return The digest. May be null.
+         */
+        public String getDigest() {
+            return digest;
+        }
+
         @Override
         public String toString() {
             return "IconData{" +
                     "id='" + id + '\'' +
+                    ", digest='" + digest + '\'' +
                     '}';
         }
     }
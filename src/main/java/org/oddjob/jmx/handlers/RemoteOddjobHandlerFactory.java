@@ -2,6 +2,7 @@ package org.oddjob.jmx.handlers;
 
 import org.oddjob.jmx.RemoteOddjobBean;
 import org.oddjob.jmx.RemoteOperation;
+import org.oddjob.jmx.Utils;
 import org.oddjob.jmx.client.HandlerVersion;
 import org.oddjob.jmx.server.*;
 import org.oddjob.remote.NoSuchOperationException;
@@ -9,6 +10,8 @@ import org.oddjob.remote.NotificationType;
 
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanOperationInfo;
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -18,7 +21,7 @@ import java.util.List;
 public class RemoteOddjobHandlerFactory 
 implements ServerInterfaceHandlerFactory<Object, RemoteOddjobBean> {
 
-	public static final HandlerVersion VERSION = new HandlerVersion(2, 0);
+	public static final HandlerVersion VERSION = new HandlerVersion(2, 1);
 
 	public static final JMXOperation<ServerInfo> SERVER_INFO =
 		new JMXOperationFactory(RemoteOddjobBean.class 
@@ -31,6 +34,15 @@ implements ServerInterfaceHandlerFactory<Object, RemoteOddjobBean> {
 		new JMXOperationFactory(RemoteOddjobBean.class 
 				).operationFor("noop", MBeanOperationInfo.INFO);
 
+	/** Info so read only users may batch. Each invocation in the batch has its own access check. */
+	public static final JMXOperationPlus<BatchResult[]> BATCH =
+		new JMXOperationPlus<>(
+				"batchInvoke",
+				"Invoke several operations, possibly on different nodes, in one go.",
+				BatchResult[].class,
+				MBeanOperationInfo.INFO)
+				.addParam("invocations", BatchInvocation[].class, "The invocations.");
+
 	@Override
 	public Class<Object> serverClass() {
 		return Object.class;
@@ -55,7 +67,8 @@ implements ServerInterfaceHandlerFactory<Object, RemoteOddjobBean> {
 	public MBeanOperationInfo[] getMBeanOperationInfo() {
 		return new MBeanOperationInfo[] {
 			SERVER_INFO.getOpInfo(), 
-			NOOP.getOpInfo() 
+			NOOP.getOpInfo(),
+			BATCH.getOpInfo()
 			};
 	}
 
@@ -88,14 +101,131 @@ implements ServerInterfaceHandlerFactory<Object, RemoteOddjobBean> {
 				return null;
 			}
 
+			if (BATCH.equals(operation)) {
+				return batch((BatchInvocation[]) params[0]);
+			}
+
 			throw NoSuchOperationException.of(toolkit.getRemoteId(),
 					operation.getActionName(), operation.getSignature());
 		}
 		
+		/**
+		 * Carry out each invocation in turn. A failure of one doesn't stop the others.
+		 */
+		BatchResult[] batch(BatchInvocation[] invocations) {
+			ServerSession serverSession = toolkit.getServerSession();
+			BatchResult[] results = new BatchResult[invocations.length];
+			for (int i = 0; i < invocations.length; ++i) {
+				BatchInvocation invocation = invocations[i];
+				try {
+					Object result = serverSession.invoke(invocation.getRemoteId(),
+							invocation.getActionName(),
+							invocation.getArgs(),
+							invocation.getSignature());
+					results[i] = BatchResult.ofValue(Utils.export(result));
+				}
+				catch (Exception e) {
+					results[i] = BatchResult.ofException(e);
+				}
+			}
+			return results;
+		}
+
 		@Override
 		public void destroy() {
 		}
 	}
+
+	/**
+	 * One invocation of a batch. Arguments are already exported.
+	 */
+	public static class BatchInvocation implements Serializable {
+		private static final long serialVersionUID = 2024030100L;
+
+		private final long remoteId;
+
+		private final String actionName;
+
+		private final String[] signature;
+
+		private final Serializable[] args;
+
+		public BatchInvocation(long remoteId, String actionName,
+							   String[] signature, Serializable[] args) {
+			this.remoteId = remoteId;
+			this.actionName = actionName;
+			this.signature = signature;
+			this.args = args;
+		}
+
+		public long getRemoteId() {
+			return remoteId;
+		}
+
+		public String getActionName() {
+			return actionName;
+		}
+
+		public String[] getSignature() {
+			return signature;
+		}
+
+		public Serializable[] getArgs() {
+			return args;
+		}
+
+		@Override
+		public String toString() {
+			return "BatchInvocation{" +
+					"remoteId=" + remoteId +
+					", actionName='" + actionName + '\'' +
+					", signature=" + Arrays.toString(signature) +
+					'}';
+		}
+	}
+
+	/**
+	 * The result of one invocation of a batch, either a value or an exception.
+	 */
+	public static class BatchResult implements Serializable {
+		private static final long serialVersionUID = 2024030100L;
+
+		private final Serializable value;
+
+		private final Throwable exception;
+
+		private BatchResult(Serializable value, Throwable exception) {
+			this.value = value;
+			this.exception = exception;
+		}
+
+		public static BatchResult ofValue(Serializable value) {
+			return new BatchResult(value, null);
+		}
+
+		public static BatchResult ofException(Throwable exception) {
+			return new BatchResult(null, exception);
+		}
+
+		public Serializable getValue() {
+			return value;
+		}
+
+		/**
+		 * The exception.
+		 *
+		 * @return The exception or null if the invocation succeeded.
+		 */
+		public Throwable getException() {
+			return exception;
+		}
+
+		@Override
+		public String toString() {
+			return exception == null ? "BatchResult{value=" + value + "}" :
+					"BatchResult{exception=" + exception + "}";
+		}
+	}
 	
 	@Override
 	public boolean equals(Object obj) {
@@ -7,6 +7,7 @@ import org.oddjob.Stateful;
 import org.oddjob.framework.JobDestroyedException;
 import org.oddjob.jmx.RemoteOperation;
 import org.oddjob.jmx.client.*;
+import org.oddjob.jmx.server.GapAwareHandlerFactory;
 import org.oddjob.jmx.server.JMXOperationPlus;
 import org.oddjob.jmx.server.ServerInterfaceHandler;
 import org.oddjob.jmx.server.ServerInterfaceHandlerFactory;
@@ -23,7 +24,7 @@ import java.lang.reflect.UndeclaredThrowableException;
 import java.util.*;
 
 public class StatefulHandlerFactory
-        implements ServerInterfaceHandlerFactory<Stateful, Stateful> {
+        implements ServerInterfaceHandlerFactory<Stateful, Stateful>, GapAwareHandlerFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(StatefulHandlerFactory.class);
 
@@ -184,7 +185,8 @@ public class StatefulHandlerFactory
                             notification -> {
                                 StateData stateData = notification.getData();
                                 jobStateChange(stateData);
-                            });
+                            },
+                            () -> Arrays.asList(toolkit.invoke(SYNCHRONIZE)));
 
                     Notification<StateData>[] lastNotifications;
 
@@ -22,7 +22,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class StructuralHandlerFactory
-        implements ServerInterfaceHandlerFactory<Structural, Structural> {
+        implements ServerInterfaceHandlerFactory<Structural, Structural>, GapAwareHandlerFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(StructuralHandlerFactory.class);
 
@@ -151,7 +151,10 @@ public class StructuralHandlerFactory
                                     }
                                 }.match(Arrays.stream(childData.getRemoteIds())
                                         .boxed().toArray(Long[]::new));
-                            });
+                            },
+                            () -> Optional.ofNullable(toolkit.invoke(SYNCHRONIZE))
+                                    .map(Collections::singletonList)
+                                    .orElse(Collections.emptyList()));
 
                     Notification<ChildData> lastNotification;
                     try {
@@ -0,0 +1,12 @@
+package org.oddjob.jmx.server;
+
+/**
+ * Marks a {@link ServerInterfaceHandlerFactory} whose client handlers resynchronize when they
+ * receive a {@link org.oddjob.remote.util.NotificationGap} marker, such as with a
+ * {@link org.oddjob.jmx.client.Synchronizer}. Notifications of the factory's types may then
+ * be dropped with a marker in their place when a client can't keep up. Client handlers
+ * of other factories expect only their own data so are never sent a marker.
+ */
+public interface GapAwareHandlerFactory {
+
+}
@@ -2,6 +2,7 @@ package org.oddjob.jmx.server;
 
 import org.oddjob.jmx.general.RemoteBridge;
 import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.util.NotificationDispatch;
 import org.oddjob.remote.util.NotifierListener;
 import org.oddjob.remote.util.NotifierListenerEvent;
 import org.slf4j.Logger;
@@ -16,6 +17,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
 /**
  * Manage JMX listeners on behalf of an {@link OddjobMBean}. When a listener is added or removed any set
  * {@link NotifierListener} of that type is notified.
+ * <p>
+ * If a {@link NotificationDispatch} is provided each listener gets its own queue so that a slow
+ * listener doesn't hold up the thread sending the notification, which is usually the thread of
+ * the job whose state has changed.
+ * </p>
  */
 public class JmxListenerHelper implements NotificationEmitter, org.oddjob.remote.util.NotificationControl {
 
@@ -27,20 +33,53 @@ public class JmxListenerHelper implements NotificationEmitter, org.oddjob.remote
 
     private final ConcurrentMap<NotificationType<?>, NotifierListener<?>> notifierListeners = new ConcurrentHashMap<>();
 
+    private final NotificationDispatch dispatch;
+
+    private volatile Set<NotificationType<?>> gapAwareTypes = Collections.emptySet();
+
     public JmxListenerHelper(ObjectName objectName) {
+        this(objectName, null);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param objectName The name of the MBean.
+     * @param dispatch Used to queue notifications for each listener. If null listeners are
+     *                 called on the thread sending the notification.
+     */
+    public JmxListenerHelper(ObjectName objectName, NotificationDispatch dispatch) {
         this.objectName = objectName;
+        this.dispatch = dispatch;
     }
 
     static class ListenerAndHandback {
         private final NotificationListener notificationListener;
         private final Object handback;
 
+        /** Set when notifications are queued for the listener. */
+        private NotificationDispatch.Subscriber<Object> subscriber;
 
         ListenerAndHandback(NotificationListener notificationListener, Object handback) {
             this.notificationListener = notificationListener;
             this.handback = handback;
         }
 
+        void deliver(Notification jmxNotification) {
+            try {
+                notificationListener.handleNotification(jmxNotification, handback);
+            } catch (Throwable t) {
+                logger.error("Notification Listener " + notificationListener +
+                        ", threw exception.", t);
+            }
+        }
+
+        void close() {
+            if (subscriber != null) {
+                subscriber.close();
+            }
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -66,6 +105,16 @@ public class JmxListenerHelper implements NotificationEmitter, org.oddjob.remote
         notificationTypes.forEach(t -> this.listeners.put(t, new CopyOnWriteArrayList<>()));
     }
 
+    /**
+     * Set the notification types whose listeners are sent a
+     * {@link org.oddjob.remote.util.NotificationGap} marker when notifications are dropped.
+     *
+     * @param gapAwareTypes The notification types.
+     */
+    public void setGapAwareNotificationTypes(Set<NotificationType<?>> gapAwareTypes) {
+        this.gapAwareTypes = Objects.requireNonNull(gapAwareTypes);
+    }
+
     @Override
     public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) throws IllegalArgumentException {
 
@@ -74,7 +123,7 @@ public class JmxListenerHelper implements NotificationEmitter, org.oddjob.remote
 
         listeners.forEach( (t, ls) -> {
             if (RemoteBridge.isFilterForType(filter, t)) {
-                ls.add(new ListenerAndHandback(listener, handback));
+                ls.add(listenerFor(t, listener, handback));
                 fireListenerAddedInferType(t, listener);
                 addedTo.add(t);
             }
@@ -88,6 +137,26 @@ public class JmxListenerHelper implements NotificationEmitter, org.oddjob.remote
         }
     }
 
+    private ListenerAndHandback listenerFor(NotificationType<?> type,
+                                            NotificationListener listener, Object handback) {
+        ListenerAndHandback listenerAndHandback = new ListenerAndHandback(listener, handback);
+        if (dispatch != null) {
+            listenerAndHandback.subscriber = dispatch.subscriberFor(
+                    objectName + ":" + type.getName() + ":" + listener,
+                    notification -> listenerAndHandback.deliver(
+                            RemoteBridge.toJmxNotification(objectName, notification)),
+                    () -> {
+                        if (listeners.get(type).remove(listenerAndHandback)) {
+                            fireListenerRemovedInferType(type, listener);
+                            logger.warn("{} Listener {} for type {} removed as it can't keep up.",
+                                    objectName, listener, type);
+                        }
+                    },
+                    gapAwareTypes.contains(type));
+        }
+        return listenerAndHandback;
+    }
+
     @Override
     public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) throws ListenerNotFoundException {
 
@@ -101,7 +170,9 @@ public class JmxListenerHelper implements NotificationEmitter, org.oddjob.remote
 
         ListenerAndHandback listenerAndHandback = new ListenerAndHandback(listener, null);
         listeners.forEach((t, ll) -> {
-            if (ll.remove(listenerAndHandback)) {
+            List<ListenerAndHandback> removed = new LinkedList<>();
+            if (ll.removeIf(lh -> lh.equals(listenerAndHandback) && removed.add(lh))) {
+                removed.forEach(ListenerAndHandback::close);
                 fireListenerRemovedInferType(t, listener);
                 removedFrom.add(t);
             }
@@ -167,16 +238,16 @@ public class JmxListenerHelper implements NotificationEmitter, org.oddjob.remote
         }
         else {
             logger.debug("Sending {} to {} listeners", notification, ll.size());
-            Notification jmxNotification = RemoteBridge.toJmxNotification(objectName, notification);
-            ll.forEach(listenerAndHandback -> {
-                try {
-                    listenerAndHandback.notificationListener
-                            .handleNotification(jmxNotification, listenerAndHandback.handback);
-                } catch (Throwable t) {
-                    logger.error("Notification Listener " + listenerAndHandback.notificationListener +
-                            ", threw exception.", t);
-                }
-            });
+            if (dispatch == null) {
+                Notification jmxNotification = RemoteBridge.toJmxNotification(objectName, notification);
+                ll.forEach(listenerAndHandback -> listenerAndHandback.deliver(jmxNotification));
+            }
+            else {
+                @SuppressWarnings("unchecked")
+                org.oddjob.remote.Notification<Object> queued =
+                        (org.oddjob.remote.Notification<Object>) notification;
+                ll.forEach(listenerAndHandback -> listenerAndHandback.subscriber.handleNotification(queued));
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package org.oddjob.jmx.server;
+
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.socket.SocketServerHandler;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.NotificationFilter;
+import javax.management.ObjectName;
+import java.util.Objects;
+
+/**
+ * Serves the Oddjob MBeans of an {@link MBeanServer} over a
+ * {@link org.oddjob.remote.socket.SocketServer}. Everything goes through the MBean Server
+ * exactly as it would for a JMX client so the same handler factories and access
+ * control apply. The server calls this as the {@link javax.security.auth.Subject} the
+ * client authenticated as, which is what the access file is checked against.
+ */
+public class MBeanServerSocketHandler implements SocketServerHandler {
+
+    private final MBeanServer mBeanServer;
+
+    public MBeanServerSocketHandler(MBeanServer mBeanServer) {
+        this.mBeanServer = Objects.requireNonNull(mBeanServer);
+    }
+
+    @Override
+    public Object invoke(long remoteId, String operationName, String[] signature, Object[] args)
+            throws Exception {
+        return mBeanServer.invoke(OddjobMBeanFactory.objectName(remoteId),
+                operationName, args, signature);
+    }
+
+    @Override
+    public boolean exists(long remoteId) {
+        return mBeanServer.isRegistered(OddjobMBeanFactory.objectName(remoteId));
+    }
+
+    @Override
+    public AutoCloseable subscribe(long remoteId, String notificationType,
+                                   NotificationListener<Object> listener) throws Exception {
+
+        ObjectName objectName = OddjobMBeanFactory.objectName(remoteId);
+
+        NotificationType<Object> type = new NotificationType<>(notificationType, Object.class);
+
+        javax.management.NotificationListener jmxListener = (notification, handback) ->
+                listener.handleNotification(new Notification<>(remoteId, type,
+                        notification.getSequenceNumber(), notification.getUserData()));
+
+        NotificationFilter filter = notification -> notificationType.equals(notification.getType());
+
+        mBeanServer.addNotificationListener(objectName, jmxListener, filter, null);
+
+        return () -> {
+            try {
+                mBeanServer.removeNotificationListener(objectName, jmxListener);
+            }
+            catch (InstanceNotFoundException e) {
+                // Already destroyed.
+            }
+        };
+    }
+}
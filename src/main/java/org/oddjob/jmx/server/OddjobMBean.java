@@ -92,7 +92,8 @@ public class OddjobMBean implements
 
         ObjectName objectName = OddjobMBeanFactory.objectName(remoteId);
 
-        JmxListenerHelper listeners = new JmxListenerHelper(objectName);
+        JmxListenerHelper listeners = new JmxListenerHelper(objectName,
+                serverContext.getModel().getNotificationDispatch());
 
         ServerInterfaceManager serverInterfaceManager = imf.create(node,
                 ServerSideToolkitImpl.create(remoteId, listeners, serverSession, serverContext,
@@ -102,6 +103,7 @@ public class OddjobMBean implements
         remoteBean.setImplementationsProvider(serverInterfaceManager);
 
         listeners.setNotificationTypes(serverInterfaceManager.getNotificationTypes());
+        listeners.setGapAwareNotificationTypes(serverInterfaceManager.getGapAwareNotificationTypes());
 
         return new OddjobMBean(node, objectName, serverSession, serverInterfaceManager, listeners);
     }
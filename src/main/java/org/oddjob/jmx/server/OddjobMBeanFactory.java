@@ -4,7 +4,9 @@
 package org.oddjob.jmx.server;
 
 import org.oddjob.arooa.ArooaSession;
+import org.oddjob.remote.RemoteComponentException;
 import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.RemoteInvocationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -112,6 +114,32 @@ public class OddjobMBeanFactory implements ServerSession {
 		logger.debug("Unregistered and destroyed [" + ojmb + "]");
 	}
 	
+	@Override
+	public Object invoke(long remoteId, String actionName, Object[] params, String[] signature)
+	throws RemoteException {
+
+		OddjobMBean ojmb;
+		synchronized (this) {
+			ojmb = mBeans.get(remoteId);
+		}
+		if (ojmb == null) {
+			throw new RemoteComponentException(remoteId, "No MBean for remote id");
+		}
+
+		try {
+			return ojmb.invoke(actionName, params, signature);
+		} catch (MBeanException e) {
+			Exception target = e.getTargetException();
+			if (target instanceof RemoteException) {
+				throw (RemoteException) target;
+			}
+			throw RemoteInvocationException.of(remoteId, actionName, signature, params, target);
+		} catch (ReflectionException e) {
+			throw RemoteInvocationException.of(remoteId, actionName, signature, params,
+					e.getTargetException());
+		}
+	}
+
 	/**
 	 * Helper function to build the object name from the sequence number.
 	 * 
@@ -129,6 +157,21 @@ public class OddjobMBeanFactory implements ServerSession {
 		}
 	}
 
+	/**
+	 * Helper function to get the sequence number back from an object name.
+	 *
+	 * @param objectName A name created with {@link #objectName(long)}.
+	 * @return The object sequence number.
+	 * @throws IllegalArgumentException If the name isn't that of an Oddjob MBean.
+	 */
+	public static long remoteIdFor(ObjectName objectName) {
+		String uid = objectName.getKeyProperty("uid");
+		if (!"oddjob".equals(objectName.getDomain()) || uid == null) {
+			throw new IllegalArgumentException("Not an Oddjob MBean name: " + objectName);
+		}
+		return Long.parseLong(uid);
+	}
+
 	@Override
 	public long idFor(Object object) {
 		synchronized (this) {
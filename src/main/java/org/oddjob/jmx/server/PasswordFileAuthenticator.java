@@ -0,0 +1,69 @@
+package org.oddjob.jmx.server;
+
+import javax.management.remote.JMXAuthenticator;
+import javax.management.remote.JMXPrincipal;
+import javax.security.auth.Subject;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Properties;
+
+/**
+ * A {@link JMXAuthenticator} that checks usernames and passwords against a file in the
+ * same format as the JMX password file given by <code>jmx.remote.x.password.file</code>,
+ * that is lines of a username followed by whitespace and a password. An authenticated
+ * client is given a {@link Subject} with a {@link JMXPrincipal} of their username so
+ * that an access file applies as it does for JMX.
+ */
+public class PasswordFileAuthenticator implements JMXAuthenticator {
+
+    /** The environment property for the password file, the same as for JMX. */
+    public static final String PASSWORD_FILE_PROPERTY = "jmx.remote.x.password.file";
+
+    private final Properties passwords;
+
+    public PasswordFileAuthenticator(Properties passwords) {
+        this.passwords = (Properties) passwords.clone();
+    }
+
+    /**
+     * Create an instance from a file.
+     *
+     * @param passwordFileName The name of the file.
+     *
+     * @return An authenticator.
+     *
+     * @throws IOException If the file can't be read.
+     */
+    public static PasswordFileAuthenticator fromFile(String passwordFileName) throws IOException {
+        Properties passwords = new Properties();
+        try (InputStream in = new FileInputStream(passwordFileName)) {
+            passwords.load(in);
+        }
+        return new PasswordFileAuthenticator(passwords);
+    }
+
+    @Override
+    public Subject authenticate(Object credentials) {
+        if (!(credentials instanceof String[]) || ((String[]) credentials).length != 2) {
+            throw new SecurityException("Credentials must be a username and password.");
+        }
+        String username = ((String[]) credentials)[0];
+        String password = ((String[]) credentials)[1];
+        if (username == null || password == null) {
+            throw new SecurityException("No username or password.");
+        }
+        String expected = passwords.getProperty(username);
+        if (expected == null || !MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8))) {
+            throw new SecurityException("Invalid username or password.");
+        }
+        return new Subject(true,
+                Collections.singleton(new JMXPrincipal(username)),
+                Collections.emptySet(), Collections.emptySet());
+    }
+}
@@ -10,6 +10,7 @@ import org.oddjob.jmx.handlers.StructuralHandlerFactory;
 import org.oddjob.logging.ConsoleArchiver;
 import org.oddjob.logging.LogArchiver;
 import org.oddjob.monitor.context.AncestorContext;
+import org.oddjob.remote.util.NotificationDispatch;
 import org.oddjob.util.ThreadManager;
 
 /**
@@ -117,5 +118,10 @@ public class ServerContextMain implements ServerContext {
 		public ThreadManager getThreadManager() {
 			return model.getThreadManager();
 		}
+
+		@Override
+		public NotificationDispatch getNotificationDispatch() {
+			return model.getNotificationDispatch();
+		}
 	}
 }
@@ -8,6 +8,7 @@ import org.oddjob.remote.NotificationType;
 import org.oddjob.remote.RemoteException;
 
 import javax.management.MBeanInfo;
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -39,6 +40,16 @@ public interface ServerInterfaceManager {
 	 */
 	Set<NotificationType<?>> getNotificationTypes();
 
+	/**
+	 * Get the Notification Types whose client handlers understand a
+	 * {@link org.oddjob.remote.util.NotificationGap} marker.
+	 *
+	 * @return A Set of Types. Might be empty, but never null.
+	 */
+	default Set<NotificationType<?>> getGapAwareNotificationTypes() {
+		return Collections.emptySet();
+	}
+
 	/**
 	 * Invoke a method using the arguments as received by an MBean.
 	 * 
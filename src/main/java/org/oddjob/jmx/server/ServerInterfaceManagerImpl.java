@@ -313,6 +313,18 @@ public class ServerInterfaceManagerImpl implements ServerInterfaceManager {
         return notificationTypes;
     }
 
+    @Override
+    public Set<NotificationType<?>> getGapAwareNotificationTypes() {
+        Set<NotificationType<?>> gapAware = new HashSet<>();
+        for (Pair<ServerInterfaceHandler,
+                ServerInterfaceHandlerFactory<?, ?>> pair : handlerAndFactory) {
+            if (pair.getRight() instanceof GapAwareHandlerFactory) {
+                gapAware.addAll(pair.getRight().getNotificationTypes());
+            }
+        }
+        return gapAware;
+    }
+
     /*
      *  (non-Javadoc)
      * @see org.oddjob.jmx.server.InterfaceManager#invoke(java.lang.String, java.lang.Object[], java.lang.String[])
@@ -4,6 +4,7 @@
 package org.oddjob.jmx.server;
 
 import org.oddjob.arooa.registry.ServerId;
+import org.oddjob.remote.util.NotificationDispatch;
 import org.oddjob.util.ThreadManager;
 
 /**
@@ -36,4 +37,13 @@ public interface ServerModel {
 	 * @return The log format.
 	 */
 	String getLogFormat();
+
+	/**
+	 * Getter for the dispatch that queues notifications for each listener.
+	 *
+	 * @return The dispatch or null if listeners are notified directly.
+	 */
+	default NotificationDispatch getNotificationDispatch() {
+		return null;
+	}
 }
@@ -4,6 +4,7 @@
 package org.oddjob.jmx.server;
 
 import org.oddjob.arooa.registry.ServerId;
+import org.oddjob.remote.util.NotificationDispatch;
 import org.oddjob.util.ThreadManager;
 
 /**
@@ -24,6 +25,9 @@ public class ServerModelImpl implements ServerModel {
 	
 	/** The log format to use when remembering log messages. */
 	private String logFormat;
+
+	/** Queues notifications for each listener. */
+	private NotificationDispatch notificationDispatch;
 	
 	/**
 	 * A constructor for the top most server 
@@ -88,5 +92,19 @@ public class ServerModelImpl implements ServerModel {
 	public void setLogFormat(String logFormat) {
 		this.logFormat = logFormat;
 	}
+
+	@Override
+	public NotificationDispatch getNotificationDispatch() {
+		return notificationDispatch;
+	}
+
+	/**
+	 * The notification dispatch.
+	 *
+	 * @param notificationDispatch The dispatch, may be null.
+	 */
+	public void setNotificationDispatch(NotificationDispatch notificationDispatch) {
+		this.notificationDispatch = notificationDispatch;
+	}
 	
 }
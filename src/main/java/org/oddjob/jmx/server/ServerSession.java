@@ -2,6 +2,7 @@ package org.oddjob.jmx.server;
 
 import org.oddjob.arooa.ArooaSession;
 import org.oddjob.jmx.RemoteIdMappings;
+import org.oddjob.remote.NoSuchOperationException;
 import org.oddjob.remote.RemoteException;
 
 import javax.management.JMException;
@@ -38,6 +39,26 @@ public interface ServerSession extends RemoteIdMappings {
 	void destroy(long childId)
 	throws RemoteException;
 
+	/**
+	 * Invoke an operation on another node of this session. This allows a batch of
+	 * operations sent to one node to be carried out on many. Parameters and result
+	 * are as they would be for an invocation sent to that node directly.
+	 * This default doesn't support it and always fails.
+	 *
+	 * @param remoteId The remote id of the node.
+	 * @param actionName The name of the operation.
+	 * @param params The parameters.
+	 * @param signature The signature of the operation.
+	 *
+	 * @return The result of the operation.
+	 *
+	 * @throws RemoteException If the operation fails.
+	 */
+	default Object invoke(long remoteId, String actionName, Object[] params, String[] signature)
+	throws RemoteException {
+		throw NoSuchOperationException.of(remoteId, actionName, signature);
+	}
+
 	/**
 	 * Get the session used by the server.
 	 * 
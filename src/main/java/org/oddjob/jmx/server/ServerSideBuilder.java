@@ -5,13 +5,16 @@ import org.oddjob.arooa.registry.BeanDirectory;
 import org.oddjob.arooa.registry.ServerId;
 import org.oddjob.jmx.RemoteIdMappings;
 import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.util.NotificationDispatch;
 import org.oddjob.util.SimpleThreadManager;
 import org.oddjob.util.ThreadManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Executor;
@@ -32,6 +35,10 @@ public class ServerSideBuilder {
 
     private String logFormat;
 
+    private int notificationQueueSize;
+
+    private NotificationDispatch.OverflowPolicy notificationOverflowPolicy;
+
     private  ServerSideBuilder(ArooaSession session) {
         this.session = session;
     }
@@ -60,6 +67,23 @@ public class ServerSideBuilder {
         return this;
     }
 
+    /**
+     * Give each notification listener its own queue so that slow listeners don't hold up jobs.
+     * Notifications are delivered on the executor if one is provided.
+     *
+     * @param size The most notifications queued for a listener. 0 means no queues, notifications
+     *             are sent on the thread that causes them.
+     * @param overflowPolicy What to do when a queue is full. Null for the default.
+     *
+     * @return This builder.
+     */
+    public ServerSideBuilder andNotificationQueues(int size,
+                                                   NotificationDispatch.OverflowPolicy overflowPolicy) {
+        this.notificationQueueSize = size;
+        this.notificationOverflowPolicy = overflowPolicy;
+        return this;
+    }
+
     public ServerSide buildWith(MBeanServer mBeanServer, String serverId, Object root) throws RemoteException {
         return new Impl(this,
                 Objects.requireNonNull(mBeanServer),
@@ -79,15 +103,29 @@ public class ServerSideBuilder {
         /** Bean Factory */
         private final OddjobMBeanFactory factory;
 
-        private final MBeanServerConnection serverConnection;
+        private final MBeanServer mBeanServer;
+
+        private final NotificationDispatch notificationDispatch;
+
+        private final ObjectName dispatchName;
 
         Impl(ServerSideBuilder builder, MBeanServer mBeanServer,
              String serverId, Object root) throws RemoteException {
 
-            this.serverConnection = Objects.requireNonNull(mBeanServer);
+            this.mBeanServer = Objects.requireNonNull(mBeanServer);
 
             threadManager = new SimpleThreadManager(builder.executor);
 
+            if (builder.notificationQueueSize > 0) {
+                notificationDispatch = new NotificationDispatch(builder.executor,
+                        builder.notificationQueueSize, builder.notificationOverflowPolicy);
+                dispatchName = registerDispatch(mBeanServer, serverId, notificationDispatch);
+            }
+            else {
+                notificationDispatch = null;
+                dispatchName = null;
+            }
+
             // Add supported interfaces.
             // note that some interfaces are hardwired in the factory because
             // they are aspects of the server.
@@ -111,6 +149,7 @@ public class ServerSideBuilder {
                     imf);
 
             model.setLogFormat(builder.logFormat);
+            model.setNotificationDispatch(notificationDispatch);
 
             factory = new OddjobMBeanFactory(mBeanServer, builder.session);
 
@@ -132,7 +171,24 @@ public class ServerSideBuilder {
 
         @Override
         public MBeanServerConnection getServerConnection() {
-            return serverConnection;
+            return mBeanServer;
+        }
+
+        /**
+         * Register the dispatch so its metrics can be seen with any JMX console.
+         */
+        static ObjectName registerDispatch(MBeanServer mBeanServer, String serverId,
+                                           NotificationDispatch notificationDispatch) {
+            try {
+                ObjectName name = new ObjectName("oddjob.server:type=NotificationDispatch,server=" +
+                        ObjectName.quote(serverId));
+                mBeanServer.registerMBean(notificationDispatch, name);
+                return name;
+            }
+            catch (JMException e) {
+                logger.warn("Failed to register Notification Dispatch for {}", serverId, e);
+                return null;
+            }
         }
 
         @Override
@@ -150,6 +206,18 @@ public class ServerSideBuilder {
                 logger.error("Failed destroying main MBean.", e);
             }
 
+            if (notificationDispatch != null) {
+                if (dispatchName != null) {
+                    try {
+                        mBeanServer.unregisterMBean(dispatchName);
+                    }
+                    catch (JMException e) {
+                        logger.debug("Failed to unregister {}", dispatchName, e);
+                    }
+                }
+                notificationDispatch.close();
+            }
+
         }
     }
 
@@ -0,0 +1,143 @@
+package org.oddjob.jobs;
+
+import java.io.ByteArrayInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.oddjob.util.CacheStatistics;
+import org.oddjob.util.ContentKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A process wide cache of compiled stylesheets. A {@link Templates} is
+ * thread safe so the same one is shared by every job that uses the same
+ * stylesheet. Stylesheets are keyed by a hash of their content and the
+ * context class loader that the {@link TransformerFactory} is found with.
+ * The least recently used are dropped once the cache is full, and stylesheets
+ * for class loaders that have been collected are dropped as new ones are added.
+ *
+ * @author rob
+ *
+ */
+public class TemplatesCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(TemplatesCache.class);
+
+	public static final int DEFAULT_MAX_SIZE = 100;
+
+	private static final TemplatesCache INSTANCE = new TemplatesCache(DEFAULT_MAX_SIZE);
+
+	private final Map<ContentKey, Templates> templates;
+
+	private final CacheStatistics statistics = new CacheStatistics();
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxSize The maximum number of stylesheets to keep.
+	 */
+	public TemplatesCache(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Max size must be at least 1.");
+		}
+		this.templates = new LinkedHashMap<ContentKey, Templates>(16, 0.75f, true) {
+			private static final long serialVersionUID = 2024010100L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ContentKey, Templates> eldest) {
+				if (size() > maxSize) {
+					statistics.recordEviction();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * The cache shared by the process.
+	 *
+	 * @return The cache. Never null.
+	 */
+	public static TemplatesCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Provide the compiled stylesheet, compiling it if it isn't in the cache.
+	 * Two threads asking for the same new stylesheet at the same time may
+	 * both compile it, which is cheaper than making one wait for the other.
+	 *
+	 * @param stylesheet The stylesheet.
+	 *
+	 * @return The compiled stylesheet. Never null.
+	 *
+	 * @throws TransformerConfigurationException If the stylesheet can't be
+	 * compiled.
+	 */
+	public Templates templatesFor(byte[] stylesheet)
+	throws TransformerConfigurationException {
+
+		ContentKey key = ContentKey.of(
+				Thread.currentThread().getContextClassLoader(), null, stylesheet);
+
+		Templates found;
+		synchronized (templates) {
+			found = templates.get(key);
+		}
+		if (found != null) {
+			statistics.recordHit();
+			logger.debug("Using cached stylesheet {}", key);
+			return found;
+		}
+
+		long start = System.nanoTime();
+		Templates compiled = TransformerFactory.newInstance().newTemplates(
+				new StreamSource(new ByteArrayInputStream(stylesheet)));
+		long nanos = System.nanoTime() - start;
+
+		statistics.recordMiss(nanos);
+		logger.debug("Compiled stylesheet {} in {} ms", key, nanos / 1000000);
+
+		synchronized (templates) {
+			templates.keySet().removeIf(ContentKey::isCleared);
+			templates.put(key, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * The number of stylesheets cached.
+	 *
+	 * @return The number.
+	 */
+	public int getSize() {
+		synchronized (templates) {
+			return templates.size();
+		}
+	}
+
+	/**
+	 * Remove all the cached stylesheets.
+	 */
+	public void clear() {
+		synchronized (templates) {
+			templates.clear();
+		}
+	}
+
+	public CacheStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": size=" + getSize() + ", " + statistics;
+	}
+}
@@ -17,12 +17,16 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.oddjob.util.CacheStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * @oddjob.description A job that performs XSLT transformations.
  * <p>
+ * Compiled stylesheets are cached for the process so the same stylesheet
+ * is only compiled once however often the job runs.
+ * <p>
  * Still a work in progress.
  * 
  * @author rob
@@ -157,8 +161,8 @@ public class XSLTJob implements Runnable {
 				transformer = TransformerFactory.newInstance().newTransformer();
 			}
 			else {
-				transformer = TransformerFactory.newInstance(
-						).newTransformer(new StreamSource(stylesheet));				
+				transformer = TemplatesCache.getInstance().templatesFor(
+						stylesheet.readAllBytes()).newTransformer();
 			}
 		}
 
@@ -219,6 +223,18 @@ public class XSLTJob implements Runnable {
 	public void setTo(File to) {
 		this.to = to;
 	}
+
+	/**
+	 * @oddjob.property cacheStatistics
+	 * @oddjob.description Hits, misses and compile time of the cache of
+	 * compiled stylesheets that all XSLT jobs share.
+	 * @oddjob.required Read only.
+	 *
+	 * @return The statistics. Never null.
+	 */
+	public CacheStatistics getCacheStatistics() {
+		return TemplatesCache.getInstance().getStatistics();
+	}
 	
 	@Override
 	public String toString() {
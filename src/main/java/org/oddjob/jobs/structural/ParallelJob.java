@@ -7,6 +7,8 @@ import org.oddjob.scheduling.ExecutorThrottleType;
 import org.oddjob.state.CascadeJob;
 import org.oddjob.state.StateOperator;
 import org.oddjob.state.AnyActiveStateOp;
+import org.oddjob.structural.ChildHelper;
+import org.oddjob.structural.SnapshotChildHelper;
 
 /**
  * @oddjob.description
@@ -123,6 +125,15 @@ implements OptionallyTransient {
 		return new AnyActiveStateOp();
 	}
 
+	/**
+	 * Parallel may have very many children that are iterated over by
+	 * many threads, so readers shouldn't block.
+	 */
+	@Override
+	protected ChildHelper<Object> newChildHelper() {
+		return new SnapshotChildHelper<>(this);
+	}
+
 	@Override
 	public boolean isJoin() {
 		return join;
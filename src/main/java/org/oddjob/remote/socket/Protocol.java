@@ -0,0 +1,458 @@
+package org.oddjob.remote.socket;
+
+import org.oddjob.persist.OddjobObjectInputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The wire format shared by {@link SocketServer} and {@link SocketRemoteConnection}.
+ * <p>
+ * After a handshake of {@link #MAGIC} and {@link #VERSION} from the client, everything
+ * is a frame of:
+ * </p>
+ * <pre>
+ * int length    - of what follows.
+ * byte kind     - one of the frame kinds below.
+ * int id        - correlates a reply with a request, or identifies a subscription.
+ * payload       - depends on the kind.
+ * </pre>
+ * <p>
+ * The first frame from the client must be a {@link #HELLO} with its credentials, which the
+ * server answers before reading anything else.
+ * </p>
+ * <p>
+ * Values are written with a one byte tag. Nulls, booleans, numbers, strings, byte arrays
+ * and object arrays are written compactly, anything else is written with Java Serialization.
+ * The server only deserializes classes allowed by its {@link ObjectInputFilter}.
+ * </p>
+ */
+final class Protocol {
+
+    /** 'OJS' and a protocol generation. */
+    static final int MAGIC = 0x4F4A5301;
+
+    static final int VERSION = 2;
+
+    /** Bigger frames are a protocol error. */
+    static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    /** Length and kind and id. */
+    static final int HEADER = 9;
+
+    /**
+     * The classes a server will deserialize by default, with limits on the size of the graph.
+     * Only the value types that the handlers send as arguments, and anything of Oddjob's.
+     * Whole JDK packages aren't allowed because they contain classes that do work when
+     * deserialized, such as a {@code PriorityQueue} that calls its comparator. Anything
+     * else must be allowed explicitly.
+     */
+    static final String DEFAULT_FILTER = "maxdepth=64;maxrefs=100000;maxarray=1000000;" +
+            "maxbytes=" + (16 * 1024 * 1024) + ";" +
+            "java.lang.Object;java.lang.String;java.lang.Boolean;java.lang.Character;" +
+            "java.lang.Number;java.lang.Byte;java.lang.Short;java.lang.Integer;java.lang.Long;" +
+            "java.lang.Float;java.lang.Double;java.lang.Enum;" +
+            "java.math.BigInteger;java.math.BigDecimal;java.time.*;java.net.URI;java.io.File;" +
+            "java.io.Serializable;" +
+            "java.util.Date;java.util.UUID;java.util.ArrayList;java.util.LinkedList;" +
+            "java.util.HashMap;java.util.LinkedHashMap;java.util.HashSet;java.util.LinkedHashSet;" +
+            "java.util.Map$Entry;java.util.Hashtable;java.util.Properties;java.util.Arrays$ArrayList;" +
+            "java.util.CollSer;java.util.ImmutableCollections$*;" +
+            "java.util.Collections$EmptyList;java.util.Collections$EmptySet;java.util.Collections$EmptyMap;" +
+            "java.util.Collections$SingletonList;java.util.Collections$SingletonSet;" +
+            "java.util.Collections$SingletonMap;java.util.Collections$UnmodifiableCollection;" +
+            "java.util.Collections$UnmodifiableList;java.util.Collections$UnmodifiableRandomAccessList;" +
+            "java.util.Collections$UnmodifiableSet;java.util.Collections$UnmodifiableMap;" +
+            "org.oddjob.**";
+
+    // Client to server.
+
+    /** The id is 0. username, password. Must be the first frame. */
+    static final byte HELLO = 0;
+
+    /** remoteId, operation name, signature, args. */
+    static final byte INVOKE = 1;
+
+    /** remoteId. */
+    static final byte EXISTS = 2;
+
+    /** The id is the subscription. remoteId, notification type, initial credit. */
+    static final byte SUBSCRIBE = 3;
+
+    /** The id is the subscription. */
+    static final byte UNSUBSCRIBE = 4;
+
+    /** The id is the subscription. More credit. */
+    static final byte CREDIT = 5;
+
+    // Server to client.
+
+    /** A value. */
+    static final byte RESULT = 6;
+
+    /** A Throwable. */
+    static final byte FAILURE = 7;
+
+    /** The id is the subscription. sequence, data, number dropped since the last one. */
+    static final byte NOTIFICATION = 8;
+
+    // Value tags.
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte BYTES = 7;
+    private static final byte STRINGS = 8;
+    private static final byte OBJECTS = 9;
+    private static final byte SERIALIZED = 10;
+
+    private Protocol() {}
+
+    static ByteBuffer handshake() {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putInt(MAGIC).putInt(VERSION).flip();
+        return buffer;
+    }
+
+    /**
+     * Create a filter from the default patterns and any more.
+     *
+     * @param allowed More patterns in the form of {@link ObjectInputFilter.Config#createFilter(String)}
+     *                that are checked first. May be null.
+     *
+     * @return A filter that rejects anything not allowed.
+     */
+    static ObjectInputFilter filter(String allowed) {
+        String patterns = allowed == null || allowed.trim().isEmpty() ?
+                DEFAULT_FILTER : allowed.trim() + ";" + DEFAULT_FILTER;
+        return ObjectInputFilter.Config.createFilter(patterns + ";!*");
+    }
+
+    /**
+     * Builds one frame in a growable buffer.
+     */
+    static class Out {
+
+        private ByteBuffer buffer;
+
+        Out(byte kind, int id) {
+            buffer = ByteBuffer.allocate(128);
+            buffer.putInt(0).put(kind).putInt(id);
+        }
+
+        private void ensure(int more) {
+            if (buffer.remaining() < more) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + more);
+                ByteBuffer bigger = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+        }
+
+        Out putInt(int i) {
+            ensure(4);
+            buffer.putInt(i);
+            return this;
+        }
+
+        Out putLong(long l) {
+            ensure(8);
+            buffer.putLong(l);
+            return this;
+        }
+
+        Out putString(String s) {
+            if (s == null) {
+                putInt(-1);
+            }
+            else {
+                putBytes(s.getBytes(StandardCharsets.UTF_8));
+            }
+            return this;
+        }
+
+        private void putBytes(byte[] bytes) {
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putTag(byte tag) {
+            ensure(1);
+            buffer.put(tag);
+        }
+
+        Out putStrings(String[] strings) {
+            if (strings == null) {
+                putInt(-1);
+            }
+            else {
+                putInt(strings.length);
+                for (String s : strings) {
+                    putString(s);
+                }
+            }
+            return this;
+        }
+
+        Out putValue(Object value) throws NotSerializableException {
+            if (value == null) {
+                putTag(NULL);
+            }
+            else if (value instanceof Boolean) {
+                putTag((Boolean) value ? TRUE : FALSE);
+            }
+            else if (value instanceof Integer) {
+                putTag(INT);
+                putInt((Integer) value);
+            }
+            else if (value instanceof Long) {
+                putTag(LONG);
+                putLong((Long) value);
+            }
+            else if (value instanceof Double) {
+                putTag(DOUBLE);
+                ensure(8);
+                buffer.putDouble((Double) value);
+            }
+            else if (value instanceof String) {
+                putTag(STRING);
+                putString((String) value);
+            }
+            else if (value.getClass() == byte[].class) {
+                putTag(BYTES);
+                putBytes((byte[]) value);
+            }
+            else if (value.getClass() == String[].class) {
+                putTag(STRINGS);
+                putStrings((String[]) value);
+            }
+            else if (value.getClass() == Object[].class) {
+                // Only exactly Object[], other arrays must keep their component type.
+                putTag(OBJECTS);
+                putValues((Object[]) value);
+            }
+            else {
+                putTag(SERIALIZED);
+                putBytes(serialize(value));
+            }
+            return this;
+        }
+
+        Out putValues(Object[] values) throws NotSerializableException {
+            if (values == null) {
+                putInt(-1);
+            }
+            else {
+                putInt(values.length);
+                for (Object value : values) {
+                    putValue(value);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Finish the frame.
+         *
+         * @return A buffer ready to be written.
+         */
+        ByteBuffer toBuffer() {
+            buffer.putInt(0, buffer.position() - 4);
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Reads the payload of one frame.
+     */
+    static class In {
+
+        private final ByteBuffer buffer;
+
+        private final ClassLoader classLoader;
+
+        private final ObjectInputFilter filter;
+
+        /**
+         * @param buffer Positioned at the payload and limited to the end of the frame.
+         * @param classLoader For deserializing values.
+         */
+        In(ByteBuffer buffer, ClassLoader classLoader) {
+            this(buffer, classLoader, null);
+        }
+
+        /**
+         * @param buffer Positioned at the payload and limited to the end of the frame.
+         * @param classLoader For deserializing values.
+         * @param filter Checks what is deserialized. May be null to use the JVM wide filter.
+         */
+        In(ByteBuffer buffer, ClassLoader classLoader, ObjectInputFilter filter) {
+            this.buffer = buffer;
+            this.classLoader = classLoader;
+            this.filter = filter;
+        }
+
+        int getInt() {
+            return buffer.getInt();
+        }
+
+        long getLong() {
+            return buffer.getLong();
+        }
+
+        private byte[] getBytes() {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        String getString() {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String[] getStrings() {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            String[] strings = new String[length];
+            for (int i = 0; i < length; ++i) {
+                strings[i] = getString();
+            }
+            return strings;
+        }
+
+        Object getValue() throws IOException {
+            byte tag = buffer.get();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case INT:
+                    return buffer.getInt();
+                case LONG:
+                    return buffer.getLong();
+                case DOUBLE:
+                    return buffer.getDouble();
+                case STRING:
+                    return getString();
+                case BYTES:
+                    return getBytes();
+                case STRINGS:
+                    return getStrings();
+                case OBJECTS:
+                    return getValues();
+                case SERIALIZED:
+                    return deserialize(getBytes(), classLoader, filter);
+                default:
+                    throw new StreamCorruptedException("Unknown value tag " + tag);
+            }
+        }
+
+        Object[] getValues() throws IOException {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            Object[] values = new Object[length];
+            for (int i = 0; i < length; ++i) {
+                values[i] = getValue();
+            }
+            return values;
+        }
+    }
+
+    static byte[] serialize(Object value) throws NotSerializableException {
+        if (!(value instanceof Serializable)) {
+            throw new NotSerializableException(value.getClass().getName());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        catch (NotSerializableException e) {
+            throw e;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes, ClassLoader classLoader,
+                              ObjectInputFilter filter) throws IOException {
+        try (ObjectInputStream in = new OddjobObjectInputStream(
+                new ByteArrayInputStream(bytes), classLoader)) {
+            if (filter != null) {
+                in.setObjectInputFilter(filter);
+            }
+            return in.readObject();
+        }
+        catch (ClassNotFoundException e) {
+            throw new InvalidClassException(e.getMessage());
+        }
+    }
+
+    /**
+     * Take the next complete frame from a read buffer.
+     *
+     * @param readBuffer In read mode. Its position is moved past the frame if there is one.
+     *
+     * @return A buffer for the frame from the kind onward, or null if the frame isn't complete.
+     *
+     * @throws StreamCorruptedException If the frame length is invalid.
+     */
+    static ByteBuffer nextFrame(ByteBuffer readBuffer) throws StreamCorruptedException {
+        if (readBuffer.remaining() < 4) {
+            return null;
+        }
+        int length = readBuffer.getInt(readBuffer.position());
+        if (length < HEADER - 4 || length > MAX_FRAME) {
+            throw new StreamCorruptedException("Invalid frame length " + length);
+        }
+        if (readBuffer.remaining() < 4 + length) {
+            return null;
+        }
+        int start = readBuffer.position() + 4;
+        ByteBuffer frame = readBuffer.duplicate();
+        frame.position(start).limit(start + length);
+        readBuffer.position(start + length);
+        return frame.slice();
+    }
+
+    /**
+     * Make sure a read buffer in write mode can take a frame of the given length,
+     * growing it if necessary.
+     *
+     * @param readBuffer The buffer in write mode.
+     * @param needed The total bytes of the frame being read, including the length.
+     *
+     * @return The same or a bigger buffer, in write mode.
+     */
+    static ByteBuffer ensureCapacity(ByteBuffer readBuffer, int needed) {
+        if (readBuffer.capacity() >= needed) {
+            return readBuffer;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(needed, readBuffer.capacity() * 2));
+        readBuffer.flip();
+        bigger.put(readBuffer);
+        return bigger;
+    }
+}
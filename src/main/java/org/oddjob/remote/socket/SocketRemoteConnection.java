@@ -0,0 +1,698 @@
+package org.oddjob.remote.socket;
+
+import org.oddjob.arooa.utils.ClassUtils;
+import org.oddjob.remote.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.NotSerializableException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A {@link RemoteConnection} to a {@link SocketServer}. All invocations and notifications
+ * share one TCP connection. Any number of threads may invoke operations at the same time,
+ * each waits only for its own reply.
+ * <p>
+ * Notifications are passed to listeners in the order they arrive on a single thread
+ * belonging to this connection. Each subscription is given a credit of
+ * {@link #DEFAULT_NOTIFICATION_WINDOW} notifications which is topped up as
+ * listeners process them, so a slow listener makes the server hold notifications back
+ * rather than flooding the client.
+ * </p>
+ * <p>
+ * A request that hasn't had a reply within the request timeout fails with a
+ * {@link SocketTimeoutException}.
+ * </p>
+ */
+public class SocketRemoteConnection implements RemoteConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketRemoteConnection.class);
+
+    /** The notifications that may be sent to a subscription before it is credited more. */
+    public static final int DEFAULT_NOTIFICATION_WINDOW = 256;
+
+    /** How long to wait for a reply by default, in milliseconds. */
+    public static final long DEFAULT_REQUEST_TIMEOUT = 5 * 60 * 1000L;
+
+    /** How long to wait for the server to accept the credentials, in milliseconds. */
+    static final long HELLO_TIMEOUT = 30 * 1000L;
+
+    private final SocketChannel channel;
+
+    private final ClassLoader classLoader;
+
+    private final int notificationWindow;
+
+    private final Object writeLock = new Object();
+
+    /** Ids of requests and subscriptions. */
+    private final AtomicInteger ids = new AtomicInteger();
+
+    private final ConcurrentMap<Integer, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Integer, Subscription<?>> subscriptions = new ConcurrentHashMap<>();
+
+    /** Subscription ids of listeners added with the {@link RemoteNotifier} methods. */
+    private final ConcurrentMap<ListenerKey, Integer> listenerIds = new ConcurrentHashMap<>();
+
+    private final ExecutorService notifier;
+
+    private final List<Consumer<? super Throwable>> closedListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong invocations = new AtomicLong();
+
+    private final AtomicLong notificationsReceived = new AtomicLong();
+
+    private final AtomicLong notificationsDropped = new AtomicLong();
+
+    private volatile long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    private volatile boolean closed;
+
+    private SocketRemoteConnection(SocketChannel channel, ClassLoader classLoader, int notificationWindow) {
+        this.channel = channel;
+        this.classLoader = classLoader;
+        this.notificationWindow = notificationWindow;
+        String name = "Oddjob Socket Client " + channel.socket().getRemoteSocketAddress();
+        this.notifier = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name + " Notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread reader = new Thread(this::read, name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param address The address of the server.
+     * @param classLoader The class loader for results and notifications. If null the class loader
+     *                    of this class is used.
+     *
+     * @return A connection.
+     *
+     * @throws IOException If the connection fails.
+     */
+    public static SocketRemoteConnection connect(InetSocketAddress address, ClassLoader classLoader)
+            throws IOException {
+        return connect(address, classLoader, DEFAULT_NOTIFICATION_WINDOW);
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param address The address of the server.
+     * @param classLoader The class loader for results and notifications. If null the class loader
+     *                    of this class is used.
+     * @param notificationWindow The notifications a subscription may be sent before
+     *                           the server waits for more credit.
+     *
+     * @return A connection.
+     *
+     * @throws IOException If the connection fails.
+     */
+    public static SocketRemoteConnection connect(InetSocketAddress address, ClassLoader classLoader,
+                                                 int notificationWindow)
+            throws IOException {
+        return connect(address, classLoader, notificationWindow, null, null);
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param address The address of the server.
+     * @param classLoader The class loader for results and notifications. If null the class loader
+     *                    of this class is used.
+     * @param notificationWindow The notifications a subscription may be sent before
+     *                           the server waits for more credit.
+     * @param username The username for a server that authenticates. May be null.
+     * @param password The password. May be null.
+     *
+     * @return A connection.
+     *
+     * @throws IOException If the connection fails or the server doesn't accept the credentials.
+     */
+    public static SocketRemoteConnection connect(InetSocketAddress address, ClassLoader classLoader,
+                                                 int notificationWindow,
+                                                 String username, String password)
+            throws IOException {
+        if (notificationWindow < 1) {
+            throw new IllegalArgumentException("Notification window must be positive.");
+        }
+        SocketChannel channel = SocketChannel.open(address);
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer handshake = Protocol.handshake();
+            while (handshake.hasRemaining()) {
+                channel.write(handshake);
+            }
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        SocketRemoteConnection connection = new SocketRemoteConnection(channel,
+                Optional.ofNullable(classLoader).orElse(SocketRemoteConnection.class.getClassLoader()),
+                notificationWindow);
+        try {
+            connection.await(connection.request(new Protocol.Out(Protocol.HELLO, 0)
+                    .putString(username)
+                    .putString(password), 0), HELLO_TIMEOUT);
+        }
+        catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        catch (Exception e) {
+            connection.close();
+            throw new IOException("Server refused connection.", e);
+        }
+        logger.debug("Connected to {}", address);
+        return connection;
+    }
+
+    /**
+     * Add a listener that will be told when the connection is closed other than by
+     * calling {@link #close()}.
+     *
+     * @param listener The listener. Will be given the cause.
+     */
+    public void addClosedListener(Consumer<? super Throwable> listener) {
+        closedListeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeClosedListener(Consumer<? super Throwable> listener) {
+        closedListeners.remove(listener);
+    }
+
+    /**
+     * Invoke an operation without waiting for the result.
+     *
+     * @param remoteId The remote id of the component.
+     * @param operationName The name of the operation.
+     * @param signature The class names of the parameters.
+     * @param args The arguments.
+     *
+     * @return A future for the result. If the server throws an exception the future will complete
+     * with that exception.
+     */
+    public CompletableFuture<Object> invokeAsync(long remoteId, String operationName,
+                                                 String[] signature, Object... args) {
+        invocations.incrementAndGet();
+        int id = ids.incrementAndGet();
+        try {
+            return request(new Protocol.Out(Protocol.INVOKE, id)
+                    .putLong(remoteId)
+                    .putString(operationName)
+                    .putStrings(signature)
+                    .putValues(args), id);
+        }
+        catch (NotSerializableException e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Invoke an operation.
+     *
+     * @param remoteId The remote id of the component.
+     * @param operationName The name of the operation.
+     * @param signature The class names of the parameters.
+     * @param args The arguments.
+     *
+     * @return The result.
+     *
+     * @throws Exception The exception the server threw, or an IOException if there's a
+     * problem with the connection.
+     */
+    public Object invoke(long remoteId, String operationName, String[] signature, Object... args)
+            throws Exception {
+        return await(invokeAsync(remoteId, operationName, signature, args), requestTimeout);
+    }
+
+    /**
+     * Does a component exist on the server.
+     *
+     * @param remoteId The remote id.
+     *
+     * @return true if it does.
+     *
+     * @throws Exception If the server can't tell.
+     */
+    public boolean exists(long remoteId) throws Exception {
+        int id = ids.incrementAndGet();
+        return (Boolean) await(request(new Protocol.Out(Protocol.EXISTS, id).putLong(remoteId), id),
+                requestTimeout);
+    }
+
+    /**
+     * Subscribe to a type of notification.
+     *
+     * @param remoteId The remote id of the component.
+     * @param notificationType The type of notification. Only the name is sent to the server.
+     * @param listener The listener.
+     * @param <T> The type of the notification data.
+     *
+     * @return The id of the subscription, used to unsubscribe.
+     *
+     * @throws Exception If the server fails to subscribe.
+     */
+    public <T> int subscribe(long remoteId, NotificationType<T> notificationType,
+                             NotificationListener<T> listener) throws Exception {
+        int id = ids.incrementAndGet();
+        // Must be known before the request as notifications may arrive before the reply.
+        subscriptions.put(id, new Subscription<>(id, remoteId, notificationType, listener));
+        try {
+            await(request(new Protocol.Out(Protocol.SUBSCRIBE, id)
+                    .putLong(remoteId)
+                    .putString(notificationType.getName())
+                    .putInt(notificationWindow), id), requestTimeout);
+        }
+        catch (Exception e) {
+            subscriptions.remove(id);
+            throw e;
+        }
+        return id;
+    }
+
+    /**
+     * Remove a subscription.
+     *
+     * @param subscriptionId The id from {@link #subscribe(long, NotificationType, NotificationListener)}.
+     *
+     * @throws Exception If the server fails to unsubscribe.
+     */
+    public void unsubscribe(int subscriptionId) throws Exception {
+        if (subscriptions.remove(subscriptionId) == null) {
+            throw new IllegalArgumentException("No subscription " + subscriptionId);
+        }
+        await(request(new Protocol.Out(Protocol.UNSUBSCRIBE, subscriptionId), subscriptionId),
+                requestTimeout);
+    }
+
+    @Override
+    public <T> T invoke(long remoteId, OperationType<T> operationType, Object... args) throws RemoteException {
+        Object result;
+        try {
+            result = invoke(remoteId, operationType.getName(),
+                    ClassUtils.classesToStrings(operationType.getSignature()), args);
+        }
+        catch (RemoteException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw RemoteInvocationException.of(remoteId, operationType, args, e);
+        }
+        return ClassUtils.cast(operationType.getReturnType(), result);
+    }
+
+    @Override
+    public <T> void addNotificationListener(long remoteId,
+                                            NotificationType<T> notificationType,
+                                            NotificationListener<T> notificationListener)
+            throws RemoteException {
+        ListenerKey key = new ListenerKey(remoteId, notificationType, notificationListener);
+        // Reserve the key so that a duplicate fails.
+        if (listenerIds.putIfAbsent(key, 0) != null) {
+            throw new RemoteComponentException(remoteId, "Listener already existed for remote id [" +
+                    remoteId + "], type [" + notificationType + "], listener [" + notificationListener + "]");
+        }
+        try {
+            listenerIds.put(key, subscribe(remoteId, notificationType, notificationListener));
+        }
+        catch (RemoteException e) {
+            listenerIds.remove(key);
+            throw e;
+        }
+        catch (Exception e) {
+            listenerIds.remove(key);
+            throw new RemoteComponentException(remoteId, e);
+        }
+    }
+
+    @Override
+    public <T> void removeNotificationListener(long remoteId,
+                                               NotificationType<T> notificationType,
+                                               NotificationListener<T> notificationListener)
+            throws RemoteException {
+        ListenerKey key = new ListenerKey(remoteId, notificationType, notificationListener);
+        Integer id = listenerIds.remove(key);
+        if (id == null) {
+            throw new RemoteComponentException(remoteId, "No Listener for " + key);
+        }
+        try {
+            unsubscribe(id);
+        }
+        catch (RemoteException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new RemoteComponentException(remoteId, e);
+        }
+    }
+
+    @Override
+    public void destroy(long remoteId) throws RemoteException {
+        for (ListenerKey key : new ArrayList<>(listenerIds.keySet())) {
+            if (key.remoteId != remoteId) {
+                continue;
+            }
+            logger.warn("Destroy {}, cleanup required for {}.", remoteId, key);
+            Integer id = listenerIds.remove(key);
+            if (id != null && id != 0) {
+                try {
+                    unsubscribe(id);
+                }
+                catch (Exception e) {
+                    logger.debug("Failed to unsubscribe {}", key, e);
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Object> request(Protocol.Out out, int id) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        // Registered before checking closed so that either this sees closed or
+        // connectionLost sees the future.
+        pending.put(id, future);
+        if (closed) {
+            pending.remove(id);
+            future.completeExceptionally(new IOException("Connection closed."));
+            return future;
+        }
+        try {
+            write(out.toBuffer());
+        }
+        catch (IOException e) {
+            pending.remove(id);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        synchronized (writeLock) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future, long timeout) throws Exception {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            pending.values().remove(future);
+            throw new SocketTimeoutException("No reply from server in " + timeout + "ms.");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new RemoteException("Server Error", cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for server.");
+        }
+    }
+
+    private void read() {
+        ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+        Throwable cause;
+        try {
+            while (true) {
+                if (channel.read(readBuffer) < 0) {
+                    throw new EOFException("Server closed the connection.");
+                }
+                readBuffer.flip();
+                ByteBuffer frame;
+                while ((frame = Protocol.nextFrame(readBuffer)) != null) {
+                    handle(frame);
+                }
+                int needed = readBuffer.remaining() >= 4 ?
+                        4 + readBuffer.getInt(readBuffer.position()) : 0;
+                readBuffer.compact();
+                readBuffer = Protocol.ensureCapacity(readBuffer, needed);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            cause = e;
+        }
+        connectionLost(cause);
+    }
+
+    private void handle(ByteBuffer frame) {
+        byte kind = frame.get();
+        int id = frame.getInt();
+        Protocol.In in = new Protocol.In(frame, classLoader);
+        switch (kind) {
+            case Protocol.RESULT:
+            case Protocol.FAILURE:
+                CompletableFuture<Object> future = pending.remove(id);
+                if (future == null) {
+                    logger.warn("No request waiting for reply {}", id);
+                    return;
+                }
+                Object value;
+                try {
+                    value = in.getValue();
+                }
+                catch (IOException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                if (kind == Protocol.RESULT) {
+                    future.complete(value);
+                }
+                else {
+                    future.completeExceptionally((Throwable) value);
+                }
+                break;
+            case Protocol.NOTIFICATION:
+                Subscription<?> subscription = subscriptions.get(id);
+                if (subscription == null) {
+                    logger.debug("Notification for unknown subscription {} ignored.", id);
+                    return;
+                }
+                long sequence = in.getLong();
+                Object data;
+                try {
+                    data = in.getValue();
+                }
+                catch (IOException e) {
+                    logger.error("Failed reading notification for {}", subscription, e);
+                    return;
+                }
+                int dropped = in.getInt();
+                if (dropped > 0) {
+                    notificationsDropped.addAndGet(dropped);
+                    logger.warn("Server dropped {} notifications before {} for {}",
+                            dropped, sequence, subscription);
+                }
+                notificationsReceived.incrementAndGet();
+                notifier.execute(() -> subscription.deliver(sequence, data));
+                break;
+            default:
+                throw new IllegalStateException("Unexpected frame kind " + kind);
+        }
+    }
+
+    private void connectionLost(Throwable cause) {
+        boolean byUs = closed;
+        closed = true;
+        IOException failure = cause instanceof IOException ? (IOException) cause :
+                new IOException("Connection failed.", cause);
+        for (Integer id : new ArrayList<>(pending.keySet())) {
+            Optional.ofNullable(pending.remove(id))
+                    .ifPresent(f -> f.completeExceptionally(failure));
+        }
+        notifier.shutdown();
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            logger.debug("Failed closing channel.", e);
+        }
+        if (byUs) {
+            logger.debug("Connection closed.");
+        }
+        else {
+            logger.info("Connection lost: {}", cause.toString());
+            for (Consumer<? super Throwable> listener : closedListeners) {
+                listener.accept(cause);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            logger.debug("Failed closing channel.", e);
+        }
+    }
+
+    public long getInvocations() {
+        return invocations.get();
+    }
+
+    public long getNotificationsReceived() {
+        return notificationsReceived.get();
+    }
+
+    public long getNotificationsDropped() {
+        return notificationsDropped.get();
+    }
+
+    public int getPendingRequests() {
+        return pending.size();
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Set how long to wait for a reply.
+     *
+     * @param requestTimeout The time in milliseconds.
+     */
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " to " + channel.socket().getRemoteSocketAddress();
+    }
+
+    /**
+     * A subscription on the client side.
+     */
+    class Subscription<T> {
+
+        private final int id;
+
+        private final long remoteId;
+
+        private final NotificationType<T> notificationType;
+
+        private final NotificationListener<T> listener;
+
+        /** Only used by the notifier thread. */
+        private int processed;
+
+        Subscription(int id, long remoteId,
+                     NotificationType<T> notificationType,
+                     NotificationListener<T> listener) {
+            this.id = id;
+            this.remoteId = remoteId;
+            this.notificationType = notificationType;
+            this.listener = listener;
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver(long sequence, Object data) {
+            if (!subscriptions.containsKey(id)) {
+                return;
+            }
+            try {
+                listener.handleNotification(new Notification<>(remoteId, notificationType,
+                        sequence, (T) data));
+            }
+            catch (RuntimeException e) {
+                logger.error("Listener {} failed.", listener, e);
+            }
+            if (++processed >= notificationWindow / 2 || notificationWindow == 1) {
+                int credit = processed;
+                processed = 0;
+                try {
+                    write(new Protocol.Out(Protocol.CREDIT, id).putInt(credit).toBuffer());
+                }
+                catch (IOException e) {
+                    logger.debug("Failed to send credit for {}", this, e);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Subscription{" +
+                    "id=" + id +
+                    ", remoteId=" + remoteId +
+                    ", type=" + notificationType.getName() +
+                    '}';
+        }
+    }
+
+    /**
+     * Key for listeners added with the {@link RemoteNotifier} methods.
+     */
+    static class ListenerKey {
+
+        private final long remoteId;
+
+        private final NotificationType<?> notificationType;
+
+        private final NotificationListener<?> listener;
+
+        ListenerKey(long remoteId, NotificationType<?> notificationType, NotificationListener<?> listener) {
+            this.remoteId = remoteId;
+            this.notificationType = Objects.requireNonNull(notificationType);
+            this.listener = Objects.requireNonNull(listener);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ListenerKey that = (ListenerKey) o;
+            return remoteId == that.remoteId &&
+                    notificationType.equals(that.notificationType) &&
+                    listener.equals(that.listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(remoteId, notificationType, listener);
+        }
+
+        @Override
+        public String toString() {
+            return "ListenerKey{" +
+                    "remoteId=" + remoteId +
+                    ", notificationType=" + notificationType +
+                    ", listener=" + listener +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.oddjob.remote.socket;
+
+import org.oddjob.remote.RemoteConnector;
+import org.oddjob.remote.RemoteException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+
+/**
+ * Provides a {@link SocketRemoteConnection}. The connection is made when first asked for
+ * and shared until it is closed or lost, after which a new one is made.
+ */
+public class SocketRemoteConnector implements RemoteConnector {
+
+    private final InetSocketAddress address;
+
+    private final ClassLoader classLoader;
+
+    private SocketRemoteConnection connection;
+
+    public SocketRemoteConnector(InetSocketAddress address, ClassLoader classLoader) {
+        this.address = Objects.requireNonNull(address);
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Create a connector from text of the form <code>host:port</code>.
+     *
+     * @param hostAndPort The address.
+     * @param classLoader The class loader for results. May be null.
+     *
+     * @return A connector.
+     */
+    public static SocketRemoteConnector forAddress(String hostAndPort, ClassLoader classLoader) {
+        return new SocketRemoteConnector(parseAddress(hostAndPort), classLoader);
+    }
+
+    /**
+     * Parse text of the form <code>host:port</code>, or just <code>port</code> for
+     * localhost.
+     *
+     * @param hostAndPort The text.
+     *
+     * @return An address.
+     */
+    public static InetSocketAddress parseAddress(String hostAndPort) {
+        Objects.requireNonNull(hostAndPort, "No address");
+        int colon = hostAndPort.lastIndexOf(':');
+        try {
+            if (colon < 0) {
+                return new InetSocketAddress("localhost", Integer.parseInt(hostAndPort.trim()));
+            }
+            return new InetSocketAddress(hostAndPort.substring(0, colon).trim(),
+                    Integer.parseInt(hostAndPort.substring(colon + 1).trim()));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Address must be host:port, not " + hostAndPort, e);
+        }
+    }
+
+    @Override
+    public synchronized SocketRemoteConnection getConnection() throws RemoteException {
+        if (connection == null || connection.isClosed()) {
+            try {
+                connection = SocketRemoteConnection.connect(address, classLoader);
+            }
+            catch (IOException e) {
+                throw new RemoteException("Failed to connect to " + address, e);
+            }
+        }
+        return connection;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " to " + address;
+    }
+}
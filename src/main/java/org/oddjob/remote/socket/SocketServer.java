@@ -0,0 +1,740 @@
+package org.oddjob.remote.socket;
+
+import org.oddjob.remote.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.remote.JMXAuthenticator;
+import javax.security.auth.Subject;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves a {@link SocketServerHandler} to {@link SocketRemoteConnection}s over TCP.
+ * <p>
+ * One selector thread does all the socket reads and writes for all clients. Invocations
+ * are run on an executor so many invocations from one client may be in progress at once over
+ * the same connection, the replies being matched up by id. Notifications are pushed to
+ * the client as they happen.
+ * </p>
+ * <h3>Flow Control</h3>
+ * <p>
+ * Each subscription has a credit of notifications the client is prepared to receive,
+ * which the client tops up as it processes them. Notifications beyond the credit are held
+ * in a backlog for the subscription and if a backlog grows beyond its limit the oldest
+ * are dropped and the client is told how many were dropped with the next notification it
+ * receives. If a client doesn't read what's sent to it the server stops reading requests
+ * from that client until it catches up.
+ * </p>
+ * <h3>Security</h3>
+ * <p>
+ * A client must send its credentials before anything else. If the server has a
+ * {@link JMXAuthenticator} these are checked and the client is disconnected if they fail,
+ * otherwise anyone who can connect is accepted. Requests from an authenticated client are
+ * handled as the {@link Subject} the authenticator provides so that access can be
+ * controlled as it is for JMX. Only classes allowed by the serial filter are deserialized
+ * from clients.
+ * </p>
+ */
+public class SocketServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketServer.class);
+
+    /** The most notifications held for a subscription waiting for credit. */
+    public static final int DEFAULT_NOTIFICATION_BACKLOG = 1000;
+
+    /** Stop reading requests from a client when this many bytes are waiting to be sent to it. */
+    static final int HIGH_WATER = 4 * 1024 * 1024;
+
+    /** Start reading requests again when the bytes waiting have dropped to this. */
+    static final int LOW_WATER = 1024 * 1024;
+
+    private final SocketServerHandler handler;
+
+    private final ClassLoader classLoader;
+
+    private final Executor executor;
+
+    private final ExecutorService ownExecutor;
+
+    private volatile int notificationBacklog = DEFAULT_NOTIFICATION_BACKLOG;
+
+    private volatile JMXAuthenticator authenticator;
+
+    private volatile ObjectInputFilter serialFilter = Protocol.filter(null);
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    /** Connections that need their interest ops changing by the selector thread. */
+    private final Queue<Connection> interestChanges = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong invocations = new AtomicLong();
+
+    private final AtomicLong notificationsSent = new AtomicLong();
+
+    private final AtomicLong notificationsDropped = new AtomicLong();
+
+    private volatile boolean running;
+
+    private ServerSocketChannel serverChannel;
+
+    private Selector selector;
+
+    private Thread selectorThread;
+
+    /**
+     * Create a new instance.
+     *
+     * @param handler The handler to serve. Must not be null.
+     * @param executor The executor to run invocations on. If null the server creates
+     *                 and closes its own.
+     * @param classLoader The class loader for arguments sent by clients.
+     */
+    public SocketServer(SocketServerHandler handler, Executor executor, ClassLoader classLoader) {
+        this.handler = Objects.requireNonNull(handler);
+        this.classLoader = Optional.ofNullable(classLoader)
+                .orElse(getClass().getClassLoader());
+        if (executor == null) {
+            this.ownExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "Oddjob Socket Server Worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownExecutor;
+        }
+        else {
+            this.ownExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Start listening.
+     *
+     * @param address The address to listen on. A port of 0 will use any free port.
+     *
+     * @throws IOException If the server socket can't be opened.
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Already started.");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        selectorThread = new Thread(this::select, "Oddjob Socket Server " +
+                getAddress().getPort());
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+
+        logger.info("Listening on {}", getAddress());
+    }
+
+    /**
+     * The address the server is listening on.
+     *
+     * @return The address or null if not started.
+     */
+    public InetSocketAddress getAddress() {
+        ServerSocketChannel serverChannel = this.serverChannel;
+        if (serverChannel == null) {
+            return null;
+        }
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void select() {
+        try {
+            while (running) {
+                selector.select();
+
+                Connection changed;
+                while ((changed = interestChanges.poll()) != null) {
+                    changed.updateInterest();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                    }
+                    catch (IOException | RuntimeException e) {
+                        connection.close(e);
+                    }
+                }
+            }
+        }
+        catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                logger.error("Selector failed, server is no longer accepting requests.", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+        logger.debug("Accepted connection from {}", channel.getRemoteAddress());
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Connection connection : new ArrayList<>(connections)) {
+            connection.close(null);
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        }
+        catch (IOException e) {
+            logger.debug("Failed closing server socket.", e);
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+        logger.info("Closed, sent {} notifications, dropped {}, handled {} invocations.",
+                notificationsSent.get(), notificationsDropped.get(), invocations.get());
+    }
+
+    /**
+     * One client.
+     */
+    class Connection {
+
+        private final SocketChannel channel;
+
+        private SelectionKey key;
+
+        /** Only used by the selector thread. */
+        private ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+
+        private boolean handshaken;
+
+        /** Only used by the selector thread. */
+        private boolean authenticated;
+
+        /** Only used by the selector thread. */
+        private boolean rejected;
+
+        /** Who the client is. Null if there is no authenticator. */
+        private volatile Subject subject;
+
+        /** Guarded by this. */
+        private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+
+        /** Guarded by this. */
+        private long outboundBytes;
+
+        /** Guarded by this. */
+        private boolean readPaused;
+
+        /** Guarded by this. */
+        private boolean interestChangePending;
+
+        private volatile boolean closed;
+
+        private final Map<Integer, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            int count = channel.read(readBuffer);
+            if (count < 0) {
+                close(null);
+                return;
+            }
+            readBuffer.flip();
+            if (!handshaken) {
+                if (readBuffer.remaining() < 8) {
+                    readBuffer.compact();
+                    return;
+                }
+                int magic = readBuffer.getInt();
+                int version = readBuffer.getInt();
+                if (magic != Protocol.MAGIC || version != Protocol.VERSION) {
+                    throw new StreamCorruptedException("Not an Oddjob socket client or unsupported version " +
+                            version);
+                }
+                handshaken = true;
+            }
+            ByteBuffer frame;
+            while (!closed && (frame = Protocol.nextFrame(readBuffer)) != null) {
+                if (authenticated) {
+                    handle(frame);
+                }
+                else {
+                    hello(frame);
+                }
+            }
+            if (closed) {
+                return;
+            }
+            int needed = readBuffer.remaining() >= 4 ?
+                    4 + readBuffer.getInt(readBuffer.position()) : 0;
+            readBuffer.compact();
+            readBuffer = Protocol.ensureCapacity(readBuffer, needed);
+        }
+
+        /**
+         * Check the credentials in the first frame before reading anything else.
+         */
+        private void hello(ByteBuffer frame) throws IOException {
+            byte kind = frame.get();
+            int id = frame.getInt();
+            if (rejected) {
+                throw new StreamCorruptedException("Credentials already refused.");
+            }
+            if (kind != Protocol.HELLO) {
+                throw new StreamCorruptedException("Expected credentials, not frame kind " + kind);
+            }
+            Protocol.In in = new Protocol.In(frame, classLoader);
+            String[] credentials = new String[] { in.getString(), in.getString() };
+            JMXAuthenticator authenticator = SocketServer.this.authenticator;
+            if (authenticator != null) {
+                try {
+                    subject = authenticator.authenticate(credentials);
+                }
+                catch (SecurityException e) {
+                    logger.info("Authentication failed for {} from {}", credentials[0],
+                            channel.getRemoteAddress());
+                    // Not closed here so that the failure reaches the client, which closes.
+                    rejected = true;
+                    fail(id, new SecurityException("Authentication failed."));
+                    return;
+                }
+            }
+            authenticated = true;
+            reply(id, null);
+        }
+
+        private void handle(ByteBuffer frame) throws IOException {
+            byte kind = frame.get();
+            int id = frame.getInt();
+            switch (kind) {
+                case Protocol.INVOKE:
+                case Protocol.EXISTS:
+                    // Copy so the read buffer can be reused while the request waits for a thread.
+                    ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+                    copy.put(frame).flip();
+                    executor.execute(() -> request(kind, id,
+                            new Protocol.In(copy, classLoader, serialFilter)));
+                    break;
+                case Protocol.SUBSCRIBE:
+                    long remoteId = frame.getLong();
+                    String notificationType = new Protocol.In(frame, classLoader).getString();
+                    int credit = frame.getInt();
+                    // Known now so that credit and unsubscribe that follow find it.
+                    Subscription subscription = new Subscription(id, credit);
+                    subscriptions.put(id, subscription);
+                    executor.execute(() -> subscribe(subscription, remoteId, notificationType));
+                    break;
+                case Protocol.UNSUBSCRIBE:
+                    Subscription removed = subscriptions.remove(id);
+                    if (removed != null) {
+                        removed.close();
+                    }
+                    reply(id, null);
+                    break;
+                case Protocol.CREDIT:
+                    Optional.ofNullable(subscriptions.get(id))
+                            .ifPresent(s -> s.credit(frame.getInt()));
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unexpected frame kind " + kind);
+            }
+        }
+
+        private void request(byte kind, int id, Protocol.In in) {
+            Object result;
+            try {
+                long remoteId = in.getLong();
+                if (kind == Protocol.EXISTS) {
+                    result = asSubject(() -> handler.exists(remoteId));
+                }
+                else {
+                    String operationName = in.getString();
+                    String[] signature = in.getStrings();
+                    Object[] args = in.getValues();
+                    invocations.incrementAndGet();
+                    result = asSubject(() -> handler.invoke(remoteId, operationName, signature, args));
+                }
+            }
+            catch (Throwable t) {
+                fail(id, t);
+                return;
+            }
+            reply(id, result);
+        }
+
+        private void subscribe(Subscription subscription, long remoteId, String notificationType) {
+            AutoCloseable closer;
+            try {
+                closer = asSubject(() -> handler.subscribe(remoteId, notificationType,
+                        subscription::send));
+            }
+            catch (Exception e) {
+                subscriptions.remove(subscription.id);
+                fail(subscription.id, e);
+                return;
+            }
+            subscription.setCloser(closer);
+            logger.debug("Subscription {} to {} of {}", subscription.id, notificationType, remoteId);
+            reply(subscription.id, null);
+        }
+
+        /**
+         * Run something as the client so that access control applies.
+         */
+        private <T> T asSubject(PrivilegedExceptionAction<T> action) throws Exception {
+            Subject subject = this.subject;
+            if (subject == null) {
+                return action.run();
+            }
+            try {
+                return Subject.doAs(subject, action);
+            }
+            catch (PrivilegedActionException e) {
+                throw e.getException();
+            }
+        }
+
+        private void reply(int id, Object result) {
+            ByteBuffer buffer;
+            try {
+                buffer = new Protocol.Out(Protocol.RESULT, id).putValue(result).toBuffer();
+            }
+            catch (NotSerializableException e) {
+                fail(id, e);
+                return;
+            }
+            send(buffer);
+        }
+
+        private void fail(int id, Throwable t) {
+            ByteBuffer buffer;
+            try {
+                buffer = new Protocol.Out(Protocol.FAILURE, id).putValue(t).toBuffer();
+            }
+            catch (NotSerializableException | RuntimeException e) {
+                logger.debug("Failed to serialize exception {}", t, e);
+                try {
+                    buffer = new Protocol.Out(Protocol.FAILURE, id).putValue(
+                            new IOException("Unserializable exception from server: " + t)).toBuffer();
+                }
+                catch (NotSerializableException e2) {
+                    throw new IllegalStateException(e2);
+                }
+            }
+            send(buffer);
+        }
+
+        /**
+         * Send a frame. If nothing is waiting the frame is written straight away by the calling
+         * thread, otherwise it is queued for the selector thread.
+         */
+        void send(ByteBuffer buffer) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    if (outbound.isEmpty()) {
+                        channel.write(buffer);
+                        if (!buffer.hasRemaining()) {
+                            return;
+                        }
+                    }
+                }
+                catch (IOException e) {
+                    executor.execute(() -> close(e));
+                    return;
+                }
+                outbound.add(buffer);
+                outboundBytes += buffer.remaining();
+                if (outboundBytes > HIGH_WATER && !readPaused) {
+                    readPaused = true;
+                    logger.debug("Pausing reads from {}, {} bytes waiting to be sent.",
+                            channel, outboundBytes);
+                }
+                requestInterestChange();
+            }
+        }
+
+        /** Called holding the lock. */
+        private void requestInterestChange() {
+            if (!interestChangePending) {
+                interestChangePending = true;
+                interestChanges.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /** Called by the selector thread. */
+        void write() throws IOException {
+            synchronized (this) {
+                while (!outbound.isEmpty()) {
+                    ByteBuffer buffer = outbound.peek();
+                    int before = buffer.remaining();
+                    channel.write(buffer);
+                    outboundBytes -= before - buffer.remaining();
+                    if (buffer.hasRemaining()) {
+                        break;
+                    }
+                    outbound.poll();
+                }
+                if (readPaused && outboundBytes <= LOW_WATER) {
+                    readPaused = false;
+                    logger.debug("Resuming reads from {}", channel);
+                }
+                updateInterest();
+            }
+        }
+
+        /** Called by the selector thread. */
+        synchronized void updateInterest() {
+            interestChangePending = false;
+            if (closed || !key.isValid()) {
+                return;
+            }
+            key.interestOps((readPaused ? 0 : SelectionKey.OP_READ) |
+                    (outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+
+        void close(Throwable cause) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                outbound.clear();
+            }
+            connections.remove(this);
+            for (Subscription subscription : subscriptions.values()) {
+                subscription.close();
+            }
+            subscriptions.clear();
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                logger.debug("Failed closing channel.", e);
+            }
+            if (cause == null) {
+                logger.debug("Connection closed.");
+            }
+            else {
+                logger.info("Connection closed because of {}", cause.toString());
+            }
+        }
+
+        /**
+         * A subscription to one type of notification from one component.
+         */
+        class Subscription {
+
+            private final int id;
+
+            /** Guarded by this. */
+            private int credit;
+
+            /** Guarded by this. */
+            private final Deque<Notification<Object>> backlog = new ArrayDeque<>();
+
+            /** Dropped since the last send. Guarded by this. */
+            private int dropped;
+
+            /** Guarded by this. */
+            private AutoCloseable closer;
+
+            /** Guarded by this. */
+            private boolean closed;
+
+            Subscription(int id, int credit) {
+                this.id = id;
+                this.credit = credit;
+            }
+
+            synchronized void send(Notification<Object> notification) {
+                if (credit > 0 && backlog.isEmpty()) {
+                    --credit;
+                    sendNow(notification);
+                }
+                else {
+                    if (backlog.size() >= notificationBacklog) {
+                        backlog.poll();
+                        ++dropped;
+                        notificationsDropped.incrementAndGet();
+                    }
+                    backlog.add(notification);
+                }
+            }
+
+            synchronized void credit(int more) {
+                credit += more;
+                while (credit > 0 && !backlog.isEmpty()) {
+                    --credit;
+                    sendNow(backlog.poll());
+                }
+            }
+
+            private void sendNow(Notification<Object> notification) {
+                ByteBuffer buffer;
+                try {
+                    buffer = new Protocol.Out(Protocol.NOTIFICATION, id)
+                            .putLong(notification.getSequence())
+                            .putValue(notification.getData())
+                            .putInt(dropped)
+                            .toBuffer();
+                }
+                catch (NotSerializableException e) {
+                    logger.warn("Can't send {}, data not serializable.", notification, e);
+                    return;
+                }
+                dropped = 0;
+                notificationsSent.incrementAndGet();
+                Connection.this.send(buffer);
+            }
+
+            /**
+             * Called once the handler has subscribed, which may be after the client has
+             * unsubscribed or gone away.
+             */
+            void setCloser(AutoCloseable closer) {
+                synchronized (this) {
+                    if (!closed) {
+                        this.closer = closer;
+                        return;
+                    }
+                }
+                closeQuietly(closer);
+            }
+
+            void close() {
+                AutoCloseable closer;
+                synchronized (this) {
+                    closed = true;
+                    closer = this.closer;
+                    this.closer = null;
+                }
+                if (closer != null) {
+                    closeQuietly(closer);
+                }
+            }
+
+            private void closeQuietly(AutoCloseable closer) {
+                try {
+                    closer.close();
+                }
+                catch (Exception e) {
+                    logger.debug("Failed closing subscription {}", id, e);
+                }
+            }
+        }
+    }
+
+    public int getNotificationBacklog() {
+        return notificationBacklog;
+    }
+
+    public JMXAuthenticator getAuthenticator() {
+        return authenticator;
+    }
+
+    /**
+     * Set the authenticator for clients' credentials.
+     *
+     * @param authenticator Given the username and password as a String array. May be null
+     *                      to accept any client.
+     */
+    public void setAuthenticator(JMXAuthenticator authenticator) {
+        this.authenticator = authenticator;
+    }
+
+    /**
+     * Allow more classes to be deserialized from clients.
+     *
+     * @param allowed Patterns in the form of {@link ObjectInputFilter.Config#createFilter(String)}
+     *                that are checked before the defaults. May be null for just the defaults.
+     */
+    public void setSerialFilter(String allowed) {
+        this.serialFilter = Protocol.filter(allowed);
+    }
+
+    public void setNotificationBacklog(int notificationBacklog) {
+        this.notificationBacklog = notificationBacklog;
+    }
+
+    public int getConnections() {
+        return connections.size();
+    }
+
+    public long getInvocations() {
+        return invocations.get();
+    }
+
+    public long getNotificationsSent() {
+        return notificationsSent.get();
+    }
+
+    public long getNotificationsDropped() {
+        return notificationsDropped.get();
+    }
+}
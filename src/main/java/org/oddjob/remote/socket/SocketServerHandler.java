@@ -0,0 +1,51 @@
+package org.oddjob.remote.socket;
+
+import org.oddjob.remote.NotificationListener;
+
+/**
+ * What a {@link SocketServer} serves. Requests from clients are passed straight through
+ * to this and any exception thrown is sent back to the client as is, so it must
+ * be serializable.
+ */
+public interface SocketServerHandler {
+
+    /**
+     * Invoke an operation.
+     *
+     * @param remoteId The remote id of the component.
+     * @param operationName The name of the operation.
+     * @param signature The class names of the parameters.
+     * @param args The arguments.
+     *
+     * @return The result. Must be serializable.
+     *
+     * @throws Exception If the invocation fails.
+     */
+    Object invoke(long remoteId, String operationName, String[] signature, Object[] args)
+            throws Exception;
+
+    /**
+     * Is there a component for this id.
+     *
+     * @param remoteId The remote id.
+     *
+     * @return true if there is.
+     *
+     * @throws Exception If this can't be found out.
+     */
+    boolean exists(long remoteId) throws Exception;
+
+    /**
+     * Subscribe to notifications of a given type.
+     *
+     * @param remoteId The remote id of the component.
+     * @param notificationType The name of the notification type.
+     * @param listener The listener to send notifications to. Notifications may be sent from any thread.
+     *
+     * @return Something that when closed will remove the subscription.
+     *
+     * @throws Exception If the subscription fails.
+     */
+    AutoCloseable subscribe(long remoteId, String notificationType,
+                            NotificationListener<Object> listener) throws Exception;
+}
@@ -0,0 +1,5 @@
+/**
+ * A binary socket transport for Oddjob remoting that multiplexes invocations and
+ * notifications over one TCP connection per client.
+ */
+package org.oddjob.remote.socket;
@@ -0,0 +1,491 @@
+package org.oddjob.remote.util;
+
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.NotificationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers notifications to listeners on a shared executor instead of on the thread that sent
+ * them, so that a slow listener can't hold up the sender or any other listener.
+ * <p>
+ * Each listener is wrapped in a {@link Subscriber} with its own bounded queue. Notifications for
+ * one subscriber are always delivered in order and by one thread at a time. When a queue is full
+ * the {@link OverflowPolicy} decides what happens. With {@link OverflowPolicy#DROP_OLDEST} the
+ * oldest notifications are dropped. If the subscriber is gap aware a {@link NotificationGap}
+ * marker is delivered in their place so that the listener knows to resynchronize, otherwise
+ * the listener would fail on data of a type it doesn't expect, so they are just dropped.
+ * With {@link OverflowPolicy#DISCONNECT} the subscriber is closed and its disconnect action
+ * is run.
+ * </p>
+ */
+public class NotificationDispatch implements NotificationDispatchMXBean, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatch.class);
+
+    /** What to do when a subscriber's queue is full. */
+    public enum OverflowPolicy {
+
+        /** Drop the oldest notification and deliver a gap marker to gap aware subscribers. */
+        DROP_OLDEST,
+
+        /** Stop sending to the subscriber. */
+        DISCONNECT,
+    }
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /** The most a subscriber delivers before giving the executor thread up to others. */
+    static final int MAX_BATCH = 64;
+
+    private final Executor executor;
+
+    private final ExecutorService ownExecutor;
+
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Set<Subscriber<?>> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong disconnects = new AtomicLong();
+
+    /**
+     * Create a new instance.
+     *
+     * @param executor The executor listeners are called on. If null a pool of daemon threads is
+     *                 created and shut down on close.
+     * @param capacity The most notifications queued for one subscriber.
+     * @param overflowPolicy What to do when a queue is full. If null this will be
+     *                       {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    public NotificationDispatch(Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, not " + capacity);
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = Objects.requireNonNullElse(overflowPolicy, OverflowPolicy.DROP_OLDEST);
+        if (executor == null) {
+            this.ownExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "Oddjob Notification Dispatch");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownExecutor;
+        }
+        else {
+            this.ownExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Wrap a listener so that notifications are delivered to it on the executor.
+     *
+     * @param name A name for the subscriber, used in logging and metrics.
+     * @param listener The listener.
+     * @param onDisconnect Run on the executor if the subscriber is disconnected. May be null.
+     * @param <T> The type of notification data.
+     *
+     * @return A subscriber to send notifications to.
+     */
+    public <T> Subscriber<T> subscriberFor(String name, NotificationListener<T> listener,
+                                           Runnable onDisconnect) {
+        return subscriberFor(name, listener, onDisconnect, false);
+    }
+
+    /**
+     * Wrap a listener so that notifications are delivered to it on the executor.
+     *
+     * @param name A name for the subscriber, used in logging and metrics.
+     * @param listener The listener.
+     * @param onDisconnect Run on the executor if the subscriber is disconnected. May be null.
+     * @param gapAware If the listener understands a {@link NotificationGap} marker.
+     * @param <T> The type of notification data.
+     *
+     * @return A subscriber to send notifications to.
+     */
+    public <T> Subscriber<T> subscriberFor(String name, NotificationListener<T> listener,
+                                           Runnable onDisconnect, boolean gapAware) {
+        Subscriber<T> subscriber = new Subscriber<>(name, listener, onDisconnect, gapAware);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    @Override
+    public void close() {
+        subscribers.forEach(Subscriber::close);
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+        logger.debug("Closed, delivered {}, dropped {}, disconnected {}.",
+                delivered.get(), dropped.get(), disconnects.get());
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return overflowPolicy.name();
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public long getTotalQueued() {
+        return subscribers.stream().mapToLong(Subscriber::getQueued).sum();
+    }
+
+    @Override
+    public long getTotalDelivered() {
+        return delivered.get();
+    }
+
+    @Override
+    public long getTotalDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public long getDisconnects() {
+        return disconnects.get();
+    }
+
+    @Override
+    public List<SubscriberStats> getSubscribers() {
+        return subscribers.stream()
+                .map(Subscriber::getStats)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{capacity=" + capacity +
+                ", overflowPolicy=" + overflowPolicy + ", subscribers=" + subscribers.size() + '}';
+    }
+
+    /**
+     * A listener with its own queue.
+     *
+     * @param <T> The type of the notification data.
+     */
+    public class Subscriber<T> implements NotificationListener<T>, AutoCloseable {
+
+        private final String name;
+
+        private final NotificationListener<T> listener;
+
+        private final Runnable onDisconnect;
+
+        private final boolean gapAware;
+
+        /** Guarded by this. */
+        private final Deque<Queued<T>> queue = new ArrayDeque<>();
+
+        /** Is a drain on the executor or about to be. Guarded by this. */
+        private boolean scheduled;
+
+        /** Guarded by this. */
+        private boolean closed;
+
+        /** Dropped since the last gap marker. Guarded by this. */
+        private int missed;
+
+        /** The last dropped, for the gap marker. Guarded by this. */
+        private Notification<T> lastMissed;
+
+        private volatile boolean disconnected;
+
+        private volatile int maxQueued;
+
+        private final AtomicLong subscriberDelivered = new AtomicLong();
+
+        private final AtomicLong subscriberDropped = new AtomicLong();
+
+        Subscriber(String name, NotificationListener<T> listener, Runnable onDisconnect,
+                   boolean gapAware) {
+            this.name = Objects.requireNonNull(name);
+            this.listener = Objects.requireNonNull(listener);
+            this.onDisconnect = onDisconnect;
+            this.gapAware = gapAware;
+        }
+
+        /**
+         * Queue a notification. This never blocks for the listener.
+         *
+         * @param notification The notification.
+         */
+        @Override
+        public void handleNotification(Notification<T> notification) {
+            boolean schedule;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= capacity) {
+                    if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                        disconnect();
+                        return;
+                    }
+                    Notification<T> droppedNotification = queue.poll().notification;
+                    if (gapAware) {
+                        lastMissed = droppedNotification;
+                        ++missed;
+                    }
+                    subscriberDropped.incrementAndGet();
+                    dropped.incrementAndGet();
+                }
+                queue.add(new Queued<>(notification, System.nanoTime()));
+                if (queue.size() > maxQueued) {
+                    maxQueued = queue.size();
+                }
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) {
+                schedule();
+            }
+        }
+
+        /** Guarded by this. */
+        private void disconnect() {
+            int lost = queue.size() + 1;
+            subscriberDropped.addAndGet(lost);
+            dropped.addAndGet(lost);
+            queue.clear();
+            closed = true;
+            disconnected = true;
+            subscribers.remove(this);
+            disconnects.incrementAndGet();
+
+            logger.warn("Subscriber {} disconnected as it has fallen {} notifications behind.",
+                    name, capacity);
+
+            if (onDisconnect != null) {
+                try {
+                    executor.execute(onDisconnect);
+                }
+                catch (RejectedExecutionException e) {
+                    logger.debug("Can't run disconnect action for {}", name, e);
+                }
+            }
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this::drain);
+            }
+            catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                logger.warn("Executor rejected delivery to {}, {} notifications remain queued.",
+                        name, getQueued());
+            }
+        }
+
+        private void drain() {
+            for (int delivering = 0; ; ++delivering) {
+                Notification<T> next;
+                boolean gap = false;
+                synchronized (this) {
+                    if (closed || queue.isEmpty() && missed == 0) {
+                        scheduled = false;
+                        return;
+                    }
+                    if (delivering == MAX_BATCH) {
+                        break;
+                    }
+                    if (missed > 0) {
+                        next = NotificationGap.markerFor(lastMissed.getRemoteId(), lastMissed.getType(),
+                                lastMissed.getSequence(), missed);
+                        missed = 0;
+                        lastMissed = null;
+                        gap = true;
+                    }
+                    else {
+                        next = queue.poll().notification;
+                    }
+                }
+                try {
+                    listener.handleNotification(next);
+                }
+                catch (Throwable t) {
+                    logger.error("Notification Listener {} threw exception handling {}", listener, next, t);
+                }
+                if (!gap) {
+                    subscriberDelivered.incrementAndGet();
+                    delivered.incrementAndGet();
+                }
+            }
+            // Let others have a go.
+            schedule();
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+            }
+            subscribers.remove(this);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public NotificationListener<T> getListener() {
+            return listener;
+        }
+
+        public synchronized int getQueued() {
+            return queue.size();
+        }
+
+        /**
+         * How long the oldest queued notification has been waiting.
+         *
+         * @return The lag in milliseconds, 0 if nothing is waiting.
+         */
+        public long getLagMillis() {
+            Queued<T> oldest;
+            synchronized (this) {
+                oldest = queue.peek();
+            }
+            return oldest == null ? 0L :
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.queuedAt);
+        }
+
+        public long getDelivered() {
+            return subscriberDelivered.get();
+        }
+
+        public long getDropped() {
+            return subscriberDropped.get();
+        }
+
+        public boolean isDisconnected() {
+            return disconnected;
+        }
+
+        public SubscriberStats getStats() {
+            return new SubscriberStats(name, getQueued(), getLagMillis(), maxQueued,
+                    getDelivered(), getDropped(), disconnected);
+        }
+
+        @Override
+        public String toString() {
+            return "Subscriber{" + name + '}';
+        }
+    }
+
+    static class Queued<T> {
+
+        private final Notification<T> notification;
+
+        private final long queuedAt;
+
+        Queued(Notification<T> notification, long queuedAt) {
+            this.notification = notification;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * A snapshot of a subscriber for management.
+     */
+    public static class SubscriberStats {
+
+        private final String name;
+
+        private final int queued;
+
+        private final long lagMillis;
+
+        private final int maxQueued;
+
+        private final long delivered;
+
+        private final long dropped;
+
+        private final boolean disconnected;
+
+        public SubscriberStats(String name, int queued, long lagMillis, int maxQueued,
+                               long delivered, long dropped, boolean disconnected) {
+            this.name = name;
+            this.queued = queued;
+            this.lagMillis = lagMillis;
+            this.maxQueued = maxQueued;
+            this.delivered = delivered;
+            this.dropped = dropped;
+            this.disconnected = disconnected;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public long getDelivered() {
+            return delivered;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public boolean isDisconnected() {
+            return disconnected;
+        }
+
+        @Override
+        public String toString() {
+            return "SubscriberStats{" +
+                    "name='" + name + '\'' +
+                    ", queued=" + queued +
+                    ", lagMillis=" + lagMillis +
+                    ", maxQueued=" + maxQueued +
+                    ", delivered=" + delivered +
+                    ", dropped=" + dropped +
+                    ", disconnected=" + disconnected +
+                    '}';
+        }
+    }
+}
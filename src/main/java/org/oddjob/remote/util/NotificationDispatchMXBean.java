@@ -0,0 +1,34 @@
+package org.oddjob.remote.util;
+
+import java.util.List;
+
+/**
+ * Management interface for a {@link NotificationDispatch}.
+ */
+public interface NotificationDispatchMXBean {
+
+    int getCapacity();
+
+    String getOverflowPolicy();
+
+    int getSubscriberCount();
+
+    /**
+     * @return Notifications waiting to be delivered to all subscribers.
+     */
+    long getTotalQueued();
+
+    long getTotalDelivered();
+
+    long getTotalDropped();
+
+    /**
+     * @return Subscribers disconnected because their queue overflowed.
+     */
+    long getDisconnects();
+
+    /**
+     * @return A snapshot of each subscriber.
+     */
+    List<NotificationDispatch.SubscriberStats> getSubscribers();
+}
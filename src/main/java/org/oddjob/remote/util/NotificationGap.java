@@ -0,0 +1,73 @@
+package org.oddjob.remote.util;
+
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationType;
+
+import java.io.Serializable;
+
+/**
+ * The data of a marker notification sent in place of notifications that were dropped because a
+ * listener couldn't keep up. The marker has the type of the notifications that were dropped so
+ * it is sent to the same listener. A listener that keeps state from notifications should check
+ * for a gap with {@link #isGap(Notification)} and resynchronize.
+ *
+ * @see NotificationDispatch
+ */
+public class NotificationGap implements Serializable {
+
+    private static final long serialVersionUID = 2026101800L;
+
+    private final int missed;
+
+    public NotificationGap(int missed) {
+        this.missed = missed;
+    }
+
+    /**
+     * Create a marker notification.
+     *
+     * @param remoteId The remote id of the component.
+     * @param type The type of the notifications dropped.
+     * @param sequence The sequence of the last notification dropped.
+     * @param missed The number dropped.
+     * @param <T> The type the marker pretends to be so it can be given to the listener.
+     *
+     * @return A marker notification.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Notification<T> markerFor(long remoteId, NotificationType<T> type,
+                                                long sequence, int missed) {
+        return new Notification<>(remoteId, type, sequence, (T) new NotificationGap(missed));
+    }
+
+    /**
+     * Is the notification a gap marker.
+     *
+     * @param notification The notification.
+     * @return true if it is.
+     */
+    public static boolean isGap(Notification<?> notification) {
+        Object data = notification.getData();
+        return data instanceof NotificationGap;
+    }
+
+    /**
+     * Provide the gap if the notification is a marker.
+     *
+     * @param notification The notification.
+     * @return The gap or null if this isn't a marker.
+     */
+    public static NotificationGap gapOf(Notification<?> notification) {
+        Object data = notification.getData();
+        return data instanceof NotificationGap ? (NotificationGap) data : null;
+    }
+
+    public int getMissed() {
+        return missed;
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationGap{missed=" + missed + '}';
+    }
+}
@@ -1,9 +1,11 @@
 package org.oddjob.remote.util;
 
 import org.oddjob.remote.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -11,10 +13,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * Manages {@link NotificationListener}s.
  * <p/>
+ * By default notifications are dispatched to listeners on the thread that calls
+ * {@link #handleNotification(Notification)}. If a {@link NotificationDispatch} is provided
+ * each listener is given its own queue and notifications are delivered on the dispatch's
+ * executor so a slow listener can't hold up the caller or other listeners. A listener
+ * disconnected by the dispatch is removed as if {@link #removeNotificationListener} had been
+ * called.
+ * <p/>
  * Threading guarantees aren't perfect. This needs fixing.
  */
 public class NotificationManager implements RemoteNotifier {
 
+    private static final Logger logger = LoggerFactory.getLogger(NotificationManager.class);
+
     @FunctionalInterface
     public interface Action {
         void perform(long remoteId, NotificationType<?> type) throws RemoteException;
@@ -24,12 +35,28 @@ public class NotificationManager implements RemoteNotifier {
 
     private final Action unSubscribeAction;
 
+    private final NotificationDispatch dispatch;
+
     private final ConcurrentMap<Long, ByTypeListeners> byRemote =
             new ConcurrentHashMap<>();
 
     public NotificationManager(Action subscribeAction, Action unSubscribeAction) {
+        this(subscribeAction, unSubscribeAction, null);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param subscribeAction Performed when the first listener of a type is added for a remote id.
+     * @param unSubscribeAction Performed when the last listener of a type is removed for a remote id.
+     * @param dispatch Used to queue notifications for each listener. If null listeners are
+     *                 called directly.
+     */
+    public NotificationManager(Action subscribeAction, Action unSubscribeAction,
+                               NotificationDispatch dispatch) {
         this.subscribeAction = subscribeAction;
         this.unSubscribeAction = unSubscribeAction;
+        this.dispatch = dispatch;
     }
 
     private final NotificationListener<?> notificationListener =
@@ -48,6 +75,7 @@ public class NotificationManager implements RemoteNotifier {
         try {
             byRemote.computeIfAbsent(remoteId, k -> new ByTypeListeners())
                     .addNotificationListener(notificationType, notificationListener,
+                            deliverTo(remoteId, notificationType, notificationListener),
                             type -> {
                                 if (subscribeAction != null) {
                                     subscribeAction.perform(remoteId, type);
@@ -87,6 +115,24 @@ public class NotificationManager implements RemoteNotifier {
         }
     }
 
+    private <T> NotificationListener<T> deliverTo(long remoteId,
+                                                 NotificationType<T> notificationType,
+                                                 NotificationListener<T> notificationListener) {
+        if (dispatch == null) {
+            return notificationListener;
+        }
+        return dispatch.subscriberFor(remoteId + ":" + notificationType.getName() + ":" + notificationListener,
+                notificationListener,
+                () -> {
+                    try {
+                        removeNotificationListener(remoteId, notificationType, notificationListener);
+                    }
+                    catch (RemoteException e) {
+                        logger.debug("Listener {} already removed.", notificationListener, e);
+                    }
+                });
+    }
+
     /**
      * Dispatch a notification to any listeners.
      *
@@ -109,25 +155,28 @@ public class NotificationManager implements RemoteNotifier {
 
     static class ByTypeListeners {
 
-        private final ConcurrentMap<NotificationType<?>, Set<NotificationListener<?>>> byType =
+        /** Listeners by type. The value is the listener or the subscriber delivering to it. */
+        private final ConcurrentMap<NotificationType<?>, Map<NotificationListener<?>, NotificationListener<?>>> byType =
                 new ConcurrentHashMap<>();
 
         <T> void addNotificationListener(NotificationType<T> notificationType,
                                      NotificationListener<T> notificationListener,
+                                     NotificationListener<T> deliverTo,
                                      WithType<T> whenNew) throws RemoteException {
 
             AtomicBoolean subscribe = new AtomicBoolean();
 
-            Set<NotificationListener<?>> listeners = byType.computeIfAbsent(notificationType, k -> {
-                subscribe.set(true);
-                return ConcurrentHashMap.newKeySet();
-            });
+            Map<NotificationListener<?>, NotificationListener<?>> listeners =
+                    byType.computeIfAbsent(notificationType, k -> {
+                        subscribe.set(true);
+                        return new ConcurrentHashMap<>();
+                    });
 
-            if (listeners.contains(notificationListener)) {
+            if (listeners.putIfAbsent(notificationListener, deliverTo) != null) {
+                close(deliverTo);
                 throw new RemoteException("Listener " + notificationListener +
                         " already registered for type " + notificationType);
             }
-            listeners.add(notificationListener);
 
             if (subscribe.get()) {
                 whenNew.apply(notificationType);
@@ -138,17 +187,19 @@ public class NotificationManager implements RemoteNotifier {
                                         NotificationListener<T> notificationListener,
                                         WithType<T> onEmpty) throws RemoteException {
 
-            Set<NotificationListener<?>> listeners = byType.get(notificationType);
+            Map<NotificationListener<?>, NotificationListener<?>> listeners = byType.get(notificationType);
 
             if (listeners == null) {
                 throw new RemoteException("No listener " + notificationListener +
                         " of type " + notificationType);
             }
 
-            if (!listeners.remove(notificationListener)) {
+            NotificationListener<?> deliverTo = listeners.remove(notificationListener);
+            if (deliverTo == null) {
                 throw new RemoteException("No listener " + notificationListener +
                         " of type " + notificationType);
             }
+            close(deliverTo);
 
             if (listeners.isEmpty()) {
                 byType.remove(notificationType);
@@ -162,9 +213,15 @@ public class NotificationManager implements RemoteNotifier {
         <T> void dispatch(Notification<T> notification) {
 
             Optional.ofNullable(byType.get(notification.getType()))
-                    .ifPresent(nls -> nls.forEach(
+                    .ifPresent(nls -> nls.values().forEach(
                             nl -> ((NotificationListener<T>) nl).handleNotification(notification)));
         }
+
+        static void close(NotificationListener<?> deliverTo) {
+            if (deliverTo instanceof NotificationDispatch.Subscriber) {
+                ((NotificationDispatch.Subscriber<?>) deliverTo).close();
+            }
+        }
     }
 
 }
@@ -1,7 +1,13 @@
 package org.oddjob.schedules;
 
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.lang.reflect.Method;
+import java.time.temporal.ChronoUnit;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.TimeZone;
 
 import org.slf4j.Logger;
@@ -11,6 +17,12 @@ import org.oddjob.schedules.schedules.ParentChildSchedule;
 /**
  * A base class for a Schedule which has a from and a to
  * date.
+ * <p>
+ * Sub classes provide the from and to date times and the period between
+ * intervals. Sub classes written for the older Calendar methods still work
+ * as these methods and their replacements are implemented in terms of each
+ * other, so a sub class must override one of each. If it doesn't, an
+ * {@link UnsupportedOperationException} says which.
  * 
  * @author Rob Gordon
  */
@@ -19,7 +31,40 @@ abstract public class ConstrainedSchedule extends AbstractSchedule {
     private static final long serialVersionUID = 20050226;
     
     private static Logger logger = LoggerFactory.getLogger(ConstrainedSchedule.class);
+    
+    /** The names of the methods each sub class overrides. */
+    private static final ClassValue<Set<String>> overridden = 
+            new ClassValue<Set<String>>() {
+        @Override
+        protected Set<String> computeValue(Class<?> type) {
+            Set<String> names = new HashSet<>();
+            for (Class<?> c = type; c != ConstrainedSchedule.class; 
+                    c = c.getSuperclass()) {
+                for (Method method : c.getDeclaredMethods()) {
+                    if (!method.isSynthetic()) {
+                        names.add(method.getName());
+                    }
+                }
+            }
+            return names;
+        }
+    };
 
+    /**
+     * Provide the date time for the start of the constraint.
+     * 
+     * @param reference The date time now, in the time zone of the
+     * schedule.
+     * 
+     * @return The date time for the from time.
+     */
+	protected ZonedDateTime fromDateTime(ZonedDateTime reference) {
+		requireOverride("fromDateTime", "fromCalendar");
+		return DateTimeUtils.forCalendar(fromCalendar(
+				DateTimeUtils.toDate(reference), 
+				TimeZone.getTimeZone(reference.getZone())));
+	}
+	
     /**
      * Provide a Calendar for the start of the constraint.
      * 
@@ -27,8 +72,30 @@ abstract public class ConstrainedSchedule extends AbstractSchedule {
      * @param timeZone The time zone.
      * 
      * @return A calendar for the from time.
+     * 
+     * @deprecated Override {@link #fromDateTime(ZonedDateTime)} instead.
      */
-	abstract protected Calendar fromCalendar(Date referenceDate, TimeZone timeZone);
+	@Deprecated
+	protected Calendar fromCalendar(Date referenceDate, TimeZone timeZone) {
+		requireOverride("fromDateTime", "fromCalendar");
+		return DateTimeUtils.toCalendar(fromDateTime(
+				DateTimeUtils.forDate(referenceDate, timeZone.toZoneId())));
+	}
+	
+    /**
+     * Provide the date time for the end of the constraint.
+     * 
+     * @param reference The date time now, in the time zone of the
+     * schedule.
+     * 
+     * @return The date time for the to time.
+     */
+	protected ZonedDateTime toDateTime(ZonedDateTime reference) {
+		requireOverride("toDateTime", "toCalendar");
+		return DateTimeUtils.forCalendar(toCalendar(
+				DateTimeUtils.toDate(reference), 
+				TimeZone.getTimeZone(reference.getZone())));
+	}
 	
     /**
      * Provide a Calendar for the end of the constraint.
@@ -37,18 +104,84 @@ abstract public class ConstrainedSchedule extends AbstractSchedule {
      * @param timeZone The time zone.
      * 
      * @return A calendar for the end time.
+     * 
+     * @deprecated Override {@link #toDateTime(ZonedDateTime)} instead.
      */
-	abstract protected Calendar toCalendar(Date referenceDate, TimeZone timeZone);
-	
+	@Deprecated
+	protected Calendar toCalendar(Date referenceDate, TimeZone timeZone) {
+		requireOverride("toDateTime", "toCalendar");
+		return DateTimeUtils.toCalendar(toDateTime(
+				DateTimeUtils.forDate(referenceDate, timeZone.toZoneId())));
+	}
 	
 	/**
-	 * Sub classes must provide a unit which is what must be
+	 * Sub classes must provide a period which is what must be
 	 * added to move the schedule on. I.e. the equivalent of a day, week,
 	 * month etc.
 	 * 
-	 * @return
+	 * @return The period. Never null.
 	 */
-	protected abstract CalendarUnit intervalBetween();
+	protected Period periodBetween() {
+		requireOverride("periodBetween", "intervalBetween");
+		CalendarUnit unit = intervalBetween();
+		switch (unit.getField()) {
+		case Calendar.YEAR:
+			return Period.ofYears(unit.getValue());
+		case Calendar.MONTH:
+			return Period.ofMonths(unit.getValue());
+		case Calendar.WEEK_OF_YEAR:
+		case Calendar.WEEK_OF_MONTH:
+			return Period.ofWeeks(unit.getValue());
+		case Calendar.DATE:
+		case Calendar.DAY_OF_YEAR:
+		case Calendar.DAY_OF_WEEK:
+			return Period.ofDays(unit.getValue());
+		default:
+			throw new IllegalStateException(
+					"A constrained schedule can't move on by " + unit);
+		}
+	}
+	
+	/**
+	 * The unit to add to move the schedule on.
+	 * 
+	 * @return The unit.
+	 * 
+	 * @deprecated Override {@link #periodBetween()} instead.
+	 */
+	@Deprecated
+	protected CalendarUnit intervalBetween() {
+		requireOverride("periodBetween", "intervalBetween");
+		Period period = periodBetween();
+		if (period.getYears() != 0 && period.getMonths() == 0 
+				&& period.getDays() == 0) {
+			return new CalendarUnit(Calendar.YEAR, period.getYears());
+		}
+		if (period.getYears() == 0 && period.getDays() == 0) {
+			return new CalendarUnit(Calendar.MONTH, period.getMonths());
+		}
+		if (period.getYears() == 0 && period.getMonths() == 0) {
+			return new CalendarUnit(Calendar.DATE, period.getDays());
+		}
+		throw new IllegalStateException(
+				"No single Calendar unit for " + period);
+	}
+	
+	/**
+	 * Check a sub class overrides one of a method and the deprecated
+	 * method it replaces, because each is implemented with the other.
+	 * 
+	 * @param method The name of the method.
+	 * @param deprecated The name of the deprecated method.
+	 */
+	private void requireOverride(String method, String deprecated) {
+		Set<String> names = overridden.get(getClass());
+		if (!names.contains(method) && !names.contains(deprecated)) {
+			throw new UnsupportedOperationException(getClass().getName() + 
+					" must override " + method + " or the deprecated " + 
+					deprecated + ".");
+		}
+	}
 	
 	/**
 	 * Calculate the next interval, without children.
@@ -58,28 +191,29 @@ abstract public class ConstrainedSchedule extends AbstractSchedule {
 	 */
 	protected final Interval nextInterval(ScheduleContext context) {
 	
-		Calendar fromCal = fromCalendar(context.getDate(), context.getTimeZone());
-		Calendar toCal = toCalendar(context.getDate(), context.getTimeZone());
-
-		Calendar  nowCal = Calendar.getInstance(context.getTimeZone());
-		nowCal.setTime(context.getDate());
+		ZonedDateTime now = DateTimeUtils.forDate(
+				context.getDate(), context.getZoneId());
 		
-	    if (toCal.before(fromCal)) {
-	        if (nowCal.before(toCal)) {
-	        	fromCal = shiftFromCalendar(fromCal, -1);
+		ZonedDateTime from = fromDateTime(now);
+		ZonedDateTime to = toDateTime(now);
+
+	    if (to.isBefore(from)) {
+	        if (now.isBefore(to)) {
+	        	from = shiftFrom(from, -1);
 	        }
 	    } 
 	    else {
-	        if (nowCal.compareTo(toCal) >= 0) {
-	        	fromCal = shiftFromCalendar(fromCal, 1);
+	        if (!now.isBefore(to)) {
+	        	from = shiftFrom(from, 1);
 	        }
 	    }
 
-        if (nowCal.compareTo(toCal) >= 0) {
-        	toCal = shiftToCalendar(toCal, 1);
+        if (!now.isBefore(to)) {
+        	to = shiftTo(to, 1);
         }
 	    
-    	return new SimpleInterval(fromCal.getTime(), toCal.getTime());
+    	return new SimpleInterval(DateTimeUtils.toDate(from), 
+    			DateTimeUtils.toDate(to));
 	}
 
 	/**
@@ -90,36 +224,37 @@ abstract public class ConstrainedSchedule extends AbstractSchedule {
 	 */
 	protected final Interval lastInterval(ScheduleContext context) {
 		
-		Calendar fromCal = fromCalendar(context.getDate(), context.getTimeZone());
-		Calendar toCal = toCalendar(context.getDate(), context.getTimeZone());
-
-		Calendar  nowCal = Calendar.getInstance(context.getTimeZone());
-		nowCal.setTime(context.getDate());
+		ZonedDateTime now = DateTimeUtils.forDate(
+				context.getDate(), context.getZoneId());
 		
-	    if (toCal.before(fromCal)) {
-	        if (nowCal.before(toCal)) {
-	        	fromCal = shiftFromCalendar(fromCal, -2);
+		ZonedDateTime from = fromDateTime(now);
+		ZonedDateTime to = toDateTime(now);
+
+	    if (to.isBefore(from)) {
+	        if (now.isBefore(to)) {
+	        	from = shiftFrom(from, -2);
 	        }
 	        else {
-	        	fromCal = shiftFromCalendar(fromCal, -1);
+	        	from = shiftFrom(from, -1);
 	        }
 	    } 
 	    else {
-	        if (nowCal.before(toCal)) {
-	        	fromCal = shiftFromCalendar(fromCal, -1);
+	        if (now.isBefore(to)) {
+	        	from = shiftFrom(from, -1);
 	        }
 	    }
 
-        if (nowCal.before(toCal)) {
-        	toCal = shiftToCalendar(toCal, -1);
+        if (now.isBefore(to)) {
+        	to = shiftTo(to, -1);
         }
 	    
-        return new SimpleInterval(fromCal.getTime(), toCal.getTime());
+        return new SimpleInterval(DateTimeUtils.toDate(from), 
+        		DateTimeUtils.toDate(to));
 	}
 	
 	/**
-	 * Shift the from Calendar by an interval. The subclass fromCalendar
-	 * is used to re-adjust the shifted calendar. This is needed
+	 * Shift the from date time by an interval. The subclass fromDateTime
+	 * is used to re-adjust the shifted date time. This is needed
 	 * in at least these situations:
 	 * <ul>
 	 *  <li>A yearly schedule for the month of February that returned
@@ -131,36 +266,65 @@ abstract public class ConstrainedSchedule extends AbstractSchedule {
 	 *  </li>
 	 * <ul>
 	 * 
-	 * @param calendar
-	 * @param interval.
-	 * @return
+	 * @param dateTime The from date time.
+	 * @param intervals The number of intervals, may be negative.
+	 * 
+	 * @return The shifted from date time.
 	 */
-	protected Calendar shiftFromCalendar(Calendar calendar, int intervals) {
-		calendar = shiftCalendar(calendar, intervals);
-		return fromCalendar(calendar.getTime(), calendar.getTimeZone());
+	protected ZonedDateTime shiftFrom(ZonedDateTime dateTime, int intervals) {
+		return fromDateTime(shift(dateTime, intervals));
 	}
 	
 	/**
-	 * Shift the to Calendar by an interval. The subclass toCalendar
-	 * is used to re-adjust the shifted calendar for the reasons given
-	 * in {@link #shiftFromCalendar(Calendar, int)}
+	 * Shift the to date time by an interval. The subclass toDateTime
+	 * is used to re-adjust the shifted date time for the reasons given
+	 * in {@link #shiftFrom(ZonedDateTime, int)}
 	 * 
-	 * @param calendar
-	 * @param intervals
-	 * @return
+	 * @param dateTime The to date time.
+	 * @param intervals The number of intervals, may be negative.
+	 * 
+	 * @return The shifted to date time.
 	 */
-	protected Calendar shiftToCalendar(Calendar calendar, int intervals) {
-		calendar = shiftCalendar(calendar, intervals);
-		calendar.add(Calendar.MILLISECOND, -1);
-		return toCalendar(calendar.getTime(), calendar.getTimeZone());
+	protected ZonedDateTime shiftTo(ZonedDateTime dateTime, int intervals) {
+		return toDateTime(shift(dateTime, intervals).minus(1, ChronoUnit.MILLIS));
 	}
 	
-	private Calendar shiftCalendar(Calendar calendar, int intervals) {
-		CalendarUnit unit = intervalBetween();
-		
-    	calendar.add(unit.getField(), intervals * unit.getValue());
-		
-    	return calendar;
+	private ZonedDateTime shift(ZonedDateTime dateTime, int intervals) {
+		return dateTime.plus(periodBetween().multipliedBy(intervals));
+	}
+	
+	/**
+	 * Shift the from Calendar by an interval.
+	 * 
+	 * @param calendar The from calendar.
+	 * @param intervals The number of intervals, may be negative.
+	 * 
+	 * @return The shifted calendar.
+	 * 
+	 * @deprecated Use {@link #shiftFrom(ZonedDateTime, int)}. Overriding 
+	 * this no longer changes how a schedule is shifted.
+	 */
+	@Deprecated
+	protected Calendar shiftFromCalendar(Calendar calendar, int intervals) {
+		return DateTimeUtils.toCalendar(shiftFrom(
+				DateTimeUtils.forCalendar(calendar), intervals));
+	}
+	
+	/**
+	 * Shift the to Calendar by an interval.
+	 * 
+	 * @param calendar The to calendar.
+	 * @param intervals The number of intervals, may be negative.
+	 * 
+	 * @return The shifted calendar.
+	 * 
+	 * @deprecated Use {@link #shiftTo(ZonedDateTime, int)}. Overriding 
+	 * this no longer changes how a schedule is shifted.
+	 */
+	@Deprecated
+	protected Calendar shiftToCalendar(Calendar calendar, int intervals) {
+		return DateTimeUtils.toCalendar(shiftTo(
+				DateTimeUtils.forCalendar(calendar), intervals));
 	}
 	
 	/*
@@ -207,8 +371,8 @@ abstract public class ConstrainedSchedule extends AbstractSchedule {
 			}				
 		}
 		
-		logger.debug(ConstrainedSchedule.this + ": in date is " + now + 
-				", next interval is " + nextResult);
+		logger.debug("{}: in date is {}, next interval is {}", 
+				this, now, nextResult);
 
 		return nextResult;
 	}
@@ -0,0 +1,134 @@
+package org.oddjob.schedules;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Utility methods for schedules that work with {@link ZonedDateTime}s.
+ * <p>
+ * Local date times are resolved in the same way as a lenient
+ * {@link java.util.Calendar} so that schedules give the same intervals as
+ * they always have. A time in a daylight saving gap is moved later by the
+ * length of the gap, and a time that happens twice when the clocks go back
+ * is the second one.
+ *
+ * @author rob
+ */
+public class DateTimeUtils {
+
+	/**
+	 * Private constructor as instantiating this utility class
+	 * is meaningless.
+	 */
+	private DateTimeUtils() {
+	}
+
+	/**
+	 * Provide the date time for a date in a time zone.
+	 *
+	 * @param date The date.
+	 * @param zone The time zone.
+	 *
+	 * @return The date time.
+	 */
+	public static ZonedDateTime forDate(Date date, ZoneId zone) {
+		return Instant.ofEpochMilli(date.getTime()).atZone(zone);
+	}
+
+	/**
+	 * Provide the date for a date time.
+	 *
+	 * @param dateTime The date time.
+	 *
+	 * @return The date.
+	 */
+	public static Date toDate(ZonedDateTime dateTime) {
+		return new Date(dateTime.toInstant().toEpochMilli());
+	}
+
+	/**
+	 * Provide the date time for a Calendar.
+	 *
+	 * @param calendar The calendar.
+	 *
+	 * @return The date time in the time zone of the calendar.
+	 */
+	public static ZonedDateTime forCalendar(Calendar calendar) {
+		return forDate(calendar.getTime(), calendar.getTimeZone().toZoneId());
+	}
+
+	/**
+	 * Provide a Calendar for a date time.
+	 *
+	 * @param dateTime The date time.
+	 *
+	 * @return A calendar in the time zone of the date time.
+	 */
+	public static Calendar toCalendar(ZonedDateTime dateTime) {
+		Calendar calendar = Calendar.getInstance(
+				TimeZone.getTimeZone(dateTime.getZone()));
+		calendar.setTime(toDate(dateTime));
+		return calendar;
+	}
+
+	/**
+	 * Resolve a local date time as a lenient Calendar would.
+	 *
+	 * @param localDateTime The local date time.
+	 * @param zone The time zone.
+	 *
+	 * @return The date time.
+	 */
+	public static ZonedDateTime atLocal(LocalDateTime localDateTime, ZoneId zone) {
+		return ZonedDateTime.ofLocal(localDateTime, zone, null)
+				.withLaterOffsetAtOverlap();
+	}
+
+	/**
+	 * Calculate the start of day date time (i.e. at 00:00) for a given date.
+	 *
+	 * @param date The date.
+	 * @param zone The time zone.
+	 *
+	 * @return The date time at the start of the day.
+	 */
+	public static ZonedDateTime startOfDay(LocalDate date, ZoneId zone) {
+		return atLocal(date.atStartOfDay(), zone);
+	}
+
+	/**
+	 * Calculate the date time for a time of day as the time parser
+	 * would. This differs from {@link #atLocal(LocalDateTime, ZoneId)} in that
+	 * a time in a daylight saving gap is the end of the gap, so a time
+	 * before a time in the gap isn't after it.
+	 *
+	 * @param date The date.
+	 * @param millisOfDay The time of day in milliseconds.
+	 * @param zone The time zone.
+	 *
+	 * @return The date time.
+	 */
+	public static ZonedDateTime atTimeOfDay(LocalDate date, long millisOfDay,
+			ZoneId zone) {
+
+		LocalDateTime localDateTime = date.atStartOfDay().plus(
+				millisOfDay, ChronoUnit.MILLIS);
+
+		ZoneOffsetTransition transition =
+				zone.getRules().getTransition(localDateTime);
+
+		if (transition != null && transition.isGap()) {
+			return transition.getInstant().atZone(zone);
+		}
+
+		return atLocal(localDateTime, zone);
+	}
+}
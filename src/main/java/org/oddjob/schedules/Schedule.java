@@ -1,7 +1,10 @@
 package org.oddjob.schedules;
 
-
-
+import java.util.Date;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The interface that defines a schedule.
@@ -23,4 +26,39 @@ public interface Schedule {
 	 */
 	public ScheduleResult nextDue(ScheduleContext context);
 
+	/**
+	 * Provide the intervals this schedule is due in from the date of
+	 * the context, up to an end date. Each result is found from the 
+	 * use next date of the one before, as a timer would, and only when the
+	 * stream needs it.
+	 * 
+	 * @param context The context to start from.
+	 * @param until Results that are from this date or after aren't included.
+	 * 
+	 * @return A stream of results in order. Never null.
+	 */
+	default Stream<ScheduleResult> occurrences(ScheduleContext context, Date until) {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(
+						new ScheduleIterator(this, context, until),
+						Spliterator.ORDERED | Spliterator.NONNULL), 
+				false);
+	}
+	
+	/**
+	 * Count the intervals this schedule is due in from the date of the 
+	 * context up to an end date. Schedules that can work this out without 
+	 * calculating every interval should override this.
+	 * 
+	 * @param context The context to start from.
+	 * @param until Intervals that are from this date or after aren't 
+	 * counted.
+	 * 
+	 * @return The count.
+	 * 
+	 * @see #occurrences(ScheduleContext, Date)
+	 */
+	default long countOccurrences(ScheduleContext context, Date until) {
+		return occurrences(context, until).count();
+	}
 }
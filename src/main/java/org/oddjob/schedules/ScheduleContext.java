@@ -3,6 +3,7 @@
  */
 package org.oddjob.schedules;
 
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +21,9 @@ public class ScheduleContext {
 	/** The time zone the schedule is to be evaluated in. */
 	private final TimeZone timeZone;
 	
+	/** The time zone as a zone id, so it is only converted once. */
+	private final ZoneId zoneId;
+	
 	/** A data map which allows schedules which maintain state to use
 	 * to maintain that state.
 	 */
@@ -71,6 +75,11 @@ public class ScheduleContext {
 	 */
 	public ScheduleContext(Date now, TimeZone timeZone, 
 			Map<Object, Object> data, Interval parentInterval) {
+		this(now, timeZone, null, data, parentInterval);
+	}
+	
+	private ScheduleContext(Date now, TimeZone timeZone, ZoneId zoneId,
+			Map<Object, Object> data, Interval parentInterval) {
 
 		if (now == null) {
 			throw new NullPointerException("Date is Null.");
@@ -82,8 +91,13 @@ public class ScheduleContext {
 			data = new HashMap<Object, Object>();
 		}
 		
+		if (zoneId == null) {
+			zoneId = timeZone.toZoneId();
+		}
+		
 		this.date = now;
 		this.timeZone = timeZone;
+		this.zoneId = zoneId;
 		this.data = data;
 		this.parentInterval = parentInterval;
 	}
@@ -106,6 +120,15 @@ public class ScheduleContext {
 		return timeZone;
 	}
 	
+	/**
+	 * Get the time zone to evaluate the schedule in as a zone id.
+	 * 
+	 * @return The zone id. Never null.
+	 */
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+	
 	/**
 	 * Add data to the context data map.
 	 * 
@@ -149,7 +172,7 @@ public class ScheduleContext {
 	 */
 	public ScheduleContext spawn(Interval parentInterval) {
 		ScheduleContext newContext = new ScheduleContext(this.date, 
-				this.timeZone, this.data, parentInterval); 
+				this.timeZone, this.zoneId, this.data, parentInterval); 
 		return newContext;
 	}
 	
@@ -165,7 +188,7 @@ public class ScheduleContext {
 	 */
 	public ScheduleContext spawn(Date date, Interval parentInterval) {
 		ScheduleContext newContext = new ScheduleContext(date, 
-				this.timeZone, this.data, parentInterval); 
+				this.timeZone, this.zoneId, this.data, parentInterval); 
 		return newContext;
 	}
 	
@@ -179,7 +202,7 @@ public class ScheduleContext {
 	 */
 	public ScheduleContext move(Date date) {
 		ScheduleContext newContext = new ScheduleContext(date, 
-				this.timeZone, this.data, this.parentInterval); 
+				this.timeZone, this.zoneId, this.data, this.parentInterval); 
 		return newContext;
 	}
 	
@@ -0,0 +1,76 @@
+package org.oddjob.schedules;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the results of a schedule up to a date. Used to provide
+ * {@link Schedule#occurrences(ScheduleContext, Date)}.
+ * 
+ * @author rob
+ *
+ */
+class ScheduleIterator implements Iterator<ScheduleResult> {
+
+	private final Schedule schedule;
+	
+	private final Date until;
+	
+	/** The context for the next result, null when there are no more. */
+	private ScheduleContext context;
+	
+	/** The next result, calculated by hasNext. */
+	private ScheduleResult next;
+	
+	ScheduleIterator(Schedule schedule, ScheduleContext context, Date until) {
+		if (until == null) {
+			throw new NullPointerException("No until date.");
+		}
+		this.schedule = schedule;
+		this.context = context;
+		this.until = until;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (context == null) {
+			return false;
+		}
+		
+		ScheduleResult result = schedule.nextDue(context);
+		
+		if (result == null || !result.getFromDate().before(until)) {
+			context = null;
+			return false;
+		}
+		
+		Date useNext = result.getUseNext();
+		if (useNext == null) {
+			context = null;
+		}
+		else if (!useNext.after(context.getDate())) {
+			throw new IllegalStateException("Schedule " + schedule + 
+					" doesn't move on from " + context.getDate());
+		}
+		else {
+			context = context.move(useNext);
+		}
+		
+		next = result;
+		return true;
+	}
+	
+	@Override
+	public ScheduleResult next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		ScheduleResult result = next;
+		next = null;
+		return result;
+	}
+}
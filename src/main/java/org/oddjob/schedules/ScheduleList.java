@@ -74,7 +74,7 @@ final public class ScheduleList implements Serializable, Schedule {
 	public ScheduleResult nextDue(ScheduleContext context) {
 		Date now = context.getDate();
 		
-		logger.debug(this + ": in date " + now);
+		logger.debug("{}: in date {}", this, now);
 		
 		if (schedules == null || schedules.size() == 0) {
 			return null;
@@ -85,7 +85,7 @@ final public class ScheduleList implements Serializable, Schedule {
 		int i = 1;		
 		for	(Schedule schedule : schedules) {
 			
-			logger.debug(this + ": evaluating schedule " + i++ + " (" + schedule + ")");
+			logger.debug("{}: evaluating schedule {} ({})", this, i++, schedule);
 			
 			ScheduleResult nextDue = schedule.nextDue(context);
 			
@@ -97,7 +97,7 @@ final public class ScheduleList implements Serializable, Schedule {
 			}
 		}
 		
-		logger.debug(this + ": returning " + candidate);
+		logger.debug("{}: returning {}", this, candidate);
 		
 		return candidate;
 	}
@@ -1,17 +1,12 @@
 package org.oddjob.schedules.schedules;
 
 import java.io.Serializable;
-import java.text.ParseException;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 
-import org.oddjob.OddjobException;
-import org.oddjob.arooa.utils.SpringSafeCalendar;
-import org.oddjob.arooa.utils.TimeParser;
-import org.oddjob.schedules.CalendarUnit;
 import org.oddjob.schedules.ConstrainedSchedule;
-import org.oddjob.schedules.DateUtils;
+import org.oddjob.schedules.DateTimeUtils;
 import org.oddjob.scheduling.Timer;
 
 /**
@@ -47,6 +42,12 @@ final public class DailySchedule extends ConstrainedSchedule implements Serializ
 	private String from;
 	private String to;
 	
+	/** The parsed from time. */
+	private transient volatile TimeOfDay fromTime;
+	
+	/** The parsed to time. */
+	private transient volatile TimeOfDay toTime;
+	
     /**
      * @oddjob.property from
      * @oddjob.description The from time.
@@ -100,51 +101,56 @@ final public class DailySchedule extends ConstrainedSchedule implements Serializ
 	}
 	
     @Override
-    protected CalendarUnit intervalBetween() {
-    	return new CalendarUnit(Calendar.DATE, 1);
+    protected Period periodBetween() {
+    	return Period.ofDays(1);
     }
 
-	static Date parseTime(String textField, Date referenceDate, 
-			TimeZone timeZone, String fieldName) {
-		
-		TimeParser timeFormatter = new TimeParser(
-				new SpringSafeCalendar(referenceDate, timeZone));		
-		try {
-			Date now = timeFormatter.parse(textField);
-			return now;
-		} catch (ParseException e) {
-			throw new OddjobException("Failed to parse " + fieldName
-					+ "[" + textField + "]");
+	private TimeOfDay fromTime() {
+		TimeOfDay fromTime = this.fromTime;
+		if (fromTime == null || !fromTime.isFor(from)) {
+			fromTime = TimeOfDay.parse(from, "from");
+			this.fromTime = fromTime;
 		}
-	}	
-
-	protected Calendar fromCalendar(Date referenceDate, TimeZone timeZone) {
-		Calendar fromCal = Calendar.getInstance(timeZone);
+		return fromTime;
+	}
+	
+	private TimeOfDay toTime() {
+		TimeOfDay toTime = this.toTime;
+		if (toTime == null || !toTime.isFor(to)) {
+			toTime = TimeOfDay.parse(to, "to");
+			this.toTime = toTime;
+		}
+		return toTime;
+	}
+	
+	@Override
+	protected ZonedDateTime fromDateTime(ZonedDateTime reference) {
 		if (from == null) {
-    		fromCal.setTime(DateUtils.startOfDay(referenceDate, timeZone));
+    		return DateTimeUtils.startOfDay(
+    				reference.toLocalDate(), reference.getZone());
 		}
 		else {
-			fromCal.setTime(parseTime(from, referenceDate, timeZone, "from"));
+			return fromTime().on(reference);
 		}
-		return fromCal;
 	}
 	
-	protected Calendar toCalendar(Date referenceDate, TimeZone timeZone) {
-		Calendar toCal = Calendar.getInstance(timeZone);
+	@Override
+	protected ZonedDateTime toDateTime(ZonedDateTime reference) {
+		ZonedDateTime toDateTime;
 	    if (to == null) {
-	    	toCal.setTime(DateUtils.endOfDay(referenceDate, timeZone));
+	    	toDateTime = DateTimeUtils.startOfDay(
+	    			reference.toLocalDate().plusDays(1), reference.getZone());
 	    }
 	    else {
-	    	toCal.setTime(parseTime(to, referenceDate, timeZone, "to"));
+	    	toDateTime = toTime().on(reference);
 	    }
 	    
-	    Calendar fromCal = fromCalendar(referenceDate, timeZone);
-    	if (toCal.equals(fromCal)) {
+    	if (toDateTime.isEqual(fromDateTime(reference))) {
     		// For 'at' times.
-    		toCal.add(Calendar.MILLISECOND, 1);
+    		toDateTime = toDateTime.plus(1, ChronoUnit.MILLIS);
     	}
 	    
-		return toCal;
+		return toDateTime;
 	}
 	
 	/**
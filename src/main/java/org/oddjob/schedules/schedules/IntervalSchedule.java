@@ -138,6 +138,33 @@ public class IntervalSchedule implements Schedule, Serializable {
 		}
 	}
 
+	/**
+	 * Intervals follow each other without gaps so the count is worked out
+	 * from the first.
+	 */
+	@Override
+	public long countOccurrences(ScheduleContext context, Date until) {
+		
+		ScheduleResult first = nextDue(context);
+		if (first == null) {
+			return 0;
+		}
+		
+		long end = until.getTime();
+		
+		Interval parentInterval = context.getParentInterval();
+		if (parentInterval != null) {
+			end = Math.min(end, parentInterval.getToDate().getTime());
+		}
+		
+		long span = end - first.getFromDate().getTime();
+		if (span <= 0) {
+			return 0;
+		}
+		
+		return (span + intervalMillis - 1) / intervalMillis;
+	}
+	
 	@Override
 	public String toString() {
 		return "Interval " + intervalMillis + " ms";
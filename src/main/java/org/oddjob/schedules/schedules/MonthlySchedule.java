@@ -1,14 +1,15 @@
 package org.oddjob.schedules.schedules;
 
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
 
 import org.oddjob.arooa.deploy.annotations.ArooaAttribute;
-import org.oddjob.schedules.CalendarUnit;
-import org.oddjob.schedules.CalendarUtils;
 import org.oddjob.schedules.ConstrainedSchedule;
+import org.oddjob.schedules.DateTimeUtils;
 import org.oddjob.schedules.units.DayOfMonth;
 import org.oddjob.schedules.units.DayOfWeek;
 import org.oddjob.schedules.units.WeekOfMonth;
@@ -223,118 +224,155 @@ final public class MonthlySchedule extends ConstrainedSchedule implements Serial
     }
     
 	@Override
-    protected CalendarUnit intervalBetween() {
-    	return new CalendarUnit(Calendar.MONTH, 1);
+    protected Period periodBetween() {
+    	return Period.ofMonths(1);
     }
 
 	/**
-	 * Get a calendar for the from day.
-	 * 
-	 * @param referenceDate The date to get month, year info from.
-	 * @param timeZone The time zone.
-	 * 
-	 * @return A calendar.
+	 * The date of a day in the month of the reference date. A day of
+	 * 0 or less is counted back from the end of the month.
 	 */
-	protected Calendar fromCalendar(Date referenceDate, TimeZone timeZone) {
-
-		CalendarUtils helper = new CalendarUtils(
-				referenceDate, timeZone);
+	static LocalDate dayOfMonth(LocalDate reference, DayOfMonth dayOfMonth) {
+		
+		int day = dayOfMonth.getDayNumber();
+		
+		LocalDate first = reference.withDayOfMonth(1);
+		if (day <= 0) {
+			first = first.plusMonths(1);
+		}
+		return first.plusDays(day - 1);
+	}
+	
+	/**
+	 * The Monday a week of the month starts on. The first week is the first
+	 * to start on a Monday in the month. A negative week is counted back 
+	 * from the end of the month.
+	 */
+	static LocalDate startOfWeekOfMonth(LocalDate reference, WeekOfMonth week) {
+		
+		int weekNumber = week.getWeekNumber();
+		
+		LocalDate first = reference.withDayOfMonth(1);
+		if (weekNumber < 0) {
+			first = first.plusMonths(1);
+		}
+		return first.with(TemporalAdjusters.nextOrSame(java.time.DayOfWeek.MONDAY))
+				.plusWeeks(weekNumber - 1);
+	}
+	
+	/**
+	 * The date of a day of the week in a week of the month of the 
+	 * reference date. This week is counted in the days of the week, i.e.
+	 * the first Friday is in the first week regardless of whether the 
+	 * month starts on a Monday.
+	 */
+	static LocalDate dayOfWeekInMonth(LocalDate reference, DayOfWeek dayOfWeek, 
+			WeekOfMonth week) {
+		
+		return reference.with(TemporalAdjusters.dayOfWeekInMonth(
+				week.getWeekNumber(), 
+				java.time.DayOfWeek.of(dayOfWeek.getDayNumber())));
+	}
+	
+	private LocalDate fromDate(LocalDate reference) {
 		
 		if (fromDay != null) {
-			return helper.dayOfMonth(fromDay);
+			return dayOfMonth(reference, fromDay);
 	    }
 		else if (fromWeek != null) {
-			
-			if (fromDayOfWeek == null){
-				return helper.startOfWeekOfMonth(fromWeek);
-			}
-			else {
-				return helper.dayOfWeekInMonth(fromDayOfWeek, fromWeek);
-			}
+			return fromWeekDate(reference);
 		}
 		else {		
-	    	return helper.startOfMonth();
+	    	return reference.withDayOfMonth(1);
 		}
 	}
 	
-	/**
-	 * Get a calendar for the to day.
-	 * 
-	 * @param referenceDate The date to get month, yar info from.
-	 * @param timeZone The time zone.
-	 * 
-	 * @return A calendar. 
-	 */
-	protected Calendar toCalendar(Date referenceDate, TimeZone timeZone) {
-		
-		CalendarUtils helper = new CalendarUtils(
-				referenceDate, timeZone);
+	private LocalDate fromWeekDate(LocalDate reference) {
+		if (fromDayOfWeek == null){
+			return startOfWeekOfMonth(reference, fromWeek);
+		}
+		else {
+			return dayOfWeekInMonth(reference, fromDayOfWeek, fromWeek);
+		}
+	}
+	
+	private LocalDate toDate(LocalDate reference) {
 		
 	    if (toDay != null) {
-	    	Calendar cal = helper.dayOfMonth(toDay);
-	    	CalendarUtils.setEndOfDay(cal);
-	    	return cal;
+	    	return dayOfMonth(reference, toDay).plusDays(1);
 	    }
 	    else if (toWeek != null) {
-
-	    	if (toDayOfWeek == null) {
-	    		return helper.startOfWeekOfMonth(toWeek);	    		
-	    	}
-	    	else {
-	    		Calendar cal = helper.dayOfWeekInMonth(
-	    				toDayOfWeek, toWeek);
-	    		CalendarUtils.setEndOfDay(cal);
-	    		return cal;
-	    	}
+	    	return toWeekDate(reference);
 	    }
 	    else {		
-	    	return helper.endOfMonth();
+	    	return reference.withDayOfMonth(1).plusMonths(1);
 	    }
+	}
+	
+	private LocalDate toWeekDate(LocalDate reference) {
+    	if (toDayOfWeek == null) {
+    		return startOfWeekOfMonth(reference, toWeek);	    		
+    	}
+    	else {
+    		return dayOfWeekInMonth(reference, toDayOfWeek, toWeek).plusDays(1);
+    	}
+	}
+	
+	@Override
+	protected ZonedDateTime fromDateTime(ZonedDateTime reference) {
+		return DateTimeUtils.startOfDay(
+				fromDate(reference.toLocalDate()), reference.getZone());
+	}
+	
+	@Override
+	protected ZonedDateTime toDateTime(ZonedDateTime reference) {
+		return DateTimeUtils.startOfDay(
+				toDate(reference.toLocalDate()), reference.getZone());
 	}	
 		
+	/**
+	 * @deprecated Use {@link #shiftFrom(ZonedDateTime, int)}.
+	 */
+	@Deprecated
 	@Override
 	protected Calendar shiftFromCalendar(Calendar calendar, int intervals) {
+		return super.shiftFromCalendar(calendar, intervals);
+	}
+	
+	/**
+	 * @deprecated Use {@link #shiftTo(ZonedDateTime, int)}.
+	 */
+	@Deprecated
+	@Override
+	protected Calendar shiftToCalendar(Calendar calendar, int intervals) {
+		return super.shiftToCalendar(calendar, intervals);
+	}
+	
+	@Override
+	protected ZonedDateTime shiftFrom(ZonedDateTime dateTime, int intervals) {
 		
-    	calendar = super.shiftFromCalendar(calendar, intervals);
+		dateTime = super.shiftFrom(dateTime, intervals);
     	
 	    if (fromWeek == null) {
-	    	return calendar;
+	    	return dateTime;
 	    }
 	    else {
-			CalendarUtils helper = new CalendarUtils(
-					calendar.getTime(), calendar.getTimeZone());
-			
-	    	if (fromDayOfWeek == null) {
-	    		return helper.startOfWeekOfMonth(fromWeek);	    		
-	    	}
-	    	else {
-	    		return helper.dayOfWeekInMonth(
-	    				fromDayOfWeek, fromWeek);
-	    	}
+	    	return DateTimeUtils.startOfDay(
+	    			fromWeekDate(dateTime.toLocalDate()), dateTime.getZone());
 	    }
 	}
 	
 	@Override
-	protected Calendar shiftToCalendar(Calendar calendar, int intervals) {
+	protected ZonedDateTime shiftTo(ZonedDateTime dateTime, int intervals) {
 		
-    	calendar = super.shiftToCalendar(calendar, intervals);
+		dateTime = super.shiftTo(dateTime, intervals);
     	
 	    if (toWeek == null) {
-	    	return calendar;
+	    	return dateTime;
 	    }
 	    else {
-			CalendarUtils helper = new CalendarUtils(
-					calendar.getTime(), calendar.getTimeZone());
-			
-	    	if (toDayOfWeek == null) {
-	    		return helper.startOfWeekOfMonth(toWeek);	    		
-	    	}
-	    	else {
-	    		Calendar cal = helper.dayOfWeekInMonth(
-	    				toDayOfWeek, toWeek);
-	    		CalendarUtils.setEndOfDay(cal);
-	    		return cal;
-	    	}
+	    	return DateTimeUtils.startOfDay(
+	    			toWeekDate(dateTime.toLocalDate()), dateTime.getZone());
 	    }
 	}
 	
@@ -0,0 +1,109 @@
+package org.oddjob.schedules.schedules;
+
+import java.text.ParseException;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Objects;
+import java.util.TimeZone;
+
+import org.oddjob.OddjobException;
+import org.oddjob.arooa.utils.SpringSafeCalendar;
+import org.oddjob.arooa.utils.TimeParser;
+import org.oddjob.schedules.DateTimeUtils;
+
+/**
+ * A time of day given to a schedule as text. The text is parsed once
+ * and the time then applied to any day. Text that isn't just a time of day
+ * is parsed against each day instead.
+ *
+ * @author rob
+ */
+class TimeOfDay {
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+	private final String text;
+
+	private final String fieldName;
+
+	/** Milliseconds into the day or -1 if the text must be parsed each time. */
+	private final long millisOfDay;
+
+	private TimeOfDay(String text, String fieldName, long millisOfDay) {
+		this.text = text;
+		this.fieldName = fieldName;
+		this.millisOfDay = millisOfDay;
+	}
+
+	/**
+	 * Parse text.
+	 *
+	 * @param text The text.
+	 * @param fieldName The name of the property for error messages.
+	 *
+	 * @return The time of day. Never null.
+	 *
+	 * @throws OddjobException If the text can't be parsed.
+	 */
+	static TimeOfDay parse(String text, String fieldName) {
+
+		long millis = parseTime(text, new Date(0), UTC, fieldName).getTime();
+
+		if (millis < 0 || millis >= MILLIS_PER_DAY) {
+			millis = -1;
+		}
+
+		return new TimeOfDay(text, fieldName, millis);
+	}
+
+	/**
+	 * Is this for the given text.
+	 *
+	 * @param text The text.
+	 * @return true if it is.
+	 */
+	boolean isFor(String text) {
+		return Objects.equals(this.text, text);
+	}
+
+	/**
+	 * Provide this time on the day of the reference date time. Daylight
+	 * saving is treated the same as the time parser.
+	 *
+	 * @param reference The reference date time.
+	 *
+	 * @return The date time. Never null.
+	 */
+	ZonedDateTime on(ZonedDateTime reference) {
+
+		if (millisOfDay < 0) {
+			return DateTimeUtils.forDate(
+					parseTime(text, DateTimeUtils.toDate(reference),
+							TimeZone.getTimeZone(reference.getZone()), fieldName),
+					reference.getZone());
+		}
+
+		return DateTimeUtils.atTimeOfDay(reference.toLocalDate(),
+				millisOfDay, reference.getZone());
+	}
+
+	static Date parseTime(String textField, Date referenceDate,
+			TimeZone timeZone, String fieldName) {
+
+		TimeParser timeFormatter = new TimeParser(
+				new SpringSafeCalendar(referenceDate, timeZone));
+		try {
+			return timeFormatter.parse(textField);
+		} catch (ParseException e) {
+			throw new OddjobException("Failed to parse " + fieldName
+					+ "[" + textField + "]");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return fieldName + " " + text;
+	}
+}
@@ -1,19 +1,17 @@
 package org.oddjob.schedules.schedules;
 
 import java.io.Serializable;
-import java.text.ParseException;
-import java.util.Calendar;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.TimeZone;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.oddjob.OddjobException;
-import org.oddjob.arooa.utils.SpringSafeCalendar;
-import org.oddjob.arooa.utils.TimeParser;
 import org.oddjob.schedules.AbstractSchedule;
-import org.oddjob.schedules.CalendarUnit;
 import org.oddjob.schedules.ConstrainedSchedule;
+import org.oddjob.schedules.DateTimeUtils;
 import org.oddjob.schedules.DateUtils;
 import org.oddjob.schedules.Interval;
 import org.oddjob.schedules.Schedule;
@@ -80,6 +78,12 @@ final public class TimeSchedule extends AbstractSchedule implements Serializable
 	
 	private String toLast;
 	
+	/** The parsed from time. */
+	private transient volatile TimeOfDay fromTime;
+	
+	/** The parsed to time. */
+	private transient volatile TimeOfDay toTime;
+	
     /**
      * @oddjob.property from
      * @oddjob.description The from time.
@@ -153,112 +157,107 @@ final public class TimeSchedule extends AbstractSchedule implements Serializable
 		this.toLast = toLast;
 	}
 
-	protected CalendarUnit intervalBetween() {
-    	return new CalendarUnit(Calendar.DATE, 1);
+	protected Period intervalBetween() {
+    	return Period.ofDays(1);
     }
 
-	static Date parseTime(String textField, Date referenceDate, 
-			TimeZone timeZone, String fieldName) {
-		TimeParser timeFormatter = new TimeParser(
-				new SpringSafeCalendar(referenceDate, timeZone));		
-		try {
-			Date now = timeFormatter.parse(textField);
-			return now;
-		} catch (ParseException e) {
-			throw new OddjobException("Failed to parse " + fieldName
-					+ "[" + textField + "]");
+	private TimeOfDay fromTime() {
+		TimeOfDay fromTime = this.fromTime;
+		if (fromTime == null || !fromTime.isFor(from)) {
+			fromTime = TimeOfDay.parse(from, "from");
+			this.fromTime = fromTime;
 		}
-	}	
-
-	protected Calendar fromCalendar(ScheduleContext context) {
-		
-		TimeZone timeZone = context.getTimeZone();
+		return fromTime;
+	}
+	
+	private TimeOfDay toTime() {
+		TimeOfDay toTime = this.toTime;
+		if (toTime == null || !toTime.isFor(to)) {
+			toTime = TimeOfDay.parse(to, "to");
+			this.toTime = toTime;
+		}
+		return toTime;
+	}
+	
+	protected ZonedDateTime fromDateTime(ScheduleContext context) {
 		
-		Calendar fromCal = Calendar.getInstance(timeZone);
+		ZoneId zone = context.getZoneId();
 		
 		Interval parentInterval = context.getParentInterval();
 		
 		if (from == null) {
 			if (parentInterval == null) {
-				fromCal.setTime(Interval.START_OF_TIME);
+				return DateTimeUtils.forDate(Interval.START_OF_TIME, zone);
 			}
 			else {
-				fromCal.setTime(DateUtils.startOfDay(parentInterval.getFromDate(), timeZone));
+				return DateTimeUtils.startOfDay(
+						DateTimeUtils.forDate(parentInterval.getFromDate(), zone).toLocalDate(), 
+						zone);
 			}
 		}
 		else {
 			if (parentInterval == null) {
-				fromCal.setTime(parseTime(from, context.getDate(), timeZone, "from"));
+				return fromTime().on(DateTimeUtils.forDate(context.getDate(), zone));
 			}
 			else {
-				fromCal.setTime(parseTime(from, parentInterval.getFromDate(), timeZone, "from"));
+				return fromTime().on(DateTimeUtils.forDate(parentInterval.getFromDate(), zone));
 			}
 		}
-		
-		return fromCal;
 	}
 	
-	protected Calendar toCalendar(ScheduleContext context) {
+	protected ZonedDateTime toDateTime(ScheduleContext context) {
 		
-		TimeZone timeZone = context.getTimeZone();
-		
-		Calendar toCal = Calendar.getInstance(timeZone);
+		ZoneId zone = context.getZoneId();
 		
 		Interval parentInterval = context.getParentInterval();
 		
 		if (toLast != null) {
-	    	if (parentInterval == null) {
-		    	toCal.setTime(parseTime(to, context.getDate(), timeZone, "to"));
-	    	}
-	    	else {
-		    	toCal.setTime(parseTime(to, DateUtils.oneMillisBefore(parentInterval.getToDate()), timeZone, "to"));	    		
-	    	}
+			// Only checks the to time can be parsed.
+			toTime();
 		}
 	    if (to != null) {
 	    	if (parentInterval == null) {
-		    	toCal.setTime(parseTime(to, context.getDate(), timeZone, "to"));
+		    	return toTime().on(DateTimeUtils.forDate(context.getDate(), zone));
 	    	}
 	    	else {
-		    	toCal.setTime(parseTime(to, parentInterval.getFromDate(), timeZone, "to"));	    		
+		    	return toTime().on(DateTimeUtils.forDate(parentInterval.getFromDate(), zone));
 	    	}
 	    }
 	    else {
 	    	if (parentInterval == null) {
-	    		toCal.setTime(Interval.END_OF_TIME);
+	    		return DateTimeUtils.forDate(Interval.END_OF_TIME, zone);
 	    	}
 	    	else {
-	    		toCal.setTime(DateUtils.endOfDay(
-	    				DateUtils.oneMillisBefore(parentInterval.getToDate()), timeZone));
-	    	};
+	    		return DateTimeUtils.startOfDay(
+	    				DateTimeUtils.forDate(DateUtils.oneMillisBefore(
+	    						parentInterval.getToDate()), zone).toLocalDate().plusDays(1), 
+	    				zone);
+	    	}
 	    }
-	    
-		return toCal;
 	}
 	
 	/**
 	 * @param context
 	 * @return
 	 */
-	protected Calendar nowCalendar(ScheduleContext context) {
+	protected ZonedDateTime nowDateTime(ScheduleContext context) {
 		
-		Calendar  nowCal = Calendar.getInstance(context.getTimeZone());
-		nowCal.setTime(context.getDate());
+		Date now = context.getDate();
 		
 		Interval parentInterval = context.getParentInterval();
 		if (parentInterval != null) {
 			
 			if (parentInterval.getToDate().compareTo(context.getDate()) <= 0) {
-				nowCal.setTime(DateUtils.oneMillisBefore(parentInterval.getToDate()));
+				now = DateUtils.oneMillisBefore(parentInterval.getToDate());
 			}
 			else if (parentInterval.getFromDate().compareTo(context.getDate()) > 0) {
-				nowCal.setTime(parentInterval.getFromDate());
+				now = parentInterval.getFromDate();
 			}
 		}
 		
-		return nowCal;
+		return DateTimeUtils.forDate(now, context.getZoneId());
 	}
 	
-	/**
 	/**
 	 * Calculate the next interval, without children.
 	 * 
@@ -267,24 +266,25 @@ final public class TimeSchedule extends AbstractSchedule implements Serializable
 	 */
 	protected final Interval nextInterval(ScheduleContext context) {
 	
-		Calendar fromCal = fromCalendar(context);
-		Calendar toCal = toCalendar(context);
+		ZonedDateTime from = fromDateTime(context);
+		ZonedDateTime to = toDateTime(context);
 				
-		if (fromCal.getTime().equals(toCal.getTime())) {
-			toCal.add(Calendar.MILLISECOND, 1);
+		if (from.isEqual(to)) {
+			to = to.plus(1, ChronoUnit.MILLIS);
 		}
 		
-		Calendar  nowCal = nowCalendar(context);
+		ZonedDateTime now = nowDateTime(context);
 		
-	    if (fromCal.after(toCal)) {
-	        toCal = shiftFromCalendar(toCal, 1);
+	    if (from.isAfter(to)) {
+	        to = shiftFrom(to, 1);
 	    }
 
-	    if (nowCal.compareTo(toCal) >= 0) {
+	    if (!now.isBefore(to)) {
 	    	return null;
 	    }	    
         
-	    return new SimpleInterval(fromCal.getTime(), toCal.getTime());
+	    return new SimpleInterval(DateTimeUtils.toDate(from), 
+	    		DateTimeUtils.toDate(to));
 	}
 
 	/**
@@ -295,51 +295,48 @@ final public class TimeSchedule extends AbstractSchedule implements Serializable
 	 */
 	protected final Interval lastInterval(ScheduleContext context) {
 		
-		Calendar fromCal = fromCalendar(context);
-		Calendar toCal = toCalendar(context);
+		ZonedDateTime from = fromDateTime(context);
+		ZonedDateTime to = toDateTime(context);
 				
-		if (fromCal.getTime().equals(toCal.getTime())) {
-			toCal.add(Calendar.MILLISECOND, 1);
+		if (from.isEqual(to)) {
+			to = to.plus(1, ChronoUnit.MILLIS);
 		}
 
-		Calendar  nowCal = nowCalendar(context);
+		ZonedDateTime now = nowDateTime(context);
 		
-	    if (fromCal.after(toCal)) {
-	        fromCal = shiftFromCalendar(fromCal, -1);	        
+	    if (from.isAfter(to)) {
+	        from = shiftFrom(from, -1);	        
 	    }
 
-	    if (nowCal.compareTo(toCal) < 0) {
+	    if (now.isBefore(to)) {
 	    	return null;
 	    }	    
         
-	    return new SimpleInterval(fromCal.getTime(), toCal.getTime());		
+	    return new SimpleInterval(DateTimeUtils.toDate(from), 
+	    		DateTimeUtils.toDate(to));
 	}
 
 	
-	protected Calendar shiftFromCalendar(Calendar calendar, int intervals) {
-		if (calendar.getTime().equals(Interval.START_OF_TIME)) {
-			return calendar;
+	protected ZonedDateTime shiftFrom(ZonedDateTime dateTime, int intervals) {
+		if (DateTimeUtils.toDate(dateTime).equals(Interval.START_OF_TIME)) {
+			return dateTime;
 		}
 		else {
-			return shiftCalendar(calendar, intervals);
+			return shift(dateTime, intervals);
 		}
 	}
 	
-	protected Calendar shiftToCalendar(Calendar calendar, int intervals) {
-		if (calendar.getTime().equals(Interval.END_OF_TIME)) {
-			return calendar;
+	protected ZonedDateTime shiftTo(ZonedDateTime dateTime, int intervals) {
+		if (DateTimeUtils.toDate(dateTime).equals(Interval.END_OF_TIME)) {
+			return dateTime;
 		}
 		else {
-			return shiftCalendar(calendar, intervals);
+			return shift(dateTime, intervals);
 		}
 	}
 	
-	private Calendar shiftCalendar(Calendar calendar, int intervals) {
-		CalendarUnit unit = intervalBetween();
-		
-    	calendar.add(unit.getField(), intervals * unit.getValue());
-		
-    	return calendar;
+	private ZonedDateTime shift(ZonedDateTime dateTime, int intervals) {
+		return dateTime.plus(intervalBetween().multipliedBy(intervals));
 	}
 	
 	/*
@@ -407,8 +404,8 @@ final public class TimeSchedule extends AbstractSchedule implements Serializable
 		 	nextResult = new SimpleScheduleResult(nextResult, null);		
 		}
 	 	
-	 	logger.debug(this + ": in date is " + now + 
-				", next interval is " + nextResult);
+	 	logger.debug("{}: in date is {}, next interval is {}", 
+	 			this, now, nextResult);
 
 		return nextResult;
 	}
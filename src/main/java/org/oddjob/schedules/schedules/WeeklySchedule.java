@@ -1,14 +1,13 @@
 package org.oddjob.schedules.schedules;
 
 import java.io.Serializable;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZonedDateTime;
 
 import org.oddjob.arooa.deploy.annotations.ArooaAttribute;
-import org.oddjob.schedules.CalendarUnit;
-import org.oddjob.schedules.CalendarUtils;
 import org.oddjob.schedules.ConstrainedSchedule;
+import org.oddjob.schedules.DateTimeUtils;
 import org.oddjob.schedules.units.DayOfWeek;
 
 /**
@@ -100,32 +99,45 @@ implements Serializable {
 	}
 	
     @Override
-    protected CalendarUnit intervalBetween() {
-    	return new CalendarUnit(Calendar.DATE, 7);
+    protected Period periodBetween() {
+    	return Period.ofWeeks(1);
     }
 	
-	protected Calendar fromCalendar(Date referenceDate, TimeZone timeZone) {
+    /**
+     * The date of a day in the same week as the reference date.
+     * 
+     * @param reference The reference date.
+     * @param day The ISO day number, Monday is 1.
+     * 
+     * @return The date.
+     */
+    static LocalDate dayOfWeek(LocalDate reference, int day) {
+    	return reference.plusDays(day - reference.getDayOfWeek().getValue());
+    }
+    
+    @Override
+	protected ZonedDateTime fromDateTime(ZonedDateTime reference) {
 		if (from == null) {
-			return CalendarUtils.startOfWeek(referenceDate, timeZone);
+			return DateTimeUtils.startOfDay(
+					dayOfWeek(reference.toLocalDate(), 1), 
+					reference.getZone());
 		}
 		else {
-			return new CalendarUtils(
-					referenceDate, timeZone).dayOfWeek(
-							from);
+			// Days are added to the start of the reference day so the offset
+			// is kept where midnight happens twice, as it always has been.
+			ZonedDateTime startOfDay = DateTimeUtils.startOfDay(
+					reference.toLocalDate(), reference.getZone()); 
+			return startOfDay.plusDays(from.getDayNumber() - 
+					reference.getDayOfWeek().getValue());
 		}
 	}
 	
-	protected Calendar toCalendar(Date referenceDate, TimeZone timeZone) {
-	    if (to == null) {
-			return CalendarUtils.endOfWeek(referenceDate, timeZone);
-	    }
-	    else {
-	    	Calendar cal = new CalendarUtils(
-	    			referenceDate, timeZone).dayOfWeek(
-	    					to);
-	    	CalendarUtils.setEndOfDay(cal);
-	    	return cal;
-	    }		
+    @Override
+	protected ZonedDateTime toDateTime(ZonedDateTime reference) {
+		int day = to == null ? 7 : to.getDayNumber();
+		return DateTimeUtils.startOfDay(
+				dayOfWeek(reference.toLocalDate(), day).plusDays(1), 
+				reference.getZone());
 	}
 
 	/**
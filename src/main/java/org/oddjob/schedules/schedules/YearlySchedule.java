@@ -2,6 +2,10 @@ package org.oddjob.schedules.schedules;
 
 import java.io.Serializable;
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -9,9 +13,8 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.oddjob.arooa.deploy.annotations.ArooaAttribute;
-import org.oddjob.schedules.CalendarUnit;
-import org.oddjob.schedules.CalendarUtils;
 import org.oddjob.schedules.ConstrainedSchedule;
+import org.oddjob.schedules.DateTimeUtils;
 import org.oddjob.schedules.units.Month;
 
 /**
@@ -153,18 +156,38 @@ final public class YearlySchedule extends ConstrainedSchedule implements Seriali
 	}
 
     @Override
-    protected CalendarUnit intervalBetween() {
-    	return new CalendarUnit(Calendar.YEAR, 1);
+    protected Period periodBetween() {
+    	return Period.ofYears(1);
     }
     
 	/**
 	 * Parse the day of the year.
 	 * 
 	 * @param text The day of the year
+	 * @param referenceDate A date in the year.
 	 * @param timeZone The time zone.
-	 * @return
+	 * @return A calendar for the start of the day.
+	 * 
+	 * @deprecated Use {@link #parseDay(String, LocalDate)}.
 	 */
+	@Deprecated
 	static Calendar parseDay(String text, Date referenceDate, TimeZone timeZone) 
+	throws ParseException {
+		
+		ZoneId zone = timeZone.toZoneId();
+		LocalDate day = parseDay(text, 
+				DateTimeUtils.forDate(referenceDate, zone).toLocalDate());
+		return DateTimeUtils.toCalendar(DateTimeUtils.startOfDay(day, zone));
+	}
+	
+	/**
+	 * Parse the day of the year.
+	 * 
+	 * @param text The day of the year
+	 * @param reference A date in the year.
+	 * @return The day.
+	 */
+	static LocalDate parseDay(String text, LocalDate reference) 
 	throws ParseException {
 		
 		Matcher matcher = DAY_FORMAT.matcher(text);
@@ -175,52 +198,67 @@ final public class YearlySchedule extends ConstrainedSchedule implements Seriali
 		int month = Integer.parseInt(matcher.group(1));
 		int day = Integer.parseInt(matcher.group(2));
 		
-		CalendarUtils calendarUtils = new CalendarUtils(referenceDate, timeZone);
-		return calendarUtils.dayOfYear(day, month);
+		return monthOfYear(reference, month).plusDays(day - 1);
 	}
 	
-	protected Calendar fromCalendar(Date referenceDate, TimeZone timeZone) {
+	/**
+	 * The first day of a month in the year of the reference date.
+	 * 
+	 * @param reference The reference date.
+	 * @param month The month, 1 is January.
+	 * 
+	 * @return The date.
+	 */
+	static LocalDate monthOfYear(LocalDate reference, int month) {
+		return reference.withDayOfYear(1).plusMonths(month - 1);
+	}
+	
+	private LocalDate fromDate(LocalDate reference) {
 		if (fromDate != null) {
 			try {
-				return parseDay(fromDate, referenceDate, timeZone);
+				return parseDay(fromDate, reference);
 			}
 			catch (ParseException e) {
 				throw new RuntimeException("Failed to parse from day.", e);
 			}
 		}
 		else if (fromMonth != null) {
-			return CalendarUtils.monthOfYear(referenceDate,
-					fromMonth.getMonthNumber(),
-					timeZone);
+			return monthOfYear(reference, fromMonth.getMonthNumber());
 		}
 		else {
-			return CalendarUtils.startOfYear(referenceDate, timeZone);
+			return reference.withDayOfYear(1);
 		}
 	}
 	
-	protected Calendar toCalendar(Date referenceDate, TimeZone timeZone) {
+	private LocalDate toDate(LocalDate reference) {
 	    if (toDate != null) {
 	    	try {
-		    	Calendar cal = parseDay(toDate, referenceDate, timeZone);
-		    	CalendarUtils.setEndOfDay(cal);
-			    return cal;
+		    	return parseDay(toDate, reference).plusDays(1);
 			}
 			catch (ParseException e) {
 				throw new RuntimeException("Failed to parse to day.", e);
 			}
 	    }
 	    else if (toMonth != null) {
-	    	Calendar toCal = CalendarUtils.monthOfYear(referenceDate,
-	    			toMonth.getMonthNumber(),
-	    			timeZone);
-	    	CalendarUtils.setEndOfMonth(toCal);
-	    	return toCal;
+	    	return monthOfYear(reference, toMonth.getMonthNumber()).plusMonths(1);
 	    }	    
 	    else {
-			return CalendarUtils.endOfYear(referenceDate, timeZone);
+			return reference.withDayOfYear(1).plusYears(1);
 	    }		
 	}
 	
+	@Override
+	protected ZonedDateTime fromDateTime(ZonedDateTime reference) {
+		return DateTimeUtils.startOfDay(
+				fromDate(reference.toLocalDate()), reference.getZone());
+	}
+	
+	@Override
+	protected ZonedDateTime toDateTime(ZonedDateTime reference) {
+		return DateTimeUtils.startOfDay(
+				toDate(reference.toLocalDate()), reference.getZone());
+	}
+	
 	
 	/**
 	 * Override toString.
@@ -0,0 +1,32 @@
+package org.oddjob.scheduling;
+
+/**
+ * How a {@link Timer} catches up with runs it missed, such as when Oddjob
+ * has been down. Without one, every missed run is scheduled and run in
+ * turn.
+ * 
+ * @author rob
+ *
+ */
+public enum CatchUp {
+
+	/**
+	 * Run once for all the missed runs, at the time of the latest, then
+	 * carry on as normal.
+	 */
+	ONCE,
+	
+	/**
+	 * Run only the latest missed runs. How many is given by the timer's
+	 * catchUpLimit.
+	 */
+	LATEST,
+	
+	/**
+	 * Run every missed run one after the other. The missed runs are found
+	 * together and the timer is only saved once it has caught up, so if 
+	 * Oddjob stops while catching up the runs since the timer was last 
+	 * saved will run again.
+	 */
+	BATCH,
+}
@@ -0,0 +1,158 @@
+package org.oddjob.scheduling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of how late scheduled jobs start, in milliseconds. Values are
+ * counted in fixed buckets so recording never allocates and the memory used
+ * doesn't grow. Percentiles are the upper limit of the bucket they fall in
+ * so are only as accurate as the buckets.
+ * <p>
+ * Safe to record from and read on different threads.
+ *
+ * @author rob
+ *
+ */
+public class LatenessHistogram {
+
+	/** The upper limit of each bucket, inclusive. The last is for everything else. */
+	private static final long[] LIMITS = {
+			0, 1, 2, 5, 10, 20, 50, 100, 200, 500,
+			1000, 2000, 5000, 10000, 30000,
+			60000, 300000, 600000, 3600000, Long.MAX_VALUE };
+
+	private final AtomicLongArray counts = new AtomicLongArray(LIMITS.length);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong total = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a lateness. An early start is counted as not late.
+	 *
+	 * @param millis The lateness in milliseconds.
+	 */
+	public void record(long millis) {
+
+		long lateness = Math.max(0, millis);
+
+		int i = 0;
+		while (lateness > LIMITS[i]) {
+			++i;
+		}
+		counts.incrementAndGet(i);
+		count.incrementAndGet();
+		total.addAndGet(lateness);
+		max.accumulateAndGet(lateness, Math::max);
+	}
+
+	/**
+	 * The number of times recorded.
+	 *
+	 * @return The count.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * The most late.
+	 *
+	 * @return The lateness in milliseconds, 0 if none recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * The mean lateness.
+	 *
+	 * @return The lateness in milliseconds, 0 if none recorded.
+	 */
+	public long getMean() {
+		long count = this.count.get();
+		if (count == 0) {
+			return 0;
+		}
+		return total.get() / count;
+	}
+
+	/**
+	 * Provide the lateness that the given percentage of starts were
+	 * no later than.
+	 *
+	 * @param percent The percentage, from 0 to 100.
+	 *
+	 * @return The lateness in milliseconds, 0 if none recorded.
+	 */
+	public long percentile(double percent) {
+		if (percent < 0 || percent > 100) {
+			throw new IllegalArgumentException(
+					"Percentile must be between 0 and 100, not " + percent);
+		}
+
+		long count = this.count.get();
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(count * percent / 100));
+		long seen = 0;
+		for (int i = 0; i < LIMITS.length; ++i) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(LIMITS[i], max.get());
+			}
+		}
+		return max.get();
+	}
+
+	public long getP50() {
+		return percentile(50);
+	}
+
+	public long getP90() {
+		return percentile(90);
+	}
+
+	public long getP99() {
+		return percentile(99);
+	}
+
+	/**
+	 * The number recorded in each bucket.
+	 *
+	 * @return Text with the upper limit of each bucket that has a count,
+	 * and the count.
+	 */
+	public String getBuckets() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < LIMITS.length; ++i) {
+			long bucket = counts.get(i);
+			if (bucket == 0) {
+				continue;
+			}
+			if (builder.length() > 0) {
+				builder.append(", ");
+			}
+			if (LIMITS[i] == Long.MAX_VALUE) {
+				builder.append('>').append(LIMITS[i - 1]);
+			}
+			else {
+				builder.append("<=").append(LIMITS[i]);
+			}
+			builder.append("ms: ").append(bucket);
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "Lateness: count=" + getCount() + ", mean=" + getMean() +
+				"ms, p50=" + getP50() + "ms, p99=" + getP99() +
+				"ms, max=" + getMax() + "ms";
+	}
+}
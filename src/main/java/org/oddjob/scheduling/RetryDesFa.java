@@ -42,6 +42,10 @@ class RetryDesign extends BaseDC {
 	
 	private final SimpleTextAttribute clock;
 	
+	private final SimpleTextAttribute dispatch;
+	
+	private final SimpleTextAttribute jobExecutor;
+	
 	private final SimpleDesignProperty job;
 	
 	public RetryDesign(ArooaElement element, ArooaContext parentContext) {
@@ -60,6 +64,10 @@ class RetryDesign extends BaseDC {
 		
 		clock = new SimpleTextAttribute("clock", this);
 		
+		dispatch = new SimpleTextAttribute("dispatch", this);
+		
+		jobExecutor = new SimpleTextAttribute("jobExecutor", this);
+		
 		job = new SimpleDesignProperty(
 				"job", this);
 	}
@@ -68,7 +76,7 @@ class RetryDesign extends BaseDC {
 		return new DesignProperty[] { name, 
 				schedule, timeZone, 
 				haltOn, reset, limits, 
-				clock, job };
+				clock, dispatch, jobExecutor, job };
 	}
 	
 	public Form detail() {
@@ -82,6 +90,8 @@ class RetryDesign extends BaseDC {
 					.add(reset.view().setTitle("Reset"))
 					.add(limits.view().setTitle("Limits"))
 					.add(clock.view().setTitle("Clock"))
+					.add(dispatch.view().setTitle("Dispatch"))
+					.add(jobExecutor.view().setTitle("Job Executor"))
 					.add(job.view().setTitle("Job"))
 			);
 	}
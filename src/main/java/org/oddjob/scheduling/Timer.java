@@ -62,7 +62,11 @@ import org.oddjob.values.SetJob;
  * If Oddjob is running with a persister missed executions fire immediately one
  * after the other until all missed executions have run.
  * <p>
- * This can be overridden with the <code>skipMissedRuns</code> property.
+ * This can be overridden with the <code>skipMissedRuns</code> property, or
+ * with a <code>catchUp</code> policy. A policy of ONCE runs the job once for
+ * all the missed executions, LATEST runs only the latest 
+ * <code>catchUpLimit</code> of them, and BATCH runs them all but only saves
+ * the timer once it has caught up.
  * <p>
  * If a timer is started after the initial execution time but within the interval
  * of the schedule - execution will happen immediately. Extended intervals are created
@@ -99,6 +103,14 @@ import org.oddjob.values.SetJob;
  * 
  * Nest a {@link GrabJob}.
  * 
+ * <h4>Dispatching Jobs</h4>
+ * 
+ * By default the job runs on the thread that schedules all timers, so a long
+ * job can make other timers start late. Set <code>dispatch</code>, or provide a
+ * <code>jobExecutor</code>, and the job is handed to another executor
+ * instead. How late each job started is available from the
+ * <code>lastLateness</code> and <code>lateness</code> properties.
+ * 
  * <h4>For More Information</h4>
  *
  * For more information see the Scheduling section of the User Guide.
@@ -169,6 +181,22 @@ public class Timer extends TimerBase {
 	 * @oddjob.required No.
 	 */ 
 	private boolean skipMissedRuns;
+	
+	/**
+	 * @oddjob.property 
+	 * @oddjob.description How to catch up with missed executions. One of
+	 * ONCE, LATEST or BATCH. This has no effect if skipMissedRuns is set.
+	 * @oddjob.required No, defaults to running every missed execution in turn.
+	 */ 
+	private CatchUp catchUp;
+	
+	/**
+	 * @oddjob.property 
+	 * @oddjob.description The number of the latest missed executions to run
+	 * when catchUp is LATEST.
+	 * @oddjob.required No, defaults to 1.
+	 */ 
+	private int catchUpLimit = 1;
 		
 	@Override
 	protected StateOperator getStateOp() {
@@ -188,8 +216,18 @@ public class Timer extends TimerBase {
 				(!skipMissedRuns || skipMissedRuns && currentTime.before(
 						currentInterval.getToDate()))) {
 
-			logger().info("Setting next due from value of last current property.");
-			internalSetNextDue(currentInterval.getFromDate());
+			Date from = currentInterval.getFromDate();
+			if (from.before(currentTime) && !skipMissedRuns) {
+				from = catchUp(from, currentTime);
+			}
+			
+			if (from.equals(currentInterval.getFromDate())) {
+				logger().info("Setting next due from value of last current property.");
+				internalSetNextDue(from);
+			}
+			else {
+				scheduleFrom(from);
+			}
 		}
 		else {
 			logger().info("Calculating schedule from current clock date time.");
@@ -213,6 +251,24 @@ public class Timer extends TimerBase {
 		this.skipMissedRuns = skipMissedRuns;
 	}
 
+	@Override
+	public CatchUp getCatchUp() {
+		return catchUp;
+	}
+
+	public void setCatchUp(CatchUp catchUp) {
+		this.catchUp = catchUp;
+	}
+
+	@Override
+	public int getCatchUpLimit() {
+		return catchUpLimit;
+	}
+
+	public void setCatchUpLimit(int catchUpLimit) {
+		this.catchUpLimit = catchUpLimit;
+	}
+
 
 	@Override
 	protected IntervalTo getLimits() {
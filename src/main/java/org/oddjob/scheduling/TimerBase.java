@@ -22,10 +22,15 @@ import org.oddjob.util.OddjobLockedException;
 import org.oddjob.util.Restore;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Common functionality for Timers.
@@ -69,6 +74,53 @@ abstract public class TimerBase extends ScheduleBase {
 	/** The scheduler to schedule on. */
 	private transient volatile ScheduledExecutorService scheduler;
 
+	/**
+	 * @oddjob.property
+	 * @oddjob.description Run the job on a separate executor so that the
+	 * scheduler thread only starts it. Without this the job runs on the
+	 * thread that schedules every timer, so a long job makes other timers
+	 * start late. The job runs on the jobExecutor if one is given, otherwise
+	 * on Oddjob's pool.
+	 * @oddjob.required No, defaults to false.
+	 */
+	private transient volatile boolean dispatch;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The executor to run the job on. Setting this
+	 * implies dispatch. Any {@code ExecutorService} may be used, such as a
+	 * throttle or one that uses virtual threads.
+	 * @oddjob.required No.
+	 */
+	private transient volatile ExecutorService jobExecutor;
+
+	/** Oddjob's pool, used to dispatch to when no jobExecutor is given. */
+	private transient volatile ExecutorService executorService;
+
+	/** The job dispatched to the job executor. */
+	private transient volatile Future<?> dispatched;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description How late the job last started in milliseconds. This
+	 * is the time the job actually started minus the time it was due.
+	 * @oddjob.required Read only.
+	 */
+	private transient volatile long lastLateness;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description A histogram of how late the job started for
+	 * every execution since the timer was created. It provides the count,
+	 * mean, max and percentiles such as p99 in milliseconds. It isn't
+	 * cleared on reset.
+	 * @oddjob.required Read only.
+	 */
+	private transient LatenessHistogram lateness = new LatenessHistogram();
+
+	/** Set while catching up with missed runs in a batch. */
+	private transient volatile boolean catchingUp;
+
 	/** Provided to the schedule. */
 	protected final Map<Object, Object> contextData = 
 			Collections.synchronizedMap(new HashMap<>());
@@ -116,6 +168,12 @@ abstract public class TimerBase extends ScheduleBase {
 	public void setScheduleExecutorService(ScheduledExecutorService scheduler) {
 		this.scheduler = scheduler;
 	}
+
+	@ArooaHidden
+	@Inject
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
 	
 	@Override
 	protected void begin() throws ComponentPersistException {
@@ -130,16 +188,16 @@ abstract public class TimerBase extends ScheduleBase {
 		if (clock == null) {
 			clock = new DefaultClock();
 		}
+		
+		if (dispatch && jobExecutor == null && executorService == null) {
+			throw new NullPointerException("No Executor to dispatch to.");
+		}
 	}
 	
 	protected void onStop() {
 		super.onStop();
 		
-		Future<?> future = this.future;
-		if (future != null) {
-			future.cancel(false);
-			this.future = null;
-		}	
+		cancelFutures();
 	}
 	
 	@Override
@@ -157,6 +215,8 @@ abstract public class TimerBase extends ScheduleBase {
 		nextDue = null;
 		current = null;
 		lastDue = null;
+		lastLateness = 0;
+		catchingUp = false;
 	}
 	
 
@@ -238,15 +298,30 @@ abstract public class TimerBase extends ScheduleBase {
 	 */
 	protected void CancelAndStopChild() throws FailedToStopException {
 		
+		cancelFutures();
+		
+		stop = true;
+		childHelper.stopChildren();
+		stop = false;
+	}
+	
+	/**
+	 * Cancel the scheduled execution and any job dispatched but not yet
+	 * started.
+	 */
+	private void cancelFutures() {
+		
 		Future<?> future = this.future;
 		if (future != null) {
 			future.cancel(false);
 			this.future = null;
 		}
 		
-		stop = true;
-		childHelper.stopChildren();
-		stop = false;
+		Future<?> dispatched = this.dispatched;
+		if (dispatched != null) {
+			dispatched.cancel(false);
+			this.dispatched = null;
+		}
 	}
 	
 	/**
@@ -361,8 +436,14 @@ abstract public class TimerBase extends ScheduleBase {
 			return false;
 		}
 		
-		// save the last complete.
-		save();
+		if (catchingUp && nextDue.before(getClock().getDate())) {
+			logger().debug("Catching up so not saving.");
+		}
+		else {
+			catchingUp = false;
+			// save the last complete.
+			save();
+		}
 		
 		long delay = nextDue.getTime() - getClock().getDate().getTime();
 		if (delay < 0) {
@@ -403,6 +484,59 @@ abstract public class TimerBase extends ScheduleBase {
 	    return lastDue;
 	}
 	
+	public boolean isDispatch() {
+		return dispatch;
+	}
+
+	public void setDispatch(boolean dispatch) {
+		this.dispatch = dispatch;
+	}
+
+	public ExecutorService getJobExecutor() {
+		return jobExecutor;
+	}
+
+	@ArooaAttribute
+	public void setJobExecutor(ExecutorService jobExecutor) {
+		this.jobExecutor = jobExecutor;
+	}
+
+	/**
+	 * Get how late the job last started.
+	 * 
+	 * @return The lateness in milliseconds, 0 if the job hasn't run since
+	 * the timer was reset.
+	 */
+	public long getLastLateness() {
+		return lastLateness;
+	}
+
+	/**
+	 * Get the histogram of how late the job has started.
+	 * 
+	 * @return The histogram. Never null.
+	 */
+	public LatenessHistogram getLateness() {
+		return lateness;
+	}
+	
+	/**
+	 * The executor to dispatch the job to.
+	 * 
+	 * @return The executor or null if the job is to run on the scheduler
+	 * thread.
+	 */
+	protected ExecutorService dispatchTo() {
+		ExecutorService jobExecutor = this.jobExecutor;
+		if (jobExecutor != null) {
+			return jobExecutor;
+		}
+		if (dispatch) {
+			return executorService;
+		}
+		return null;
+	}
+	
 	/**
 	 * @oddjob.property job
 	 * @oddjob.description The job to run when it's due.
@@ -443,12 +577,103 @@ abstract public class TimerBase extends ScheduleBase {
 		
     	Date use = getCurrent().getUseNext();
     	Date now = getClock().getDate();
-    	if (use != null &&  isSkipMissedRuns() && use.before(now)) {
-    		use = now;
+    	if (use != null && use.before(now)) {
+    		if (isSkipMissedRuns()) {
+    			use = now;
+    		}
+    		else if (getCatchUp() != null) {
+    			use = catchUp(use, now);
+    		}
     	}
     	
     	return scheduleFrom(use);
 	}
+	
+	/**
+	 * Apply the catch up policy to the runs missed from a date until now.
+	 * The schedule is looked ahead with its own context data so that 
+	 * schedules that keep state, such as a count, aren't changed.
+	 * 
+	 * @param date The date the timer would schedule from.
+	 * @param now The time now.
+	 * 
+	 * @return The date to schedule from. Either the same date or the
+	 * date of the earliest missed run that is to run.
+	 */
+	protected Date catchUp(Date date, Date now) {
+		
+		CatchUp catchUp = getCatchUp();
+		if (catchUp == null || catchingUp) {
+			return date;
+		}
+		
+		if (catchUp == CatchUp.BATCH) {
+			if (schedule.occurrences(lookAhead(date), now).limit(2).count() > 1) {
+				logger().info("Catching up with missed runs from " + date + ".");
+				catchingUp = true;
+			}
+			return date;
+		}
+		
+		int limit = catchUp == CatchUp.ONCE ? 1 : Math.max(1, getCatchUpLimit());
+		
+		List<ScheduleResult> first = schedule.occurrences(lookAhead(date), now)
+				.limit(limit + 1)
+				.collect(Collectors.toList());
+		if (first.size() <= limit) {
+			return date;
+		}
+		
+		Date from = earliestOfLatest(date, now, limit, 
+				first.get(limit).getFromDate().getTime() - 
+				first.get(0).getFromDate().getTime());
+		
+		logger().info("Skipping missed runs from " + date + " to " + from + ".");
+		
+		return from;
+	}
+	
+	/**
+	 * Find the earliest of the latest missed runs. Instead of going through 
+	 * every missed run from the date, the schedule is looked ahead from a 
+	 * point before now that is moved back until it finds enough runs, so the 
+	 * cost depends on the limit and not on how long the timer was down.
+	 * 
+	 * @param date The date the timer would schedule from.
+	 * @param now The time now.
+	 * @param limit How many of the latest runs to keep.
+	 * @param span How long the first runs after the date took up. Where to 
+	 * look ahead from starts this far before now.
+	 * 
+	 * @return The from date of the earliest run to keep.
+	 */
+	private Date earliestOfLatest(Date date, Date now, int limit, long span) {
+		
+		long back = Math.max(1, span);
+		while (true) {
+			long start = Math.max(date.getTime(), now.getTime() - back);
+			
+			Deque<ScheduleResult> latest = new ArrayDeque<>(limit + 1);
+			schedule.occurrences(lookAhead(new Date(start)), now)
+				.forEach(result -> {
+					latest.addLast(result);
+					if (latest.size() > limit) {
+						latest.removeFirst();
+					}
+				});
+			
+			if (latest.size() == limit || start == date.getTime()) {
+				return latest.isEmpty() ? date : latest.getFirst().getFromDate();
+			}
+			
+			back = back > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : back * 2;
+		}
+	}
+	
+	private ScheduleContext lookAhead(Date date) {
+		return new ScheduleContext(date, timeZone, 
+				new HashMap<>(), getLimits());
+	}
 
 	/**
 	 * Implementation provided by sub classes to decide what kind of reset to send
@@ -562,49 +787,96 @@ abstract public class TimerBase extends ScheduleBase {
 					return;
 				}
 				
-				Runnable job = childHelper.getChild();
-
-				if (stop) {
-					logger().info("Not Executing [" + job + "] + as we have now stopped.");
-					return;
+				ExecutorService dispatchTo = dispatchTo();
+				if (dispatchTo == null) {
+					execute();
 				}
+				else if (!stop) {
+					logger().debug("Dispatching to [" + dispatchTo + "]");
+					try {
+						dispatched = dispatchTo.submit(new Runnable() {
+							@Override
+							public void run() {
+								try (Restore restore = ComponentBoundary.push(
+										loggerName(), TimerBase.this)) {
+									execute();
+								}
+							}
+							@Override
+							public String toString() {
+								return TimerBase.this.toString();
+							}
+						});
+					}
+					catch (final RejectedExecutionException e) {
+						// Nothing will run to reschedule, so the timer must say it's failed.
+						logger().error("Failed dispatching to [" + dispatchTo + "]", e);
+						stateHandler().waitToWhen(new IsAnyState(), new Runnable() {
+							public void run() {
+								getStateChanger().setStateException(e);
+							}
+						});
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Run the job on the current thread.
+		 */
+		void execute() {
+			
+			Runnable job = childHelper.getChild();
 
-				if (job == null) {
-					logger().warn("Nothing to run. Job is null!");
-					return;
+			if (stop) {
+				logger().info("Not Executing [" + job + "] + as we have now stopped.");
+				return;
+			}
+
+			if (job == null) {
+				logger().warn("Nothing to run. Job is null!");
+				return;
+			}
+			
+			Date nextDue = TimerBase.this.nextDue;
+			
+			if (nextDue != null) {
+				long lateness = getClock().getDate().getTime() - nextDue.getTime();
+				lastLateness = lateness;
+				TimerBase.this.lateness.record(lateness);
+			}
+			
+			logger().info("Executing [" + job + "] due at " + nextDue + 
+					" (" + lastLateness + "ms late)");
+
+			lastDue = nextDue;
+			
+			stateHandler.waitToWhen(new IsAnyState(), new Runnable() {
+				@Override
+				public void run() {
+					getStateChanger().setState(TimerState.ACTIVE);
 				}
+			});
+			
+			try {
+				reset((Resettable) job);
+
+				((Stateful) job).addStateListener(
+						new RescheduleStateListener());
 				
-				logger().info("Executing [" + job + "] due at " + nextDue);
+				job.run();
 
-				lastDue = nextDue;
+				logger().info("Finished executing [" + 
+						job + "]");
 				
-				stateHandler.waitToWhen(new IsAnyState(), new Runnable() {
-					@Override
+			}
+			catch (final Exception t) {
+				logger().error("Failed running scheduled job.", t);
+				stateHandler().waitToWhen(new IsAnyState(), new Runnable() {
 					public void run() {
-						getStateChanger().setState(TimerState.ACTIVE);
+						getStateChanger().setStateException(t);
 					}
 				});
-				
-				try {
-					reset((Resettable) job);
-
-					((Stateful) job).addStateListener(
-							new RescheduleStateListener());
-					
-					job.run();
-
-					logger().info("Finished executing [" + 
-							job + "]");
-					
-				}
-				catch (final Exception t) {
-					logger().error("Failed running scheduled job.", t);
-					stateHandler().waitToWhen(new IsAnyState(), new Runnable() {
-						public void run() {
-							getStateChanger().setStateException(t);
-						}
-					});
-				}
 			}
 		}
 		
@@ -627,6 +899,24 @@ abstract public class TimerBase extends ScheduleBase {
 	
 	abstract protected boolean isSkipMissedRuns();
 
+	/**
+	 * How to catch up with missed runs. Only Timer provides one.
+	 * 
+	 * @return The catch up policy, or null to run every missed run in turn.
+	 */
+	protected CatchUp getCatchUp() {
+		return null;
+	}
+	
+	/**
+	 * How many of the latest missed runs to run with {@link CatchUp#LATEST}.
+	 * 
+	 * @return The limit.
+	 */
+	protected int getCatchUpLimit() {
+		return 1;
+	}
+
 	public ResetAction getReset() {
 		return reset;
 	}
@@ -637,4 +927,10 @@ abstract public class TimerBase extends ScheduleBase {
 	}
 	
 	abstract protected ResetAction getDefaultReset();
+	
+	private void readObject(ObjectInputStream s) 
+	throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		lateness = new LatenessHistogram();
+	}
 }
@@ -35,6 +35,10 @@ class TimerDesign extends BaseDC {
 	
 	private final SimpleTextAttribute skipMissedRuns;
 	
+	private final SimpleTextAttribute catchUp;
+	
+	private final SimpleTextAttribute catchUpLimit;
+	
 	private final SimpleTextAttribute haltOn;
 
 	private final SimpleTextAttribute reset;
@@ -43,6 +47,10 @@ class TimerDesign extends BaseDC {
 	
 	private final SimpleDesignProperty clock;
 	
+	private final SimpleTextAttribute dispatch;
+	
+	private final SimpleTextAttribute jobExecutor;
+	
 	private final SimpleDesignProperty job;
 	
 	public TimerDesign(ArooaElement element, ArooaContext parentContext) {
@@ -55,6 +63,10 @@ class TimerDesign extends BaseDC {
 		
 		skipMissedRuns = new SimpleTextAttribute("skipMissedRuns", this);
 		
+		catchUp = new SimpleTextAttribute("catchUp", this);
+		
+		catchUpLimit = new SimpleTextAttribute("catchUpLimit", this);
+		
 		haltOn = new SimpleTextAttribute("haltOn", this);
 		
 		reset = new SimpleTextAttribute("reset", this);
@@ -63,6 +75,10 @@ class TimerDesign extends BaseDC {
 		
 		clock = new SimpleDesignProperty("clock", this);
 		
+		dispatch = new SimpleTextAttribute("dispatch", this);
+		
+		jobExecutor = new SimpleTextAttribute("jobExecutor", this);
+		
 		job = new SimpleDesignProperty(
 				"job", this);
 	}
@@ -70,8 +86,8 @@ class TimerDesign extends BaseDC {
 	public DesignProperty[] children() {
 		return new DesignProperty[] { name, 
 				schedule, timeZone, skipMissedRuns, 
-				haltOn, reset, haltOnFailure, 
-				clock, job };
+				catchUp, catchUpLimit, haltOn, reset, haltOnFailure, 
+				clock, dispatch, jobExecutor, job };
 	}
 	
 	public Form detail() {
@@ -82,9 +98,13 @@ class TimerDesign extends BaseDC {
 					.add(schedule.view().setTitle("Schedule"))
 					.add(timeZone.view().setTitle("Time Zone"))
 					.add(skipMissedRuns.view().setTitle("Skip Missed Runs"))
+					.add(catchUp.view().setTitle("Catch Up"))
+					.add(catchUpLimit.view().setTitle("Catch Up Limit"))
 					.add(haltOn.view().setTitle("Halt On"))
 					.add(reset.view().setTitle("Reset"))
 					.add(clock.view().setTitle("Clock"))
+					.add(dispatch.view().setTitle("Dispatch"))
+					.add(jobExecutor.view().setTitle("Job Executor"))
 					.add(job.view().setTitle("Job"))
 					.add(haltOnFailure.view().setTitle("Depricated H.O.F."))
 			);
@@ -1,18 +1,29 @@
 package org.oddjob.script;
 
+import org.oddjob.arooa.ArooaValue;
 import org.oddjob.arooa.convert.ArooaConverter;
 import org.oddjob.arooa.convert.ConversionFailedException;
 import org.oddjob.arooa.convert.NoConversionAvailableException;
 
+import java.util.Map;
+
 /**
  * Provide {@link InvokerArguments} that will be converted using
- * an {@link ArooaConverter}.
+ * an {@link ArooaConverter}. An argument that is already of the
+ * required type, and isn't an {@link ArooaValue} that the converter
+ * might resolve, is provided as is without going to the converter.
  * 
  * @author rob
  *
  */
 public class ConvertableArguments implements InvokerArguments {
 
+	private static final Map<Class<?>, Class<?>> WRAPPERS = Map.of(
+			boolean.class, Boolean.class, byte.class, Byte.class,
+			char.class, Character.class, short.class, Short.class,
+			int.class, Integer.class, long.class, Long.class,
+			float.class, Float.class, double.class, Double.class);
+	
 	private final ArooaConverter converter;
 	
 	private final Object[] args;
@@ -30,9 +41,15 @@ public class ConvertableArguments implements InvokerArguments {
 	}
 	
 	@Override
+	@SuppressWarnings("unchecked")
 	public <T> T getArgument(int index, Class<T> type) 
 	throws NoConversionAvailableException, ConversionFailedException {
-		return converter.convert(args[index], type);
+		Object arg = args[index];
+		if (arg != null && !(arg instanceof ArooaValue) &&
+				(type.isPrimitive() ? WRAPPERS.get(type) : type).isInstance(arg)) {
+			return (T) arg;
+		}
+		return converter.convert(arg, type);
 	}
 	
 }
@@ -156,13 +156,15 @@ implements ArooaValue, ArooaSessionAware {
 			paramArray = args;
 		}
 		
-		logger.info("Invoking " + function + " with args " + 
+		if (logger.isInfoEnabled()) {
+			logger.info("Invoking " + function + " with args " + 
 					Arrays.toString(paramArray));
+		}
 		
 		Object result = source.invoke(function, 
 				new ConvertableArguments(converter, paramArray));
 		
-		logger.info("Invocation of " + function + " complete, result " + 
+		logger.info("Invocation of {} complete, result {}", function, 
 				result);
 		
 		return result;
@@ -1,7 +1,15 @@
 package org.oddjob.script;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,6 +20,11 @@ import org.oddjob.arooa.convert.Convertlet;
 
 /**
  * An {@link Invoker} for a java method.
+ * <p>
+ * The methods of a class are looked up once for each name and kept
+ * with a {@link MethodHandle} for each, so invoking the same method again,
+ * as happens for each item in a loop or on a bus, doesn't search the class
+ * again.
  * 
  * @author rob
  *
@@ -30,6 +43,23 @@ public class MethodInvoker implements Invoker {
 		}
 	}
 	
+	private static final Pattern METHOD_NAME = Pattern.compile(
+			"(static\\s+)?(\\w+)");
+	//       1            2
+	
+	/** The methods of a class by name. */
+	private static final ClassValue<ConcurrentMap<String, Methods>> METHODS = 
+			new ClassValue<ConcurrentMap<String, Methods>>() {
+		@Override
+		protected ConcurrentMap<String, Methods> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	/** The type all method handles are adapted to. */
+	private static final MethodType INVOKE_TYPE = MethodType.methodType(
+			Object.class, Object.class, Object[].class);
+	
 	private final Object target;
 	
 	/**
@@ -62,46 +92,21 @@ public class MethodInvoker implements Invoker {
 			cl = object.getClass();
 		}		
 		
-		Method[] ms = cl.getMethods();
-		
-		Method found = null;
-		Method maybe = null;
-		Object[] args = null;
+		Methods methods = METHODS.get(cl).computeIfAbsent(
+				methodName.method, n -> new Methods(cl, n));
 		
-		for (Method m: ms) {
-			if (!m.getName().equals(methodName.method)) {
-				continue;
-			}
+		Object[] args = new Object[parameters.size()];
 		
-			maybe = m;
-			
-			if (parameters.size() != m.getParameterTypes().length) {
-				continue;
-			}
-			
-			args = new Object[parameters.size()];
-			try {
-				for (int i = 0; i < args.length; ++i) {
-					args[i] = parameters.getArgument(i, 
-							m.getParameterTypes()[i]);
-				}
-			}
-			catch (ArooaConversionException e) {
-				continue;
-			}
-			
-			found = m;
-			break;
-		}
+		Candidate found = methods.find(parameters, args);
 		
 		if (found == null) {
-			if (maybe == null) {
+			if (methods.maybe == null) {
 				throw new IllegalArgumentException("No method found on [" +
 						target + "] " + name);
 			}
 			else {
 				throw new IllegalArgumentException("No method with matching args on [" +
-						target + "], There is : " + maybe);
+						target + "], There is : " + methods.maybe);
 			}
 		}
 		
@@ -114,11 +119,14 @@ public class MethodInvoker implements Invoker {
 		final boolean staticMethod;
 		
 		public MethodName(String name) {
-			Pattern pattern = Pattern.compile(
-					"(static\\s+)?(\\w+)");
-			//       1            2
 			
-			Matcher matcher = pattern.matcher(name);
+			if (isWord(name)) {
+				staticMethod = false;
+				method = name;
+				return;
+			}
+			
+			Matcher matcher = METHOD_NAME.matcher(name);
 			
 			if (!matcher.matches()) {
 				throw new IllegalArgumentException(
@@ -130,4 +138,141 @@ public class MethodInvoker implements Invoker {
 			method = matcher.group(2);
 		}
 	}
+	
+	/**
+	 * Quicker than the pattern for the usual name without static.
+	 */
+	static boolean isWord(String name) {
+		if (name.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); ++i) {
+			char c = name.charAt(i);
+			if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || 
+					c >= '0' && c <= '9' || c == '_')) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * The public methods of a class with the same name, in the order 
+	 * {@link Class#getMethods()} gives them.
+	 */
+	static class Methods {
+		
+		private final Candidate[] candidates;
+		
+		/** The last method with the name, for the error message. */
+		private final Method maybe;
+		
+		Methods(Class<?> cl, String name) {
+			
+			List<Candidate> candidates = new ArrayList<>();
+			Method maybe = null;
+			
+			for (Method m: cl.getMethods()) {
+				if (!m.getName().equals(name)) {
+					continue;
+				}
+				candidates.add(new Candidate(m));
+				maybe = m;
+			}
+			
+			this.candidates = candidates.toArray(new Candidate[0]);
+			this.maybe = maybe;
+		}
+		
+		/**
+		 * Find the first method the arguments can be converted for.
+		 * 
+		 * @param parameters The arguments.
+		 * @param args Filled with the converted arguments.
+		 * 
+		 * @return The method or null if none matched.
+		 */
+		Candidate find(InvokerArguments parameters, Object[] args) {
+			for (Candidate candidate : candidates) {
+				if (candidate.convert(parameters, args)) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * A method with what is needed to call it.
+	 */
+	static class Candidate {
+		
+		private final Method method;
+		
+		private final Class<?>[] parameterTypes;
+		
+		/** Null if the method can only be called reflectively. */
+		private final MethodHandle handle;
+		
+		Candidate(Method method) {
+			this.method = method;
+			this.parameterTypes = method.getParameterTypes();
+			this.handle = handleFor(method);
+		}
+		
+		boolean convert(InvokerArguments parameters, Object[] args) {
+			
+			if (args.length != parameterTypes.length) {
+				return false;
+			}
+			
+			try {
+				for (int i = 0; i < args.length; ++i) {
+					args[i] = parameters.getArgument(i, parameterTypes[i]);
+				}
+				return true;
+			}
+			catch (ArooaConversionException e) {
+				return false;
+			}
+		}
+		
+		Object invoke(Object object, Object[] args) 
+		throws IllegalAccessException, InvocationTargetException {
+			
+			if (handle == null) {
+				return method.invoke(object, args);
+			}
+			
+			for (int i = 0; i < args.length; ++i) {
+				if (args[i] == null && parameterTypes[i].isPrimitive()) {
+					throw new IllegalArgumentException("Argument " + i + 
+							" of " + method + " can not be null.");
+				}
+			}
+			
+			try {
+				return (Object) handle.invokeExact(object, args);
+			}
+			catch (Throwable t) {
+				throw new InvocationTargetException(t);
+			}
+		}
+		
+		static MethodHandle handleFor(Method method) {
+			try {
+				MethodHandle handle = MethodHandles.publicLookup(
+						).unreflect(method).asFixedArity();
+				if (Modifier.isStatic(method.getModifiers())) {
+					handle = MethodHandles.dropArguments(handle, 0, Object.class);
+				}
+				return handle.asSpreader(Object[].class, 
+						method.getParameterCount()).asType(INVOKE_TYPE);
+			}
+			catch (IllegalAccessException e) {
+				// Method.invoke will say why.
+				return null;
+			}
+		}
+	}
 }
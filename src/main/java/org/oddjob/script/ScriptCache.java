@@ -0,0 +1,285 @@
+package org.oddjob.script;
+
+import org.oddjob.util.CacheStatistics;
+import org.oddjob.util.ContentKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A process wide pool of script engines with their compiled scripts.
+ * <p>
+ * A compiled script belongs to the engine that compiled it and an engine
+ * holds the state of whatever ran in it, so the two are pooled together
+ * and lent to one user at a time. Scripts are keyed by language, class
+ * loader, and a hash of the script. An engine is given a new context when
+ * it is lent again so nothing is left over from the last user.
+ * <p>
+ * The engine factory for a language is also kept so that the class path
+ * isn't searched for engines each time a new engine is needed.
+ * <p>
+ * Class loaders are only held weakly by the keys, and entries for class
+ * loaders that have been collected are dropped as new entries are added.
+ *
+ * @author rob
+ */
+public class ScriptCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScriptCache.class);
+
+    public static final int DEFAULT_MAX_SCRIPTS = 100;
+
+    public static final int DEFAULT_MAX_IDLE = 4;
+
+    private static final ScriptCache INSTANCE = new ScriptCache(
+            DEFAULT_MAX_SCRIPTS, DEFAULT_MAX_IDLE);
+
+    private final int maxIdle;
+
+    /** Idle engines by script. */
+    private final Map<ContentKey, Deque<Lease>> idle;
+
+    /** Engine factories by language. */
+    private final Map<ContentKey, ScriptEngineFactory> factories;
+
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxScripts The maximum number of different scripts to keep
+     *                   engines for.
+     * @param maxIdle The maximum number of idle engines to keep for each script.
+     */
+    public ScriptCache(int maxScripts, int maxIdle) {
+        if (maxScripts < 1 || maxIdle < 1) {
+            throw new IllegalArgumentException("Max scripts and max idle must be at least 1.");
+        }
+        this.maxIdle = maxIdle;
+        this.idle = new LinkedHashMap<ContentKey, Deque<Lease>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 2024010100L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ContentKey, Deque<Lease>> eldest) {
+                if (size() > maxScripts) {
+                    eldest.getValue().forEach(lease -> statistics.recordEviction());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.factories = new LinkedHashMap<ContentKey, ScriptEngineFactory>(16, 0.75f, true) {
+            private static final long serialVersionUID = 2024010100L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ContentKey, ScriptEngineFactory> eldest) {
+                return size() > maxScripts;
+            }
+        };
+    }
+
+    /**
+     * The cache shared by the process.
+     *
+     * @return The cache. Never null.
+     */
+    public static ScriptCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Borrow an engine with the script compiled in it. The engine is the
+     * borrower's until it is released.
+     *
+     * @param language The script language.
+     * @param classLoader The class loader to find the engine with.
+     * @param script The script.
+     *
+     * @return A lease on the engine. Never null.
+     *
+     * @throws ScriptException If the script doesn't compile.
+     */
+    Lease borrow(String language, ClassLoader classLoader, String script)
+    throws ScriptException {
+
+        ContentKey key = ContentKey.of(classLoader, language,
+                script.getBytes(StandardCharsets.UTF_8));
+
+        Lease lease;
+        synchronized (idle) {
+            lease = pollIdle(key);
+        }
+
+        if (lease != null) {
+            statistics.recordHit();
+            logger.debug("Using cached script {}", key);
+            lease.renewContext();
+            return lease;
+        }
+
+        long start = System.nanoTime();
+
+        ScriptEngine engine = newEngine(language, classLoader);
+
+        CompiledScript compiled = null;
+        if (engine instanceof Compilable) {
+            compiled = ((Compilable) engine).compile(script);
+        }
+
+        long nanos = System.nanoTime() - start;
+        statistics.recordMiss(nanos);
+        logger.debug("Compiled script {} in {} ms", key, nanos / 1000000);
+
+        return new Lease(key, engine, compiled, script);
+    }
+
+    /**
+     * Give an engine back so it can be lent again. Nothing must use the
+     * engine after this.
+     *
+     * @param lease The lease.
+     */
+    void release(Lease lease) {
+        synchronized (idle) {
+            idle.keySet().removeIf(ContentKey::isCleared);
+            Deque<Lease> leases = idle.computeIfAbsent(
+                    lease.key, k -> new ArrayDeque<>());
+            if (leases.size() < maxIdle) {
+                leases.push(lease);
+            }
+            else {
+                statistics.recordEviction();
+            }
+        }
+    }
+
+    private Lease pollIdle(ContentKey key) {
+        Deque<Lease> leases = idle.get(key);
+        if (leases == null) {
+            return null;
+        }
+        return leases.poll();
+    }
+
+    private ScriptEngine newEngine(String language, ClassLoader classLoader) {
+
+        ContentKey key = ContentKey.of(classLoader, language, new byte[0]);
+
+        ScriptEngineFactory factory;
+        synchronized (factories) {
+            factory = factories.get(key);
+        }
+
+        if (factory != null) {
+            ScriptEngine engine = factory.getScriptEngine();
+            engine.setBindings(new SimpleBindings(), ScriptContext.GLOBAL_SCOPE);
+            return engine;
+        }
+
+        ScriptEngineManager manager = new ScriptEngineManager(
+                classLoader);
+
+        ScriptEngine engine = manager.getEngineByName(language);
+
+        if (engine == null) {
+            throw new IllegalArgumentException("No Script Engine for " + language);
+        }
+
+        synchronized (factories) {
+            factories.keySet().removeIf(ContentKey::isCleared);
+            factories.put(key, engine.getFactory());
+        }
+
+        return engine;
+    }
+
+    /**
+     * The number of idle engines.
+     *
+     * @return The number.
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.values().stream().mapToInt(Deque::size).sum();
+        }
+    }
+
+    /**
+     * Remove all idle engines and remembered engine factories.
+     */
+    public void clear() {
+        synchronized (idle) {
+            idle.clear();
+        }
+        synchronized (factories) {
+            factories.clear();
+        }
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": idle=" + getIdleCount() + ", " + statistics;
+    }
+
+    /**
+     * An engine lent with its script.
+     */
+    static class Lease {
+
+        private final ContentKey key;
+
+        private final ScriptEngine engine;
+
+        private final CompiledScript compiled;
+
+        private final String script;
+
+        Lease(ContentKey key, ScriptEngine engine, CompiledScript compiled,
+              String script) {
+            this.key = key;
+            this.engine = Objects.requireNonNull(engine);
+            this.compiled = compiled;
+            this.script = compiled == null ? script : null;
+        }
+
+        ScriptEngine getEngine() {
+            return engine;
+        }
+
+        Evaluatable getEvaluatable() {
+            if (compiled == null) {
+                return new NotPreCompiled(engine, new StringReader(script));
+            }
+            else {
+                return new PreCompiled(compiled);
+            }
+        }
+
+        void renewContext() {
+            ScriptContext context = new SimpleScriptContext();
+            context.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+            context.setBindings(new SimpleBindings(), ScriptContext.GLOBAL_SCOPE);
+            engine.setContext(context);
+        }
+    }
+}
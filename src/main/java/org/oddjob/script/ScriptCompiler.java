@@ -19,12 +19,18 @@ package org.oddjob.script;
 import org.oddjob.util.OddjobWrapperException;
 
 import javax.script.*;
+import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Objects;
 
 /**
  * This class is used to run Compile scripts.
+ * <p>
+ * Engines and their compiled scripts are taken from the {@link ScriptCache}
+ * so the same script is only compiled again if the engine that compiled it
+ * is in use. Call {@link #release()} when the engine is finished with so
+ * it can be used again.
  *
  */
 public class ScriptCompiler {
@@ -36,54 +42,90 @@ public class ScriptCompiler {
     
     private final ClassLoader classLoader;
     
+    private final ScriptCache cache;
+    
+    private ScriptCache.Lease lease;
+    
     /**
      * Constructor.
      * 
      * @param language The language. Default to JavaScript.
      */
     public ScriptCompiler(String language, ClassLoader classLoader) {
+        this(language, classLoader, ScriptCache.getInstance());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param language The language. Default to JavaScript.
+     * @param classLoader The class loader. Defaults to this class's.
+     * @param cache The cache to take engines from.
+     */
+    public ScriptCompiler(String language, ClassLoader classLoader,
+            ScriptCache cache) {
         this.language = Objects.requireNonNullElse(
                 language, "JavaScript");
         this.classLoader = Objects.requireNonNullElseGet(
                 classLoader, () -> getClass().getClassLoader());
-	}
-
-	public Evaluatable compileScript(String script) {
-        return compileScript(new StringReader(script));
+        this.cache = Objects.requireNonNull(cache);
     }
 
     /**
-     * Do the work.
+     * Do the work. The engine of any previous compilation is released
+     * first so nothing from that compilation must be used after this.
      */
-    public Evaluatable compileScript(Reader reader) {
+    public Evaluatable compileScript(String script) {
 
-        try {
-            ScriptEngineManager manager = new ScriptEngineManager(
-            		classLoader);
+        release();
 
-            ScriptEngine engine = manager.getEngineByName(language);
+        try {
+            ScriptCache.Lease lease = cache.borrow(
+                    language, classLoader, script);
 
-            if (engine == null) {
-                throw new IllegalArgumentException("No Script Engine for " + language);
-            }
+            ScriptEngine engine = lease.getEngine();
 
             if (engine instanceof Invocable) {
-            	invocable = (Invocable) engine;
-            }
-            
-            if (engine instanceof Compilable) {
-            	CompiledScript compiled = ((Compilable) engine).compile(
-            			reader);
-            	return new PreCompiled(compiled);
+                invocable = (Invocable) engine;
             }
             else {
-            	return new NotPreCompiled(engine, reader);
+                invocable = null;
             }
+
+            this.lease = lease;
+
+            return lease.getEvaluatable();
+
         } catch (ScriptException be) {
             throw new OddjobWrapperException(be);
         }
     }
 
+    public Evaluatable compileScript(Reader reader) {
+
+        StringWriter writer = new StringWriter();
+        try {
+            reader.transferTo(writer);
+        }
+        catch (IOException e) {
+            throw new OddjobWrapperException(e);
+        }
+        return compileScript(writer.toString());
+    }
+
+    /**
+     * Give the engine from the last compilation back to the cache. 
+     * Nothing from the compilation must be used after this.
+     */
+    public void release() {
+        ScriptCache.Lease lease = this.lease;
+        if (lease != null) {
+            this.lease = null;
+            invocable = null;
+            cache.release(lease);
+        }
+    }
+
     /**
      * The Invocable that result from the last compilation if the 
      * engine supports it. Null otherwise.
@@ -91,6 +133,6 @@ public class ScriptCompiler {
      * @return An Invocable or null.
      */
     public Invocable getInvocable() {
-    	return invocable;
+        return invocable;
     }
 }
@@ -26,6 +26,7 @@ import org.oddjob.logging.LogArchive;
 import org.oddjob.logging.LogArchiver;
 import org.oddjob.logging.LoggingOutputStream;
 import org.oddjob.logging.cache.LogArchiveImpl;
+import org.oddjob.util.CacheStatistics;
 import org.oddjob.util.OddjobConfigException;
 import org.oddjob.util.OddjobWrapperException;
 import org.slf4j.Logger;
@@ -52,6 +53,9 @@ import java.util.function.Function;
  * <p>
  * Script output is captured in a console that is visible from Oddjob Explorer
  * in addition to any output properties.
+ * <p>
+ * Compiled scripts are cached so a script that runs often is only compiled
+ * once. Each run still starts with no variables left from the last.
  *
  * @oddjob.example Hello World.
  * {@oddjob.xml.resource org/oddjob/script/ScriptHelloWorld.xml}
@@ -201,6 +205,9 @@ public class ScriptJob extends SerializableJob implements ConsoleOwner {
      */
     private transient ClassLoader classLoader;
 
+    /** Holds the engine from the last run until the next. */
+    private transient volatile ScriptCompiler compiler;
+
 
     public ScriptJob() {
         completeConstruction();
@@ -234,8 +241,11 @@ public class ScriptJob extends SerializableJob implements ConsoleOwner {
     }
 
     protected int _execute() throws IOException {
+        releaseCompiler();
+
         ScriptCompiler compiler = new ScriptCompiler(language,
                 classLoader);
+        this.compiler = compiler;
 
 		Evaluatable evaluatable;
 		if (script == null) {
@@ -313,6 +323,26 @@ public class ScriptJob extends SerializableJob implements ConsoleOwner {
         return 0;
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        releaseCompiler();
+    }
+
+    /**
+     * Give the engine from the last run back to the cache. The invocable
+     * and bindings belong to the engine so they go too.
+     */
+    private void releaseCompiler() {
+        ScriptCompiler compiler = this.compiler;
+        if (compiler != null) {
+            this.compiler = null;
+            this.invocable = null;
+            this.bindings = null;
+            compiler.release();
+        }
+    }
+
     public LogArchive consoleLog() {
         return consoleArchive;
     }
@@ -477,6 +507,18 @@ public class ScriptJob extends SerializableJob implements ConsoleOwner {
         return result;
     }
 
+    /**
+     * @oddjob.property cacheStatistics
+     * @oddjob.description Hits, misses and compile time of the cache of
+     * compiled scripts that all script jobs share.
+     * @oddjob.required Read only.
+     *
+     * @return The statistics. Never null.
+     */
+    public CacheStatistics getCacheStatistics() {
+        return ScriptCache.getInstance().getStatistics();
+    }
+
     public ClassLoader getClassLoader() {
         return classLoader;
     }
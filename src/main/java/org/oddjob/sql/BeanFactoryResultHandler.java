@@ -6,9 +6,20 @@ import org.oddjob.arooa.reflect.PropertyAccessor;
 import java.io.Flushable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link SQLResultHandler} that creates beans.
+ * <p>
+ * If <code>readAhead</code> is set the result set is read and beans
+ * are created on a separate thread while beans already read are
+ * accepted on the calling thread. The reader fills a queue of at most
+ * <code>readAhead</code> batches of rows and waits when it's full, so
+ * that no more than this is held in memory however big the result set.
  * 
  * @author rob
  *
@@ -16,9 +27,21 @@ import java.sql.SQLException;
 abstract public class BeanFactoryResultHandler 
 implements SQLResultHandler, AutoCloseable, Runnable, Flushable {
 
+	/** The default number of rows in a batch read ahead. */
+	public static final int DEFAULT_READ_AHEAD_BATCH_SIZE = 100;
+
+	/** How long to wait on the queue before checking for stop. */
+	private static final long OFFER_MILLIS = 100;
+
 	private final PropertyAccessor accessor;
 	
 	private volatile boolean stop;
+
+	/** The number of batches to read ahead. 0 to not read ahead. */
+	private volatile int readAhead;
+
+	/** The number of rows in each batch read ahead. */
+	private volatile int readAheadBatchSize = DEFAULT_READ_AHEAD_BATCH_SIZE;
 	
 	public BeanFactoryResultHandler(ArooaSession session) {
 		this.accessor = session.getTools(
@@ -40,11 +63,76 @@ implements SQLResultHandler, AutoCloseable, Runnable, Flushable {
 				dialect == null ? 
 						new BasicGenericDialect() : dialect);
 
+		if (readAhead > 0) {
+			readAhead(beanFactory);
+			return;
+		}
+
 		for (Object next = beanFactory.next(); !stop && next != null; 
 				next = beanFactory.next()) {
 			accept(next);
 		}
 	}
+
+	/**
+	 * Accept beans read on another thread. Doesn't return until that
+	 * thread has finished with the result set, so that it can be closed.
+	 */
+	private void readAhead(ResultSetBeanFactory beanFactory)
+	throws SQLException {
+
+		Reader reader = new Reader(beanFactory,
+				new ArrayBlockingQueue<>(readAhead),
+				Math.max(1, readAheadBatchSize));
+
+		Thread thread = new Thread(reader, "SQL-Result-Reader");
+		thread.setDaemon(true);
+		thread.start();
+
+		try {
+			while (!stop) {
+				Batch batch = reader.queue.poll(
+						OFFER_MILLIS, TimeUnit.MILLISECONDS);
+				if (batch == null) {
+					if (!thread.isAlive() && reader.queue.isEmpty()) {
+						throw new SQLException("Result set reader ended without a last batch.");
+					}
+					continue;
+				}
+				for (Object bean : batch.beans) {
+					if (stop) {
+						break;
+					}
+					accept(bean);
+				}
+				if (batch.last) {
+					if (batch.exception != null) {
+						throw batch.exception;
+					}
+					break;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			reader.done = true;
+			boolean interrupted = false;
+			while (true) {
+				try {
+					thread.join();
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
 	
 	@Override
 	public final void handleUpdate(int updateCount,
@@ -58,4 +146,117 @@ implements SQLResultHandler, AutoCloseable, Runnable, Flushable {
 	public void close() throws Exception {
 		stop = true;
 	}
+
+	public int getReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * Set the number of batches of rows to read ahead on a separate
+	 * thread.
+	 *
+	 * @param readAhead The number of batches. 0, the default, reads rows
+	 * on the calling thread.
+	 */
+	public void setReadAhead(int readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	public int getReadAheadBatchSize() {
+		return readAheadBatchSize;
+	}
+
+	/**
+	 * Set the number of rows in each batch read ahead.
+	 *
+	 * @param readAheadBatchSize The number of rows.
+	 */
+	public void setReadAheadBatchSize(int readAheadBatchSize) {
+		this.readAheadBatchSize = readAheadBatchSize;
+	}
+
+	/**
+	 * Rows read ahead. The last batch says why reading stopped.
+	 */
+	static class Batch {
+
+		private final List<Object> beans;
+
+		private final boolean last;
+
+		private final SQLException exception;
+
+		Batch(List<Object> beans, boolean last, SQLException exception) {
+			this.beans = beans;
+			this.last = last;
+			this.exception = exception;
+		}
+	}
+
+	/**
+	 * Reads the result set into batches.
+	 */
+	class Reader implements Runnable {
+
+		private final ResultSetBeanFactory beanFactory;
+
+		private final BlockingQueue<Batch> queue;
+
+		private final int batchSize;
+
+		/** Set when the batches are no longer wanted. */
+		private volatile boolean done;
+
+		Reader(ResultSetBeanFactory beanFactory, BlockingQueue<Batch> queue,
+				int batchSize) {
+			this.beanFactory = beanFactory;
+			this.queue = queue;
+			this.batchSize = batchSize;
+		}
+
+		@Override
+		public void run() {
+			List<Object> beans = new ArrayList<>(batchSize);
+			SQLException exception = null;
+			try {
+				for (Object next = beanFactory.next(); next != null;
+						next = beanFactory.next()) {
+					beans.add(next);
+					if (beans.size() == batchSize) {
+						if (!put(new Batch(beans, false, null))) {
+							return;
+						}
+						beans = new ArrayList<>(batchSize);
+					}
+				}
+			}
+			catch (SQLException e) {
+				exception = e;
+			}
+			catch (Throwable t) {
+				// Errors too, or the handler would wait for a last batch forever.
+				exception = new SQLException(t);
+			}
+			put(new Batch(beans, true, exception));
+		}
+
+		/**
+		 * Put a batch on the queue, waiting for space.
+		 *
+		 * @return false if the batches are no longer wanted.
+		 */
+		private boolean put(Batch batch) {
+			try {
+				while (!done && !stop) {
+					if (queue.offer(batch, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+	}
 }
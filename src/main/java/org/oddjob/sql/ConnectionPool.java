@@ -0,0 +1,665 @@
+package org.oddjob.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.oddjob.arooa.convert.ArooaConversionException;
+import org.oddjob.util.CacheStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of connections, each with a cache of prepared
+ * statements.
+ * <p>
+ * Connections and statements handed out are proxies. Closing a
+ * connection gives it back to the pool and closing a statement gives it
+ * back to its connection's cache. A connection is reset to how it was
+ * created when given back, rolling back anything not committed.
+ *
+ * @author rob
+ *
+ * @see ConnectionPoolType
+ */
+class ConnectionPool implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+	/**
+	 * Something that creates a real connection.
+	 */
+	interface ConnectionFactory {
+
+		Connection create() throws ArooaConversionException;
+	}
+
+	private final ConnectionFactory factory;
+
+	private final int statementCacheSize;
+
+	private final long maxWaitMillis;
+
+	private final long idleTimeoutMillis;
+
+	private final String validationQuery;
+
+	private final int validationTimeoutSeconds;
+
+	/** Permits to have a connection. */
+	private final Semaphore permits;
+
+	/** Idle connections, most recently used first. Guarded by itself. */
+	private final Deque<Physical> idle = new ArrayDeque<>();
+
+	private final CacheStatistics statementStatistics = new CacheStatistics();
+
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	private final AtomicLong borrowCount = new AtomicLong();
+
+	private final AtomicLong createdCount = new AtomicLong();
+
+	private final AtomicLong closedCount = new AtomicLong();
+
+	private final ScheduledExecutorService evictor;
+
+	private volatile boolean closed;
+
+	ConnectionPool(ConnectionFactory factory, int maxActive, long maxWaitMillis,
+			long idleTimeoutMillis, String validationQuery,
+			int validationTimeoutSeconds, int statementCacheSize) {
+
+		if (maxActive < 1) {
+			throw new IllegalArgumentException("Max active must be at least 1.");
+		}
+
+		this.factory = Objects.requireNonNull(factory);
+		this.permits = new Semaphore(maxActive, true);
+		this.maxWaitMillis = maxWaitMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.validationQuery = validationQuery;
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+		this.statementCacheSize = statementCacheSize;
+
+		if (idleTimeoutMillis > 0) {
+			evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "ConnectionPool-Evictor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			long period = Math.max(1, idleTimeoutMillis / 2);
+			evictor.scheduleWithFixedDelay(this::evict,
+					period, period, TimeUnit.MILLISECONDS);
+		}
+		else {
+			evictor = null;
+		}
+	}
+
+	/**
+	 * Borrow a connection, waiting if they are all in use.
+	 *
+	 * @return A connection to close when finished with. Never null.
+	 *
+	 * @throws ArooaConversionException If no connection becomes
+	 * available or one can't be created.
+	 */
+	Connection borrow() throws ArooaConversionException {
+
+		if (closed) {
+			throw new ArooaConversionException("Connection pool closed.");
+		}
+
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+				throw new ArooaConversionException(
+						"No connection available after " + maxWaitMillis + "ms.");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ArooaConversionException(e);
+		}
+		finally {
+			waitNanos.addAndGet(System.nanoTime() - start);
+		}
+
+		try {
+			Physical physical = takeIdle();
+			if (physical == null) {
+				physical = new Physical(factory.create());
+				createdCount.incrementAndGet();
+			}
+			borrowCount.incrementAndGet();
+			return physical.lease();
+		}
+		catch (ArooaConversionException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Take a valid idle connection, closing those that aren't.
+	 */
+	private Physical takeIdle() {
+		while (true) {
+			Physical physical;
+			synchronized (idle) {
+				physical = idle.pollFirst();
+			}
+			if (physical == null) {
+				return null;
+			}
+			if (physical.isValid()) {
+				return physical;
+			}
+			logger.info("Closing invalid connection {}.", physical.connection);
+			physical.closeQuietly();
+		}
+	}
+
+	/**
+	 * Give a connection back.
+	 */
+	private void release(Physical physical) {
+		try {
+			if (!closed && physical.reset()) {
+				synchronized (idle) {
+					idle.addFirst(physical);
+				}
+			}
+			else {
+				physical.closeQuietly();
+			}
+		}
+		finally {
+			permits.release();
+		}
+		if (closed) {
+			closeIdle();
+		}
+	}
+
+	/**
+	 * Close connections that have been idle too long.
+	 */
+	void evict() {
+		long cutOff = System.currentTimeMillis() - idleTimeoutMillis;
+		List<Physical> evicted = new ArrayList<>();
+		synchronized (idle) {
+			for (Iterator<Physical> it = idle.iterator(); it.hasNext(); ) {
+				Physical physical = it.next();
+				if (physical.lastUsed < cutOff) {
+					it.remove();
+					evicted.add(physical);
+				}
+			}
+		}
+		if (!evicted.isEmpty()) {
+			logger.debug("Evicting {} idle connections.", evicted.size());
+		}
+		evicted.forEach(Physical::closeQuietly);
+	}
+
+	private void closeIdle() {
+		List<Physical> all;
+		synchronized (idle) {
+			all = new ArrayList<>(idle);
+			idle.clear();
+		}
+		all.forEach(Physical::closeQuietly);
+	}
+
+	/**
+	 * Close the pool. Idle connections are closed now and connections
+	 * in use when they are given back.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		if (evictor != null) {
+			evictor.shutdownNow();
+		}
+		closeIdle();
+	}
+
+	int getActiveCount() {
+		synchronized (idle) {
+			return (int) (createdCount.get() - closedCount.get()) - idle.size();
+		}
+	}
+
+	int getIdleCount() {
+		synchronized (idle) {
+			return idle.size();
+		}
+	}
+
+	long getBorrowCount() {
+		return borrowCount.get();
+	}
+
+	long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	long getWaitMillis() {
+		return waitNanos.get() / 1000000;
+	}
+
+	CacheStatistics getStatementStatistics() {
+		return statementStatistics;
+	}
+
+	/**
+	 * A real connection and its statement cache.
+	 */
+	class Physical {
+
+		private final Connection connection;
+
+		private final boolean autoCommit;
+
+		private final int transactionIsolation;
+
+		private final boolean readOnly;
+
+		/** Statements by key, least recently used first. Guarded by itself. */
+		private final Map<List<Object>, Cached> statements;
+
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		private boolean closed;
+
+		Physical(Connection connection) throws ArooaConversionException {
+			this.connection = connection;
+			try {
+				this.autoCommit = connection.getAutoCommit();
+				this.transactionIsolation = connection.getTransactionIsolation();
+				this.readOnly = connection.isReadOnly();
+			}
+			catch (SQLException e) {
+				try {
+					connection.close();
+				}
+				catch (SQLException e2) {
+					logger.debug("Failed closing connection.", e2);
+				}
+				throw new ArooaConversionException(e);
+			}
+			this.statements = new LinkedHashMap<List<Object>, Cached>(
+					16, 0.75f, true) {
+				private static final long serialVersionUID = 2024010100L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<List<Object>, Cached> eldest) {
+					if (size() > statementCacheSize) {
+						statementStatistics.recordEviction();
+						eldest.getValue().evict();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		Connection lease() {
+			return (Connection) Proxy.newProxyInstance(
+					ConnectionPool.class.getClassLoader(),
+					new Class<?>[] { Connection.class },
+					new Lease(this));
+		}
+
+		boolean isValid() {
+			try {
+				if (validationQuery == null) {
+					return connection.isValid(validationTimeoutSeconds);
+				}
+				try (Statement stmt = connection.createStatement()) {
+					stmt.setQueryTimeout(validationTimeoutSeconds);
+					stmt.execute(validationQuery);
+				}
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+				}
+				return true;
+			}
+			catch (SQLException e) {
+				logger.debug("Connection failed validation.", e);
+				return false;
+			}
+		}
+
+		/**
+		 * Reset the connection to how it was created.
+		 *
+		 * @return false if it couldn't be.
+		 */
+		boolean reset() {
+			try {
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+				}
+				if (connection.getAutoCommit() != autoCommit) {
+					connection.setAutoCommit(autoCommit);
+				}
+				if (connection.getTransactionIsolation() != transactionIsolation) {
+					connection.setTransactionIsolation(transactionIsolation);
+				}
+				if (connection.isReadOnly() != readOnly) {
+					connection.setReadOnly(readOnly);
+				}
+				connection.clearWarnings();
+				lastUsed = System.currentTimeMillis();
+				return true;
+			}
+			catch (SQLException e) {
+				logger.info("Failed to reset connection, closing it.", e);
+				return false;
+			}
+		}
+
+		/**
+		 * Provide a statement from the cache or prepare a new one.
+		 */
+		Statement prepare(Method method, Object[] args, Connection owner)
+		throws Throwable {
+
+			List<Object> key = new ArrayList<>(args.length + 1);
+			key.add(method.getName());
+			key.addAll(Arrays.asList(args));
+
+			Cached cached;
+			synchronized (statements) {
+				cached = statements.get(key);
+				if (cached != null && !cached.inUse) {
+					cached.inUse = true;
+				}
+				else {
+					cached = null;
+				}
+			}
+
+			if (cached != null) {
+				statementStatistics.recordHit();
+				return cached.lease(owner);
+			}
+
+			long start = System.nanoTime();
+			PreparedStatement statement = (PreparedStatement) invoke(
+					connection, method, args);
+			statementStatistics.recordMiss(System.nanoTime() - start);
+
+			cached = new Cached(this, key, statement);
+			cached.inUse = true;
+			synchronized (statements) {
+				if (statementCacheSize > 0 && !statements.containsKey(key)) {
+					statements.put(key, cached);
+				}
+				else {
+					cached.evicted = true;
+				}
+			}
+			return cached.lease(owner);
+		}
+
+		void closeQuietly() {
+			List<Cached> all;
+			synchronized (statements) {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				all = new ArrayList<>(statements.values());
+				statements.clear();
+			}
+			all.forEach(Cached::evict);
+			try {
+				connection.close();
+			}
+			catch (SQLException e) {
+				logger.debug("Failed closing connection.", e);
+			}
+			closedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * A prepared statement in a cache.
+	 */
+	static class Cached {
+
+		private final Physical physical;
+
+		private final List<Object> key;
+
+		private final PreparedStatement statement;
+
+		private final int fetchSize;
+
+		private final int maxRows;
+
+		private final int queryTimeout;
+
+		/** Guarded by the physical's statements. */
+		private boolean inUse;
+
+		/** Guarded by the physical's statements. */
+		private boolean evicted;
+
+		Cached(Physical physical, List<Object> key, PreparedStatement statement)
+		throws SQLException {
+			this.physical = physical;
+			this.key = key;
+			this.statement = statement;
+			this.fetchSize = statement.getFetchSize();
+			this.maxRows = statement.getMaxRows();
+			this.queryTimeout = statement.getQueryTimeout();
+		}
+
+		Statement lease(Connection owner) {
+			Class<?> type = statement instanceof CallableStatement ?
+					CallableStatement.class : PreparedStatement.class;
+			return (Statement) Proxy.newProxyInstance(
+					ConnectionPool.class.getClassLoader(),
+					new Class<?>[] { type },
+					new StatementLease(this, owner));
+		}
+
+		/**
+		 * Give the statement back to the cache.
+		 */
+		void release() {
+			boolean keep;
+			try {
+				ResultSet resultSet = statement.getResultSet();
+				if (resultSet != null) {
+					resultSet.close();
+				}
+				statement.clearParameters();
+				statement.clearWarnings();
+				statement.setFetchSize(fetchSize);
+				statement.setMaxRows(maxRows);
+				statement.setQueryTimeout(queryTimeout);
+				keep = true;
+			}
+			catch (SQLException e) {
+				logger.debug("Failed to reset statement, closing it.", e);
+				keep = false;
+			}
+			synchronized (physical.statements) {
+				inUse = false;
+				if (keep && !evicted) {
+					return;
+				}
+				if (!evicted) {
+					physical.statements.remove(key, this);
+				}
+				evicted = true;
+			}
+			closeQuietly();
+		}
+
+		/**
+		 * No longer in the cache. Closed now unless it's in use.
+		 * Called holding the physical's statements lock.
+		 */
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				closeQuietly();
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				statement.close();
+			}
+			catch (SQLException e) {
+				logger.debug("Failed closing statement.", e);
+			}
+		}
+	}
+
+	/**
+	 * One use of a connection.
+	 */
+	class Lease implements InvocationHandler {
+
+		private final Physical physical;
+
+		private volatile boolean closed;
+
+		Lease(Physical physical) {
+			this.physical = physical;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args)
+		throws Throwable {
+
+			String name = method.getName();
+
+			switch (name) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					release(physical);
+				}
+				return null;
+			case "isClosed":
+				return closed;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Pooled " + physical.connection;
+			}
+
+			if (closed) {
+				throw new SQLException("Connection is closed.");
+			}
+
+			if ((name.equals("prepareStatement") || name.equals("prepareCall"))
+					&& isCacheable(method)) {
+				return physical.prepare(method, args, (Connection) proxy);
+			}
+
+			return ConnectionPool.invoke(physical.connection, method, args);
+		}
+
+		/**
+		 * Only statements that differ just by SQL and cursor options are
+		 * cached. Those asking for generated keys or holdability aren't.
+		 */
+		private boolean isCacheable(Method method) {
+			Class<?>[] types = method.getParameterTypes();
+			return types.length == 1 ||
+					(types.length == 3 && types[1] == int.class
+						&& types[2] == int.class);
+		}
+	}
+
+	/**
+	 * One use of a cached statement.
+	 */
+	static class StatementLease implements InvocationHandler {
+
+		private final Cached cached;
+
+		private final Connection owner;
+
+		private volatile boolean closed;
+
+		StatementLease(Cached cached, Connection owner) {
+			this.cached = cached;
+			this.owner = owner;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args)
+		throws Throwable {
+
+			switch (method.getName()) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					cached.release();
+				}
+				return null;
+			case "isClosed":
+				return closed;
+			case "getConnection":
+				return owner;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Cached " + cached.statement;
+			}
+
+			if (closed) {
+				throw new SQLException("Statement is closed.");
+			}
+
+			return ConnectionPool.invoke(cached.statement, method, args);
+		}
+	}
+
+	static Object invoke(Object target, Method method, Object[] args)
+	throws Throwable {
+		try {
+			return method.invoke(target, args);
+		}
+		catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
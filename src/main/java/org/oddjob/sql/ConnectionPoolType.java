@@ -0,0 +1,300 @@
+package org.oddjob.sql;
+
+import java.sql.Connection;
+
+import org.oddjob.arooa.convert.ArooaConversionException;
+import org.oddjob.arooa.life.ArooaLifeAware;
+import org.oddjob.util.CacheStatistics;
+
+/**
+ * @oddjob.description A pool of database connections.
+ * <p>
+ * This is a {@link ConnectionType} that gives connections back to a pool
+ * instead of closing them. The pool is created when a connection is first
+ * required and is shared by all jobs and services that reference this
+ * type, so it can be used anywhere a connection can, such as
+ * {@link SQLJob}, {@link SQLPersisterService} and {@link SQLKeeperService}.
+ * A job or service that keeps its connection, such as a keeper service,
+ * holds it until the job or service is stopped.
+ * <p>
+ * No more than <code>maxActive</code> connections are open at once. When
+ * they are all in use, a job waits up to <code>maxWait</code> for one to be
+ * given back before failing. An idle connection is checked before it is
+ * used again and is closed after being idle for <code>idleTimeout</code>.
+ * <p>
+ * Each connection keeps a cache of prepared statements so that a
+ * statement executed repeatedly, for instance by a job in a loop, is only
+ * prepared once for each connection. The pool and cache statistics are
+ * available as properties.
+ *
+ * @oddjob.example
+ *
+ * Sharing a pool between jobs.
+ *
+ * {@oddjob.xml.resource org/oddjob/sql/ConnectionPoolExample.xml}
+ *
+ * @author rob
+ *
+ */
+public class ConnectionPoolType extends ConnectionType
+implements ArooaLifeAware {
+	private static final long serialVersionUID = 2024010100L;
+
+	/** The default maximum number of connections. */
+	public static final int DEFAULT_MAX_ACTIVE = 8;
+
+	/** The default time to wait for a connection. */
+	public static final long DEFAULT_MAX_WAIT = 30000;
+
+	/** The default time before an idle connection is closed. */
+	public static final long DEFAULT_IDLE_TIMEOUT = 600000;
+
+	/** The default time for validation in seconds. */
+	public static final int DEFAULT_VALIDATION_TIMEOUT = 5;
+
+	/** The default number of statements cached for each connection. */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 50;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The maximum number of connections open at once.
+	 * @oddjob.required No, defaults to 8.
+	 */
+	private int maxActive = DEFAULT_MAX_ACTIVE;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The maximum time in milliseconds to wait for
+	 * a connection when they are all in use.
+	 * @oddjob.required No, defaults to 30 seconds.
+	 */
+	private long maxWait = DEFAULT_MAX_WAIT;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The time in milliseconds after which an unused
+	 * connection is closed. 0 to never close them.
+	 * @oddjob.required No, defaults to 10 minutes.
+	 */
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description A query used to check an idle connection before
+	 * it is used again. If not given, the driver is asked if the
+	 * connection is valid.
+	 * @oddjob.required No.
+	 */
+	private String validationQuery;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The time in seconds to wait for a connection
+	 * to be validated.
+	 * @oddjob.required No, defaults to 5 seconds.
+	 */
+	private int validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of prepared statements to cache for
+	 * each connection. The least recently used are closed when there are
+	 * more. 0 to not cache statements.
+	 * @oddjob.required No, defaults to 50.
+	 */
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+
+	/** The pool, created on first use. */
+	private transient volatile ConnectionPool pool;
+
+	@Override
+	public Connection toValue() throws ArooaConversionException {
+		return pool().borrow();
+	}
+
+	private ConnectionPool pool() {
+		ConnectionPool pool = this.pool;
+		if (pool == null) {
+			synchronized (this) {
+				pool = this.pool;
+				if (pool == null) {
+					pool = new ConnectionPool(super::toValue,
+							maxActive, maxWait, idleTimeout,
+							validationQuery, validationTimeout,
+							statementCacheSize);
+					this.pool = pool;
+				}
+			}
+		}
+		return pool;
+	}
+
+	@Override
+	public void initialised() {
+	}
+
+	@Override
+	public void configured() {
+	}
+
+	@Override
+	public void destroy() {
+		ConnectionPool pool;
+		synchronized (this) {
+			pool = this.pool;
+			this.pool = null;
+		}
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	/**
+	 * @oddjob.property activeCount
+	 * @oddjob.description The number of connections in use.
+	 *
+	 * @return The number of connections.
+	 */
+	public int getActiveCount() {
+		ConnectionPool pool = this.pool;
+		return pool == null ? 0 : pool.getActiveCount();
+	}
+
+	/**
+	 * @oddjob.property idleCount
+	 * @oddjob.description The number of connections open but not in use.
+	 *
+	 * @return The number of connections.
+	 */
+	public int getIdleCount() {
+		ConnectionPool pool = this.pool;
+		return pool == null ? 0 : pool.getIdleCount();
+	}
+
+	/**
+	 * @oddjob.property borrowCount
+	 * @oddjob.description The number of times a connection has been
+	 * provided.
+	 *
+	 * @return The count.
+	 */
+	public long getBorrowCount() {
+		ConnectionPool pool = this.pool;
+		return pool == null ? 0 : pool.getBorrowCount();
+	}
+
+	/**
+	 * @oddjob.property createdCount
+	 * @oddjob.description The number of connections that have been opened.
+	 *
+	 * @return The count.
+	 */
+	public long getCreatedCount() {
+		ConnectionPool pool = this.pool;
+		return pool == null ? 0 : pool.getCreatedCount();
+	}
+
+	/**
+	 * @oddjob.property waitMillis
+	 * @oddjob.description The total time in milliseconds spent waiting
+	 * for connections.
+	 *
+	 * @return The time.
+	 */
+	public long getWaitMillis() {
+		ConnectionPool pool = this.pool;
+		return pool == null ? 0 : pool.getWaitMillis();
+	}
+
+	/**
+	 * @oddjob.property meanWaitMillis
+	 * @oddjob.description The mean time in milliseconds spent waiting
+	 * for a connection.
+	 *
+	 * @return The time.
+	 */
+	public long getMeanWaitMillis() {
+		ConnectionPool pool = this.pool;
+		if (pool == null || pool.getBorrowCount() == 0) {
+			return 0;
+		}
+		return pool.getWaitMillis() / pool.getBorrowCount();
+	}
+
+	/**
+	 * @oddjob.property statementStatistics
+	 * @oddjob.description Hits, misses and evictions of the prepared
+	 * statement cache for all connections.
+	 *
+	 * @return The statistics. Null until the pool is used.
+	 */
+	public CacheStatistics getStatementStatistics() {
+		ConnectionPool pool = this.pool;
+		return pool == null ? null : pool.getStatementStatistics();
+	}
+
+	/**
+	 * @oddjob.property statementHitRatio
+	 * @oddjob.description The proportion of prepared statements that were
+	 * found in the cache.
+	 *
+	 * @return Between 0 and 1.
+	 */
+	public double getStatementHitRatio() {
+		ConnectionPool pool = this.pool;
+		return pool == null ? 0 : pool.getStatementStatistics().getHitRatio();
+	}
+
+	public int getMaxActive() {
+		return maxActive;
+	}
+
+	public void setMaxActive(int maxActive) {
+		this.maxActive = maxActive;
+	}
+
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public String getValidationQuery() {
+		return validationQuery;
+	}
+
+	public void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	public int getValidationTimeout() {
+		return validationTimeout;
+	}
+
+	public void setValidationTimeout(int validationTimeout) {
+		this.validationTimeout = validationTimeout;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	@Override
+	public String toString() {
+		return "Pool of " + super.toString();
+	}
+}
@@ -22,4 +22,24 @@ public interface DatabaseDialect {
 	 */
 	ResultSetExtractor resultSetExtractorFor(ResultSet resultSet)
 	throws SQLException;
+
+	/**
+	 * Provide a statement that inserts a row, or updates it if a row
+	 * with the same keys exists. Parameters are the key columns followed
+	 * by the value columns.
+	 * 
+	 * @param table The table.
+	 * @param keyColumns The primary key columns.
+	 * @param valueColumns The other columns.
+	 * @param columnTypes The SQL types of the key columns followed by
+	 * the value columns, for databases that need to be told the type
+	 * of a parameter.
+	 * 
+	 * @return The SQL or null if the database can't do this in one
+	 * statement, in which case an update then an insert are used.
+	 */
+	default String upsertSQL(String table, String[] keyColumns,
+			String[] valueColumns, String[] columnTypes) {
+		return null;
+	}
 }
@@ -0,0 +1,61 @@
+package org.oddjob.sql;
+
+/**
+ * A {@link DatabaseDialect} for HSQLDB. Results are the same as
+ * {@link BasicGenericDialect} but rows are inserted or updated with a
+ * single <code>MERGE</code>.
+ * 
+ * @author rob
+ *
+ */
+public class HSQLDialect extends BasicGenericDialect {
+
+	@Override
+	public String upsertSQL(String table, String[] keyColumns,
+			String[] valueColumns, String[] columnTypes) {
+
+		String[] columns = new String[keyColumns.length + valueColumns.length];
+		System.arraycopy(keyColumns, 0, columns, 0, keyColumns.length);
+		System.arraycopy(valueColumns, 0, columns, keyColumns.length,
+				valueColumns.length);
+
+		StringBuilder sql = new StringBuilder("MERGE INTO ");
+		sql.append(table);
+		sql.append(" USING (VALUES(");
+		for (int i = 0; i < columns.length; ++i) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append("CAST(? AS ").append(columnTypes[i]).append(")");
+		}
+		sql.append(")) AS vals(").append(String.join(", ", columns));
+		sql.append(") ON ");
+		for (int i = 0; i < keyColumns.length; ++i) {
+			if (i > 0) {
+				sql.append(" AND ");
+			}
+			sql.append(table).append(".").append(keyColumns[i]);
+			sql.append(" = vals.").append(keyColumns[i]);
+		}
+		sql.append(" WHEN MATCHED THEN UPDATE SET ");
+		for (int i = 0; i < valueColumns.length; ++i) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(table).append(".").append(valueColumns[i]);
+			sql.append(" = vals.").append(valueColumns[i]);
+		}
+		sql.append(" WHEN NOT MATCHED THEN INSERT (");
+		sql.append(String.join(", ", columns));
+		sql.append(") VALUES (");
+		for (int i = 0; i < columns.length; ++i) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append("vals.").append(columns[i]);
+		}
+		sql.append(")");
+
+		return sql.toString();
+	}
+}
@@ -1,27 +1,35 @@
 package org.oddjob.sql;
 
-import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.oddjob.arooa.registry.Path;
-import org.oddjob.persist.SerializeWithBinaryStream;
 import org.oddjob.persist.SerializeWithBytes;
 
 /**
  * An implementation {@link SQLSerializationFactory} for HSQLDB but
  * implemented in ANSI SQL so should work with most DBs.
  * <p>
- * This class is synchronised on the statements to avoid what appeared to be
- * deadlock in HSQL but no detailed investigation of this was
- * undertaken.
+ * Everything a serialization does is synchronised on one lock because the
+ * statements share a connection, and a batch write changes the connection's
+ * auto commit. Synchronising on each statement had appeared to avoid deadlock
+ * in HSQL but no detailed investigation of this was undertaken.
+ * <p>
+ * If a {@link DatabaseDialect} that provides an upsert is given, such as
+ * {@link HSQLDialect}, objects are saved with a single statement instead
+ * of an update followed by an insert.
  * 
  * @author rob
  *
@@ -30,10 +38,12 @@ public class HSQLSerializationFactory implements SQLSerializationFactory {
 
 	private String table;
 
+	private DatabaseDialect dialect;
+
 	@Override
 	public SQLSerialization createSerialization(Connection connection) 
 	throws SQLException {
-		return new HSQLSerialization(connection, table);
+		return new HSQLSerialization(connection, table, dialect);
 	}
 	
 	public void setTable(String tableName) {
@@ -43,21 +53,44 @@ public class HSQLSerializationFactory implements SQLSerializationFactory {
 	public String getTable() {
 		return table;
 	}
+
+	public DatabaseDialect getDialect() {
+		return dialect;
+	}
+
+	public void setDialect(DatabaseDialect dialect) {
+		this.dialect = dialect;
+	}
 }
 
-class HSQLSerialization implements SQLSerialization {
+class HSQLSerialization implements SQLBatchSerialization {
 	private static final Logger logger = LoggerFactory.getLogger(HSQLSerialization.class);
 	
 	private final Connection connection;
 	
 	private final PreparedStatement updateStmt;
 	private final PreparedStatement insertStmt;
+	private final PreparedStatement upsertStmt;
 	private final PreparedStatement selectStmt;
 	private final PreparedStatement deleteStmt;
 	private final PreparedStatement clearStmt;
 	private final PreparedStatement listStmt;
 
-	HSQLSerialization(Connection connection, String tableName) 
+	/** Guards the statements and the connection. */
+	private final Object lock = new Object();
+	
+	/** Rows read for a path that haven't been restored yet, so each path 
+	 * is only read once. Rows are dropped as they are restored. Guarded 
+	 * by lock. */
+	private final Map<Path, Map<String, byte[]>> restored = 
+			new HashMap<Path, Map<String, byte[]>>();
+	
+	/** Paths that have been read since they were last written. Guarded 
+	 * by lock. */
+	private final Set<Path> loaded = new HashSet<Path>();
+
+	HSQLSerialization(Connection connection, String tableName,
+			DatabaseDialect dialect) 
 	throws SQLException {
 		this.connection = connection;
 		String table = tableName;
@@ -78,8 +111,21 @@ class HSQLSerialization implements SQLSerialization {
 			this.updateStmt = connection.prepareStatement(
 					updateSQL);
 
-			String selectSQL = "select job from " + table + 
-					" where path = ? and id = ?";
+			String upsertSQL = dialect == null ? null : dialect.upsertSQL(
+					table, new String[] { "path", "id" }, 
+					new String[] { "job" }, 
+					new String[] { "VARCHAR(128)", "VARCHAR(32)", "BLOB" });
+			if (upsertSQL == null) {
+				this.upsertStmt = null;
+			}
+			else {
+				logger.debug("Preparing: " + upsertSQL);
+				this.upsertStmt = connection.prepareStatement(
+						upsertSQL);
+			}
+
+			String selectSQL = "select id, job from " + table + 
+					" where path = ?";
 			logger.debug("Preparing: " + selectSQL);
 			this.selectStmt = connection.prepareStatement(
 					selectSQL);
@@ -112,7 +158,13 @@ class HSQLSerialization implements SQLSerialization {
 	}
 	
 	@Override
-	public synchronized void close() throws SQLException {
+	public void close() throws SQLException {
+		synchronized (lock) {
+			closeAll();
+		}
+	}
+	
+	private void closeAll() throws SQLException {
 		
 		SQLException ex = null;
 		
@@ -132,6 +184,14 @@ class HSQLSerialization implements SQLSerialization {
 			}
 		}
 		
+		if (upsertStmt != null) {
+			try {
+				upsertStmt.close();
+			} catch (SQLException e) {
+				ex = e;
+			}
+		}
+		
 		if (selectStmt != null) {
 			try {
 				selectStmt.close();
@@ -180,78 +240,278 @@ class HSQLSerialization implements SQLSerialization {
 	@Override
 	public void persist(Path path, String id, Object o) throws SQLException {
 		
-		synchronized (updateStmt) {
-			byte[] bytes = new SerializeWithBytes().toBytes(o);
-	
-			logger.debug("Saving: " +  path + ", " + id + ", " + 
-					bytes.length + " bytes.");
+		byte[] bytes = new SerializeWithBytes().toBytes(o);
+		
+		logger.debug("Saving: " +  path + ", " + id + ", " + 
+				bytes.length + " bytes.");
+		
+		synchronized (lock) {
+			try {
+				if (upsertStmt != null) {
+					upsertStmt.setString(1, path.toString());
+					upsertStmt.setString(2, id);
+					upsertStmt.setBytes(3, bytes);
+					
+					upsertStmt.executeUpdate();
+					return;
+				}
+				
+				updateStmt.setBytes(1, bytes);
+				updateStmt.setString(2, path.toString());
+				updateStmt.setString(3, id);
+		
+				int count = updateStmt.executeUpdate();
+				if (count == 1) {
+					return;
+				}
+		
+				insertStmt.setString(1, path.toString());
+				insertStmt.setString(2, id);
+				insertStmt.setBytes(3, bytes);
+		
+				insertStmt.execute();
+			}
+			finally {
+				forget(path);
+			}
+		}
+	}
+
+	@Override
+	public void persistAll(Map<Path, Map<String, byte[]>> writes) 
+	throws SQLException {
+		
+		synchronized (lock) {
 			
-			updateStmt.setBytes(1, bytes);
-			updateStmt.setString(2, path.toString());
-			updateStmt.setString(3, id);
-	
-			int count = updateStmt.executeUpdate();
-			if (count == 1) {
-				return;
+			List<Path> updatePaths = new ArrayList<Path>();
+			List<String> updateIds = new ArrayList<String>();
+			List<byte[]> updateBytes = new ArrayList<byte[]>();
+			
+			boolean removes = false;
+			
+			for (Map.Entry<Path, Map<String, byte[]>> pathEntry : 
+					writes.entrySet()) {
+				
+				Path path = pathEntry.getKey();
+				
+				for (Map.Entry<String, byte[]> entry : 
+						pathEntry.getValue().entrySet()) {
+					
+					if (entry.getValue() == null) {
+						deleteStmt.setString(1, path.toString());
+						deleteStmt.setString(2, entry.getKey());
+						deleteStmt.addBatch();
+						removes = true;
+					}
+					else {
+						updatePaths.add(path);
+						updateIds.add(entry.getKey());
+						updateBytes.add(entry.getValue());
+					}
+				}
 			}
+			
+			logger.debug("Saving " + updateIds.size() + 
+					" objects in one transaction.");
+			
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				if (removes) {
+					deleteStmt.executeBatch();
+				}
+				
+				if (upsertStmt != null) {
+					for (int i = 0; i < updateIds.size(); ++i) {
+						upsertStmt.setString(1, updatePaths.get(i).toString());
+						upsertStmt.setString(2, updateIds.get(i));
+						upsertStmt.setBytes(3, updateBytes.get(i));
+						upsertStmt.addBatch();
+					}
+					if (!updateIds.isEmpty()) {
+						upsertStmt.executeBatch();
+					}
+				}
+				else if (!updateIds.isEmpty()) {
+					updateOrInsertAll(updatePaths, updateIds, updateBytes);
+				}
+				
+				connection.commit();
+			}
+			catch (SQLException e) {
+				try {
+					connection.rollback();
+				}
+				catch (SQLException e2) {
+					logger.warn("Failed rolling back.", e2);
+				}
+				throw e;
+			}
+			finally {
+				deleteStmt.clearBatch();
+				updateStmt.clearBatch();
+				insertStmt.clearBatch();
+				if (upsertStmt != null) {
+					upsertStmt.clearBatch();
+				}
+				connection.setAutoCommit(autoCommit);
+				// After the commit, or rollback, so nothing older can be read 
+				// back in the meantime.
+				for (Path path : writes.keySet()) {
+					forget(path);
+				}
+			}
+		}
+	}
 	
-			insertStmt.setString(1, path.toString());
-			insertStmt.setString(2, id);
-			insertStmt.setBytes(3, bytes);
-	
-			insertStmt.execute();
+	/**
+	 * Batch updates and then batch inserts for the rows that weren't 
+	 * there.
+	 */
+	private void updateOrInsertAll(List<Path> paths, List<String> ids, 
+			List<byte[]> bytes) throws SQLException {
+		
+		for (int i = 0; i < ids.size(); ++i) {
+			updateStmt.setBytes(1, bytes.get(i));
+			updateStmt.setString(2, paths.get(i).toString());
+			updateStmt.setString(3, ids.get(i));
+			updateStmt.addBatch();
+		}
+		
+		int[] counts = updateStmt.executeBatch();
+		
+		boolean inserts = false;
+		
+		for (int i = 0; i < ids.size(); ++i) {
+			
+			int count = counts[i];
+			if (count == Statement.SUCCESS_NO_INFO) {
+				// The driver doesn't say so update again to find out.
+				updateStmt.setBytes(1, bytes.get(i));
+				updateStmt.setString(2, paths.get(i).toString());
+				updateStmt.setString(3, ids.get(i));
+				count = updateStmt.executeUpdate();
+			}
+			if (count > 0) {
+				continue;
+			}
+			
+			insertStmt.setString(1, paths.get(i).toString());
+			insertStmt.setString(2, ids.get(i));
+			insertStmt.setBytes(3, bytes.get(i));
+			insertStmt.addBatch();
+			inserts = true;
+		}
+		
+		if (inserts) {
+			insertStmt.executeBatch();
 		}
 	}
-
+	
 	@Override
 	public Object restore(Path path, String id, 
 			ClassLoader classLoader) throws SQLException {
 
-		synchronized (selectStmt) {
-			selectStmt.setString(1, path.toString());
-			selectStmt.setString(2, id);
-
-			ResultSet rs = selectStmt.executeQuery();
-			try {
-				if (!rs.next()) {
-					return null;
+		byte[] bytes = null;
+		
+		synchronized (lock) {
+			Map<String, byte[]> ids = restored.get(path);
+			if (ids != null) {
+				bytes = ids.remove(id);
+				if (ids.isEmpty()) {
+					restored.remove(path);
+				}
+			}
+			if (bytes == null) {
+				if (loaded.add(path)) {
+					ids = readAll(path);
+					bytes = ids.remove(id);
+					if (!ids.isEmpty()) {
+						restored.put(path, ids);
+					}
 				}
+				else {
+					// Already restored, or not there, so read it again.
+					bytes = readAll(path).get(id);
+				}
+			}
+		}
+		
+		if (bytes == null) {
+			return null;
+		}
+		
+		logger.debug("Retrieved: " +  path + ", " + id + ".");
 
-				logger.debug("Retrieved: " +  path + ", " + id + ".");
+		return new SerializeWithBytes().fromBytes(bytes, classLoader);
+	}
+	
+	/**
+	 * Read everything for a path with one query.
+	 */
+	private Map<String, byte[]> readAll(Path path) throws SQLException {
+		
+		selectStmt.setString(1, path.toString());
 
-				Blob blob = rs.getBlob(1);
-				InputStream is = blob.getBinaryStream();	
-				return new SerializeWithBinaryStream().fromStream(
-						is, classLoader);
-			}
-			finally {
-				rs.close();
+		Map<String, byte[]> ids = new HashMap<String, byte[]>();
+		
+		ResultSet rs = selectStmt.executeQuery();
+		try {
+			while (rs.next()) {
+				Blob blob = rs.getBlob(2);
+				ids.put(rs.getString(1), blob.getBytes(1, (int) blob.length()));
 			}
 		}
+		finally {
+			rs.close();
+		}
+		
+		logger.debug("Read " + ids.size() + " objects for " + path + ".");
+		
+		return ids;
+	}
+	
+	/**
+	 * Forget what's been read for a path because it's changed. Called
+	 * with lock held.
+	 */
+	private void forget(Path path) {
+		restored.remove(path);
+		loaded.remove(path);
 	}
 
 	@Override
 	public void remove(Path path, String id) throws SQLException {
-		synchronized (deleteStmt) {
-			deleteStmt.setString(1, path.toString());
-			deleteStmt.setString(2, id);
-			
-			deleteStmt.executeUpdate();
+		synchronized (lock) {
+			try {
+				deleteStmt.setString(1, path.toString());
+				deleteStmt.setString(2, id);
+				
+				deleteStmt.executeUpdate();
+			}
+			finally {
+				forget(path);
+			}
 		}
 	}
 
 	@Override
 	public void clear(Path path) throws SQLException {
-		synchronized (clearStmt) {
-			clearStmt.setString(1, path.toString());
-			
-			clearStmt.executeUpdate();
+		synchronized (lock) {
+			try {
+				clearStmt.setString(1, path.toString());
+				
+				clearStmt.executeUpdate();
+			}
+			finally {
+				forget(path);
+			}
 		}
 	}	
 	
 	@Override
 	public String[] children(Path path) throws SQLException {
-		synchronized (listStmt) {
+		synchronized (lock) {
 			listStmt.setString(1, path.toString());
 			
 			ResultSet rs = listStmt.executeQuery();
@@ -60,6 +60,9 @@ public class ParameterisedExecutor implements Consumer<String>,
     /** Argument to Statement.setEscapeProcessing */
     private boolean escapeProcessing = true;
 
+    /** Argument to Statement.setFetchSize, 0 leaves it to the driver. */
+    private int fetchSize;
+
     /** Autocommit flag. Default value is false */
     private boolean autocommit = false;
     
@@ -172,13 +175,20 @@ public class ParameterisedExecutor implements Consumer<String>,
 		logger.info("Executing: " + sql);
 		++executedSQLCount;
 		
+		// Results are only ever read forwards so say so, which lets
+		// drivers stream them.
 		if (callable) {
-			statement = connection.prepareCall(sql);
+			statement = connection.prepareCall(sql,
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 		}
 		else {
-			statement = connection.prepareStatement(sql);			
+			statement = connection.prepareStatement(sql,
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 		}
         statement.setEscapeProcessing(escapeProcessing);
+        if (fetchSize != 0) {
+        	statement.setFetchSize(fetchSize);
+        }
 
 		ParameterHandler parameterHandler = getParameterHandler();
 		
@@ -392,6 +402,25 @@ public class ParameterisedExecutor implements Consumer<String>,
 		this.escapeProcessing = escapeProcessing;
 	}
 
+	/**
+	 * Getter for fetchSize.
+	 * 
+	 * @return The fetch size.
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 * Setter for fetchSize.
+	 * 
+	 * @param fetchSize The number of rows to fetch from the database at
+	 * a time. 0 leaves it to the driver.
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
 	/**
 	 * Get parameter by index.
 	 * 
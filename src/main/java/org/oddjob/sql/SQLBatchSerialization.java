@@ -0,0 +1,28 @@
+package org.oddjob.sql;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.oddjob.arooa.registry.Path;
+
+/**
+ * An {@link SQLSerialization} that can write many objects at once.
+ * Used by {@link SQLPersisterService} when it has a flush interval.
+ *
+ * @author rob
+ *
+ */
+public interface SQLBatchSerialization extends SQLSerialization {
+
+	/**
+	 * Write in one transaction.
+	 *
+	 * @param writes Objects serialized with
+	 * {@link org.oddjob.persist.SerializeWithBytes} by id by path.
+	 * Null bytes remove the id.
+	 *
+	 * @throws SQLException If the writes fail. None will have been made.
+	 */
+	public void persistAll(Map<Path, Map<String, byte[]>> writes)
+	throws SQLException;
+}
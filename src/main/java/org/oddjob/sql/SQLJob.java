@@ -94,6 +94,18 @@ import java.util.function.Consumer;
  * to an SQL query tool. {@link SQLResultsBean} allows results to be 
  * captured as beans who's properties can be used elsewhere in Oddjob.
  * 
+ * <h3>Large Results</h3>
+ * Setting <code>fetchSize</code> asks the driver to fetch that many rows
+ * at a time instead of however many it chooses, which for some drivers
+ * is the whole result set. Statements are always forward only and read
+ * only. Setting <code>readAhead</code> reads rows and creates beans on a
+ * separate thread while the results processor deals with those already
+ * read. At most <code>readAhead</code> batches of
+ * <code>readAheadBatchSize</code> rows are held so memory use doesn't
+ * grow with the size of the result set. Note that {@link SQLResultsBean}
+ * and {@link SQLResultsSheet} keep every row so aren't suitable for
+ * large results.
+ * 
  * <h3>Errors and Auto Commit</h3>
  * The <code>onError</code> property controls what to do if a statement fails.
  * By default it is ABORT. Auto commit is false by default so the changes
@@ -181,6 +193,23 @@ implements Runnable, Serializable, ArooaSessionAware, Stoppable {
 	 */
 	private transient Consumer<Object> results;
 	
+	/** 
+	 * @oddjob.property
+	 * @oddjob.description The number of batches of rows to read ahead
+	 * on a separate thread. 
+	 * @oddjob.required No, defaults to 0 which reads rows on the job's
+	 * thread. 
+	 */
+	private int readAhead;
+	
+	/** 
+	 * @oddjob.property
+	 * @oddjob.description The number of rows in each batch read ahead.
+	 * @oddjob.required No, defaults to 100. 
+	 */
+	private int readAheadBatchSize = 
+			BeanFactoryResultHandler.DEFAULT_READ_AHEAD_BATCH_SIZE;
+	
 	/** The session. */
 	private transient ArooaSession session;
 
@@ -236,7 +265,12 @@ implements Runnable, Serializable, ArooaSessionAware, Stoppable {
 
 		SQLResultHandler resultHandler =
 				Optional.ofNullable(results)
-				.<SQLResultHandler>map(r -> new SQLResultsBus(r, session))
+				.<SQLResultHandler>map(r -> {
+					SQLResultsBus bus = new SQLResultsBus(r, session);
+					bus.setReadAhead(readAhead);
+					bus.setReadAheadBatchSize(readAheadBatchSize);
+					return bus;
+				})
 				.orElseGet(DefaultResultsHandler::new);
 
 		executor.setResultProcessor(resultHandler);
@@ -295,6 +329,22 @@ implements Runnable, Serializable, ArooaSessionAware, Stoppable {
 		this.results = results;
 	}
 	
+	public int getReadAhead() {
+		return readAhead;
+	}
+
+	public void setReadAhead(int readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	public int getReadAheadBatchSize() {
+		return readAheadBatchSize;
+	}
+
+	public void setReadAheadBatchSize(int readAheadBatchSize) {
+		this.readAheadBatchSize = readAheadBatchSize;
+	}
+	
 	////////////////////////////////////////////////////
 	// Parser properties
 	
@@ -521,6 +571,31 @@ implements Runnable, Serializable, ArooaSessionAware, Stoppable {
     	return executor.isEscapeProcessing();
     }
 
+	/** 
+	 * @oddjob.property fetchSize
+	 * @oddjob.description 
+     * The number of rows to fetch from the database at a time. See the 
+     * java doc for <code>Statement.setFetchSize</code> for more 
+     * information. Some drivers need other settings too before they will
+     * stream results, such as <code>autocommit</code> being false. 
+     * 
+	 * @oddjob.required No, defaults to 0 which leaves it to the driver. 
+	 * 
+     * @param fetchSize The number of rows.
+     */
+    public void setFetchSize(int fetchSize) {
+        executor.setFetchSize(fetchSize);
+    }
+ 
+    /**
+     * Getter for fetchSize.
+     * 
+     * @return
+     */
+    public int getFetchSize() {
+    	return executor.getFetchSize();
+    }
+
 	/** 
 	 * @oddjob.property dialect
 	 * @oddjob.description Allows a {@link DatabaseDialect} to be provided 
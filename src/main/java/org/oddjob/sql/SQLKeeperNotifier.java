@@ -0,0 +1,34 @@
+package org.oddjob.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.oddjob.util.Restore;
+
+/**
+ * Something that can tell an {@link SQLKeeperService} that a row in its
+ * table may have been completed, so that loosing outcomes are polled
+ * straight away instead of waiting for the next poll. How this is done
+ * depends on what the database allows, for instance a trigger or
+ * listening for a notification.
+ *
+ * @author rob
+ *
+ */
+public interface SQLKeeperNotifier {
+
+	/**
+	 * Start listening for changes.
+	 *
+	 * @param connection The keeper service's connection.
+	 * @param table The keeper service's table.
+	 * @param listener Called when a row may have changed. May be called
+	 * from any thread and may be called when nothing has been completed.
+	 *
+	 * @return Something to stop listening. Never null.
+	 *
+	 * @throws SQLException If listening can't be started.
+	 */
+	Restore listen(Connection connection, String table, Runnable listener)
+	throws SQLException;
+}
@@ -33,6 +33,7 @@ import org.oddjob.state.JobState;
 import org.oddjob.state.StateEvent;
 import org.oddjob.state.JobStateHandler;
 import org.oddjob.state.StateListener;
+import org.oddjob.util.Restore;
 
 /**
  * @oddjob.description Provides a {@link Keeper} that uses a database 
@@ -50,6 +51,12 @@ import org.oddjob.state.StateListener;
  * state. This could be used by loosing servers to flag the winner is taking
  * too long and has possibly crashed.
  * <p>
+ * All the loosing outcomes of the service are polled together with one
+ * query. Polling starts at the <code>minPollInterval</code> and backs off
+ * while nothing completes, but is never later than a loosing outcome's
+ * poll schedule. Work completed by this service, or that a
+ * <code>notifier</code> says may be complete, is polled for straight away.
+ * <p>
  * This is an example of the SQL that would create a suitable table.
  * 
  * <pre><code>
@@ -76,6 +83,12 @@ public class SQLKeeperService {
 
 	/** The default table name. */
 	public static final String TABLE_NAME = "oddjob_grabbable";
+	
+	/** The default minimum poll interval. */
+	public static final long DEFAULT_MIN_POLL_INTERVAL = 500L;
+	
+	/** The most keys and instances to query in one statement. */
+	private static final int MAX_QUERY_BATCH = 100;
 		
 	/** 
 	 * @oddjob.property
@@ -112,6 +125,22 @@ public class SQLKeeperService {
 	 */
 	private Schedule pollSchedule;
 	
+	/** 
+	 * @oddjob.property
+	 * @oddjob.description The shortest time between polls in milliseconds.
+	 * Polling backs off from this while nothing completes.
+	 * @oddjob.required No - defaults to 500. 
+	 */
+	private volatile long minPollInterval = DEFAULT_MIN_POLL_INTERVAL;
+	
+	/** 
+	 * @oddjob.property
+	 * @oddjob.description Something that can tell the service when work
+	 * may have been completed by another server, if the database allows it.
+	 * @oddjob.required No. 
+	 */
+	private SQLKeeperNotifier notifier;
+	
 	/** Flag to indicate service is running. */
 	private volatile boolean running;
 	
@@ -119,6 +148,12 @@ public class SQLKeeperService {
 	private final List<ALoosingOutcome> loosers = 
 		new ArrayList<ALoosingOutcome>();
 	
+	/** Polls for all the loosers. */
+	private final Poller poller = new Poller();
+	
+	/** Stops listening to the notifier. */
+	private Restore notifierRestore;
+	
 	/**
 	 * Set up a default poll schedule.
 	 */
@@ -142,6 +177,10 @@ public class SQLKeeperService {
 		}		
 		
 		running = true;
+		
+		if (notifier != null) {
+			notifierRestore = notifier.listen(connection, table, poller::poke);
+		}
 	}
 	
 	/**
@@ -153,6 +192,13 @@ public class SQLKeeperService {
 		
 		running = false;
 		
+		if (notifierRestore != null) {
+			notifierRestore.close();
+			notifierRestore = null;
+		}
+		
+		poller.cancel();
+		
 		while (true){
 			ALoosingOutcome looser = null;
 			synchronized (loosers) {
@@ -295,6 +341,9 @@ public class SQLKeeperService {
 			catch (SQLException e) {
 				throw new RuntimeException(e);
 			}
+			
+			// Loosers in this service needn't wait.
+			poller.poke();
 		}
 	}
 	
@@ -344,93 +393,183 @@ public class SQLKeeperService {
 	}
 
 	/**
-	 * Encapsulate Polling.
+	 * Polls the database for all the loosing outcomes at once. Polls
+	 * back off while nothing completes but are never later than
+	 * the next loosing outcome due to be polled by its schedule.
 	 */
-	class Poll implements Runnable {
-
-		private final ALoosingOutcome loosing;
-		
-		private final String keeperKey;
+	class Poller implements Runnable {
 		
-		private final Object instanceIdentifier;
+		/** The delay to the next poll if nothing completes. */
+		private long backOff;
 		
-		private volatile Future<?> future;
+		/** The next poll. */
+		private Future<?> future;
 		
-		private volatile ScheduleContext scheduleContext =
-			new ScheduleContext(new Date());
+		/** When the next poll is. */
+		private long nextPollTime;
 		
-		public Poll(ALoosingOutcome loosing, 
-				String keeperKey,
-				Object instanceIdentifier) {
-			this.loosing = loosing;
-			this.keeperKey = keeperKey;
-			this.instanceIdentifier = instanceIdentifier;
-		}
+		private volatile long pollCount;
 		
 		@Override
 		public void run() {
+			
+			List<ALoosingOutcome> polling;
 			synchronized (loosers) {
-				loosers.remove(loosing);
+				future = null;
+				polling = new ArrayList<ALoosingOutcome>(loosers);
 			}
 			
-			try {
-				Query query = new Query(keeperKey, instanceIdentifier);
-				query.query();
-				
-				if (query.isComplete()) {
-					loosing.stateHandler.waitToWhen(new IsAnyState(), 
-							new Runnable() {
-						public void run() {
-							loosing.stateHandler.setState(JobState.COMPLETE);
-							loosing.stateHandler.fireEvent();
-						}
-					});
+			boolean completed = false;
+			
+			// Only one poll at a time.
+			synchronized (this) {
+				boolean[] complete;
+				try {
+					complete = queryComplete(polling);
+				}
+				catch (SQLException e) {
+					logger.error("Failed to Poll Keeper.", e);
+					// A failed poll still uses up the schedules, so loosers time out.
+					complete = new boolean[polling.size()];
 				}
-				else {
-					ScheduleResult nextDue = pollSchedule.nextDue(scheduleContext);
-					if (nextDue == null) {
-						loosing.stateHandler.waitToWhen(new IsAnyState(), 
-								new Runnable() {
-							public void run() {
-								loosing.stateHandler.setStateException(
-										JobState.EXCEPTION,
-										new Exception("Job failed to complete " +
-												"in expected time."));
-								loosing.stateHandler.fireEvent();
-							}
-						});
+
+				// Anything due before the soonest next poll is polled now.
+				long horizon = System.currentTimeMillis() + minPollInterval;
+				
+				for (int i = 0; i < complete.length; ++i) {
+					ALoosingOutcome looser = polling.get(i);
+					if (complete[i]) {
+						looser.complete();
+						completed = true;
 					}
-					else {
-						scheduleContext = scheduleContext.move(
-								new IntervalTo(nextDue).getToDate());
-						long delay = nextDue.getToDate().getTime() - 
-							new Date().getTime();
-						if (delay <= 0) {
-							delay = 0;
-						}
-						synchronized (loosers) {
-							if (running) {
-								this.future = 
-										scheduler.schedule(this, delay, 
-												TimeUnit.MILLISECONDS);
-								loosers.add(loosing);
-							}
+					else if (looser.due <= horizon) {
+						looser.nextPoll();
+					}
+				}
+			}
+			
+			synchronized (loosers) {
+				if (completed) {
+					backOff = minPollInterval;
+				}
+				else if (backOff < Long.MAX_VALUE / 2) {
+					backOff = Math.max(minPollInterval, backOff * 2);
+				}
+				schedule(backOff);
+			}
+		}
+		
+		private boolean[] queryComplete(List<ALoosingOutcome> polling) 
+		throws SQLException {
+			
+			boolean[] complete = new boolean[polling.size()];
+			
+			for (int from = 0; from < polling.size(); from += MAX_QUERY_BATCH) {
+				
+				List<ALoosingOutcome> batch = polling.subList(from, 
+						Math.min(polling.size(), from + MAX_QUERY_BATCH));
+				
+				List<String> keeperKeys = new ArrayList<String>(batch.size());
+				List<Object> instanceIdentifiers = new ArrayList<Object>(batch.size());
+				for (ALoosingOutcome looser : batch) {
+					keeperKeys.add(looser.keeperKey);
+					instanceIdentifiers.add(looser.instanceIdentifier);
+				}
+				
+				++pollCount;
+				
+				PreparedStatement queryStmt = createBatchQueryStatementFor(
+						connection, keeperKeys, instanceIdentifiers);
+				try {
+					ResultSet rs = queryStmt.executeQuery();
+					while (rs.next()) {
+						if (rs.getBoolean(2)) {
+							complete[from + rs.getInt(1)] = true;
 						}
 					}
 				}
+				finally {
+					queryStmt.close();
+				}
 			}
-			catch (SQLException e) {
-				logger.error("Failed to Poll Keeper.", e);
+			
+			logger.debug("Polled for " + polling.size() + " loosers.");
+			
+			return complete;
+		}
+		
+		/**
+		 * Poll straight away because something may have completed.
+		 */
+		void poke() {
+			synchronized (loosers) {
+				backOff = minPollInterval;
+				if (running && !loosers.isEmpty()) {
+					scheduleAt(System.currentTimeMillis());
+				}
 			}
-		}		
+		}
 		
-		private void stop() {
+		/**
+		 * A looser has been added.
+		 */
+		void added() {
+			synchronized (loosers) {
+				backOff = minPollInterval;
+				schedule(backOff);
+			}
+		}
+		
+		/**
+		 * Stop polling.
+		 */
+		void cancel() {
+			synchronized (loosers) {
+				if (future != null) {
+					future.cancel(false);
+					future = null;
+				}
+			}
+		}
+		
+		/**
+		 * Schedule the next poll after a delay, or sooner if a looser is
+		 * due. Called holding the loosers lock.
+		 * 
+		 * @param delay The delay.
+		 */
+		private void schedule(long delay) {
+			if (!running || loosers.isEmpty()) {
+				return;
+			}
+			
+			long now = System.currentTimeMillis();
+			long when = now + delay;
+			for (ALoosingOutcome looser : loosers) {
+				when = Math.min(when, looser.due);
+			}
+			
+			scheduleAt(Math.max(when, now + minPollInterval));
+		}
+		
+		/**
+		 * Schedule the next poll unless one is already sooner. Called
+		 * holding the loosers lock.
+		 * 
+		 * @param when The time of the poll.
+		 */
+		private void scheduleAt(long when) {
 			if (future != null) {
+				if (nextPollTime <= when) {
+					return;
+				}
 				future.cancel(false);
-				future = null;
 			}
+			nextPollTime = when;
+			future = scheduler.schedule(this, 
+					Math.max(0, when - System.currentTimeMillis()), 
+					TimeUnit.MILLISECONDS);
 		}
-
 	}
 	
 	/**
@@ -441,17 +580,25 @@ public class SQLKeeperService {
 		
 		private final String winner;
 		
+		private final String keeperKey;
+		
+		private final Object instanceIdentifier;
+		
 		private final JobStateHandler stateHandler = 
 			new JobStateHandler(this);
 
-		private final Poll poll;
+		private volatile ScheduleContext scheduleContext =
+			new ScheduleContext(new Date());
+		
+		/** When the poll schedule says this must next be polled. */
+		private volatile long due;
 		
 		public ALoosingOutcome(String winner, String keeperKey,
 				Object instanceIdentifier) {
 			
 			this.winner = winner;
-			
-			poll = new Poll(this, keeperKey, instanceIdentifier);
+			this.keeperKey = keeperKey;
+			this.instanceIdentifier = instanceIdentifier;
 		}
 		
 		@Override
@@ -464,7 +611,7 @@ public class SQLKeeperService {
 						stateHandler.setState(JobState.EXECUTING);
 					}
 				});
-				poll.run();
+				startPolling();
 			}
 			stateHandler.addStateListener(listener);
 		}
@@ -475,8 +622,10 @@ public class SQLKeeperService {
 			if (stateHandler.listenerCount() == 0) {
 				synchronized (loosers) {
 					loosers.remove(this);
+					if (loosers.isEmpty()) {
+						poller.cancel();
+					}
 				}
-				poll.stop();
 			}
 		}
 		
@@ -485,8 +634,76 @@ public class SQLKeeperService {
 			return stateHandler.lastStateEvent();
 		}
 		
+		/**
+		 * Check straight away, then leave it to the poller.
+		 */
+		private void startPolling() {
+			try {
+				Query query = new Query(keeperKey, instanceIdentifier);
+				query.query();
+				
+				if (query.isComplete()) {
+					complete();
+					return;
+				}
+			}
+			catch (SQLException e) {
+				logger.error("Failed to Poll Keeper.", e);
+			}
+			
+			if (nextPoll()) {
+				synchronized (loosers) {
+					if (running) {
+						loosers.add(this);
+						poller.added();
+					}
+				}
+			}
+		}
+		
+		private void complete() {
+			synchronized (loosers) {
+				loosers.remove(this);
+			}
+			stateHandler.waitToWhen(new IsAnyState(), 
+					new Runnable() {
+				public void run() {
+					stateHandler.setState(JobState.COMPLETE);
+					stateHandler.fireEvent();
+				}
+			});
+		}
+		
+		/**
+		 * Move on to the next poll in the schedule.
+		 * 
+		 * @return false if the schedule has finished.
+		 */
+		private boolean nextPoll() {
+			ScheduleResult nextDue = pollSchedule.nextDue(scheduleContext);
+			if (nextDue == null) {
+				synchronized (loosers) {
+					loosers.remove(this);
+				}
+				stateHandler.waitToWhen(new IsAnyState(), 
+						new Runnable() {
+					public void run() {
+						stateHandler.setStateException(
+								JobState.EXCEPTION,
+								new Exception("Job failed to complete " +
+										"in expected time."));
+						stateHandler.fireEvent();
+					}
+				});
+				return false;
+			}
+			scheduleContext = scheduleContext.move(
+					new IntervalTo(nextDue).getToDate());
+			due = nextDue.getToDate().getTime();
+			return true;
+		}
+		
 		private void stop() {
-			poll.stop();
 			stateHandler.waitToWhen(new IsStoppable(), 
 					new Runnable() {
 				public void run() {
@@ -535,6 +752,17 @@ public class SQLKeeperService {
 		return loosers.size();
 	}
 	
+	/**
+	 * @oddjob.property pollCount
+	 * @oddjob.description The number of queries made to poll for loosing 
+	 * outcomes.
+	 * 
+	 * @return The number.
+	 */
+	public long getPollCount() {
+		return poller.pollCount;
+	}
+	
 	/**
 	 * Provide a PreparedStatement for the insert operation.
 	 * 
@@ -587,6 +815,43 @@ public class SQLKeeperService {
 		return queryStmt;
 	}
 	
+	/**
+	 * Create the PreparedStatement to query if the work for many keeper
+	 * keys and instances is complete. The first column of the result
+	 * must be the index of the key and instance in the lists and the
+	 * second if the work is complete. A key and instance with no row
+	 * needn't be in the result.
+	 * 
+	 * @param connection
+	 * @param keeperKeys
+	 * @param instanceIdentifiers
+	 * @return
+	 * @throws SQLException
+	 */
+	protected PreparedStatement createBatchQueryStatementFor(Connection connection, 
+			List<String> keeperKeys, List<Object> instanceIdentifiers) 
+	throws SQLException {
+		
+		StringBuilder sql = new StringBuilder();
+		for (int i = 0; i < keeperKeys.size(); ++i) {
+			if (i > 0) {
+				sql.append(" union all ");
+			}
+			sql.append("select " + i + ", complete from " + getTable() + 
+					" where key = ? and instance = ?");
+		}
+		
+		PreparedStatement queryStmt = connection.prepareStatement(
+				sql.toString());
+		
+		for (int i = 0; i < keeperKeys.size(); ++i) {
+			queryStmt.setString(2 * i + 1, keeperKeys.get(i));
+			queryStmt.setObject(2 * i + 2, instanceIdentifiers.get(i));
+		}
+		
+		return queryStmt;
+	}
+	
 	/**
 	 * Create the PreparedStatemenet for updating won work is
 	 * complete.
@@ -626,6 +891,22 @@ public class SQLKeeperService {
 		this.pollSchedule = schedule;
 	}
 
+	public long getMinPollInterval() {
+		return minPollInterval;
+	}
+
+	public void setMinPollInterval(long minPollInterval) {
+		this.minPollInterval = minPollInterval;
+	}
+
+	public SQLKeeperNotifier getNotifier() {
+		return notifier;
+	}
+
+	public void setNotifier(SQLKeeperNotifier notifier) {
+		this.notifier = notifier;
+	}
+
 	@Inject
 	public void setScheduleExecutorService(ScheduledExecutorService scheduler) {
 		this.scheduler = scheduler;
@@ -5,6 +5,13 @@ package org.oddjob.sql;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +19,7 @@ import org.oddjob.arooa.life.ComponentPersistException;
 import org.oddjob.arooa.registry.Path;
 import org.oddjob.persist.OddjobPersister;
 import org.oddjob.persist.PersisterBase;
+import org.oddjob.persist.SerializeWithBytes;
 
 /**
  * @oddjob.description Persists job state to a database. The database must
@@ -23,6 +31,17 @@ import org.oddjob.persist.PersisterBase;
  *   job BLOB, 
  *  CONSTRAINT oddjob_pk PRIMARY KEY (path, id))
  * </pre></code>
+ * <p>
+ * By default each component is saved as its state changes. With many
+ * components, such as a large {@link org.oddjob.jobs.structural.ForEachJob},
+ * this is a lot of small transactions. If a <code>flushInterval</code> is
+ * set, components are serialized as their state changes but are only
+ * written every interval, in batches in one transaction. A component
+ * that changes many times in an interval is only written once. Anything
+ * not written is written when the service stops. To save with a single
+ * statement instead of an update then an insert, provide a
+ * {@link DatabaseDialect} such as {@link HSQLDialect} to the
+ * {@link HSQLSerializationFactory}.
  * 
  * @oddjob.example
  * 
@@ -62,9 +81,37 @@ public class SQLPersisterService {
 	 */
 	private SQLSerializationFactory serializationFactory;
 	
+	/** 
+	 * @oddjob.property
+	 * @oddjob.description The time in milliseconds between writing
+	 * batches of components. 0 writes each component straight away.
+	 * @oddjob.required No, defaults to 0. 
+	 */
+	private long flushInterval;
+	
+	/** 
+	 * @oddjob.property scheduleExecutorService
+	 * @oddjob.description The scheduling service for writing batches.
+	 * @oddjob.required No - provided by Oddjob. 
+	 */
+	private ScheduledExecutorService scheduler;
+	
 	/**	The actual serialization. */
 	private volatile SQLSerialization serialization;
 	
+	/** The serialization when writing in batches, otherwise null. */
+	private volatile SQLBatchSerialization batchSerialization;
+	
+	/** Serialized components waiting to be written. Null bytes are
+	 * removals. Guarded by itself. */
+	private final Map<Path, Map<String, byte[]>> pending = 
+			new LinkedHashMap<>();
+	
+	/** Only one flush at a time. */
+	private final Object flushLock = new Object();
+	
+	private volatile ScheduledFuture<?> flushFuture;
+	
 	public void start() throws SQLException {
 		
 		if (serializationFactory == null) {
@@ -72,12 +119,98 @@ public class SQLPersisterService {
 		}
 		
 		serialization = serializationFactory.createSerialization(connection);
+		
+		if (flushInterval > 0) {
+			if (serialization instanceof SQLBatchSerialization) {
+				if (scheduler == null) {
+					throw new NullPointerException("No Scheduler.");
+				}
+				batchSerialization = (SQLBatchSerialization) serialization;
+				flushFuture = scheduler.scheduleWithFixedDelay(
+						this::scheduledFlush, flushInterval, flushInterval, 
+						TimeUnit.MILLISECONDS);
+			}
+			else {
+				logger.warn("Serialization " + serialization + 
+						" can't write in batches. Writing straight away.");
+			}
+		}
 	}
 	
 	public void stop() throws SQLException {
+		ScheduledFuture<?> flushFuture = this.flushFuture;
+		if (flushFuture != null) {
+			flushFuture.cancel(false);
+			this.flushFuture = null;
+		}
 		if (serialization != null) {
-			serialization.close();
-			serialization = null;
+			try {
+				flush();
+			}
+			finally {
+				batchSerialization = null;
+				serialization.close();
+				serialization = null;
+			}
+		}
+	}
+	
+	/**
+	 * Write any components waiting to be written.
+	 * 
+	 * @throws SQLException If writing fails. The components will be 
+	 * written with the next flush.
+	 */
+	public void flush() throws SQLException {
+		
+		SQLBatchSerialization batchSerialization = this.batchSerialization;
+		if (batchSerialization == null) {
+			return;
+		}
+		
+		synchronized (flushLock) {
+			
+			Map<Path, Map<String, byte[]>> writes;
+			synchronized (pending) {
+				if (pending.isEmpty()) {
+					return;
+				}
+				writes = new LinkedHashMap<>(pending);
+				pending.clear();
+			}
+			
+			try {
+				batchSerialization.persistAll(writes);
+			}
+			catch (SQLException | RuntimeException e) {
+				// Put them back unless there's been a more recent change. A 
+				// more recent removal is a null so putIfAbsent won't do.
+				synchronized (pending) {
+					for (Map.Entry<Path, Map<String, byte[]>> entry : 
+							writes.entrySet()) {
+						Map<String, byte[]> ids = pending.computeIfAbsent(
+								entry.getKey(), k -> new LinkedHashMap<>());
+						for (Map.Entry<String, byte[]> write : 
+								entry.getValue().entrySet()) {
+							if (!ids.containsKey(write.getKey())) {
+								ids.put(write.getKey(), write.getValue());
+							}
+						}
+					}
+				}
+				throw e;
+			}
+			
+			logger.debug("Flushed " + writes.size() + " paths to database.");
+		}
+	}
+	
+	private void scheduledFlush() {
+		try {
+			flush();
+		}
+		catch (SQLException | RuntimeException e) {
+			logger.error("Failed writing batch, will try again.", e);
 		}
 	}
 	
@@ -107,6 +240,19 @@ public class SQLPersisterService {
 		this.serializationFactory = serializationFactory;
 	}
 
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	@Inject
+	public void setScheduleExecutorService(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+	}
+
 	/** 
 	 * @oddjob.property persister
 	 * @oddjob.description The persister.
@@ -140,6 +286,11 @@ public class SQLPersisterService {
 				throw new IllegalStateException("Persister Service Not Started.");
 			}
 
+			if (batchSerialization != null) {
+				later(path, id, new SerializeWithBytes().toBytes(o));
+				return;
+			}
+			
 			try {
 				serialization.persist(path, id, o);
 
@@ -163,6 +314,7 @@ public class SQLPersisterService {
 			}
 
 			try {
+				flush();
 				return serialization.restore(path, id, classLoader);
 			}
 			catch (SQLException e) {
@@ -178,6 +330,7 @@ public class SQLPersisterService {
 			}
 
 			try {
+				flush();
 				return serialization.children(path);
 			}
 			catch (SQLException e) {
@@ -193,6 +346,11 @@ public class SQLPersisterService {
 				throw new IllegalStateException("Persister Service Not Started.");
 			}
 
+			if (batchSerialization != null) {
+				later(path, id, null);
+				return;
+			}
+			
 			try {
 				serialization.remove(path, id);
 			}
@@ -209,6 +367,7 @@ public class SQLPersisterService {
 			}
 
 			try {
+				flush();
 				serialization.clear(path);
 			}
 			catch (SQLException e) {
@@ -216,6 +375,16 @@ public class SQLPersisterService {
 			}		
 		}
 		
+		/**
+		 * Keep a write for the next flush.
+		 */
+		private void later(Path path, String id, byte[] bytes) {
+			synchronized (pending) {
+				pending.computeIfAbsent(path, k -> new LinkedHashMap<>()
+						).put(id, bytes);
+			}
+		}
+		
 		@Override
 		public String toString() {
 			return getClass().getSimpleName();
@@ -0,0 +1,130 @@
+package org.oddjob.state.expr;
+
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed {@link StateExpression}s keyed by the expression text.
+ * Parsing with ANTLR is relatively expensive and expressions used in triggers are
+ * parsed every time they are subscribed to. A {@link StateExpression} holds no
+ * evaluation state, all state is captured in the evaluation, so the same
+ * instance can safely be evaluated any number of times concurrently.
+ * <p>
+ * The least recently used expression is discarded when the cache is full.
+ * Expressions that fail to parse are not cached.
+ * </p>
+ *
+ * @see StateExpressionType
+ * @see StateExpressionJob
+ */
+public class StateExpressionCache {
+
+    /** The default maximum number of expressions cached. */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final StateExpressionCache INSTANCE = new StateExpressionCache(DEFAULT_MAX_SIZE);
+
+    private final Map<String, StateExpression> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxSize The maximum number of expressions to cache.
+     */
+    public StateExpressionCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be at least 1, was " + maxSize);
+        }
+        this.cache = new LinkedHashMap<String, StateExpression>(16, 0.75f, true) {
+            private static final long serialVersionUID = 2020061500L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StateExpression> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Provide the process wide instance.
+     *
+     * @return The shared cache. Never null.
+     */
+    public static StateExpressionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a parsed expression from the cache, parsing and caching it if it
+     * isn't there.
+     *
+     * @param text The expression text. Must not be null.
+     * @return The expression. Never null.
+     *
+     * @throws ParseException If the expression can't be parsed.
+     */
+    public StateExpression compile(String text) throws ParseException {
+        Objects.requireNonNull(text);
+
+        StateExpression expression;
+        synchronized (cache) {
+            expression = cache.get(text);
+        }
+        if (expression != null) {
+            hits.incrementAndGet();
+            return expression;
+        }
+        misses.incrementAndGet();
+
+        // Parse outside the lock. Two threads parsing the same text at
+        // once will both succeed and the last one wins which is harmless.
+        expression = new StateExpressionParser<StateExpression>(
+                CaptureToExpression::new).parse(text);
+
+        synchronized (cache) {
+            cache.put(text, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * The number of expressions currently cached.
+     *
+     * @return The size.
+     */
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Remove all cached expressions.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ", size=" + getSize() +
+                ", hits=" + hits.get() + ", misses=" + misses.get();
+    }
+}
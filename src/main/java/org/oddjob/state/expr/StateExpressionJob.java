@@ -4,6 +4,7 @@ import org.oddjob.arooa.deploy.annotations.ArooaText;
 import org.oddjob.arooa.utils.Try;
 import org.oddjob.events.InstantEvent;
 import org.oddjob.framework.extend.SimpleJob;
+import org.oddjob.util.Restore;
 
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
@@ -41,16 +42,14 @@ public class StateExpressionJob extends SimpleJob {
                         .orElseThrow(() -> new IllegalStateException(
                                 "No expression"));
 
-        StateExpressionParser<StateExpression> expressionParser = new StateExpressionParser<>(
-                CaptureToExpression::new);
-
-        StateExpression expression = expressionParser.parse(nonNullExpr);
+        StateExpression expression = StateExpressionCache.getInstance()
+                .compile(nonNullExpr);
 
         AtomicReference<Try<InstantEvent<Boolean>>> result =
                 new AtomicReference<>();
-        expression.evaluate(getArooaSession(), result::set);
-
-        this.evaluation = result.get().orElseThrow();
+        try (Restore ignored = expression.evaluate(getArooaSession(), result::set)) {
+            this.evaluation = result.get().orElseThrow();
+        }
 
 
         return this.evaluation.getOf() ? 0 : 1;
@@ -62,12 +62,9 @@ public class StateExpressionType implements InstantEventSource<Boolean>, ArooaSe
 		String nonNullExpr = Optional.ofNullable(this.expression)
 				.orElseThrow(() -> new IllegalStateException("No expression"));
 
-			StateExpressionParser<StateExpression> expressionParser = new StateExpressionParser<>(
-					CaptureToExpression::new);
-
 		StateExpression expression;
 		try {
-			expression = expressionParser.parse(nonNullExpr);
+			expression = StateExpressionCache.getInstance().compile(nonNullExpr);
 		} catch (ParseException e) {
 			throw new IllegalArgumentException("Failed Parsing " + nonNullExpr, e);
 		}
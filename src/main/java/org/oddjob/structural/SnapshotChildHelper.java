@@ -0,0 +1,568 @@
+package org.oddjob.structural;
+
+import org.oddjob.Structural;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link ChildHelper} for very wide structures. Readers work on an
+ * immutable snapshot of the children and never take a lock, so explorers,
+ * state reflectors and remote servers iterating over tens of thousands
+ * of children don't contend with each other or with the job adding them.
+ * <p>
+ * Writers are serialised on a private lock. Adding to the end of the
+ * children is amortised constant time because the backing array is shared
+ * between successive snapshots and only grows when full. Inserting or
+ * removing copies the array, so is linear in the number of children, and
+ * {@link #removeAllChildren()} is linear overall. An identity index of
+ * the first position of each child means {@link #contains(Object)} is
+ * constant time without locking, and {@link #removeChild(Object)} doesn't
+ * search for the child. Note that unlike {@link ChildHelper} children are
+ * matched on identity not equality.
+ * <p>
+ * The missed event replay for listeners added while children are
+ * changing is the same as {@link ChildHelper}.
+ *
+ * @param <E> The type of the child.
+ */
+public class SnapshotChildHelper<E> extends ChildHelper<E> {
+
+	private static final Object[] NO_ELEMENTS = new Object[0];
+
+	private static final StructuralListener[] NO_LISTENERS = new StructuralListener[0];
+
+	private static final int MIN_CAPACITY = 8;
+
+	/** The source. */
+	private final Structural source;
+
+	/** Guards all modifications. */
+	private final Object lock = new Object();
+
+	/** The current children. Replaced on every change. */
+	private volatile Snapshot snapshot = new Snapshot(NO_ELEMENTS, 0);
+
+	/** The first index of each child. Written holding the lock, read without. */
+	private final Map<Identity, Integer> firstIndexes = new ConcurrentHashMap<>();
+
+	/** Listeners. Replaced on every change. */
+	private volatile StructuralListener[] listeners = NO_LISTENERS;
+
+	/** Missed child actions for listeners being added. Guarded by the lock. */
+	private final Set<List<ChildAction>> missed =
+			Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/** True if no snapshot can see the slots of the current array beyond
+	 * its size, so an add can write into them. Guarded by the lock. */
+	private boolean tailOwned;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param source The source used as the source of the event.
+	 */
+	public SnapshotChildHelper(Structural source) {
+		super(source);
+		this.source = source;
+	}
+
+	@Override
+	public void insertChild(int index, E child) {
+		if (child == null) {
+			throw new NullPointerException("Attempt to add a null child.");
+		}
+
+		StructuralEvent event;
+		synchronized (lock) {
+			int size = snapshot.size;
+			if (index == size) {
+				append(child);
+			}
+			else {
+				if (index < 0 || index > size) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+				}
+				Object[] elements = snapshot.elements;
+				Object[] copy = new Object[capacityFor(size + 1)];
+				System.arraycopy(elements, 0, copy, 0, index);
+				copy[index] = child;
+				System.arraycopy(elements, index, copy, index + 1, size - index);
+				tailOwned = true;
+				snapshot = new Snapshot(copy, size + 1);
+				reindexAfterInsert(copy, index, size + 1);
+			}
+			event = new StructuralEvent(source, child, index);
+			for (List<ChildAction> missing : missed) {
+				missing.add(new ChildAdded(event));
+			}
+		}
+		notifyChildAdded(event);
+	}
+
+	@Override
+	public int addChild(E child) {
+		if (child == null) {
+			throw new NullPointerException("Attempt to add a null child.");
+		}
+
+		int index;
+
+		StructuralEvent event;
+		synchronized (lock) {
+			index = append(child);
+			event = new StructuralEvent(source, child, index);
+			for (List<ChildAction> missing : missed) {
+				missing.add(new ChildAdded(event));
+			}
+		}
+		notifyChildAdded(event);
+
+		return index;
+	}
+
+	@Override
+	public E removeChildAt(int index) throws IndexOutOfBoundsException {
+		E child;
+
+		StructuralEvent event;
+		synchronized (lock) {
+			child = removeAt(index);
+			event = new StructuralEvent(source, child, index);
+			for (List<ChildAction> missing : missed) {
+				missing.add(new ChildRemoved(event));
+			}
+		}
+
+		notifyChildRemoved(event);
+		return child;
+	}
+
+	@Override
+	public int removeChild(E child) throws IllegalStateException {
+		int index;
+
+		StructuralEvent event;
+		synchronized (lock) {
+			Integer found = firstIndexes.get(new Identity(child));
+
+			if (found == null) {
+				throw new IllegalStateException("Failed removing child, [" + child + "] is not a child");
+			}
+
+			index = found;
+			removeAt(index);
+
+			event = new StructuralEvent(source, child, index);
+			for (List<ChildAction> missing : missed) {
+				missing.add(new ChildRemoved(event));
+			}
+		}
+
+		notifyChildRemoved(event);
+		return index;
+	}
+
+	/**
+	 * Remove all children from the end. This method fires the
+	 * appropriate events in accordance with the structural interface.
+	 * Readers see all the children go at once.
+	 */
+	@Override
+	public void removeAllChildren() {
+		List<StructuralEvent> events = new ArrayList<>();
+		synchronized (lock) {
+			Snapshot snapshot = this.snapshot;
+			for (int i = snapshot.size - 1; i >= 0; --i) {
+				StructuralEvent event = new StructuralEvent(source, snapshot.elements[i], i);
+				for (List<ChildAction> missing : missed) {
+					missing.add(new ChildRemoved(event));
+				}
+				events.add(event);
+			}
+			this.snapshot = new Snapshot(NO_ELEMENTS, 0);
+			tailOwned = false;
+			firstIndexes.clear();
+		}
+
+		for (StructuralEvent event : events) {
+			notifyChildRemoved(event);
+		}
+	}
+
+	@Override
+	public Object[] getChildren() {
+		Snapshot snapshot = this.snapshot;
+		return Arrays.copyOf(snapshot.elements, snapshot.size);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E[] getChildren(E[] array) {
+		Snapshot snapshot = this.snapshot;
+		int size = snapshot.size;
+		if (array.length < size) {
+			array = (E[]) Array.newInstance(
+					array.getClass().getComponentType(), size);
+		}
+		System.arraycopy(snapshot.elements, 0, array, 0, size);
+		if (array.length > size) {
+			array[size] = null;
+		}
+		return array;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E getChildAt(int index) {
+		Snapshot snapshot = this.snapshot;
+		if (index < 0 || index >= snapshot.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + snapshot.size);
+		}
+		return (E) snapshot.elements[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E getChild() {
+		Snapshot snapshot = this.snapshot;
+		if (snapshot.size == 0) {
+			return null;
+		}
+		if (snapshot.size > 1) {
+			throw new IllegalStateException("Can't use getChild with more than one child!");
+		}
+		return (E) snapshot.elements[0];
+	}
+
+	@Override
+	public boolean contains(E child) {
+		return firstIndexes.containsKey(new Identity(child));
+	}
+
+	/**
+	 * Provides an iterator that, like the {@link ChildHelper} iterator,
+	 * carries on from the position of the last child returned even if
+	 * children are added or removed during iteration. Each step reads
+	 * the latest snapshot without locking.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			Snapshot current = snapshot;
+			int index;
+			Object next;
+
+			@Override
+			public boolean hasNext() {
+				Snapshot latest = snapshot;
+				// Work out the next index by adding one to the
+				// position of the last child in case a child has been removed.
+				if (next != null) {
+					int last = latest == current ? index : find(latest, next, index);
+					if (last >= 0) {
+						index = last + 1;
+					}
+				}
+				current = latest;
+				if (index < current.size) {
+					next = current.elements[index];
+				}
+				else {
+					next = null;
+				}
+				return next != null;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public E next() {
+				return (E) next;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public void addStructuralListener(StructuralListener listener) {
+		List<ChildAction> ours = new ArrayList<>();
+		synchronized (lock) {
+
+			for (StructuralListener existing : listeners) {
+				if (existing.equals(listener)) {
+					throw new IllegalArgumentException("Listener " + listener + " already registered.");
+				}
+			}
+
+			Snapshot snapshot = this.snapshot;
+			for (int i = 0; i < snapshot.size; ++i) {
+				StructuralEvent event = new StructuralEvent(source, snapshot.elements[i], i);
+				ours.add(new ChildAdded(event));
+			}
+			missed.add(ours);
+		}
+
+		int next = 0;
+		while (true) {
+			ChildAction action;
+			synchronized (lock) {
+				if (next == ours.size()) {
+					missed.remove(ours);
+					StructuralListener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+					copy[listeners.length] = listener;
+					listeners = copy;
+					break;
+				}
+				else {
+					// avoid shuffling the list, which is expensive for a large number of children.
+					action = ours.set(next++, null);
+				}
+			}
+			action.dispatch(listener);
+		}
+	}
+
+	@Override
+	public void removeStructuralListener(StructuralListener listener) {
+		synchronized (lock) {
+			StructuralListener[] current = listeners;
+			for (int i = 0; i < current.length; ++i) {
+				if (current[i].equals(listener)) {
+					StructuralListener[] copy = new StructuralListener[current.length - 1];
+					System.arraycopy(current, 0, copy, 0, i);
+					System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+					listeners = copy;
+					break;
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isNoListeners() {
+		return listeners.length == 0;
+	}
+
+	@Override
+	public int size() {
+		return snapshot.size;
+	}
+
+	/**
+	 * Add to the end. Must be called holding the lock.
+	 *
+	 * @param child The child.
+	 * @return The index added at.
+	 */
+	private int append(Object child) {
+		Snapshot snapshot = this.snapshot;
+		int size = snapshot.size;
+		Object[] elements = snapshot.elements;
+		if (!tailOwned || size == elements.length) {
+			Object[] copy = new Object[capacityFor(size + 1)];
+			System.arraycopy(elements, 0, copy, 0, size);
+			elements = copy;
+			tailOwned = true;
+		}
+		elements[size] = child;
+		this.snapshot = new Snapshot(elements, size + 1);
+		firstIndexes.putIfAbsent(new Identity(child), size);
+		return size;
+	}
+
+	/**
+	 * Remove at an index. Must be called holding the lock.
+	 *
+	 * @param index The index.
+	 * @return The child removed.
+	 */
+	@SuppressWarnings("unchecked")
+	private E removeAt(int index) {
+		Snapshot snapshot = this.snapshot;
+		int size = snapshot.size;
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		Object[] elements = snapshot.elements;
+		E child = (E) elements[index];
+		if (size == 1) {
+			this.snapshot = new Snapshot(NO_ELEMENTS, 0);
+			tailOwned = false;
+			firstIndexes.clear();
+		}
+		else {
+			// Always copy, even to remove the last child, because old
+			// snapshots share the array so it can't forget the child.
+			Object[] copy = new Object[capacityFor(size - 1)];
+			System.arraycopy(elements, 0, copy, 0, index);
+			System.arraycopy(elements, index + 1, copy, index, size - index - 1);
+			tailOwned = true;
+			this.snapshot = new Snapshot(copy, size - 1);
+			reindexAfterRemove(copy, index, size - 1, child);
+		}
+		return child;
+	}
+
+	/**
+	 * Update the index for children moved along by an insert. Must be
+	 * called holding the lock.
+	 *
+	 * @param elements The new elements.
+	 * @param inserted Where the child was inserted.
+	 * @param size The new size.
+	 */
+	private void reindexAfterInsert(Object[] elements, int inserted, int size) {
+		// From the end so a child isn't moved twice.
+		for (int i = size - 1; i > inserted; --i) {
+			Identity moved = new Identity(elements[i]);
+			Integer first = firstIndexes.get(moved);
+			if (first != null && first == i - 1) {
+				firstIndexes.put(moved, i);
+			}
+		}
+		Identity child = new Identity(elements[inserted]);
+		Integer first = firstIndexes.get(child);
+		if (first == null || first > inserted) {
+			firstIndexes.put(child, inserted);
+		}
+	}
+
+	/**
+	 * Update the index for a child removed and the children moved back.
+	 * Must be called holding the lock.
+	 *
+	 * @param elements The new elements.
+	 * @param removed Where the child was removed from.
+	 * @param size The new size.
+	 * @param child The child removed.
+	 */
+	private void reindexAfterRemove(Object[] elements, int removed, int size, Object child) {
+		Identity gone = new Identity(child);
+		Integer first = firstIndexes.get(gone);
+		if (first != null && first == removed) {
+			int next = -1;
+			for (int i = removed; i < size; ++i) {
+				if (elements[i] == child) {
+					next = i;
+					break;
+				}
+			}
+			if (next < 0) {
+				firstIndexes.remove(gone);
+			}
+			else {
+				firstIndexes.put(gone, next);
+			}
+		}
+		for (int i = removed; i < size; ++i) {
+			Identity moved = new Identity(elements[i]);
+			first = firstIndexes.get(moved);
+			if (first != null && first == i + 1) {
+				firstIndexes.put(moved, i);
+			}
+		}
+	}
+
+	/**
+	 * The first position of a child in a snapshot.
+	 *
+	 * @return The index or -1 if it isn't there.
+	 */
+	static int indexOf(Snapshot snapshot, Object child) {
+		for (int i = 0; i < snapshot.size; ++i) {
+			if (snapshot.elements[i] == child) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find a child in a snapshot, looking near where it's expected first
+	 * because a single child added or removed is most likely.
+	 */
+	static int find(Snapshot snapshot, Object child, int expected) {
+		for (int i = Math.max(0, expected - 1);
+			 i <= expected + 1 && i < snapshot.size; ++i) {
+			if (snapshot.elements[i] == child) {
+				return i;
+			}
+		}
+		return indexOf(snapshot, child);
+	}
+
+	static int capacityFor(int size) {
+		return Math.max(MIN_CAPACITY, size + (size >> 1));
+	}
+
+	/**
+	 * Notify the listeners.
+	 *
+	 * @param event The event.
+	 */
+	private void notifyChildAdded(StructuralEvent event) {
+		for (StructuralListener l : listeners) {
+			new ChildAdded(event).dispatch(l);
+		}
+	}
+
+	/*
+	 * Notify the listeners.
+	 *
+	 * @param event The event.
+	 */
+	private void notifyChildRemoved(StructuralEvent event) {
+		for (StructuralListener l : listeners) {
+			new ChildRemoved(event).dispatch(l);
+		}
+	}
+
+	/**
+	 * Compares children on identity for the index.
+	 */
+	static final class Identity {
+
+		private final Object child;
+
+		Identity(Object child) {
+			this.child = child;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(child);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Identity && ((Identity) obj).child == child;
+		}
+	}
+
+	/**
+	 * An immutable view of the children. The array may be longer than
+	 * the size and may be shared with later snapshots, but the
+	 * elements up to size will never change.
+	 */
+	static final class Snapshot {
+
+		final Object[] elements;
+
+		final int size;
+
+		Snapshot(Object[] elements, int size) {
+			this.elements = elements;
+			this.size = size;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " for " + source;
+	}
+}
@@ -0,0 +1,102 @@
+package org.oddjob.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts for a cache of things that are expensive to create, such as
+ * compiled scripts or stylesheets.
+ * <p>
+ * Safe to record from and read on different threads.
+ *
+ * @author rob
+ *
+ */
+public class CacheStatistics {
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong compileNanos = new AtomicLong();
+
+	/**
+	 * Record that something was found in the cache.
+	 */
+	public void recordHit() {
+		hits.incrementAndGet();
+	}
+
+	/**
+	 * Record that something wasn't found in the cache and had to be created.
+	 *
+	 * @param nanos How long it took to create in nanoseconds.
+	 */
+	public void recordMiss(long nanos) {
+		misses.incrementAndGet();
+		compileNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * Record that something was removed from the cache to keep it in bounds.
+	 */
+	public void recordEviction() {
+		evictions.incrementAndGet();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * The total time spent creating things that weren't in the cache.
+	 *
+	 * @return The time in milliseconds.
+	 */
+	public long getCompileMillis() {
+		return compileNanos.get() / 1000000;
+	}
+
+	/**
+	 * The mean time to create something that wasn't in the cache.
+	 *
+	 * @return The time in milliseconds, 0 if nothing has been created.
+	 */
+	public long getMeanCompileMillis() {
+		long misses = this.misses.get();
+		if (misses == 0) {
+			return 0;
+		}
+		return compileNanos.get() / misses / 1000000;
+	}
+
+	/**
+	 * The proportion of look ups found in the cache.
+	 *
+	 * @return Between 0 and 1, 0 if nothing has been looked up.
+	 */
+	public double getHitRatio() {
+		long hits = this.hits.get();
+		long total = hits + misses.get();
+		if (total == 0) {
+			return 0;
+		}
+		return (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return "Cache: hits=" + getHits() + ", misses=" + getMisses() +
+				", evictions=" + getEvictions() + ", compile=" +
+				getCompileMillis() + "ms";
+	}
+}
@@ -0,0 +1,111 @@
+package org.oddjob.util;
+
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A key for caching something created from content, such as a script or
+ * a stylesheet. Only a hash of the content is kept so large content
+ * isn't held on to by a cache. The class loader is part of the key because
+ * what is created from the content may depend on it. Class loaders are
+ * compared by identity and held weakly, so a key doesn't stop a class loader
+ * being collected. A key whose class loader has been collected only
+ * equals itself and is {@link #isCleared()} so a cache can drop it.
+ *
+ * @author rob
+ *
+ */
+public final class ContentKey {
+
+	/** Null if there is no class loader. */
+	private final WeakReference<ClassLoader> classLoader;
+
+	private final String name;
+
+	private final byte[] hash;
+
+	private final int hashCode;
+
+	private ContentKey(ClassLoader classLoader, String name, byte[] hash) {
+		this.classLoader = classLoader == null ? null : new WeakReference<>(classLoader);
+		this.name = name;
+		this.hash = hash;
+		this.hashCode = 31 * (31 * System.identityHashCode(classLoader)
+				+ Objects.hashCode(name)) + Arrays.hashCode(hash);
+	}
+
+	/**
+	 * Create a key.
+	 *
+	 * @param classLoader The class loader. May be null.
+	 * @param name A name that qualifies the content, such as a language.
+	 * May be null.
+	 * @param content The content. Must not be null.
+	 *
+	 * @return The key. Never null.
+	 */
+	public static ContentKey of(ClassLoader classLoader, String name,
+			byte[] content) {
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+		return new ContentKey(classLoader, name,
+				digest.digest(Objects.requireNonNull(content, "No content")));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ContentKey)) {
+			return false;
+		}
+		ContentKey other = (ContentKey) obj;
+		if (classLoader == null || other.classLoader == null) {
+			if (classLoader != other.classLoader) {
+				return false;
+			}
+		}
+		else {
+			ClassLoader loader = classLoader.get();
+			if (loader == null || loader != other.classLoader.get()) {
+				return false;
+			}
+		}
+		return Objects.equals(name, other.name) &&
+				Arrays.equals(hash, other.hash);
+	}
+
+	/**
+	 * Has the class loader of this key been collected.
+	 *
+	 * @return true if it has, false if it hasn't or there never was one.
+	 */
+	public boolean isCleared() {
+		return classLoader != null && classLoader.get() == null;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 4; ++i) {
+			builder.append(String.format("%02x", hash[i]));
+		}
+		return "ContentKey: " + (name == null ? "" : name + ", ") + builder;
+	}
+}
@@ -0,0 +1,189 @@
+package org.oddjob.beanbus.destinations;
+
+import org.junit.jupiter.api.Test;
+import org.oddjob.arooa.ArooaTools;
+import org.oddjob.arooa.reflect.PropertyAccessor;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class BeanCopyPlanTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BeanCopyPlanTest.class);
+
+    public static class From {
+
+        private final String fruit;
+        private final int quantity;
+        private final BigDecimal price;
+
+        public From(String fruit, int quantity, BigDecimal price) {
+            this.fruit = fruit;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public String getFruit() {
+            return fruit;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+    }
+
+    public static class OtherFrom {
+
+        public String getFruit() {
+            return "kiwi";
+        }
+
+        public Integer getQuantity() {
+            return 3;
+        }
+
+        public String getPrice() {
+            return "1.5";
+        }
+    }
+
+    public static class To {
+
+        private String snack;
+        private int number;
+        private double cost;
+
+        public void setSnack(String snack) {
+            this.snack = snack;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public void setCost(double cost) {
+            this.cost = cost;
+        }
+    }
+
+    private static Map<String, String> mappings() {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        mappings.put("fruit", "snack");
+        mappings.put("quantity", "number");
+        mappings.put("price", "cost");
+        return mappings;
+    }
+
+    @Test
+    void directAndConvertingCopies() {
+
+        ArooaTools tools = new StandardArooaSession().getTools();
+
+        BeanCopyPlan test = new BeanCopyPlan(mappings(),
+                tools.getPropertyAccessor().accessorWithConversions(tools.getArooaConverter()),
+                tools.getArooaConverter());
+
+        BeanCopyPlan.Compiled compiled = test.compile(From.class, To.class);
+
+        To to = new To();
+        test.copy(new From("apple", 5, new BigDecimal("2.45")), to);
+
+        assertThat(to.snack, is("apple"));
+        assertThat(to.number, is(5));
+        assertThat(to.cost, closeTo(2.45, 0.001));
+
+        assertThat(test.compileProperty(From.class, "fruit", To.class, "snack"),
+                instanceOf(BeanCopyPlan.DirectCopy.class));
+        assertThat(test.compileProperty(From.class, "quantity", To.class, "number"),
+                instanceOf(BeanCopyPlan.DirectCopy.class));
+        assertThat(test.compileProperty(From.class, "price", To.class, "cost"),
+                instanceOf(BeanCopyPlan.ConvertingCopy.class));
+        assertThat(test.compileProperty(From.class, "fruit.length", To.class, "snack"),
+                instanceOf(BeanCopyPlan.AccessorCopy.class));
+        assertThat(compiled, notNullValue());
+    }
+
+    @Test
+    void differentClassesOfBeanEachGetAPlan() {
+
+        ArooaTools tools = new StandardArooaSession().getTools();
+
+        BeanCopyPlan test = new BeanCopyPlan(mappings(),
+                tools.getPropertyAccessor().accessorWithConversions(tools.getArooaConverter()),
+                tools.getArooaConverter());
+
+        To to1 = new To();
+        test.copy(new From("apple", 5, new BigDecimal("2.45")), to1);
+
+        To to2 = new To();
+        test.copy(new OtherFrom(), to2);
+
+        To to3 = new To();
+        test.copy(new From("pear", 2, new BigDecimal("1.25")), to3);
+
+        assertThat(test.getCompiledCount(), is(2));
+
+        assertThat(to2.snack, is("kiwi"));
+        assertThat(to2.number, is(3));
+        assertThat(to2.cost, closeTo(1.5, 0.001));
+
+        assertThat(to3.snack, is("pear"));
+        assertThat(to3.number, is(2));
+    }
+
+    /**
+     * Not really a test but a comparison with copying through the accessor.
+     */
+    @Test
+    void compareWithAccessor() {
+
+        ArooaTools tools = new StandardArooaSession().getTools();
+        PropertyAccessor accessor = tools.getPropertyAccessor()
+                .accessorWithConversions(tools.getArooaConverter());
+
+        Map<String, String> mappings = mappings();
+        mappings.remove("price");
+
+        BeanCopyPlan test = new BeanCopyPlan(mappings, accessor, tools.getArooaConverter());
+
+        From from = new From("apple", 5, new BigDecimal("2.45"));
+
+        int count = 200_000;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; ++i) {
+            To to = new To();
+            for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+                accessor.setProperty(to, mapping.getValue(),
+                        accessor.getProperty(from, mapping.getKey()));
+            }
+        }
+        long accessorNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        To last = null;
+        for (int i = 0; i < count; ++i) {
+            last = new To();
+            test.copy(from, last);
+        }
+        long planNanos = System.nanoTime() - start;
+
+        assertThat(last.number, is(5));
+
+        logger.info("{} beans: accessor {} ms, plan {} ms.", count,
+                TimeUnit.NANOSECONDS.toMillis(accessorNanos),
+                TimeUnit.NANOSECONDS.toMillis(planNanos));
+    }
+}
@@ -7,12 +7,18 @@ import org.oddjob.arooa.reflect.BeanView;
 import org.oddjob.arooa.reflect.BeanViews;
 import org.oddjob.arooa.standard.StandardArooaSession;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 public class BeanSheetTest extends OjTestCase {
 
+    private static final Logger logger = LoggerFactory.getLogger(BeanSheetTest.class);
+
     public static class Fruit {
 
         private String type;
@@ -161,4 +167,117 @@ public class BeanSheetTest extends OjTestCase {
         assertEquals(expected, out.toString());
     }
 
+    @Test
+    public void testStreamingGivesSameReportWhenSampleCoversAll() throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BeanSheet test = new BeanSheet();
+        test.setOutput(out);
+        test.setStreaming(true);
+        test.setArooaSession(new StandardArooaSession());
+        test.setBeanViews(new OurViews());
+
+        test.run();
+
+        for (Fruit bean : createFruit()) {
+            test.accept(bean);
+        }
+
+        assertEquals("", out.toString());
+        assertEquals(2, test.getBeanCount());
+
+        test.flush();
+        test.close();
+
+        String expected =
+                "The Colour     size   type    variety" + EOL +
+                        "-------------  -----  ------  -------" + EOL +
+                        "Red and Green  7.6    Apple   Cox" + EOL +
+                        "Orange         9.245  Orange  Jaffa" + EOL;
+
+        assertEquals(expected, out.toString());
+    }
+
+    @Test
+    public void testStreamingWithSmallSampleAndColumnWidths() throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BeanSheet test = new BeanSheet();
+        test.setOutput(out);
+        test.setStreaming(true);
+        test.setSampleSize(1);
+        test.setColumnWidths(new int[] { 0, 6 });
+        test.setArooaSession(new StandardArooaSession());
+        test.setBeanViews(new OurViews());
+
+        test.run();
+
+        for (Fruit bean : createFruit()) {
+            test.accept(bean);
+        }
+
+        test.flush();
+        test.close();
+
+        String expected =
+                "The Colour     size    type   variety" + EOL +
+                        "-------------  ------  -----  -------" + EOL +
+                        "Red and Green  7.6     Apple  Cox" + EOL +
+                        "Orange         9.245   Orange  Jaffa" + EOL;
+
+        assertEquals(expected, out.toString());
+    }
+
+    /**
+     * Compares rows per second and the heap in use before the flush for a large
+     * stream. The figures are logged, only the row count is checked.
+     */
+    @Test
+    public void testStreamingThroughputAndMemory() throws IOException {
+
+        int rows = 200_000;
+
+        for (boolean streaming : new boolean[] { false, true }) {
+
+            BeanSheet test = new BeanSheet();
+            test.setOutput(OutputStream.nullOutputStream());
+            test.setStreaming(streaming);
+            test.setArooaSession(new StandardArooaSession());
+            test.setBeanViews(new OurViews());
+
+            test.run();
+
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+            long start = System.nanoTime();
+
+            for (int i = 0; i < rows; ++i) {
+                Fruit fruit = new Fruit();
+                fruit.setType("Apple " + i);
+                fruit.setVariety("Cox");
+                fruit.setColour("Red and Green");
+                fruit.setSize(i);
+                test.accept(fruit);
+            }
+
+            assertEquals(rows, test.getBeanCount());
+
+            System.gc();
+            long heapHeld = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+            test.flush();
+
+            long nanos = System.nanoTime() - start;
+
+            logger.info("{}: {} rows per second, {} KB of heap held before flush.",
+                    streaming ? "Streaming" : "Collecting",
+                    (long) (rows * 1e9 / nanos), heapHeld / 1024);
+
+            test.close();
+        }
+    }
 }
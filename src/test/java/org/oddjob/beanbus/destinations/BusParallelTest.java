@@ -0,0 +1,283 @@
+package org.oddjob.beanbus.destinations;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.oddjob.FailedToStopException;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.beanbus.example.Fruit;
+import org.oddjob.state.ParentState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BusParallelTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /** Sleep for longer for earlier beans so results complete out of order. */
+    private static Integer slowlyDouble(Integer i) {
+        try {
+            Thread.sleep((20 - i % 20) / 4);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return i * 2;
+    }
+
+    @Test
+    void orderedResultsArriveInOrder() throws Exception {
+
+        List<Integer> results = new ArrayList<>();
+
+        BusParallel<Integer, Integer> test = new BusParallel<>();
+        test.setExecutorService(executor);
+        test.setWorkers(4);
+        test.setCapacity(8);
+        test.setOrdered(true);
+        test.setFunction(BusParallelTest::slowlyDouble);
+        test.setTo(results::add);
+
+        test.start();
+
+        for (int i = 0; i < 100; ++i) {
+            test.accept(i);
+        }
+
+        test.flush();
+
+        assertThat(results, is(IntStream.range(0, 100).map(i -> i * 2)
+                .boxed().collect(Collectors.toList())));
+
+        test.stop();
+
+        assertThat(test.getCount(), is(100));
+        assertThat(test.getDelivered(), is(100));
+    }
+
+    @Test
+    void unorderedResultsAllArrive() throws Exception {
+
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+
+        BusParallel<Integer, Integer> test = new BusParallel<>();
+        test.setExecutorService(executor);
+        test.setWorkers(4);
+        test.setCapacity(8);
+        test.setFunction(BusParallelTest::slowlyDouble);
+        test.setTo(results::add);
+
+        test.start();
+
+        for (int i = 0; i < 100; ++i) {
+            test.accept(i);
+        }
+
+        test.stop();
+
+        assertThat(results.size(), is(100));
+        assertThat(new ArrayList<>(results), containsInAnyOrder(IntStream.range(0, 100)
+                .map(i -> i * 2).boxed().toArray(Integer[]::new)));
+    }
+
+    @Test
+    void senderBlocksWhenCapacityReached() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+
+        BusParallel<Integer, Integer> test = new BusParallel<>();
+        test.setExecutorService(executor);
+        test.setWorkers(2);
+        test.setCapacity(2);
+        test.setFunction(i -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return i;
+        });
+
+        test.start();
+
+        Future<?> sender = executor.submit(() -> {
+            for (int i = 0; i < 10; ++i) {
+                test.accept(i);
+            }
+        });
+
+        assertThrows(TimeoutException.class,
+                () -> sender.get(200, TimeUnit.MILLISECONDS));
+
+        assertThat(test.getCount(), is(2));
+
+        release.countDown();
+
+        sender.get(10, TimeUnit.SECONDS);
+
+        test.stop();
+
+        assertThat(test.getCount(), is(10));
+    }
+
+    @Test
+    void resultsHeldForOrderCountTowardsCapacity() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Integer> results = new ArrayList<>();
+
+        BusParallel<Integer, Integer> test = new BusParallel<>();
+        test.setExecutorService(executor);
+        test.setWorkers(2);
+        test.setCapacity(4);
+        test.setOrdered(true);
+        test.setFunction(i -> {
+            if (i == 0) {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return i;
+        });
+        test.setTo(results::add);
+
+        test.start();
+
+        Future<?> sender = executor.submit(() -> {
+            for (int i = 0; i < 100; ++i) {
+                test.accept(i);
+            }
+        });
+
+        assertThrows(TimeoutException.class,
+                () -> sender.get(200, TimeUnit.MILLISECONDS));
+
+        assertThat(test.getCount(), is(4));
+
+        release.countDown();
+
+        sender.get(10, TimeUnit.SECONDS);
+
+        test.stop();
+
+        assertThat(results, is(IntStream.range(0, 100)
+                .boxed().collect(Collectors.toList())));
+    }
+
+    @Test
+    void failureIsReportedOnFlush() throws Exception {
+
+        BusParallel<Integer, Integer> test = new BusParallel<>();
+        test.setExecutorService(executor);
+        test.setWorkers(2);
+        test.setOrdered(true);
+        test.setFunction(i -> {
+            if (i == 3) {
+                throw new IllegalArgumentException("Bad Bean");
+            }
+            return i;
+        });
+
+        test.start();
+
+        for (int i = 0; i < 4; ++i) {
+            test.accept(i);
+        }
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, test::flush);
+        assertThat(e.getCause().getMessage(), is("Bad Bean"));
+
+        assertThrows(IllegalStateException.class, () -> test.accept(5));
+
+        test.stop();
+    }
+
+    @Test
+    void failureWhileStoppingStillStopsWorkers() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+
+        BusParallel<Integer, Integer> test = new BusParallel<>();
+        test.setExecutorService(executor);
+        test.setWorkers(2);
+        test.setFunction(i -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalArgumentException("Bad Bean");
+        });
+
+        test.start();
+
+        test.accept(1);
+
+        executor.submit(() -> {
+            Thread.sleep(100);
+            release.countDown();
+            return null;
+        });
+
+        FailedToStopException e = assertThrows(FailedToStopException.class, test::stop);
+        assertThat(e.getCause().getMessage(), is("Bad Bean"));
+
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        for (int i = 0; i < 500 && pool.getActiveCount() > 0; ++i) {
+            Thread.sleep(10);
+        }
+        assertThat(pool.getActiveCount(), is(0));
+    }
+
+    @Test
+    void example() throws Exception {
+
+        Oddjob oddjob = new Oddjob();
+        oddjob.setConfiguration(new XMLConfiguration(
+                "org/oddjob/beanbus/destinations/BusParallelExample.xml",
+                getClass().getClassLoader()));
+
+        oddjob.run();
+
+        assertThat(oddjob.lastStateEvent().getState(), is(ParentState.COMPLETE));
+
+        OddjobLookup lookup = new OddjobLookup(oddjob);
+
+        @SuppressWarnings("unchecked")
+        List<Fruit> results = lookup.lookup("results.beans", List.class);
+
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).getPrice(), is(51.0));
+        assertThat(results.get(1).getPrice(), is(72.4));
+        assertThat(results.get(2).getPrice(), is(80.8));
+
+        oddjob.destroy();
+    }
+}
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
@@ -30,6 +31,7 @@ import java.util.function.Consumer;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
 
 public class BusQueueTest {
 
@@ -191,6 +193,134 @@ public class BusQueueTest {
                 is(100000));
     }
 
+    @Test
+    public void testLockFreeStopsAllConsumers() throws InterruptedException {
+
+        final BusQueue<Integer> test = new BusQueue<>();
+        test.setLockFree(true);
+        test.setCapacity(100);
+        test.setBatchSize(10);
+        test.start();
+
+        List<List<Integer>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            List<Integer> result = new ArrayList<>();
+            results.add(result);
+            Thread t = new Thread(() -> {
+                for (Integer bean : test) {
+                    result.add(bean);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+
+        for (int i = 1; i <= 10000; ++i) {
+            test.accept(i);
+        }
+
+        test.stop();
+
+        for (Thread t : threads) {
+            t.join(5000L);
+            assertThat(t.isAlive(), is(false));
+        }
+
+        int total = 0;
+        for (List<Integer> result : results) {
+            total += result.size();
+        }
+
+        assertThat(total, is(10000));
+        assertThat(test.getTaken(), is(10000));
+        assertThat(test.getSize(), is(0));
+    }
+
+    private static void waitForState(Thread t, Thread.State state) throws InterruptedException {
+        for (int i = 0; i < 500 && t.getState() != state; ++i) {
+            Thread.sleep(10L);
+        }
+        assertThat(t.getState(), is(state));
+    }
+
+    @Test
+    public void testLockFreeIdleConsumerBlocksUntilPut() throws InterruptedException {
+
+        final BusQueue<Integer> test = new BusQueue<>();
+        test.setLockFree(true);
+        test.start();
+
+        List<Integer> result = new ArrayList<>();
+        Thread t = new Thread(() -> {
+            for (Integer bean : test) {
+                result.add(bean);
+            }
+        });
+        t.start();
+
+        // No longer parking for short periods.
+        waitForState(t, Thread.State.WAITING);
+
+        test.accept(1);
+        test.accept(2);
+
+        test.stop();
+
+        t.join(5000L);
+        assertThat(t.isAlive(), is(false));
+
+        assertThat(result, contains(1, 2));
+    }
+
+    @Test
+    public void testLockFreeBlockedProducerWakesWhenTaken() throws InterruptedException {
+
+        final BusQueue<Integer> test = new BusQueue<>();
+        test.setLockFree(true);
+        test.setCapacity(2);
+        test.start();
+
+        test.accept(1);
+        test.accept(2);
+
+        Thread t = new Thread(() -> test.accept(3));
+        t.start();
+
+        waitForState(t, Thread.State.WAITING);
+
+        Iterator<Integer> it = test.iterator();
+        assertThat(it.hasNext(), is(true));
+        assertThat(it.next(), is(1));
+
+        t.join(5000L);
+        assertThat(t.isAlive(), is(false));
+
+        assertThat(test.getSize(), is(2));
+    }
+
+    @Test
+    public void testLockFreePutOnFullStoppedQueueFails() {
+
+        final BusQueue<Integer> test = new BusQueue<>();
+        test.setLockFree(true);
+        test.setCapacity(2);
+        test.start();
+
+        test.accept(1);
+        test.accept(2);
+
+        test.stop();
+
+        try {
+            test.accept(3);
+            fail("Should fail.");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testInOddjob() throws ArooaPropertyException, ArooaConversionException, InterruptedException {
 
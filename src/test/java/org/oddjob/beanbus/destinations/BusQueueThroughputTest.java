@@ -0,0 +1,116 @@
+package org.oddjob.beanbus.destinations;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Throughput of the two kinds of {@link BusQueue} for different numbers of
+ * producers and consumers. The timings are logged for comparison, the test
+ * only checks that every bean gets through exactly once and all consumers stop.
+ */
+class BusQueueThroughputTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusQueueThroughputTest.class);
+
+    private static final int BEANS = 400_000;
+
+    @Test
+    void oneProducerOneConsumer() throws Exception {
+
+        compare(1, 1);
+    }
+
+    @Test
+    void fourProducersFourConsumers() throws Exception {
+
+        compare(4, 4);
+    }
+
+    @Test
+    void oneProducerEightConsumers() throws Exception {
+
+        compare(1, 8);
+    }
+
+    private static void compare(int producers, int consumers) throws Exception {
+
+        run(producers, consumers, false, 1);
+        run(producers, consumers, false, 64);
+        run(producers, consumers, true, 1);
+        run(producers, consumers, true, 64);
+    }
+
+    private static void run(int producers, int consumers,
+                            boolean lockFree, int batchSize) throws Exception {
+
+        BusQueue<Integer> test = new BusQueue<>();
+        test.setCapacity(1024);
+        test.setLockFree(lockFree);
+        test.setBatchSize(batchSize);
+        test.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+
+        AtomicLong total = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+
+        List<Future<?>> consumerFutures = new ArrayList<>();
+        for (int c = 0; c < consumers; ++c) {
+            consumerFutures.add(executor.submit(() -> {
+                long sum = 0;
+                long taken = 0;
+                for (Integer i : test) {
+                    sum += i;
+                    ++taken;
+                }
+                total.addAndGet(sum);
+                count.addAndGet(taken);
+            }));
+        }
+
+        int each = BEANS / producers;
+
+        long start = System.nanoTime();
+
+        List<Future<?>> producerFutures = new ArrayList<>();
+        for (int p = 0; p < producers; ++p) {
+            producerFutures.add(executor.submit(() -> {
+                for (int i = 1; i <= each; ++i) {
+                    test.accept(i);
+                }
+            }));
+        }
+
+        for (Future<?> future : producerFutures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        test.stop();
+
+        for (Future<?> future : consumerFutures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        long nanos = System.nanoTime() - start;
+
+        executor.shutdown();
+
+        assertThat(count.get(), is((long) each * producers));
+        assertThat(total.get(), is((long) producers * each * (each + 1) / 2));
+
+        logger.info("{}P/{}C {} batch {}: {} beans/s, producers blocked {} ms.",
+                producers, consumers,
+                lockFree ? "lock-free" : "blocking", batchSize,
+                (long) (count.get() / (nanos / 1e9)),
+                test.getProducerBlockedMillis());
+    }
+}
@@ -0,0 +1,328 @@
+package org.oddjob.describe;
+
+import org.junit.Test;
+import org.oddjob.OjTestCase;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.reflect.ArooaPropertyException;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.framework.adapt.beanutil.WrapDynaBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+
+public class DescribePlanTest extends OjTestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(DescribePlanTest.class);
+
+    public static class SimpleBean {
+
+        public String getZebra() {
+            return "stripes";
+        }
+
+        public String getApple() {
+            return "red";
+        }
+
+        @NoDescribe
+        public String getPassword() {
+            return "secret";
+        }
+    }
+
+    @Test
+    public void testPlanIsSharedAndDescriptionInOrder() {
+
+        ArooaSession session = new StandardArooaSession();
+
+        DescribePlan plan = DescribePlan.planFor(session, new SimpleBean());
+
+        assertThat(plan, notNullValue());
+        assertThat(DescribePlan.planFor(session, new SimpleBean()), sameInstance(plan));
+        assertThat(plan.getPropertyCount(), is(3));
+
+        Map<String, String> description = new AccessorDescriber(session)
+                .describe(new SimpleBean());
+
+        List<String> properties = new ArrayList<>(description.keySet());
+
+        assertThat(properties, contains("apple", "class", "zebra"));
+        assertThat(description.get("apple"), is("red"));
+    }
+
+    public static class BrokenBean {
+
+        int calls;
+
+        public String getBroken() {
+            ++calls;
+            throw new IllegalStateException("Broken on purpose.");
+        }
+    }
+
+    @Test
+    public void testBrokenGetterStillFails() {
+
+        ArooaSession session = new StandardArooaSession();
+
+        BrokenBean bean = new BrokenBean();
+
+        try {
+            new AccessorDescriber(session).describe(bean);
+            fail("Should fail.");
+        }
+        catch (ArooaPropertyException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+
+        assertThat(bean.calls, is(1));
+    }
+
+    @Test
+    public void testDynaBeanHasNoSharedPlan() {
+
+        ArooaSession session = new StandardArooaSession();
+
+        assertThat(DescribePlan.planFor(session, new WrapDynaBean(new SimpleBean())),
+                nullValue());
+    }
+
+    /**
+     * 49 getters plus class.
+     */
+    public static class FiftyPropertyBean {
+
+        public String getProperty00() {
+            return "value00";
+        }
+
+        public int getProperty01() {
+            return 1;
+        }
+
+        public String getProperty02() {
+            return "value02";
+        }
+
+        public int getProperty03() {
+            return 3;
+        }
+
+        public String getProperty04() {
+            return "value04";
+        }
+
+        public int getProperty05() {
+            return 5;
+        }
+
+        public String getProperty06() {
+            return "value06";
+        }
+
+        public int getProperty07() {
+            return 7;
+        }
+
+        public String getProperty08() {
+            return "value08";
+        }
+
+        public int getProperty09() {
+            return 9;
+        }
+
+        public String getProperty10() {
+            return "value10";
+        }
+
+        public int getProperty11() {
+            return 11;
+        }
+
+        public String getProperty12() {
+            return "value12";
+        }
+
+        public int getProperty13() {
+            return 13;
+        }
+
+        public String getProperty14() {
+            return "value14";
+        }
+
+        public int getProperty15() {
+            return 15;
+        }
+
+        public String getProperty16() {
+            return "value16";
+        }
+
+        public int getProperty17() {
+            return 17;
+        }
+
+        public String getProperty18() {
+            return "value18";
+        }
+
+        public int getProperty19() {
+            return 19;
+        }
+
+        public String getProperty20() {
+            return "value20";
+        }
+
+        public int getProperty21() {
+            return 21;
+        }
+
+        public String getProperty22() {
+            return "value22";
+        }
+
+        public int getProperty23() {
+            return 23;
+        }
+
+        public String getProperty24() {
+            return "value24";
+        }
+
+        public int getProperty25() {
+            return 25;
+        }
+
+        public String getProperty26() {
+            return "value26";
+        }
+
+        public int getProperty27() {
+            return 27;
+        }
+
+        public String getProperty28() {
+            return "value28";
+        }
+
+        public int getProperty29() {
+            return 29;
+        }
+
+        public String getProperty30() {
+            return "value30";
+        }
+
+        public int getProperty31() {
+            return 31;
+        }
+
+        public String getProperty32() {
+            return "value32";
+        }
+
+        public int getProperty33() {
+            return 33;
+        }
+
+        public String getProperty34() {
+            return "value34";
+        }
+
+        public int getProperty35() {
+            return 35;
+        }
+
+        public String getProperty36() {
+            return "value36";
+        }
+
+        public int getProperty37() {
+            return 37;
+        }
+
+        public String getProperty38() {
+            return "value38";
+        }
+
+        public int getProperty39() {
+            return 39;
+        }
+
+        public String getProperty40() {
+            return "value40";
+        }
+
+        public int getProperty41() {
+            return 41;
+        }
+
+        public String getProperty42() {
+            return "value42";
+        }
+
+        public int getProperty43() {
+            return 43;
+        }
+
+        public String getProperty44() {
+            return "value44";
+        }
+
+        public int getProperty45() {
+            return 45;
+        }
+
+        public String getProperty46() {
+            return "value46";
+        }
+
+        public int getProperty47() {
+            return 47;
+        }
+
+        public String getProperty48() {
+            return "value48";
+        }
+    }
+
+    /**
+     * Logs describes per second for a 50 property bean. Only the description is checked.
+     */
+    @Test
+    public void testDescribeThroughput() {
+
+        ArooaSession session = new StandardArooaSession();
+
+        FiftyPropertyBean bean = new FiftyPropertyBean();
+
+        Map<String, String> description = new UniversalDescriber(session).describe(bean);
+
+        assertThat(description.size(), is(50));
+        assertThat(description.get("property00"), is("value00"));
+        assertThat(description.get("property47"), is("47"));
+
+        for (int i = 0; i < 10_000; ++i) {
+            new UniversalDescriber(session).describe(bean);
+        }
+
+        int describes = 100_000;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < describes; ++i) {
+            new UniversalDescriber(session).describe(bean);
+        }
+        long nanos = System.nanoTime() - start;
+
+        logger.info("{} describes per second of a 50 property bean, {} ns per property.",
+                (long) (describes * 1e9 / nanos), nanos / (describes * 50L));
+    }
+}
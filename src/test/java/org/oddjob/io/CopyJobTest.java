@@ -28,6 +28,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.Matchers.contains;
@@ -244,4 +246,125 @@ public class CopyJobTest extends OjTestCase {
         oddjob.destroy();
     }
 
+    @Test
+    public void testCopyDirectoryIncrementalExample() throws Exception {
+        FileUtils.forceMkdir(workDir);
+
+        Properties props = new Properties();
+        props.setProperty("base.dir", baseDir.toString());
+        props.setProperty("work.dir", workDir.toString());
+
+        Oddjob oj = new Oddjob();
+        oj.setProperties(props);
+        oj.setConfiguration(new XMLConfiguration(
+                "org/oddjob/io/CopyDirectoryIncremental.xml",
+                getClass().getClassLoader()));
+
+        oj.run();
+
+        assertEquals(ParentState.COMPLETE, oj.lastStateEvent().getState());
+
+        assertTrue(new File(workDir, "a/x/test3.txt").exists());
+
+        OddjobLookup lookup = new OddjobLookup(oj);
+
+        assertEquals(Integer.valueOf(2), lookup.lookup("copy.filesCopied", Integer.class));
+        assertEquals(Integer.valueOf(0), lookup.lookup("copy.filesSkipped", Integer.class));
+
+        oj.hardReset();
+        oj.run();
+
+        assertEquals(ParentState.COMPLETE, oj.lastStateEvent().getState());
+
+        lookup = new OddjobLookup(oj);
+
+        assertEquals(Integer.valueOf(0), lookup.lookup("copy.filesCopied", Integer.class));
+        assertEquals(Integer.valueOf(2), lookup.lookup("copy.filesSkipped", Integer.class));
+
+        oj.destroy();
+    }
+
+    @Test
+    public void testParallelChannelCopyAndChecksum() throws Exception {
+
+        Path from = workDir.toPath().resolve("from");
+        for (int d = 0; d < 4; ++d) {
+            Path dir = Files.createDirectories(from.resolve("dir" + d).resolve("sub"));
+            for (int f = 0; f < 50; ++f) {
+                Files.write(dir.resolve("file" + f + ".txt"),
+                        ("Line " + d + " " + f + System.lineSeparator()).repeat(100)
+                                .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Path to = Files.createDirectories(workDir.toPath().resolve("to"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CopyJob test = new CopyJob();
+            test.setFrom(new File[] { from.toFile() });
+            test.setTo(to.toFile());
+            test.setConcurrency(4);
+            test.setExecutorService(executor);
+
+            test.run();
+
+            assertEquals(200, test.getFilesCopied());
+            assertEquals(1, test.getDirectoriesCopied());
+            assertEquals(Files.size(from.resolve("dir0/sub/file0.txt")) * 200,
+                    test.getBytesCopied());
+            assertTrue(test.getBytesPerSecond() > 0);
+
+            Path copied = to.resolve("from/dir3/sub/file49.txt");
+            assertEquals(Files.readAllLines(from.resolve("dir3/sub/file49.txt")),
+                    Files.readAllLines(copied));
+            assertEquals(Files.getLastModifiedTime(from.resolve("dir3/sub/file49.txt")),
+                    Files.getLastModifiedTime(copied));
+
+            // Same size different content.
+            Files.write(from.resolve("dir1/sub/file1.txt"),
+                    ("Line X Y" + System.lineSeparator()).repeat(100)
+                            .getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(from.resolve("dir1/sub/file1.txt"),
+                    Files.getLastModifiedTime(to.resolve("from/dir1/sub/file1.txt")));
+
+            test.setIncremental(true);
+            test.run();
+
+            assertEquals(0, test.getFilesCopied());
+            assertEquals(200, test.getFilesSkipped());
+
+            test.setChecksum(true);
+            test.run();
+
+            assertEquals(1, test.getFilesCopied());
+            assertEquals(199, test.getFilesSkipped());
+            assertEquals(Files.readAllLines(from.resolve("dir1/sub/file1.txt")),
+                    Files.readAllLines(to.resolve("from/dir1/sub/file1.txt")));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testChannelCopyToSameFileFails() throws Exception {
+
+        Path file = Files.createDirectories(workDir.toPath()).resolve("file.txt");
+        Files.write(file, "Precious".getBytes(StandardCharsets.UTF_8));
+
+        CopyJob test = new CopyJob();
+        test.setFrom(new File[] { file.toFile() });
+        test.setTo(workDir);
+        test.setConcurrency(2);
+
+        try {
+            test.run();
+            fail("Should fail.");
+        }
+        catch (RuntimeException e) {
+            assertEquals(IOException.class, e.getCause().getClass());
+        }
+
+        assertEquals("Precious", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,226 @@
+package org.oddjob.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.OurDirs;
+import org.oddjob.scheduling.Keeper;
+import org.oddjob.scheduling.LoosingOutcome;
+import org.oddjob.scheduling.Outcome;
+import org.oddjob.scheduling.WinningOutcome;
+import org.oddjob.state.JobState;
+import org.oddjob.state.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FileKeeperServiceTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileKeeperServiceTest.class);
+
+    private static final long TIMEOUT = 5000;
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private FileKeeperService newService(Path dir) throws IOException {
+        FileKeeperService service = new FileKeeperService();
+        service.setDir(dir);
+        service.setScheduleExecutorService(scheduler);
+        service.start();
+        return service;
+    }
+
+    @Test
+    public void testWinLooseAndComplete() throws IOException, InterruptedException {
+
+        Path dir = OurDirs.workPathDir(
+                FileKeeperServiceTest.class.getSimpleName() + "Complete", true);
+
+        FileKeeperService ours = newService(dir);
+        FileKeeperService theirs = newService(dir);
+
+        Outcome first = ours.getKeeper("test").grab("apple", "first");
+        assertThat(first.isWon(), is(true));
+
+        Outcome second = theirs.getKeeper("test").grab("orange", "first");
+        assertThat(second.isWon(), is(false));
+        assertThat(second.getWinner(), is("apple"));
+
+        BlockingQueue<State> states = new LinkedBlockingQueue<>();
+        ((LoosingOutcome) second).addStateListener(
+                event -> states.add(event.getState()));
+
+        assertThat(states.poll(), is(JobState.EXECUTING));
+        assertThat(theirs.getLoosingCount(), is(1));
+
+        ((WinningOutcome) first).complete();
+
+        assertThat(states.poll(TIMEOUT, TimeUnit.MILLISECONDS), is(JobState.COMPLETE));
+        assertThat(theirs.getLoosingCount(), is(0));
+
+        // A winner restarting without persistence shouldn't run again.
+        Outcome again = ours.getKeeper("test").grab("apple", "first");
+        assertThat(again.isWon(), is(false));
+
+        ((LoosingOutcome) again).addStateListener(
+                event -> states.add(event.getState()));
+
+        assertThat(states.poll(), is(JobState.COMPLETE));
+
+        ours.stop();
+        theirs.stop();
+    }
+
+    @Test
+    public void testStaleLeaseTakenOver() throws IOException, InterruptedException {
+
+        Path dir = OurDirs.workPathDir(
+                FileKeeperServiceTest.class.getSimpleName() + "Stale", true);
+
+        FileKeeperService ours = newService(dir);
+        ours.setHeartbeatInterval(50);
+        ours.setLeaseExpiry(300);
+
+        FileKeeperService theirs = newService(dir);
+        theirs.setHeartbeatInterval(50);
+        theirs.setLeaseExpiry(300);
+
+        Keeper keeper = theirs.getKeeper("test");
+
+        Outcome first = ours.getKeeper("test").grab("apple", "first");
+        assertThat(first.isWon(), is(true));
+
+        Outcome second = keeper.grab("orange", "first");
+        assertThat(second.isWon(), is(false));
+
+        BlockingQueue<State> states = new LinkedBlockingQueue<>();
+        ((LoosingOutcome) second).addStateListener(
+                event -> states.add(event.getState()));
+
+        assertThat(states.poll(), is(JobState.EXECUTING));
+
+        // Still heart beating.
+        assertThat(states.poll(500, TimeUnit.MILLISECONDS), nullValue());
+
+        // As if the process died.
+        ours.stop();
+
+        assertThat(states.poll(TIMEOUT, TimeUnit.MILLISECONDS), is(JobState.EXCEPTION));
+
+        Outcome retry = keeper.grab("orange", "first");
+        assertThat(retry.isWon(), is(true));
+        assertThat(retry.getWinner(), is("orange"));
+
+        ((WinningOutcome) retry).complete();
+
+        theirs.stop();
+    }
+
+    /**
+     * The winner is in another process and this process is told when it
+     * completes.
+     */
+    @Test
+    public void testHandOverBetweenProcesses() throws IOException, InterruptedException {
+
+        Path dir = OurDirs.workPathDir(
+                FileKeeperServiceTest.class.getSimpleName() + "Process", true);
+
+        Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                Winner.class.getName(), dir.toString())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        try (BufferedReader fromWinner = new BufferedReader(
+                new InputStreamReader(process.getInputStream()));
+             PrintWriter toWinner = new PrintWriter(process.getOutputStream(), true)) {
+
+            assertThat(fromWinner.readLine(), is("WON"));
+
+            FileKeeperService test = newService(dir);
+
+            Outcome outcome = test.getKeeper("test").grab("orange", "first");
+            assertThat(outcome.isWon(), is(false));
+            assertThat(outcome.getWinner(), is("apple"));
+
+            BlockingQueue<Long> completed = new LinkedBlockingQueue<>();
+            ((LoosingOutcome) outcome).addStateListener(event -> {
+                if (event.getState() == JobState.COMPLETE) {
+                    completed.add(System.currentTimeMillis());
+                }
+            });
+
+            toWinner.println("complete");
+
+            long winnerCompleted = Long.parseLong(fromWinner.readLine());
+
+            Long looserCompleted = completed.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+            assertThat(looserCompleted, notNullValue());
+
+            logger.info("Hand over took {} ms.", looserCompleted - winnerCompleted);
+
+            test.stop();
+        }
+
+        assertThat(process.waitFor(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        assertThat(process.exitValue(), is(0));
+    }
+
+    /**
+     * The winning process. Grabs, then completes when told to.
+     */
+    public static class Winner {
+
+        public static void main(String... args) throws IOException {
+
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+            FileKeeperService service = new FileKeeperService();
+            service.setDir(Paths.get(args[0]));
+            service.setScheduleExecutorService(scheduler);
+            service.start();
+
+            Outcome outcome = service.getKeeper("test").grab("apple", "first");
+            System.out.println(outcome.isWon() ? "WON" : "LOST");
+
+            if (outcome.isWon()) {
+                new BufferedReader(new InputStreamReader(System.in)).readLine();
+
+                long now = System.currentTimeMillis();
+                ((WinningOutcome) outcome).complete();
+                System.out.println(now);
+            }
+
+            service.stop();
+            scheduler.shutdown();
+        }
+    }
+}
@@ -13,8 +13,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class GrepJobTest extends OjTestCase {
 
@@ -294,6 +301,196 @@ public class GrepJobTest extends OjTestCase {
 		
 	}
 	
+   @Test
+	public void testConcurrentSameAsOneLineAtATime() throws IOException {
+		
+		File testFile1 = new File(dir, "GrepTest1.txt");
+		File testFile2 = new File(dir, "GrepTest2.txt");
+		
+		File[] files = { testFile1, testFile2, testFile1, testFile2 };
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (boolean regexp : new boolean[] { false, true }) {
+				for (boolean ignoreCase : new boolean[] { false, true }) {
+					for (boolean invert : new boolean[] { false, true }) {
+						
+						BufferType expected = new BufferType();
+						expected.configured();
+						
+						GrepJob test = new GrepJob();
+						test.setText(regexp ? "r.d" : "red");
+						test.setRegexp(regexp);
+						test.setIgnoreCase(ignoreCase);
+						test.setInvert(invert);
+						test.setLineNumbers(true);
+						test.setFiles(files);
+						test.setOut(expected.toOutputStream());
+						
+						test.call();
+						
+						int matched = test.getMatchedLineCount();
+						
+						BufferType results = new BufferType();
+						results.configured();
+						
+						List<GrepLineResult> beans = new ArrayList<>();
+						
+						test.setConcurrency(3);
+						test.setExecutorService(executor);
+						test.setConsumer(beans::add);
+						test.setOut(results.toOutputStream());
+						
+						test.call();
+						
+						assertEquals(matched, test.getMatchedLineCount());
+						assertEquals(expected.getText(), results.getText());
+						assertEquals(matched, beans.size());
+					}
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+   @Test
+	public void testConsumerGetsResultsInOrder() throws IOException {
+		
+		File testFile1 = new File(dir, "GrepTest1.txt");
+		File testFile2 = new File(dir, "GrepTest2.txt");
+		
+		List<GrepLineResult> results = new ArrayList<>();
+		
+		GrepJob test = new GrepJob();
+		test.setText("red");
+		test.setFiles(new File[] { testFile1, testFile2 } );
+		test.setConcurrency(2);
+		test.setConsumer(results::add);
+		
+		test.call();
+		
+		assertEquals(3, results.size());
+		
+		assertEquals(testFile1, results.get(0).getFile());
+		assertEquals(1, results.get(0).getLineNumber());
+		assertEquals(testFile1, results.get(1).getFile());
+		assertEquals(3, results.get(1).getLineNumber());
+		assertEquals(testFile2, results.get(2).getFile());
+		assertEquals("2 red buses.", results.get(2).getLine());
+		assertEquals("red", results.get(2).getMatch());
+	}
+	
+   @Test
+	public void testFailingConsumerDoesNotLeaveSearchesWaiting() throws Exception {
+		
+		Path workDir = OurDirs.workPathDir(getClass().getSimpleName(), true);
+		
+		File[] files = new File[2];
+		for (int i = 0; i < files.length; ++i) {
+			Path file = workDir.resolve("matches" + i + ".log");
+			try (Writer writer = Files.newBufferedWriter(file, Charset.defaultCharset())) {
+				for (int line = 0; line < GrepJob.FileSearch.MAX_WAITING * 4; ++line) {
+					writer.write("red line " + line + "\n");
+				}
+			}
+			files[i] = file.toFile();
+		}
+		
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+		try {
+			List<GrepLineResult> results = new ArrayList<>();
+			
+			GrepJob test = new GrepJob();
+			test.setText("red");
+			test.setFiles(files);
+			test.setConcurrency(2);
+			test.setExecutorService(executor);
+			test.setConsumer(result -> {
+				if (results.size() == 10) {
+					throw new IllegalStateException("Full");
+				}
+				results.add(result);
+			});
+			
+			try {
+				test.call();
+				fail("Should fail.");
+			}
+			catch (IllegalStateException e) {
+				// expected
+			}
+			
+			for (int i = 0; i < 500 && executor.getActiveCount() > 0; ++i) {
+				Thread.sleep(10L);
+			}
+			assertEquals(0, executor.getActiveCount());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Logs the rate large files are searched at. Only the count is checked.
+	 */
+   @Test
+	public void testConcurrentThroughput() throws IOException {
+		
+		Path workDir = OurDirs.workPathDir(getClass().getSimpleName(), true);
+		
+		int fileCount = 4;
+		int linesPerFile = 200_000;
+		
+		File[] files = new File[fileCount];
+		for (int i = 0; i < fileCount; ++i) {
+			Path file = workDir.resolve("big" + i + ".log");
+			try (Writer writer = Files.newBufferedWriter(file, Charset.defaultCharset())) {
+				for (int line = 0; line < linesPerFile; ++line) {
+					writer.write("2024-01-01 12:00:00 INFO  Processed request ");
+					writer.write(Integer.toString(line));
+					writer.write(line % 1000 == 0 ? " with ERROR\n" : " ok\n");
+				}
+			}
+			files[i] = file.toFile();
+		}
+		
+		long bytes = 0;
+		for (File file : files) {
+			bytes += file.length();
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(fileCount);
+		try {
+			GrepJob test = new GrepJob();
+			test.setText("ERROR");
+			test.setFiles(files);
+			
+			long start = System.nanoTime();
+			test.call();
+			long lineNanos = System.nanoTime() - start;
+			
+			assertEquals(fileCount * linesPerFile / 1000, test.getMatchedLineCount());
+			
+			test.setConcurrency(fileCount);
+			test.setExecutorService(executor);
+			
+			start = System.nanoTime();
+			test.call();
+			long concurrentNanos = System.nanoTime() - start;
+			
+			assertEquals(fileCount * linesPerFile / 1000, test.getMatchedLineCount());
+			
+			logger.info("Searched {} bytes at {} GB/s line at a time, {} GB/s concurrently.",
+					bytes, String.format("%.3f", bytes / (double) lineNanos), 
+					String.format("%.3f", bytes / (double) concurrentNanos));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
    @Test
 	public void testGrepJobExample() {
 		
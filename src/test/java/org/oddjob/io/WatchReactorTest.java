@@ -0,0 +1,163 @@
+package org.oddjob.io;
+
+import org.junit.Test;
+import org.oddjob.OurDirs;
+import org.oddjob.util.Restore;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class WatchReactorTest {
+
+    private static final long TIMEOUT = 2000;
+
+    private static final WatchEvent.Kind<?>[] ALL = {
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE };
+
+    static long reactorThreads() {
+        Set<Thread> threads = Thread.getAllStackTraces().keySet();
+        return threads.stream().filter(t -> t.getName().startsWith("WatchReactor-")).count();
+    }
+
+    @Test
+    public void testManyDirectoriesOneThread() throws IOException, InterruptedException {
+
+        Path testPath = OurDirs.workPathDir(WatchReactorTest.class.getSimpleName() + "Many", true);
+
+        long threadsBefore = reactorThreads();
+
+        WatchReactor test = new WatchReactor(FileSystems.getDefault(), 20);
+
+        int dirCount = 50;
+
+        BlockingQueue<Path> paths = new LinkedBlockingQueue<>();
+        List<Restore> restores = new ArrayList<>();
+        List<Path> dirs = new ArrayList<>();
+
+        for (int i = 0; i < dirCount; ++i) {
+            Path dir = Files.createDirectory(testPath.resolve("feed" + i));
+            dirs.add(dir);
+            restores.add(test.watch(dir, ALL, (kind, path) -> paths.add(path)));
+        }
+
+        assertThat(test.getRegisteredKeys(), is(dirCount));
+        assertThat(test.getSubscriberCount(), is(dirCount));
+
+        // A second subscriber on the same directory shares the key.
+        BlockingQueue<Path> creates = new LinkedBlockingQueue<>();
+        Restore second = test.watch(dirs.get(0),
+                new WatchEvent.Kind<?>[] { StandardWatchEventKinds.ENTRY_CREATE },
+                (kind, path) -> creates.add(path));
+
+        assertThat(test.getRegisteredKeys(), is(dirCount));
+        assertThat(test.getSubscriberCount(), is(dirCount + 1));
+
+        List<Path> expected = new ArrayList<>();
+        for (Path dir : dirs) {
+            expected.add(Files.createFile(dir.resolve("in.dat")));
+        }
+
+        Set<Path> received = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < dirCount; ++i) {
+            Path path = paths.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+            received.add(path);
+        }
+        assertThat(received.containsAll(expected), is(true));
+
+        assertThat(creates.poll(TIMEOUT, TimeUnit.MILLISECONDS), is(expected.get(0)));
+
+        assertThat(reactorThreads() - threadsBefore <= 1, is(true));
+
+        second.close();
+        restores.forEach(Restore::close);
+
+        assertThat(test.getRegisteredKeys(), is(0));
+        assertThat(test.getSubscriberCount(), is(0));
+    }
+
+    @Test
+    public void testDuplicatesCoalescedButNotDeletes() throws IOException, InterruptedException {
+
+        Path testPath = OurDirs.workPathDir(WatchReactorTest.class.getSimpleName() + "Coalesce", true);
+
+        // A long window so the test doesn't depend on timing.
+        WatchReactor test = new WatchReactor(FileSystems.getDefault(), 500);
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        Path file = Files.createFile(testPath.resolve("file.txt"));
+
+        try (Restore restore = test.watch(testPath, ALL,
+                (kind, path) -> events.add(kind.name() + " " + path.getFileName()))) {
+
+            for (int i = 0; i < 5; ++i) {
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(i)));
+            }
+
+            assertThat(events.poll(TIMEOUT, TimeUnit.MILLISECONDS), is("ENTRY_MODIFY file.txt"));
+
+            Path other = testPath.resolve("other.txt");
+            Files.createFile(other);
+            Files.delete(other);
+            Files.createFile(other);
+
+            assertThat(events.poll(TIMEOUT, TimeUnit.MILLISECONDS), is("ENTRY_CREATE other.txt"));
+            assertThat(events.poll(TIMEOUT, TimeUnit.MILLISECONDS), is("ENTRY_DELETE other.txt"));
+            assertThat(events.poll(TIMEOUT, TimeUnit.MILLISECONDS), is("ENTRY_CREATE other.txt"));
+            assertThat(events.poll(700, TimeUnit.MILLISECONDS), nullValue());
+
+            assertThat(test.getEventsReceived(),
+                    is(test.getEventsDispatched() + test.getEventsCoalesced()));
+        }
+    }
+
+    @Test
+    public void testDeletedDirectoryIsInvalid() throws IOException, InterruptedException {
+
+        Path testPath = OurDirs.workPathDir(WatchReactorTest.class.getSimpleName() + "Invalid", true);
+
+        WatchReactor test = new WatchReactor(FileSystems.getDefault(), 0);
+
+        Path dir = Files.createDirectory(testPath.resolve("gone"));
+
+        BlockingQueue<Path> invalid = new LinkedBlockingQueue<>();
+
+        Restore restore = test.watch(dir, ALL, new WatchReactor.Listener() {
+            @Override
+            public void onEvent(WatchEvent.Kind<?> kind, Path path) {
+            }
+
+            @Override
+            public void onInvalid(Path dir) {
+                invalid.add(dir);
+            }
+        });
+
+        Files.delete(dir);
+
+        assertThat(invalid.poll(TIMEOUT, TimeUnit.MILLISECONDS), is(dir));
+        assertThat(test.getRegisteredKeys(), is(0));
+
+        // Closing after is fine.
+        restore.close();
+    }
+}
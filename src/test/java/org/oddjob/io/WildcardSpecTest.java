@@ -13,6 +13,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -403,4 +405,137 @@ public class WildcardSpecTest extends OjTestCase {
     	assertEquals(true, list.contains(
     			new File(new File(dirs.base(), "..").getCanonicalFile(), "oddjob")));
     }
+    
+    /**
+     * Wait for the cache to see a change.
+     */
+    static File[] waitFor(CachedWildcardSpec test, int expected) 
+    		throws IOException, InterruptedException {
+    	File[] files = test.findFiles();
+    	for (int i = 0; i < 200 && files.length != expected; ++i) {
+    		Thread.sleep(50);
+    		files = test.findFiles();
+    	}
+    	return files;
+    }
+    
+    @Test
+    public void testCachedFollowsChanges() throws IOException, InterruptedException {
+    	
+    	Path workDir = OurDirs.workPathDir(getClass().getSimpleName() + "Cached", true);
+    	
+    	Path a = Files.createDirectory(workDir.resolve("a"));
+    	Files.createFile(a.resolve("one.txt"));
+    	Files.createFile(a.resolve("two.log"));
+    	
+    	try (CachedWildcardSpec test = new CachedWildcardSpec(
+    			new File(workDir.toFile(), "*/*.txt"))) {
+    		
+    		File[] files = test.findFiles();
+    		
+    		assertEquals(1, files.length);
+    		assertEquals(Arrays.asList(new WildcardSpec(
+    				new File(workDir.toFile(), "*/*.txt")).findFiles()), 
+    				Arrays.asList(files));
+    		assertEquals(false, test.isStale());
+    		assertEquals(2, test.getWatchedDirectoryCount());
+    		
+    		// A new file.
+    		Files.createFile(a.resolve("three.txt"));
+    		
+    		files = waitFor(test, 2);
+    		assertEquals(2, files.length);
+    		
+    		// A new directory with a file in it.
+    		Path b = Files.createDirectory(workDir.resolve("b"));
+    		Files.createFile(b.resolve("four.txt"));
+    		
+    		files = waitFor(test, 3);
+    		assertEquals(3, files.length);
+    		assertEquals(new File(b.toFile().getCanonicalFile(), "four.txt"), files[2]);
+    		
+    		// A deleted file and directory.
+    		Files.delete(a.resolve("one.txt"));
+    		Files.delete(b.resolve("four.txt"));
+    		Files.delete(b);
+    		
+    		files = waitFor(test, 1);
+    		assertEquals(1, files.length);
+    		assertEquals("three.txt", files[0].getName());
+    		
+    		assertEquals(Arrays.asList(new WildcardSpec(
+    				new File(workDir.toFile(), "*/*.txt")).findFiles()), 
+    				Arrays.asList(files));
+    		assertEquals(false, test.isStale());
+    	}
+    }
+    
+    @Test
+    public void testCachedWhenDirectoryMissing() throws IOException {
+    	
+    	Path workDir = OurDirs.workPathDir(getClass().getSimpleName() + "Missing", true);
+    	
+    	try (CachedWildcardSpec test = new CachedWildcardSpec(
+    			new File(workDir.toFile(), "later/*.txt"))) {
+    		
+    		assertEquals(0, test.findFiles().length);
+    		assertEquals(true, test.isStale());
+    		
+    		Path later = Files.createDirectory(workDir.resolve("later"));
+    		Files.createFile(later.resolve("x.txt"));
+    		
+    		assertEquals(1, test.findFiles().length);
+    		assertEquals(false, test.isStale());
+    	}
+    }
+    
+    /**
+     * Logs the time to expand a small file tree, every time and cached. Only the 
+     * counts are checked.
+     */
+    @Test
+    public void testExpandLargeTree() throws IOException {
+    	
+    	Path workDir = OurDirs.workPathDir(getClass().getSimpleName() + "Large", true);
+    	
+    	int directories = 10;
+    	int filesPerDirectory = 100;
+    	
+    	for (int i = 0; i < directories; ++i) {
+    		Path dir = Files.createDirectory(workDir.resolve("d" + i));
+    		for (int j = 0; j < filesPerDirectory; ++j) {
+    			Files.createFile(dir.resolve("f" + j + ".dat"));
+    		}
+    	}
+    	
+    	File spec = new File(workDir.toFile(), "*/*.dat");
+    	
+    	long start = System.nanoTime();
+    	File[] files = new WildcardSpec(spec).findFiles();
+    	long expandNanos = System.nanoTime() - start;
+    	
+    	assertEquals(directories * filesPerDirectory, files.length);
+    	
+    	try (CachedWildcardSpec test = new CachedWildcardSpec(spec)) {
+    		
+    		start = System.nanoTime();
+    		files = test.findFiles();
+    		long firstNanos = System.nanoTime() - start;
+    		
+    		assertEquals(directories * filesPerDirectory, files.length);
+    		
+    		int repeats = 10;
+    		start = System.nanoTime();
+    		for (int i = 0; i < repeats; ++i) {
+    			files = test.findFiles();
+    		}
+    		long cachedNanos = (System.nanoTime() - start) / repeats;
+    		
+    		assertEquals(directories * filesPerDirectory, files.length);
+    		
+    		logger.info("Expanding {} files took {} ms, cached took {} ms first and {} ms after.", 
+    				files.length, expandNanos / 1_000_000, firstNanos / 1_000_000, 
+    				cachedNanos / 1_000_000);
+    	}
+    }
 }
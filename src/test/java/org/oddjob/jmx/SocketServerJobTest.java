@@ -0,0 +1,165 @@
+package org.oddjob.jmx;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobException;
+import org.oddjob.OddjobLookup;
+import org.oddjob.OjTestCase;
+import org.oddjob.OurDirs;
+import org.oddjob.Stateful;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.state.FlagState;
+import org.oddjob.state.JobState;
+import org.oddjob.state.ParentState;
+import org.oddjob.state.ServiceState;
+import org.oddjob.tools.OddjobTestHelper;
+import org.oddjob.tools.StateSteps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SocketServerJobTest extends OjTestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketServerJobTest.class);
+
+    Oddjob serverOddjob;
+
+    Oddjob clientOddjob;
+
+    @Before
+    public void setUp() {
+        logger.info("----------------  " + getName() + "  -----------------");
+    }
+
+    @After
+    public void tearDown() {
+        if (clientOddjob != null) {
+            clientOddjob.destroy();
+        }
+        if (serverOddjob != null) {
+            serverOddjob.destroy();
+        }
+    }
+
+    @Test
+    public void testClientRunsJobOnServer() throws Exception {
+
+        FlagState flag = new FlagState();
+        flag.setName("Flag");
+
+        SocketServerJob server = new SocketServerJob();
+        server.setArooaSession(new StandardArooaSession());
+        server.setRoot(flag);
+        server.setHost("localhost");
+
+        server.start();
+
+        assertThat(server.getAddress(), startsWith("localhost:"));
+
+        SocketClientJob client = new SocketClientJob();
+        client.setArooaSession(new StandardArooaSession());
+        client.setConnection(server.getAddress());
+
+        client.run();
+
+        assertThat(client.lastStateEvent().getState(), is(ServiceState.STARTED));
+        assertThat(server.getConnections(), is(1));
+
+        Object[] children = OddjobTestHelper.getChildren(client);
+
+        assertThat(children.length, is(1));
+        assertThat(children[0].toString(), is("Flag"));
+
+        Stateful remoteFlag = (Stateful) children[0];
+
+        StateSteps remoteStates = new StateSteps(remoteFlag);
+        remoteStates.startCheck(JobState.READY, JobState.EXECUTING, JobState.COMPLETE);
+
+        ((Runnable) remoteFlag).run();
+
+        remoteStates.checkWait();
+
+        assertThat(flag.lastStateEvent().getState(), is(JobState.COMPLETE));
+        assertThat(server.getInvocations(), greaterThan(0L));
+        assertThat(server.getNotificationsSent(), greaterThan(0L));
+
+        StateSteps clientStates = new StateSteps(client);
+        clientStates.startCheck(ServiceState.STARTED, ServiceState.EXCEPTION);
+
+        server.stop();
+
+        clientStates.checkWait();
+
+        client.destroy();
+    }
+
+    @Test
+    public void testAccessFileWithoutAuthenticationIsRefused() throws Exception {
+
+        SocketServerJob server = new SocketServerJob();
+        server.setArooaSession(new StandardArooaSession());
+        server.setRoot(new FlagState());
+        server.setEnvironment(Collections.singletonMap(
+                JMXServerJob.ACCESS_FILE_PROPERTY, "access.properties"));
+
+        try {
+            server.start();
+            fail("Should fail.");
+        }
+        catch (OddjobException e) {
+            assertThat(server.getAddress(), nullValue());
+        }
+    }
+
+    @Test
+    public void testClientRunsServerJobExample() throws Exception {
+
+        OurDirs dirs = new OurDirs();
+
+        File testDir = dirs.relative("src/test/resources/org/oddjob/jmx");
+
+        Properties serverProps = new Properties();
+        serverProps.setProperty("socket.port", "0");
+
+        serverOddjob = new Oddjob();
+        serverOddjob.setProperties(serverProps);
+        serverOddjob.setFile(new File(testDir, "SocketServerExample.xml"));
+
+        serverOddjob.run();
+
+        assertThat(serverOddjob.lastStateEvent().getState(), is(ParentState.STARTED));
+
+        OddjobLookup serverLookup = new OddjobLookup(serverOddjob);
+
+        String address = serverLookup.lookup("server1.address", String.class);
+        String port = address.substring(address.lastIndexOf(':') + 1);
+
+        Stateful serverJob = serverLookup.lookup("server-jobs/greeting", Stateful.class);
+
+        Properties clientProps = new Properties();
+        clientProps.setProperty("hosts.freds-pc", "localhost");
+        clientProps.setProperty("socket.port", port);
+
+        clientOddjob = new Oddjob();
+        clientOddjob.setProperties(clientProps);
+        clientOddjob.setFile(new File(testDir, "SocketClientExample.xml"));
+
+        StateSteps serverJobStates = new StateSteps(serverJob);
+        serverJobStates.startCheck(JobState.READY, JobState.EXECUTING,
+                JobState.COMPLETE);
+
+        clientOddjob.run();
+
+        assertThat(clientOddjob.lastStateEvent().getState(), is(ParentState.COMPLETE));
+
+        serverJobStates.checkWait();
+    }
+}
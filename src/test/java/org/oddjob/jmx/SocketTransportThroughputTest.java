@@ -0,0 +1,174 @@
+package org.oddjob.jmx;
+
+import org.junit.Test;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.jmx.client.SocketJMXConnector;
+import org.oddjob.jmx.general.RemoteBridge;
+import org.oddjob.jmx.handlers.RemoteOddjobHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory;
+import org.oddjob.jmx.server.JmxServer;
+import org.oddjob.jmx.server.OddjobMBeanFactory;
+import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.socket.SocketRemoteConnector;
+import org.oddjob.state.FlagState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Compares the JMX RMI transport with the socket transport for remote invocations and
+ * state notifications. The timings are logged for comparison, the test only checks
+ * that every call and notification gets through.
+ */
+public class SocketTransportThroughputTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketTransportThroughputTest.class);
+
+    private static final int CALLS = 4_000;
+
+    private static final int RUNS = 200;
+
+    @Test
+    public void testCompareTransports() throws Exception {
+
+        FlagState flag = new FlagState();
+
+        JMXServerJob jmxServer = new JMXServerJob();
+        jmxServer.setArooaSession(new StandardArooaSession());
+        jmxServer.setRoot(flag);
+        jmxServer.setUrl("service:jmx:rmi://");
+        jmxServer.start();
+
+        SocketServerJob socketServer = new SocketServerJob();
+        socketServer.setArooaSession(new StandardArooaSession());
+        socketServer.setRoot(flag);
+        socketServer.setHost("localhost");
+        socketServer.start();
+
+        try (JMXConnector rmi = JMXConnectorFactory.connect(
+                new JMXServiceURL(jmxServer.getAddress()));
+             JMXConnector socket = new SocketJMXConnector(
+                     SocketRemoteConnector.parseAddress(socketServer.getAddress()),
+                     getClass().getClassLoader())) {
+
+            socket.connect();
+
+            for (int threads : new int[] { 1, 8 }) {
+                invocations("RMI", jmxServer, rmi.getMBeanServerConnection(), flag, threads);
+                invocations("Socket", socketServer, socket.getMBeanServerConnection(), flag, threads);
+            }
+
+            notifications("RMI", jmxServer, rmi.getMBeanServerConnection(), flag);
+            notifications("Socket", socketServer, socket.getMBeanServerConnection(), flag);
+        }
+        finally {
+            socketServer.stop();
+            jmxServer.stop();
+        }
+    }
+
+    private static void invocations(String transport, JmxServer server, MBeanServerConnection mbsc,
+                                    FlagState flag, int threads) throws Exception {
+
+        ObjectName objectName = OddjobMBeanFactory.objectName(
+                server.getRemoteIdMappings().idFor(flag));
+        String action = RemoteOddjobHandlerFactory.NOOP.getActionName();
+        String[] signature = RemoteOddjobHandlerFactory.NOOP.getSignature();
+
+        // warm up.
+        for (int i = 0; i < CALLS / 10; ++i) {
+            mbsc.invoke(objectName, action, new Object[0], signature);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            futures.add(executor.submit(() -> {
+                int calls = 0;
+                for (int i = 0; i < CALLS / threads; ++i) {
+                    mbsc.invoke(objectName, action, new Object[0], signature);
+                    ++calls;
+                }
+                return calls;
+            }));
+        }
+
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            total += future.get(2, TimeUnit.MINUTES);
+        }
+
+        long nanos = System.nanoTime() - start;
+
+        executor.shutdown();
+
+        logger.info("{} with {} threads: {} calls in {} ms, {} calls/s",
+                transport, threads, total, TimeUnit.NANOSECONDS.toMillis(nanos),
+                total * 1_000_000_000L / Math.max(nanos, 1));
+
+        assertThat(total, is(CALLS / threads * threads));
+    }
+
+    private static void notifications(String transport, JmxServer server,
+                                      MBeanServerConnection mbsc, FlagState flag) throws Exception {
+
+        long remoteId = server.getRemoteIdMappings().idFor(flag);
+
+        BlockingQueue<Long> completed = new LinkedBlockingQueue<>();
+
+        NotificationListener<StatefulHandlerFactory.StateData> listener = n -> {
+            if (n.getData().getState().isComplete()) {
+                completed.add(System.nanoTime());
+            }
+        };
+
+        RemoteBridge bridge = new RemoteBridge(mbsc);
+        bridge.addNotificationListener(remoteId, StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE,
+                listener);
+
+        // The last state may be sent on subscribing.
+        completed.poll(1, TimeUnit.SECONDS);
+        completed.clear();
+
+        long[] latencies = new long[RUNS];
+        for (int i = 0; i < RUNS; ++i) {
+            flag.hardReset();
+            long start = System.nanoTime();
+            flag.run();
+            Long received = completed.poll(1, TimeUnit.MINUTES);
+            assertThat(received, notNullValue());
+            latencies[i] = received - start;
+        }
+
+        bridge.removeNotificationListener(remoteId, StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE,
+                listener);
+
+        Arrays.sort(latencies);
+
+        logger.info("{} notification latency over {} runs: median {} us, 99th percentile {} us",
+                transport, RUNS,
+                TimeUnit.NANOSECONDS.toMicros(latencies[RUNS / 2]),
+                TimeUnit.NANOSECONDS.toMicros(latencies[RUNS * 99 / 100]));
+    }
+}
@@ -0,0 +1,358 @@
+package org.oddjob.jmx.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.arooa.registry.Address;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.jmx.RemoteOperation;
+import org.oddjob.jmx.handlers.RemoteOddjobHandlerFactory;
+import org.oddjob.jmx.handlers.VanillaServerHandlerFactory;
+import org.oddjob.jmx.server.*;
+import org.oddjob.remote.RemoteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ReflectionException;
+import javax.management.RuntimeMBeanException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class BatchInvokerTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchInvokerTest.class);
+
+    private static final long LATENCY_MILLIS = 20;
+
+    public interface Greeter {
+
+        String greet(String name);
+
+        void complain();
+    }
+
+    public static class OurGreeter implements Greeter {
+
+        private final String greeting;
+
+        public OurGreeter(String greeting) {
+            this.greeting = greeting;
+        }
+
+        @Override
+        public String greet(String name) {
+            return greeting + " " + name;
+        }
+
+        @Override
+        public void complain() {
+            throw new IllegalStateException("Not Happy");
+        }
+    }
+
+    private static class OurServerContext extends MockServerContext {
+
+        ServerInterfaceManagerFactory simf;
+
+        @Override
+        public ServerContext addChild(Object child) {
+            return this;
+        }
+
+        @Override
+        public ServerModel getModel() {
+            return new MockServerModel() {
+                @Override
+                public ServerInterfaceManagerFactory getInterfaceManagerFactory() {
+                    return simf;
+                }
+            };
+        }
+
+        @Override
+        public Address getAddress() {
+            return null;
+        }
+    }
+
+    private final AtomicInteger roundTrips = new AtomicInteger();
+
+    private final List<Long> remoteIds = new ArrayList<>();
+
+    /** If set, thrown instead of invoking the batch operation. */
+    private volatile Exception batchFailure;
+
+    private ClientSessionImpl clientSession;
+
+    private RemoteOperation<String> greet;
+
+    private RemoteOperation<Void> complain;
+
+    /**
+     * Stand in for a remote MBean Server that adds latency to every invocation.
+     */
+    private MBeanServerConnection withLatency(MBeanServer server) {
+        return (MBeanServerConnection) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] { MBeanServerConnection.class },
+                (proxy, method, args) -> {
+                    if ("invoke".equals(method.getName())) {
+                        roundTrips.incrementAndGet();
+                        Thread.sleep(LATENCY_MILLIS);
+                        Exception failure = batchFailure;
+                        if (failure != null &&
+                                RemoteOddjobHandlerFactory.BATCH.getActionName().equals(args[1])) {
+                            throw failure;
+                        }
+                    }
+                    try {
+                        return method.invoke(server, args);
+                    }
+                    catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @Before
+    public void setUp() throws Exception {
+
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+
+        OddjobMBeanFactory factory = new OddjobMBeanFactory(server, null);
+
+        OurServerContext context = new OurServerContext();
+        context.simf = new ServerInterfaceManagerFactoryImpl(
+                new ServerInterfaceHandlerFactory<?, ?>[]{
+                        new RemoteOddjobHandlerFactory(),
+                        new VanillaServerHandlerFactory<>(Greeter.class)
+                });
+
+        for (int i = 0; i < 10; ++i) {
+            remoteIds.add(factory.createMBeanFor(new OurGreeter("Hello" + i), context));
+        }
+
+        clientSession = new ClientSessionImpl(
+                withLatency(server),
+                new DummyNotificationProcessor(),
+                mock(ClientInterfaceManagerFactory.class),
+                new StandardArooaSession(),
+                logger);
+
+        greet = MethodOperation.from(Greeter.class.getMethod("greet", String.class));
+        complain = MethodOperation.from(Greeter.class.getMethod("complain"));
+    }
+
+    @Test
+    public void batchAcrossNodesIsOneRoundTrip() throws RemoteException, ExecutionException, InterruptedException {
+
+        ClientSideToolkit toolkit = new ClientSideToolkitImpl(remoteIds.get(0), clientSession);
+
+        RemoteBatch batch = toolkit.batch();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (long remoteId : remoteIds) {
+            results.add(batch.add(remoteId, greet, "Alice"));
+        }
+        CompletableFuture<Void> failed = batch.add(complain);
+
+        long start = System.nanoTime();
+        batch.execute();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(roundTrips.get(), is(1));
+
+        for (int i = 0; i < results.size(); ++i) {
+            assertThat(results.get(i).get(), is("Hello" + i + " Alice"));
+        }
+
+        try {
+            failed.get();
+            fail("Should fail.");
+        }
+        catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RemoteException.class));
+        }
+
+        logger.info("Batch of {} took {} ms with latency {} ms.",
+                results.size() + 1, millis, LATENCY_MILLIS);
+    }
+
+    @Test
+    public void asyncInvocationsAreBatched() throws Exception {
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; ++i) {
+            ClientSideToolkit toolkit = new ClientSideToolkitImpl(
+                    remoteIds.get(i % remoteIds.size()), clientSession);
+            results.add(toolkit.invokeAsync(greet, "Bob" + i));
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .get(10, TimeUnit.SECONDS);
+        long asyncMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        for (int i = 0; i < results.size(); ++i) {
+            assertThat(results.get(i).get(), is("Hello" + (i % remoteIds.size()) + " Bob" + i));
+        }
+
+        int asyncRoundTrips = roundTrips.getAndSet(0);
+
+        assertThat(asyncRoundTrips, lessThan(100));
+
+        start = System.nanoTime();
+        for (int i = 0; i < 100; ++i) {
+            ClientSideToolkit toolkit = new ClientSideToolkitImpl(
+                    remoteIds.get(i % remoteIds.size()), clientSession);
+            toolkit.invoke(greet, "Bob" + i);
+        }
+        long syncMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(roundTrips.get(), is(100));
+
+        logger.info("100 invocations: async {} ms in {} round trips, sync {} ms.",
+                asyncMillis, asyncRoundTrips, syncMillis);
+
+        clientSession.destroyAll();
+    }
+
+    @Test
+    public void failuresStayIndividual() throws Exception {
+
+        ClientSideToolkit toolkit = new ClientSideToolkitImpl(remoteIds.get(3), clientSession);
+
+        RemoteBatch batch = toolkit.batch();
+
+        CompletableFuture<Void> failed = batch.add(complain);
+        CompletableFuture<String> missing = batch.add(999L, greet, "Nobody");
+        CompletableFuture<String> ok = batch.add(greet, "Carol");
+
+        batch.execute();
+
+        assertThat(ok.get(), is("Hello3 Carol"));
+        assertThat(failed.isCompletedExceptionally(), is(true));
+        assertThat(missing.isCompletedExceptionally(), is(true));
+    }
+
+    private void executeBatchOfThree() throws Exception {
+
+        ClientSideToolkit toolkit = new ClientSideToolkitImpl(remoteIds.get(0), clientSession);
+
+        RemoteBatch batch = toolkit.batch();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            results.add(batch.add(remoteIds.get(i), greet, "Dave"));
+        }
+
+        batch.execute();
+
+        for (int i = 0; i < 3; ++i) {
+            assertThat(results.get(i).get(), is("Hello" + i + " Dave"));
+        }
+    }
+
+    @Test
+    public void unknownBatchOperationSendsOneAtATimeFromThenOn() throws Exception {
+
+        batchFailure = new ReflectionException(new NoSuchMethodException("batch"));
+
+        executeBatchOfThree();
+
+        assertThat(roundTrips.getAndSet(0), is(4));
+
+        batchFailure = null;
+
+        executeBatchOfThree();
+
+        assertThat(roundTrips.get(), is(3));
+    }
+
+    @Test
+    public void olderServerWithoutBatchSendsOneAtATimeFromThenOn() throws Exception {
+
+        batchFailure = new RuntimeMBeanException(new IllegalArgumentException(
+                BatchInvoker.UNKNOWN_OPERATION_MESSAGE + "[" +
+                        RemoteOddjobHandlerFactory.BATCH + "], operations are []"));
+
+        executeBatchOfThree();
+
+        assertThat(roundTrips.getAndSet(0), is(4));
+
+        batchFailure = null;
+
+        executeBatchOfThree();
+
+        assertThat(roundTrips.get(), is(3));
+    }
+
+    @Test
+    public void otherBatchFailureFailsTheBatchWithoutResending() throws Exception {
+
+        batchFailure = new RuntimeMBeanException(new IllegalArgumentException("Bad argument"));
+
+        ClientSideToolkit toolkit = new ClientSideToolkitImpl(remoteIds.get(0), clientSession);
+
+        RemoteBatch batch = toolkit.batch();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            results.add(batch.add(remoteIds.get(i), greet, "Dave"));
+        }
+
+        try {
+            batch.execute();
+            fail("Should fail.");
+        }
+        catch (RemoteException e) {
+            // expected
+        }
+
+        for (CompletableFuture<String> result : results) {
+            assertThat(result.isCompletedExceptionally(), is(true));
+        }
+        assertThat(roundTrips.getAndSet(0), is(1));
+
+        batchFailure = null;
+
+        executeBatchOfThree();
+
+        assertThat(roundTrips.get(), is(1));
+    }
+
+    @Test
+    public void asyncInvocationFailsOnceSessionDestroyed() throws Exception {
+
+        ClientSideToolkit toolkit = new ClientSideToolkitImpl(remoteIds.get(0), clientSession);
+
+        assertThat(toolkit.invokeAsync(greet, "Eve").get(10, TimeUnit.SECONDS),
+                is("Hello0 Eve"));
+
+        clientSession.destroyAll();
+
+        CompletableFuture<String> result = toolkit.invokeAsync(greet, "Eve");
+
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            fail("Should fail.");
+        }
+        catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RemoteException.class));
+        }
+    }
+}
@@ -5,9 +5,11 @@ import org.oddjob.OjTestCase;
 import org.oddjob.remote.Notification;
 import org.oddjob.remote.NotificationListener;
 import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.util.NotificationGap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class SynchronizerTest extends OjTestCase {
@@ -57,4 +59,62 @@ public class SynchronizerTest extends OjTestCase {
         assertEquals(n3, results.notifications.get(3));
     }
 
+    @Test
+    public void testResyncAfterGap() {
+
+        Notification<String> n0 = new Notification<>(1L, type, 100, "a");
+        Notification<String> n3 = new Notification<>(1L, type, 103, "d");
+        Notification<String> n4 = new Notification<>(1L, type, 104, "e");
+        Notification<String> n5 = new Notification<>(1L, type, 105, "f");
+
+        OurListener results = new OurListener();
+
+        List<Integer> resyncs = new ArrayList<>();
+
+        Synchronizer<String> test = new Synchronizer<>(results,
+                () -> {
+                    resyncs.add(1);
+                    return Collections.singletonList(n4);
+                });
+
+        test.synchronize(n0);
+
+        assertEquals(1, results.notifications.size());
+
+        // 101 and 102 were dropped.
+        test.handleNotification(NotificationGap.markerFor(1L, type, 102, 2));
+
+        assertEquals(1, resyncs.size());
+        assertEquals(2, results.notifications.size());
+        assertEquals(n4, results.notifications.get(1));
+
+        // Older than the resync so ignored.
+        test.handleNotification(n3);
+
+        assertEquals(2, results.notifications.size());
+
+        test.handleNotification(n5);
+
+        assertEquals(3, results.notifications.size());
+        assertEquals(n5, results.notifications.get(2));
+    }
+
+    @Test
+    public void testGapIgnoredWithoutResync() {
+
+        Notification<String> n0 = new Notification<>(1L, type, 100, "a");
+        Notification<String> n3 = new Notification<>(1L, type, 103, "d");
+
+        OurListener results = new OurListener();
+
+        Synchronizer<String> test = new Synchronizer<>(results);
+
+        test.synchronize(n0);
+
+        test.handleNotification(NotificationGap.markerFor(1L, type, 102, 2));
+        test.handleNotification(n3);
+
+        assertEquals(2, results.notifications.size());
+        assertEquals(n3, results.notifications.get(1));
+    }
 }
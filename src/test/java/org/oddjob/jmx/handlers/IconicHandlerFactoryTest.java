@@ -8,7 +8,10 @@ import org.oddjob.images.IconHelper;
 import org.oddjob.images.IconListener;
 import org.oddjob.images.ImageData;
 import org.oddjob.jmx.RemoteOperation;
+import org.oddjob.jmx.client.ClientSession;
 import org.oddjob.jmx.client.ClientSideToolkit;
+import org.oddjob.jmx.client.IconCache;
+import org.oddjob.jmx.client.MockClientSession;
 import org.oddjob.jmx.client.MockClientSideToolkit;
 import org.oddjob.jmx.server.MockServerSideToolkit;
 import org.oddjob.jmx.server.ServerInterfaceHandler;
@@ -17,6 +20,11 @@ import org.oddjob.remote.NotificationListener;
 import org.oddjob.remote.NotificationType;
 import org.oddjob.remote.RemoteException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class IconicHandlerFactoryTest extends OjTestCase {
 
     static class OurIconic implements Iconic {
@@ -119,6 +127,11 @@ public class IconicHandlerFactoryTest extends OjTestCase {
 
             this.listener = null;
         }
+
+        @Override
+        public ClientSession getClientSession() {
+            return null;
+        }
     }
 
     static class OurServerToolkit2 extends MockServerSideToolkit {
@@ -199,4 +212,116 @@ public class IconicHandlerFactoryTest extends OjTestCase {
 
     }
 
+    static class CustomIconic extends OurIconic {
+
+        static final ImageData customComplete = new ImageData(
+                IconHelper.completeIcon.getBytes(), "image/gif", "Custom Complete");
+
+        {
+            Map<String, ImageData> icons = new HashMap<>();
+            for (String iconId : IconHelper.standardIconIds()) {
+                icons.put(iconId, IconHelper.COMPLETE.equals(iconId) ?
+                        customComplete : helper.iconForId(iconId));
+            }
+            helper = new IconHelper(this, IconHelper.READY, icons);
+        }
+    }
+
+    /**
+     * Client Toolkit that counts remote invocations and passes notifications
+     * straight through.
+     */
+    static class CountingClientToolkit extends MockClientSideToolkit {
+
+        final ServerInterfaceHandler server;
+
+        final ClientSession clientSession;
+
+        final Map<String, Integer> invocations;
+
+        CountingClientToolkit(ServerInterfaceHandler server,
+                              ClientSession clientSession,
+                              Map<String, Integer> invocations) {
+            this.server = server;
+            this.clientSession = clientSession;
+            this.invocations = invocations;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T invoke(RemoteOperation<T> remoteOperation, Object... args)
+                throws RemoteException {
+            invocations.merge(remoteOperation.getActionName(), 1, Integer::sum);
+            try {
+                return (T) server.invoke(remoteOperation, args);
+            } catch (Throwable e) {
+                throw new RemoteException(e);
+            }
+        }
+
+        @Override
+        public ClientSession getClientSession() {
+            return clientSession;
+        }
+
+        @Override
+        public <T> void registerNotificationListener(NotificationType<T> eventType,
+                                                     NotificationListener<T> notificationListener) {
+        }
+
+        @Override
+        public <T> void removeNotificationListener(NotificationType<T> eventType,
+                                                   NotificationListener<T> notificationListener) {
+        }
+    }
+
+    @Test
+    public void testIconsAreCachedForAllNodesOfASession() {
+
+        IconCache iconCache = new IconCache();
+
+        ClientSession clientSession = new MockClientSession() {
+            @Override
+            public IconCache getIconCache() {
+                return iconCache;
+            }
+        };
+
+        Map<String, Integer> invocations = new HashMap<>();
+
+        IconicHandlerFactory test = new IconicHandlerFactory();
+
+        int nodes = 10_000;
+
+        List<Iconic> locals = new ArrayList<>();
+        for (int i = 0; i < nodes; ++i) {
+
+            OurIconic iconic = i == 42 ? new CustomIconic() : new OurIconic();
+            iconic.helper.changeIcon(IconHelper.COMPLETE);
+
+            ServerInterfaceHandler serverHandler = test.createServerHandler(
+                    iconic, new OurServerToolkit());
+
+            Iconic local = new IconicHandlerFactory.ClientFactory(
+            ).createClientHandler(iconic, new CountingClientToolkit(
+                    serverHandler, clientSession, invocations));
+
+            local.addIconListener(event -> assertNotNull(local.iconForId(event.getIconId())));
+
+            locals.add(local);
+        }
+
+        assertEquals(Integer.valueOf(1), invocations.get("Iconic.allIcons"));
+        assertEquals("Only the custom icon is fetched.",
+                Integer.valueOf(1), invocations.get("Iconic.iconForId"));
+
+        assertEquals("Complete", locals.get(0).iconForId(IconHelper.COMPLETE).getDescription());
+        assertEquals("Custom Complete", locals.get(42).iconForId(IconHelper.COMPLETE).getDescription());
+        assertEquals("Complete", locals.get(nodes - 1).iconForId(IconHelper.COMPLETE).getDescription());
+
+        assertEquals(Integer.valueOf(1), invocations.get("Iconic.iconForId"));
+
+        assertEquals(IconHelper.standardIconIds().size() + 1, iconCache.getSize());
+    }
+
 }
@@ -0,0 +1,46 @@
+package org.oddjob.jobs;
+
+import org.junit.Test;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TemplatesCacheTest {
+
+    byte[] load(String resource) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testSameStylesheetCompiledOnce() throws IOException, TransformerConfigurationException {
+
+        TemplatesCache test = new TemplatesCache(1);
+
+        Templates first = test.templatesFor(load("styles.xsl"));
+        Templates second = test.templatesFor(load("styles.xsl"));
+
+        assertThat(second, sameInstance(first));
+        assertThat(test.getStatistics().getHits(), is(1L));
+        assertThat(test.getStatistics().getMisses(), is(1L));
+
+        Templates other = test.templatesFor(load("styles-with-param.xsl"));
+
+        assertThat(other, not(sameInstance(first)));
+        assertThat(test.getSize(), is(1));
+        assertThat(test.getStatistics().getEvictions(), is(1L));
+
+        Templates again = test.templatesFor(load("styles.xsl"));
+
+        assertThat(again, not(sameInstance(first)));
+        assertThat(test.getStatistics().getMisses(), is(3L));
+    }
+}
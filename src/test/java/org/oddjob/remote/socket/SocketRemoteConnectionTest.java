@@ -0,0 +1,423 @@
+package org.oddjob.remote.socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.OperationType;
+import org.oddjob.remote.RemoteInvocationException;
+import org.oddjob.state.JobState;
+
+import javax.management.BadAttributeValueExpException;
+import javax.security.auth.Subject;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class SocketRemoteConnectionTest {
+
+    static final NotificationType<String> STRING_TYPE =
+            NotificationType.ofName("some.string.event").andDataType(String.class);
+
+    static class OurHandler implements SocketServerHandler {
+
+        final Map<Long, NotificationListener<Object>> listeners = new ConcurrentHashMap<>();
+
+        final BlockingQueue<Long> subscribed = new LinkedBlockingQueue<>();
+
+        final BlockingQueue<Long> unsubscribed = new LinkedBlockingQueue<>();
+
+        volatile CountDownLatch slow = new CountDownLatch(0);
+
+        @Override
+        public Object invoke(long remoteId, String operationName, String[] signature, Object[] args)
+                throws Exception {
+            switch (operationName) {
+                case "echo":
+                    return args[0];
+                case "fail":
+                    throw new IllegalStateException("Failed on purpose.");
+                case "slow":
+                    slow.await(10, TimeUnit.SECONDS);
+                    return remoteId;
+                default:
+                    throw new NoSuchMethodException(operationName);
+            }
+        }
+
+        @Override
+        public boolean exists(long remoteId) {
+            return remoteId < 100L;
+        }
+
+        @Override
+        public AutoCloseable subscribe(long remoteId, String notificationType,
+                                       NotificationListener<Object> listener) {
+            listeners.put(remoteId, listener);
+            subscribed.add(remoteId);
+            return () -> {
+                listeners.remove(remoteId);
+                unsubscribed.add(remoteId);
+            };
+        }
+
+        void fire(long remoteId, long sequence, Object data) {
+            listeners.get(remoteId).handleNotification(new Notification<>(remoteId,
+                    new NotificationType<>(STRING_TYPE.getName(), Object.class), sequence, data));
+        }
+    }
+
+    OurHandler handler;
+
+    SocketServer server;
+
+    SocketRemoteConnection test;
+
+    @Before
+    public void setUp() throws IOException {
+        handler = new OurHandler();
+        server = new SocketServer(handler, null, getClass().getClassLoader());
+        server.start(new InetSocketAddress("localhost", 0));
+    }
+
+    @After
+    public void tearDown() {
+        if (test != null) {
+            test.close();
+        }
+        server.close();
+    }
+
+    void connect(int window) throws IOException {
+        test = SocketRemoteConnection.connect(
+                new InetSocketAddress("localhost", server.getAddress().getPort()),
+                getClass().getClassLoader(), window);
+    }
+
+    @Test
+    public void testInvokeAndFail() throws Exception {
+
+        connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+
+        assertThat(test.invoke(1L, "echo", new String[] { String.class.getName() }, "Hello"),
+                is("Hello"));
+
+        OperationType<String> echo = OperationType.ofName("echo")
+                .withSignature(String.class).returning(String.class);
+
+        assertThat(test.invoke(1L, echo, "Hello"), is("Hello"));
+
+        try {
+            test.invoke(1L, "fail", new String[0]);
+            fail("Should throw.");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("Failed on purpose."));
+        }
+
+        OperationType<Void> failOp = OperationType.ofName("fail").returningVoid();
+
+        try {
+            test.invoke(1L, failOp);
+            fail("Should throw.");
+        }
+        catch (RemoteInvocationException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+
+        assertThat(test.exists(1L), is(true));
+        assertThat(test.exists(200L), is(false));
+
+        assertThat(test.getInvocations(), is(4L));
+        assertThat(server.getInvocations(), is(4L));
+        assertThat(test.getPendingRequests(), is(0));
+    }
+
+    private Object echo(Object value) throws Exception {
+        return test.invoke(1L, "echo", new String[] { Object.class.getName() }, value);
+    }
+
+    @Test
+    public void testValuesRoundTrip() throws Exception {
+
+        connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+
+        assertThat(echo(null), nullValue());
+        assertThat(echo(true), is(true));
+        assertThat(echo(false), is(false));
+        assertThat(echo(42), is(42));
+        assertThat(echo(42L), is(42L));
+        assertThat(echo(4.2), is(4.2));
+        assertThat(echo("Caf\u00e9 \u65e5\u672c"), is("Caf\u00e9 \u65e5\u672c"));
+
+        char[] chars = new char[100_000];
+        Arrays.fill(chars, '\u00e9');
+        String big = new String(chars);
+        assertThat(echo(big), is(big));
+
+        assertThat((byte[]) echo(new byte[] { 1, 2, 3 }), is(new byte[] { 1, 2, 3 }));
+        assertThat((String[]) echo(new String[] { "a", null, "c" }),
+                is(new String[] { "a", null, "c" }));
+
+        Object nested = echo(new Object[] { 1, "two", new Object[] { 3L } });
+        assertThat(nested, instanceOf(Object[].class));
+        assertThat(((Object[]) ((Object[]) nested)[2])[0], is(3L));
+
+        Object integers = echo(new Integer[] { 1, 2 });
+        assertThat(integers, instanceOf(Integer[].class));
+
+        Date date = new Date();
+        assertThat(echo(date), is(date));
+    }
+
+    @Test
+    public void testConcurrentInvocationsShareOneConnection() throws Exception {
+
+        connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+
+        handler.slow = new CountDownLatch(1);
+
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (long i = 0; i < 10; ++i) {
+            futures.add(test.invokeAsync(i, "slow", new String[0]));
+        }
+
+        // A fast call isn't held up by the slow ones.
+        assertThat(test.invoke(1L, "echo", new String[] { Object.class.getName() }, "Quick"),
+                is("Quick"));
+
+        assertThat(test.getPendingRequests(), is(10));
+
+        handler.slow.countDown();
+
+        for (int i = 0; i < 10; ++i) {
+            assertThat(futures.get(i).get(10, TimeUnit.SECONDS), is((long) i));
+        }
+
+        assertThat(server.getConnections(), is(1));
+    }
+
+    @Test
+    public void testNotificationsAreFlowControlled() throws Exception {
+
+        server.setNotificationBacklog(5);
+
+        connect(4);
+
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<Notification<String>> received = new LinkedBlockingQueue<>();
+
+        test.subscribe(1L, STRING_TYPE, n -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(n);
+        });
+
+        for (long i = 0; i < 20; ++i) {
+            handler.fire(1L, i, "Message " + i);
+        }
+
+        // 4 sent within the window, 5 in the backlog.
+        assertThat(server.getNotificationsDropped(), is(11L));
+
+        release.countDown();
+
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 9; ++i) {
+            Notification<String> n = received.poll(10, TimeUnit.SECONDS);
+            assertThat(n, notNullValue());
+            assertThat(n.getRemoteId(), is(1L));
+            assertThat(n.getType().getName(), is(STRING_TYPE.getName()));
+            assertThat(n.getData(), is("Message " + n.getSequence()));
+            sequences.add(n.getSequence());
+        }
+
+        assertThat(sequences, contains(0L, 1L, 2L, 3L, 15L, 16L, 17L, 18L, 19L));
+        assertThat(test.getNotificationsReceived(), is(9L));
+        assertThat(test.getNotificationsDropped(), is(11L));
+        assertThat(received.poll(100, TimeUnit.MILLISECONDS), nullValue());
+    }
+
+    @Test
+    public void testAddAndRemoveListeners() throws Exception {
+
+        connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        NotificationListener<String> listener = n -> {
+            results.add(n.getData());
+            latch.countDown();
+        };
+
+        test.addNotificationListener(2L, STRING_TYPE, listener);
+
+        assertThat(handler.subscribed.poll(10, TimeUnit.SECONDS), is(2L));
+
+        handler.fire(2L, 1L, "Hello");
+
+        assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(results, contains("Hello"));
+
+        test.removeNotificationListener(2L, STRING_TYPE, listener);
+
+        assertThat(handler.unsubscribed.poll(10, TimeUnit.SECONDS), is(2L));
+        assertThat(handler.listeners.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testServerCloseFailsPendingAndTellsListeners() throws Exception {
+
+        connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+
+        handler.slow = new CountDownLatch(1);
+
+        AtomicReference<Throwable> closedWith = new AtomicReference<>();
+        CountDownLatch closed = new CountDownLatch(1);
+        test.addClosedListener(cause -> {
+            closedWith.set(cause);
+            closed.countDown();
+        });
+
+        CompletableFuture<Object> pending = test.invokeAsync(1L, "slow", new String[0]);
+
+        server.close();
+
+        try {
+            pending.get(10, TimeUnit.SECONDS);
+            fail("Should fail.");
+        }
+        catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+
+        assertThat(closed.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(closedWith.get(), notNullValue());
+        assertThat(test.isClosed(), is(true));
+
+        try {
+            test.invoke(1L, "echo", new String[] { Object.class.getName() }, "Hello");
+            fail("Should fail.");
+        }
+        catch (IOException e) {
+            // expected
+        }
+
+        handler.slow.countDown();
+    }
+
+    @Test
+    public void testClassesNotAllowedAreRefused() throws Exception {
+
+        connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+
+        try {
+            echo(new java.awt.Point(1, 2));
+            fail("Should fail.");
+        }
+        catch (InvalidClassException e) {
+            // expected
+        }
+
+        server.setSerialFilter("java.awt.Point");
+
+        assertThat(echo(new java.awt.Point(1, 2)), is(new java.awt.Point(1, 2)));
+    }
+
+    @Test
+    public void testOnlyValueTypesAreAllowedByDefault() throws Exception {
+
+        connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("list", new ArrayList<>(Arrays.asList(1, "two")));
+        map.put("amount", new BigDecimal("1.50"));
+        map.put("date", LocalDate.of(2020, 3, 1));
+        map.put("state", JobState.COMPLETE);
+        map.put("empty", Collections.emptyList());
+        map.put("fixed", List.of("a", "b"));
+
+        assertThat(echo(map), is(map));
+
+        try {
+            echo(new PriorityQueue<>(Arrays.asList(2, 1)));
+            fail("Should fail.");
+        }
+        catch (InvalidClassException e) {
+            // expected
+        }
+
+        try {
+            echo(new BadAttributeValueExpException("Bad"));
+            fail("Should fail.");
+        }
+        catch (InvalidClassException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAuthentication() throws Exception {
+
+        server.setAuthenticator(credentials -> {
+            String[] userPass = (String[]) credentials;
+            if ("alice".equals(userPass[0]) && "secret".equals(userPass[1])) {
+                return new Subject();
+            }
+            throw new SecurityException("No.");
+        });
+
+        InetSocketAddress address = new InetSocketAddress("localhost", server.getAddress().getPort());
+
+        try {
+            SocketRemoteConnection.connect(address, getClass().getClassLoader(),
+                    SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW, "alice", "wrong");
+            fail("Should fail.");
+        }
+        catch (IOException e) {
+            assertThat(e.getCause(), instanceOf(SecurityException.class));
+        }
+
+        try {
+            connect(SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW);
+            fail("Should fail.");
+        }
+        catch (IOException e) {
+            // expected
+        }
+
+        test = SocketRemoteConnection.connect(address, getClass().getClassLoader(),
+                SocketRemoteConnection.DEFAULT_NOTIFICATION_WINDOW, "alice", "secret");
+
+        assertThat(echo("Hello"), is("Hello"));
+    }
+}
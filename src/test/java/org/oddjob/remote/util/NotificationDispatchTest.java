@@ -0,0 +1,297 @@
+package org.oddjob.remote.util;
+
+import org.junit.Test;
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.RemoteException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class NotificationDispatchTest {
+
+    static final NotificationType<Integer> TYPE =
+            NotificationType.ofName("some.int.event").andDataType(Integer.class);
+
+    static Notification<Integer> notification(int i) {
+        return new Notification<>(1L, TYPE, i, i);
+    }
+
+    /**
+     * Blocks on the first notification until released.
+     */
+    static class StuckListener implements NotificationListener<Integer> {
+
+        final CountDownLatch stuck = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final BlockingQueue<Notification<Integer>> received = new LinkedBlockingQueue<>();
+
+        @Override
+        public void handleNotification(Notification<Integer> notification) {
+            stuck.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(notification);
+        }
+    }
+
+    @Test
+    public void testSlowListenerDoesNotHoldUpSenderOrOthers() throws InterruptedException {
+
+        try (NotificationDispatch test = new NotificationDispatch(null, 100,
+                NotificationDispatch.OverflowPolicy.DROP_OLDEST)) {
+
+            StuckListener slow = new StuckListener();
+            BlockingQueue<Notification<Integer>> fastReceived = new LinkedBlockingQueue<>();
+
+            NotificationDispatch.Subscriber<Integer> slowSubscriber =
+                    test.subscriberFor("slow", slow, null);
+            NotificationDispatch.Subscriber<Integer> fastSubscriber =
+                    test.subscriberFor("fast", fastReceived::add, null);
+
+            for (int i = 0; i < 10; ++i) {
+                slowSubscriber.handleNotification(notification(i));
+                fastSubscriber.handleNotification(notification(i));
+            }
+
+            assertThat(slow.stuck.await(10, TimeUnit.SECONDS), is(true));
+
+            for (int i = 0; i < 10; ++i) {
+                Notification<Integer> n = fastReceived.poll(10, TimeUnit.SECONDS);
+                assertThat(n, notNullValue());
+                assertThat(n.getData(), is(i));
+            }
+
+            assertThat(slowSubscriber.getQueued(), is(9));
+            assertThat(test.getTotalQueued(), is(9L));
+
+            slow.release.countDown();
+
+            for (int i = 0; i < 10; ++i) {
+                Notification<Integer> n = slow.received.poll(10, TimeUnit.SECONDS);
+                assertThat(n, notNullValue());
+                assertThat(n.getData(), is(i));
+            }
+
+            // Counted after the listener returns.
+            for (int i = 0; i < 100 && test.getTotalDelivered() < 20L; ++i) {
+                Thread.sleep(10);
+            }
+            assertThat(test.getTotalDelivered(), is(20L));
+            assertThat(test.getTotalDropped(), is(0L));
+        }
+    }
+
+    @Test
+    public void testDropOldestSendsGapMarker() throws InterruptedException {
+
+        try (NotificationDispatch test = new NotificationDispatch(null, 3,
+                NotificationDispatch.OverflowPolicy.DROP_OLDEST)) {
+
+            StuckListener slow = new StuckListener();
+
+            NotificationDispatch.Subscriber<Integer> subscriber =
+                    test.subscriberFor("slow", slow, null, true);
+
+            subscriber.handleNotification(notification(0));
+
+            assertThat(slow.stuck.await(10, TimeUnit.SECONDS), is(true));
+
+            for (int i = 1; i < 10; ++i) {
+                subscriber.handleNotification(notification(i));
+            }
+
+            NotificationDispatch.SubscriberStats stats = test.getSubscribers().get(0);
+            assertThat(stats.getName(), is("slow"));
+            assertThat(stats.getQueued(), is(3));
+            assertThat(stats.getMaxQueued(), is(3));
+            assertThat(stats.getDropped(), is(6L));
+            assertThat(stats.isDisconnected(), is(false));
+
+            slow.release.countDown();
+
+            List<Notification<Integer>> received = new ArrayList<>();
+            for (int i = 0; i < 5; ++i) {
+                Notification<Integer> n = slow.received.poll(10, TimeUnit.SECONDS);
+                assertThat(n, notNullValue());
+                received.add(n);
+            }
+
+            assertThat(received.get(0).getData(), is(0));
+
+            Notification<Integer> gap = received.get(1);
+            assertThat(NotificationGap.isGap(gap), is(true));
+            assertThat(NotificationGap.gapOf(gap).getMissed(), is(6));
+            assertThat(gap.getSequence(), is(6L));
+            assertThat(gap.getType(), is(TYPE));
+
+            assertThat(received.get(2).getData(), is(7));
+            assertThat(received.get(3).getData(), is(8));
+            assertThat(received.get(4).getData(), is(9));
+
+            assertThat(test.getTotalDropped(), is(6L));
+        }
+    }
+
+    @Test
+    public void testDropOldestWithoutGapMarkerWhenNotGapAware() throws InterruptedException {
+
+        try (NotificationDispatch test = new NotificationDispatch(null, 3,
+                NotificationDispatch.OverflowPolicy.DROP_OLDEST)) {
+
+            StuckListener slow = new StuckListener();
+
+            NotificationDispatch.Subscriber<Integer> subscriber =
+                    test.subscriberFor("slow", slow, null);
+
+            subscriber.handleNotification(notification(0));
+
+            assertThat(slow.stuck.await(10, TimeUnit.SECONDS), is(true));
+
+            for (int i = 1; i < 10; ++i) {
+                subscriber.handleNotification(notification(i));
+            }
+
+            slow.release.countDown();
+
+            List<Integer> received = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                Notification<Integer> n = slow.received.poll(10, TimeUnit.SECONDS);
+                assertThat(n, notNullValue());
+                received.add(n.getData());
+            }
+
+            assertThat(received, contains(0, 7, 8, 9));
+            assertThat(slow.received.poll(100, TimeUnit.MILLISECONDS), nullValue());
+
+            assertThat(test.getTotalDropped(), is(6L));
+        }
+    }
+
+    @Test
+    public void testDisconnect() throws InterruptedException {
+
+        try (NotificationDispatch test = new NotificationDispatch(null, 3,
+                NotificationDispatch.OverflowPolicy.DISCONNECT)) {
+
+            StuckListener slow = new StuckListener();
+            CountDownLatch disconnected = new CountDownLatch(1);
+
+            NotificationDispatch.Subscriber<Integer> subscriber =
+                    test.subscriberFor("slow", slow, disconnected::countDown);
+
+            subscriber.handleNotification(notification(0));
+
+            assertThat(slow.stuck.await(10, TimeUnit.SECONDS), is(true));
+
+            for (int i = 1; i < 10; ++i) {
+                subscriber.handleNotification(notification(i));
+            }
+
+            assertThat(disconnected.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(subscriber.isDisconnected(), is(true));
+            assertThat(subscriber.getQueued(), is(0));
+            assertThat(test.getDisconnects(), is(1L));
+            assertThat(test.getSubscriberCount(), is(0));
+
+            slow.release.countDown();
+
+            Notification<Integer> n = slow.received.poll(10, TimeUnit.SECONDS);
+            assertThat(n.getData(), is(0));
+            assertThat(slow.received.poll(100, TimeUnit.MILLISECONDS), nullValue());
+        }
+    }
+
+    @Test
+    public void testOrderIsKeptAcrossBatches() throws InterruptedException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try (NotificationDispatch test = new NotificationDispatch(executor, 10_000,
+                NotificationDispatch.OverflowPolicy.DROP_OLDEST)) {
+
+            List<Integer> received = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(1000);
+
+            NotificationDispatch.Subscriber<Integer> subscriber =
+                    test.subscriberFor("one", n -> {
+                        received.add(n.getData());
+                        done.countDown();
+                    }, null);
+
+            for (int i = 0; i < 1000; ++i) {
+                subscriber.handleNotification(notification(i));
+            }
+
+            assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+
+            for (int i = 0; i < 1000; ++i) {
+                assertThat(received.get(i), is(i));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWithNotificationManager() throws RemoteException, InterruptedException {
+
+        List<String> unSubscribed = Collections.synchronizedList(new ArrayList<>());
+
+        try (NotificationDispatch dispatch = new NotificationDispatch(null, 2,
+                NotificationDispatch.OverflowPolicy.DISCONNECT)) {
+
+            NotificationManager test = new NotificationManager(
+                    null,
+                    (remoteId, type) -> unSubscribed.add("" + remoteId + "-" + type.getName()),
+                    dispatch);
+
+            StuckListener slow = new StuckListener();
+
+            test.addNotificationListener(1L, TYPE, slow);
+
+            assertThat(dispatch.getSubscriberCount(), is(1));
+
+            test.handleNotification(notification(0));
+
+            assertThat(slow.stuck.await(10, TimeUnit.SECONDS), is(true));
+
+            for (int i = 1; i < 5; ++i) {
+                test.handleNotification(notification(i));
+            }
+
+            slow.release.countDown();
+
+            for (int i = 0; i < 100 && unSubscribed.isEmpty(); ++i) {
+                Thread.sleep(20);
+            }
+
+            assertThat(unSubscribed, contains("1-some.int.event"));
+            assertThat(dispatch.getSubscriberCount(), is(0));
+
+            // Can be added again.
+            test.addNotificationListener(1L, TYPE, slow);
+            test.removeNotificationListener(1L, TYPE, slow);
+
+            assertThat(dispatch.getSubscriberCount(), is(0));
+        }
+    }
+}
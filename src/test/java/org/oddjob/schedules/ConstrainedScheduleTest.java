@@ -3,6 +3,9 @@ package org.oddjob.schedules;
 import org.junit.Test;
 
 import java.text.ParseException;
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 
 import org.oddjob.OjTestCase;
 
@@ -148,4 +151,38 @@ public class ConstrainedScheduleTest extends OjTestCase {
 		
 	}
 	
+   @Test
+	public void testSubClassOverridingNeitherMethodFailsClearly() throws ParseException {
+		
+		ConstrainedSchedule test = new ConstrainedSchedule() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected ZonedDateTime fromDateTime(ZonedDateTime reference) {
+				return reference.truncatedTo(ChronoUnit.DAYS);
+			}
+			
+			@Override
+			protected Period periodBetween() {
+				return Period.ofDays(1);
+			}
+			
+			@Override
+			public String toString() {
+				return "No to date.";
+			}
+		};
+		
+		ScheduleContext context = new ScheduleContext(
+				DateHelper.parseDateTime("2009-03-03"));
+		
+		try {
+			test.nextInterval(context);
+			fail("Should fail.");
+		}
+		catch (UnsupportedOperationException e) {
+			assertTrue(e.getMessage().contains("toDateTime"));
+		}
+	}
+	
 }
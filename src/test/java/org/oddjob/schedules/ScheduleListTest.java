@@ -19,7 +19,11 @@ import org.oddjob.arooa.standard.StandardFragmentParser;
 import org.oddjob.arooa.utils.DateHelper;
 import org.oddjob.arooa.xml.XMLConfiguration;
 import org.oddjob.schedules.schedules.DailySchedule;
+import org.oddjob.schedules.schedules.IntervalSchedule;
+import org.oddjob.schedules.schedules.MonthlySchedule;
+import org.oddjob.schedules.schedules.TimeSchedule;
 import org.oddjob.schedules.schedules.WeeklySchedule;
+import org.oddjob.schedules.units.DayOfMonth;
 import org.oddjob.schedules.units.DayOfWeek;
 
 /**
@@ -159,4 +163,72 @@ public class ScheduleListTest extends OjTestCase {
     	
     	assertEquals(expected, next);
     }
+	
+   @Test
+    public void testNestedListTiming() throws ParseException {
+    	
+    	// Weekdays every 15 minutes in business hours.
+    	IntervalSchedule every15 = new IntervalSchedule();
+    	every15.setInterval("00:15");
+    	
+    	TimeSchedule businessHours = new TimeSchedule();
+    	businessHours.setFrom("08:00");
+    	businessHours.setTo("18:00");
+    	businessHours.setRefinement(every15);
+    	
+    	WeeklySchedule weekdays = new WeeklySchedule();
+    	weekdays.setFrom(DayOfWeek.Days.MONDAY);
+    	weekdays.setTo(DayOfWeek.Days.FRIDAY);
+    	weekdays.setRefinement(businessHours);
+    	
+    	// Saturday at 10:00 and 16:00.
+    	TimeSchedule ten = new TimeSchedule();
+    	ten.setAt("10:00");
+    	
+    	TimeSchedule four = new TimeSchedule();
+    	four.setAt("16:00");
+    	
+    	ScheduleList saturdayTimes = new ScheduleList();
+    	saturdayTimes.setSchedules(new Schedule[] { ten, four });
+    	
+    	WeeklySchedule saturday = new WeeklySchedule();
+    	saturday.setOn(DayOfWeek.Days.SATURDAY);
+    	saturday.setRefinement(saturdayTimes);
+    	
+    	// Month end at 23:00.
+    	DailySchedule lateEvening = new DailySchedule();
+    	lateEvening.setAt("23:00");
+    	
+    	MonthlySchedule monthEnd = new MonthlySchedule();
+    	monthEnd.setOnDay(DayOfMonth.Shorthands.LAST);
+    	monthEnd.setRefinement(lateEvening);
+    	
+    	ScheduleList test = new ScheduleList();
+    	test.setSchedules(new Schedule[] { weekdays, saturday, monthEnd });
+    	
+    	int count = 5_000;
+    	
+    	ScheduleContext context = new ScheduleContext(
+    			DateHelper.parseDateTime("2011-01-01 00:00"));
+    	
+    	long start = System.nanoTime();
+    	
+    	Interval last = null;
+    	for (int i = 0; i < count; ++i) {
+    		ScheduleResult result = test.nextDue(context);
+    		
+    		if (last != null) {
+    			assertTrue(result.getFromDate().after(last.getFromDate()));
+    		}
+    		last = result;
+    		
+    		context = context.move(result.getUseNext());
+    	}
+    	
+    	long nanos = System.nanoTime() - start;
+    	
+    	logger.info(count + " nextDue of a nested schedule list up to " + 
+    			last + " took " + nanos / 1000000 + "ms, " + 
+    			nanos / count / 1000 + " micros each.");
+    }
 }
@@ -15,6 +15,7 @@ import org.oddjob.schedules.*;
 import org.oddjob.schedules.units.DayOfWeek;
 
 import java.text.ParseException;
+import java.util.Date;
 
 public class IntervalScheduleTest extends OjTestCase {
 
@@ -50,6 +51,28 @@ public class IntervalScheduleTest extends OjTestCase {
 		assertEquals(expected, results[2]);
 	}
 	
+   @Test
+	public void testCountOccurrences() throws ParseException {
+		
+		IntervalSchedule test = new IntervalSchedule();
+		test.setInterval("00:00:05");
+
+		ScheduleContext context = new ScheduleContext(
+				DateHelper.parseDateTime("2005-11-25 10:00"));
+		
+		Date until = DateHelper.parseDateTime("2005-11-25 10:01:01");
+		
+		assertEquals(13, test.countOccurrences(context, until));
+		assertEquals(13, test.occurrences(context, until).count());
+		
+		assertEquals(DateHelper.parseDateTime("2005-11-25 10:01"), 
+				test.occurrences(context, until)
+				.skip(12).findFirst().get().getFromDate());
+		
+		assertEquals(0, test.countOccurrences(context, 
+				DateHelper.parseDateTime("2005-11-25 10:00")));
+	}
+	
    @Test
 	public void testSimpleConstrained() throws ParseException {
 		
@@ -36,7 +36,9 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -328,6 +330,158 @@ public class TimerTest extends OjTestCase {
         assertEquals(23 * 60 * 60 * 1000, oddjobServices.delay);
     }
 
+    @Test
+    public void testCatchUpOnce() {
+
+        FlagState job = new FlagState();
+        job.setState(JobState.COMPLETE);
+
+        DailySchedule time = new DailySchedule();
+        time.setAt("12:00");
+
+        ManualClock clock = new ManualClock("2009-03-02 14:00");
+
+        Timer test = new Timer();
+        test.setSchedule(time);
+        test.setClock(clock);
+        test.setJob(job);
+        test.setCatchUp(CatchUp.ONCE);
+
+        OurScheduledExecutorService oddjobServices = new OurScheduledExecutorService();
+
+        test.setScheduleExecutorService(oddjobServices);
+
+        test.run();
+
+        assertEquals(22 * 60 * 60 * 1000, oddjobServices.delay);
+
+        // simulate being down for days;
+        clock.setDateText("2009-03-08 13:00");
+        oddjobServices.runnable.run();
+
+        // only the latest missed run.
+        assertEquals(0, oddjobServices.delay);
+        assertEquals(DateHelper.parseDateTime("2009-03-08 12:00"),
+                test.getNextDue());
+
+        clock.setDateText("2009-03-08 18:00");
+        oddjobServices.runnable.run();
+
+        assertEquals(18 * 60 * 60 * 1000, oddjobServices.delay);
+    }
+
+    @Test
+    public void testCatchUpLatest() {
+
+        FlagState job = new FlagState();
+        job.setState(JobState.COMPLETE);
+
+        DailySchedule time = new DailySchedule();
+        time.setAt("12:00");
+
+        ManualClock clock = new ManualClock("2009-03-02 14:00");
+
+        Timer test = new Timer();
+        test.setSchedule(time);
+        test.setClock(clock);
+        test.setJob(job);
+        test.setCatchUp(CatchUp.LATEST);
+        test.setCatchUpLimit(2);
+
+        OurScheduledExecutorService oddjobServices = new OurScheduledExecutorService();
+
+        test.setScheduleExecutorService(oddjobServices);
+
+        test.run();
+
+        clock.setDateText("2009-03-08 13:00");
+        oddjobServices.runnable.run();
+
+        assertEquals(0, oddjobServices.delay);
+        assertEquals(DateHelper.parseDateTime("2009-03-07 12:00"),
+                test.getNextDue());
+
+        oddjobServices.runnable.run();
+
+        assertEquals(0, oddjobServices.delay);
+        assertEquals(DateHelper.parseDateTime("2009-03-08 12:00"),
+                test.getNextDue());
+
+        clock.setDateText("2009-03-08 18:00");
+        oddjobServices.runnable.run();
+
+        assertEquals(18 * 60 * 60 * 1000, oddjobServices.delay);
+    }
+
+    @Test(timeout = 10000)
+    public void testCatchUpOnceAfterYearsOfMissedRuns() {
+
+        FlagState job = new FlagState();
+        job.setState(JobState.COMPLETE);
+
+        ManualClock clock = new ManualClock("2009-03-02 14:00");
+
+        Timer test = new Timer();
+        test.setSchedule(new IntervalSchedule(1000L));
+        test.setClock(clock);
+        test.setJob(job);
+        test.setCatchUp(CatchUp.ONCE);
+
+        OurScheduledExecutorService oddjobServices = new OurScheduledExecutorService();
+
+        test.setScheduleExecutorService(oddjobServices);
+
+        test.run();
+
+        // hundreds of millions of missed runs.
+        clock.setDateText("2019-03-02 14:00");
+        oddjobServices.runnable.run();
+
+        assertEquals(0, oddjobServices.delay);
+        assertEquals(DateHelper.parseDateTime("2019-03-02 13:59:59"),
+                test.getNextDue());
+    }
+
+    @Test
+    public void testCatchUpBatch() {
+
+        FlagState job = new FlagState();
+        job.setState(JobState.COMPLETE);
+
+        DailySchedule time = new DailySchedule();
+        time.setAt("12:00");
+
+        ManualClock clock = new ManualClock("2009-03-02 14:00");
+
+        Timer test = new Timer();
+        test.setSchedule(time);
+        test.setClock(clock);
+        test.setJob(job);
+        test.setCatchUp(CatchUp.BATCH);
+
+        OurScheduledExecutorService oddjobServices = new OurScheduledExecutorService();
+
+        test.setScheduleExecutorService(oddjobServices);
+
+        test.run();
+
+        clock.setDateText("2009-03-08 13:00");
+
+        // every missed run.
+        for (int i = 4; i <= 8; ++i) {
+            oddjobServices.runnable.run();
+
+            assertEquals(0, oddjobServices.delay);
+            assertEquals(DateHelper.parseDateTime("2009-03-0" + i + " 12:00"),
+                    test.getNextDue());
+        }
+
+        clock.setDateText("2009-03-08 18:00");
+        oddjobServices.runnable.run();
+
+        assertEquals(18 * 60 * 60 * 1000, oddjobServices.delay);
+    }
+
     @Test
     public void testHaltOnFailure() {
 
@@ -1116,4 +1270,98 @@ public class TimerTest extends OjTestCase {
 
         oddjob.destroy();
     }
+
+    private static class BlockingJob extends SimpleJob {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        protected int execute() throws Throwable {
+            latch.await();
+            return 0;
+        }
+    }
+
+    @Test
+    public void testDispatchedJobDoesntDelayOtherTimers() throws InterruptedException, FailedToStopException {
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService pool = Executors.newCachedThreadPool();
+
+        BlockingJob blocking = new BlockingJob();
+
+        Timer first = new Timer();
+        first.setSchedule(new CountSchedule(1));
+        first.setJob(blocking);
+        first.setScheduleExecutorService(scheduler);
+        first.setExecutorService(pool);
+        first.setDispatch(true);
+
+        Timer second = new Timer();
+        second.setSchedule(new CountSchedule(1));
+        second.setJob(new FlagState());
+        second.setScheduleExecutorService(scheduler);
+
+        StateSteps firstStates = new StateSteps(first);
+        firstStates.startCheck(TimerState.STARTABLE, TimerState.STARTING,
+                TimerState.ACTIVE, TimerState.COMPLETE);
+
+        StateSteps secondStates = new StateSteps(second);
+        secondStates.startCheck(TimerState.STARTABLE, TimerState.STARTING,
+                TimerState.ACTIVE, TimerState.COMPLETE);
+
+        first.run();
+        second.run();
+
+        // The only scheduler thread isn't held by the blocking job.
+        secondStates.checkWait();
+
+        assertEquals(TimerState.ACTIVE, first.lastStateEvent().getState());
+
+        blocking.latch.countDown();
+
+        firstStates.checkWait();
+
+        assertEquals(1, first.getLateness().getCount());
+        assertEquals(1, second.getLateness().getCount());
+        assertTrue(first.getLastLateness() >= 0);
+        assertEquals(first.getLastLateness(), first.getLateness().getMax());
+
+        first.destroy();
+        second.destroy();
+
+        scheduler.shutdown();
+        pool.shutdown();
+    }
+
+    @Test
+    public void testRejectedDispatchIsAnException() throws InterruptedException, FailedToStopException {
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService pool = Executors.newCachedThreadPool();
+        pool.shutdown();
+
+        FlagState job = new FlagState();
+
+        Timer test = new Timer();
+        test.setSchedule(new CountSchedule(1));
+        test.setJob(job);
+        test.setScheduleExecutorService(scheduler);
+        test.setExecutorService(pool);
+        test.setDispatch(true);
+
+        StateSteps states = new StateSteps(test);
+        states.startCheck(TimerState.STARTABLE, TimerState.STARTING,
+                TimerState.ACTIVE, TimerState.EXCEPTION);
+
+        test.run();
+
+        states.checkWait();
+
+        assertEquals(JobState.READY, job.lastStateEvent().getState());
+
+        test.destroy();
+
+        scheduler.shutdown();
+    }
 }
@@ -2,15 +2,21 @@ package org.oddjob.script;
 
 import org.junit.Test;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.Date;
 
 import org.oddjob.OjTestCase;
 
 import org.oddjob.arooa.convert.DefaultConverter;
 import org.oddjob.arooa.utils.DateHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class MethodInvokerTest extends OjTestCase {
 
+	private static final Logger logger = LoggerFactory.getLogger(MethodInvokerTest.class);
+
 	public static String echo(String value) {
 		return value;
 	}
@@ -59,4 +65,108 @@ public class MethodInvokerTest extends OjTestCase {
 		
 		assertEquals("Hello", result);
 	}
+	
+	public static class Overloaded {
+		
+		int calls;
+		
+		public int add(int a) {
+			++calls;
+			return a;
+		}
+		
+		public int add(int a, int b) {
+			++calls;
+			return a + b;
+		}
+		
+		public void fail(String message) {
+			throw new IllegalStateException(message);
+		}
+	}
+	
+   @Test
+	public void testOverloadedAndRepeated() throws Exception {
+		
+		Overloaded overloaded = new Overloaded();
+		
+		MethodInvoker test = new MethodInvoker(overloaded);
+		
+		DefaultConverter converter = new DefaultConverter();
+		
+		assertEquals(3, test.invoke("add", 
+				new ConvertableArguments(converter, 3)));
+		assertEquals(5, test.invoke("add", 
+				new ConvertableArguments(converter, "2", "3")));
+		assertEquals(7, test.invoke("add", 
+				new ConvertableArguments(converter, 3, 4)));
+		
+		assertEquals(3, overloaded.calls);
+		
+		try {
+			test.invoke("add", new ConvertableArguments(converter, 1, 2, 3));
+			fail("Should fail.");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+   @Test
+	public void testExceptionFromMethod() throws Exception {
+		
+		MethodInvoker test = new MethodInvoker(new Overloaded());
+		
+		try {
+			test.invoke("fail", new ConvertableArguments(
+					new DefaultConverter(), "Oops"));
+			fail("Should fail.");
+		}
+		catch (InvocationTargetException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+			assertEquals("Oops", e.getCause().getMessage());
+		}
+	}
+	
+   @Test
+	public void testInvokeTiming() throws Exception {
+		
+		Overloaded overloaded = new Overloaded();
+		
+		MethodInvoker test = new MethodInvoker(overloaded);
+		
+		DefaultConverter converter = new DefaultConverter();
+		
+		int count = 100_000;
+		
+		long start = System.nanoTime();
+		
+		for (int i = 0; i < count; ++i) {
+			test.invoke("add", new ConvertableArguments(converter, i, 1));
+		}
+		
+		long nanos = System.nanoTime() - start;
+		
+		// The way it used to be done, for comparison.
+		start = System.nanoTime();
+		
+		for (int i = 0; i < count; ++i) {
+			for (Method m : Overloaded.class.getMethods()) {
+				if (m.getName().equals("add") && m.getParameterCount() == 2) {
+					m.invoke(overloaded, converter.convert(i, int.class), 
+							converter.convert(1, int.class));
+					break;
+				}
+			}
+		}
+		
+		long reflectNanos = System.nanoTime() - start;
+		
+		assertEquals(2 * count, overloaded.calls);
+		
+		logger.info(count + " invocations took " + nanos / 1000000 + 
+				"ms, " + nanos / count + " nanos each, against " + 
+				reflectNanos / count + " nanos each searching and invoking " +
+				"reflectively.");
+	}
 }
@@ -0,0 +1,124 @@
+package org.oddjob.script;
+
+import org.junit.Test;
+import org.oddjob.OjTestCase;
+
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+public class ScriptCacheTest extends OjTestCase {
+
+   @Test
+	public void testEngineReusedWithNewVariables() throws ScriptException {
+		
+		ScriptCache cache = new ScriptCache(10, 2);
+		
+		ScriptCompiler test = new ScriptCompiler(null, null, cache);
+		
+		Evaluatable evaluatable = test.compileScript(
+				"if (typeof count == 'undefined') { count = 1; } else { count = count + 1; }");
+		
+		ScriptContext scriptContext = evaluatable.getScriptContext();
+		evaluatable.eval(scriptContext);
+		
+		Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
+		assertEquals(1, ((Number) bindings.get("count")).intValue());
+		
+		test.release();
+		
+		assertNull(test.getInvocable());
+		assertEquals(1, cache.getIdleCount());
+		
+		evaluatable = test.compileScript(
+				"if (typeof count == 'undefined') { count = 1; } else { count = count + 1; }");
+		
+		assertEquals(0, cache.getIdleCount());
+		
+		scriptContext = evaluatable.getScriptContext();
+		evaluatable.eval(scriptContext);
+		
+		bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
+		assertEquals(1, ((Number) bindings.get("count")).intValue());
+		
+		assertEquals(1, cache.getStatistics().getHits());
+		assertEquals(1, cache.getStatistics().getMisses());
+	}
+	
+   @Test
+	public void testEngineNotSharedUntilReleased() throws ScriptException {
+		
+		ScriptCache cache = new ScriptCache(10, 2);
+		
+		ScriptCompiler first = new ScriptCompiler(null, null, cache);
+		ScriptCompiler second = new ScriptCompiler(null, null, cache);
+		ScriptCompiler third = new ScriptCompiler(null, null, cache);
+		
+		first.compileScript("var fruit = 'apple';");
+		second.compileScript("var fruit = 'apple';");
+		
+		assertFalse(first.getInvocable() == second.getInvocable());
+		assertEquals(2, cache.getStatistics().getMisses());
+		
+		first.release();
+		second.release();
+		
+		third.compileScript("var fruit = 'apple';");
+		third.release();
+		
+		assertEquals(1, cache.getStatistics().getHits());
+		
+		// Only two idle are kept.
+		first.compileScript("var fruit = 'apple';");
+		second.compileScript("var fruit = 'apple';");
+		third.compileScript("var fruit = 'apple';");
+		
+		first.release();
+		second.release();
+		third.release();
+		
+		assertEquals(2, cache.getIdleCount());
+		assertEquals(1, cache.getStatistics().getEvictions());
+	}
+	
+   @Test
+	public void testDifferentClassLoaderIsMiss() throws ScriptException {
+		
+		ScriptCache cache = new ScriptCache(10, 2);
+		
+		ScriptCompiler test = new ScriptCompiler(null, null, cache);
+		test.compileScript("var fruit = 'apple';");
+		test.release();
+		
+		ClassLoader other = new URLClassLoader(new URL[0], 
+				getClass().getClassLoader());
+		
+		test = new ScriptCompiler(null, other, cache);
+		test.compileScript("var fruit = 'apple';");
+		test.release();
+		
+		assertEquals(0, cache.getStatistics().getHits());
+		assertEquals(2, cache.getStatistics().getMisses());
+		assertEquals(2, cache.getIdleCount());
+	}
+	
+   @Test
+	public void testCompileAgainReleasesPreviousEngine() throws ScriptException {
+		
+		ScriptCache cache = new ScriptCache(10, 2);
+		
+		ScriptCompiler test = new ScriptCompiler(null, null, cache);
+		test.compileScript("var fruit = 'apple';");
+		test.compileScript("var fruit = 'apple';");
+		
+		assertEquals(1, cache.getStatistics().getHits());
+		assertEquals(1, cache.getStatistics().getMisses());
+		assertEquals(0, cache.getIdleCount());
+		
+		test.release();
+		
+		assertEquals(1, cache.getIdleCount());
+	}
+}
@@ -0,0 +1,225 @@
+package org.oddjob.sql;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OjTestCase;
+import org.oddjob.arooa.convert.ArooaConversionException;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.state.ParentState;
+import org.oddjob.tools.ConsoleCapture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionPoolTypeTest extends OjTestCase {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolTypeTest.class);
+
+    private ConnectionPoolType test;
+
+    @Before
+    public void setUp() throws Exception {
+
+        logger.info("---------------  " + getName() + "  ----------------");
+
+        test = new ConnectionPoolType();
+        test.setDriver("org.hsqldb.jdbcDriver");
+        test.setUrl("jdbc:hsqldb:mem:" + getName());
+        test.setUsername("sa");
+        test.setPassword("");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (Connection connection = test.toValue();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("shutdown");
+        }
+        test.destroy();
+    }
+
+    @Test
+    public void testConnectionsReused() throws Exception {
+
+        Connection first = test.toValue();
+        Connection second = test.toValue();
+
+        assertTrue(first != second);
+        assertEquals(2, test.getActiveCount());
+
+        first.close();
+        assertTrue(first.isClosed());
+
+        assertEquals(1, test.getActiveCount());
+        assertEquals(1, test.getIdleCount());
+
+        try {
+            first.setAutoCommit(false);
+            fail("Should fail.");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        second.close();
+
+        assertEquals(0, test.getActiveCount());
+        assertEquals(2, test.getIdleCount());
+    }
+
+    @Test
+    public void testTransactionRolledBackWhenReturned() throws Exception {
+
+        try (Connection connection = test.toValue();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("create table FRUIT(NAME varchar(20))");
+        }
+
+        Connection connection = test.toValue();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("insert into FRUIT values('apple')");
+        }
+        connection.close();
+
+        assertEquals(1, test.getCreatedCount());
+
+        try (Connection again = test.toValue();
+             Statement stmt = again.createStatement();
+             ResultSet rs = stmt.executeQuery("select count(*) from FRUIT")) {
+
+            assertTrue(again.getAutoCommit());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+
+        assertEquals(1, test.getCreatedCount());
+        assertEquals(3, test.getBorrowCount());
+    }
+
+    @Test
+    public void testWaitForConnection() throws Exception {
+
+        test.setMaxActive(1);
+        test.setMaxWait(100);
+
+        Connection connection = test.toValue();
+
+        try {
+            test.toValue();
+            fail("Should fail.");
+        } catch (ArooaConversionException e) {
+            // expected
+        }
+
+        test.setMaxWait(5000);
+
+        CountDownLatch borrowed = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try (Connection other = test.toValue()) {
+                borrowed.countDown();
+            } catch (Exception e) {
+                logger.error("Failed.", e);
+            }
+        });
+        thread.start();
+
+        assertFalse(borrowed.await(200, TimeUnit.MILLISECONDS));
+
+        connection.close();
+
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+        thread.join();
+
+        assertEquals(1, test.getCreatedCount());
+        assertTrue(test.getWaitMillis() >= 200);
+
+        logger.info("Mean wait {} ms.", test.getMeanWaitMillis());
+    }
+
+    @Test
+    public void testStatementsCached() throws Exception {
+
+        test.setStatementCacheSize(2);
+
+        try (Connection connection = test.toValue();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("create table FRUIT(NAME varchar(20))");
+        }
+
+        for (int i = 0; i < 5; ++i) {
+            try (Connection connection = test.toValue();
+                 PreparedStatement stmt = connection.prepareStatement(
+                         "insert into FRUIT values(?)")) {
+
+                assertSame(connection, stmt.getConnection());
+
+                stmt.setString(1, "apple");
+                assertEquals(1, stmt.executeUpdate());
+            }
+        }
+
+        assertEquals(4, test.getStatementStatistics().getHits());
+        assertEquals(1, test.getStatementStatistics().getMisses());
+        assertEquals(0.8, test.getStatementHitRatio(), 0.001);
+
+        // In use statements aren't shared.
+        try (Connection connection = test.toValue();
+             PreparedStatement first = connection.prepareStatement(
+                     "select NAME from FRUIT");
+             PreparedStatement second = connection.prepareStatement(
+                     "select NAME from FRUIT")) {
+
+            first.executeQuery().close();
+            second.executeQuery().close();
+        }
+
+        // Least recently used statements are evicted.
+        try (Connection connection = test.toValue()) {
+            connection.prepareStatement("select count(*) from FRUIT").close();
+            connection.prepareStatement("select NAME from FRUIT").close();
+            connection.prepareStatement("insert into FRUIT values(?)").close();
+        }
+
+        assertEquals(2, test.getStatementStatistics().getEvictions());
+
+        logger.info(test.getStatementStatistics().toString());
+    }
+
+    @Test
+    public void testExample() throws Exception {
+
+        Oddjob oddjob = new Oddjob();
+        oddjob.setConfiguration(new XMLConfiguration(
+                "org/oddjob/sql/ConnectionPoolExample.xml",
+                getClass().getClassLoader()));
+
+        ConsoleCapture console = new ConsoleCapture();
+        try (ConsoleCapture.Close close = console.captureConsole()) {
+
+            oddjob.run();
+        }
+
+        console.dump(logger);
+
+        assertEquals(ParentState.COMPLETE,
+                oddjob.lastStateEvent().getState());
+
+        String[] lines = console.getLines();
+
+        assertEquals(2, lines.length);
+
+        assertEquals("apple: 5", lines[0].trim());
+        assertEquals("orange: 3", lines[1].trim());
+
+        oddjob.destroy();
+    }
+}
@@ -0,0 +1,46 @@
+package org.oddjob.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hsqldb.Trigger;
+import org.oddjob.util.Restore;
+
+/**
+ * A stand in for a database notification in tests. HSQLDB creates an
+ * instance of this class for a trigger on the keeper table and the
+ * trigger tells every listener in this JVM.
+ * 
+ * @author rob
+ *
+ */
+public class HSQLKeeperNotifier implements SQLKeeperNotifier, Trigger {
+
+	private static final List<Runnable> listeners = 
+			new CopyOnWriteArrayList<>();
+	
+	@Override
+	public Restore listen(Connection connection, String table, 
+			Runnable listener) throws SQLException {
+		
+		try (Statement stmt = connection.createStatement()) {
+			stmt.execute("CREATE TRIGGER " + table + "_complete " + 
+					"AFTER UPDATE ON " + table + 
+					" FOR EACH ROW QUEUE 0 CALL \"" + 
+					HSQLKeeperNotifier.class.getName() + "\"");
+		}
+		
+		listeners.add(listener);
+		
+		return () -> listeners.remove(listener);
+	}
+	
+	@Override
+	public void fire(int type, String trigName, String tabName, 
+			Object[] oldRow, Object[] newRow) {
+		listeners.forEach(Runnable::run);
+	}
+}
@@ -93,6 +93,8 @@ public class SQLKeeperTest extends OjTestCase {
 	private class OurExcecutor extends MockScheduledExecutorService {
 		Runnable runnable;
 		
+		long delay;
+		
 		OurFuture  future = new OurFuture();
 		
 		@Override
@@ -100,6 +102,7 @@ public class SQLKeeperTest extends OjTestCase {
 				TimeUnit unit) {
 			
 			this.runnable = command; 
+			this.delay = delay;
 			return future;
 		}
 	}
@@ -223,5 +226,169 @@ public class SQLKeeperTest extends OjTestCase {
 		
 		test.stop();
 	}
+	
+   @Test
+	public void testManyLoosersPolledTogether() throws SQLException, ArooaConversionException {
+		
+		SQLKeeperService winners = new SQLKeeperService();
+		winners.setConnection(ct.toValue());
+		winners.setScheduleExecutorService(new OurExcecutor());
+		
+		winners.start();
+		
+		OurExcecutor executor = new OurExcecutor();
+		
+		SQLKeeperService test = new SQLKeeperService();
+		test.setConnection(ct.toValue());
+		test.setScheduleExecutorService(executor);
+		
+		test.start();
+		
+		List<WinningOutcome> won = new ArrayList<WinningOutcome>();
+		List<OurListener> listeners = new ArrayList<OurListener>();
+		
+		for (String key : new String[] { "a", "b", "c" }) {
+			won.add((WinningOutcome) winners.getKeeper(key).grab("apple", "first"));
+			
+			Outcome lost = test.getKeeper(key).grab("orange", "first");
+			assertFalse(lost.isWon());
+			
+			OurListener listener = new OurListener();
+			((LoosingOutcome) lost).addStateListener(listener);
+			listeners.add(listener);
+		}
+		
+		assertEquals(3, test.getPollerCount());
+		assertEquals(SQLKeeperService.DEFAULT_MIN_POLL_INTERVAL, 
+				executor.delay, 100);
+		
+		won.get(0).complete();
+		won.get(2).complete();
+		
+		executor.runnable.run();
+		
+		assertEquals(1, test.getPollCount());
+		
+		assertEquals(JobState.COMPLETE, listeners.get(0).states.get(1));
+		assertEquals(1, listeners.get(1).states.size());
+		assertEquals(JobState.COMPLETE, listeners.get(2).states.get(1));
+		
+		assertEquals(1, test.getPollerCount());
+		assertEquals(SQLKeeperService.DEFAULT_MIN_POLL_INTERVAL, 
+				executor.delay, 100);
+		
+		executor.runnable.run();
+		
+		assertEquals(2, test.getPollCount());
+		
+		// Nothing completed so backs off.
+		assertEquals(2 * SQLKeeperService.DEFAULT_MIN_POLL_INTERVAL, 
+				executor.delay, 100);
+		
+		test.stop();
+		winners.stop();
+	}
+	
+   @Test
+	public void testFailingPollsStillTimeOut() throws SQLException, ArooaConversionException {
+		
+		SQLKeeperService winners = new SQLKeeperService();
+		winners.setConnection(ct.toValue());
+		winners.setScheduleExecutorService(new OurExcecutor());
+		
+		winners.start();
+		
+		OurExcecutor executor = new OurExcecutor();
+		
+		SQLKeeperService test = new SQLKeeperService();
+		test.setConnection(ct.toValue());
+		test.setScheduleExecutorService(executor);
+		test.setPollSchedule(new CountSchedule(3));
+		
+		test.start();
+		
+		winners.getKeeper("secret").grab("apple", "first");
+		
+		Outcome second = test.getKeeper("secret").grab("orange", "first");
+		
+		OurListener listener = new OurListener();
+		
+		((LoosingOutcome) second).addStateListener(listener);
+		
+		assertEquals(1, test.getPollerCount());
+		
+		BufferType buffer = new BufferType();
+		buffer.setText("DROP TABLE oddjob_grabbable");
+		buffer.configured();
+		
+		SQLJob sql = new SQLJob();
+		sql.setArooaSession(new StandardArooaSession());
+		sql.setInput(buffer.toInputStream());
+		sql.setConnection(ct.toValue());
+		sql.run();
+		
+		executor.runnable.run();
+		
+		assertEquals(1, test.getPollCount());
+		assertEquals(1, listener.states.size());
+		
+		executor.runnable.run();
+		
+		assertEquals(2, test.getPollCount());
+		assertEquals(1, listener.states.size());
+		
+		executor.runnable.run();
+		
+		assertEquals(3, test.getPollCount());
+		assertEquals(2, listener.states.size());
+		assertEquals(JobState.EXCEPTION, listener.states.get(1));
+		assertEquals(0, test.getPollerCount());
+		
+		test.stop();
+		winners.stop();
+	}
+	
+   @Test
+	public void testNotifiedStraightAway() throws SQLException, ArooaConversionException {
+		
+		SQLKeeperService winners = new SQLKeeperService();
+		winners.setConnection(ct.toValue());
+		winners.setScheduleExecutorService(new OurExcecutor());
+		
+		winners.start();
+		
+		OurExcecutor executor = new OurExcecutor();
+		
+		SQLKeeperService test = new SQLKeeperService();
+		test.setConnection(ct.toValue());
+		test.setScheduleExecutorService(executor);
+		test.setNotifier(new HSQLKeeperNotifier());
+		
+		test.start();
+		
+		WinningOutcome first = (WinningOutcome) 
+				winners.getKeeper("secret").grab("apple", "first");
+		
+		Outcome second = test.getKeeper("secret").grab("orange", "first");		
+		
+		OurListener listener = new OurListener();
+		
+		((LoosingOutcome) second).addStateListener(listener);
+		
+		assertEquals(SQLKeeperService.DEFAULT_MIN_POLL_INTERVAL, 
+				executor.delay, 100);
+		
+		first.complete();
+		
+		assertEquals(0, executor.delay);
+		
+		executor.runnable.run();
+		
+		assertEquals(2, listener.states.size());
+		assertEquals(JobState.COMPLETE, listener.states.get(1));
+		
+		test.stop();
+		winners.stop();
+	}
 
 }
@@ -9,6 +9,11 @@ import java.io.File;
 import java.io.Serializable;
 import java.net.URL;
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.oddjob.OjTestCase;
 
@@ -17,7 +22,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.oddjob.Oddjob;
 import org.oddjob.OddjobLookup;
+import org.oddjob.arooa.life.ComponentPersistException;
 import org.oddjob.arooa.life.ComponentPersister;
+import org.oddjob.arooa.registry.Path;
 import org.oddjob.arooa.standard.StandardArooaSession;
 import org.oddjob.arooa.xml.XMLConfiguration;
 import org.oddjob.state.ParentState;
@@ -26,6 +33,15 @@ import org.oddjob.tools.StateSteps;
 public class SQLPersisterTest extends OjTestCase {
 	private static final Logger logger = LoggerFactory.getLogger(SQLPersisterTest.class);
 	
+	private static int countRows(Connection connection) throws Exception {
+		ResultSet rs = connection.createStatement().executeQuery(
+				"select count(*) from oddjob");
+		rs.next();
+		int count = rs.getInt(1);
+		rs.close();
+		return count;
+	}
+	
 	public static class Sample implements Serializable {
 		private static final long serialVersionUID = 2006111;
 		String value;
@@ -76,6 +92,198 @@ public class SQLPersisterTest extends OjTestCase {
 		c.close();
 	}
 		
+   @Test
+	public void testBatchedWrites() throws Exception {
+
+		Oddjob setUp = new Oddjob();
+		
+		setUp.setConfiguration(new XMLConfiguration("Resource",
+				getClass().getResourceAsStream("create.xml")));
+		setUp.run();
+		
+		assertEquals(ParentState.COMPLETE, setUp.lastStateEvent().getState());
+
+		ConnectionType connection = new OddjobLookup(
+				setUp).lookup("vars.con", ConnectionType.class);
+		
+		Connection check = connection.toValue();
+		
+		ScheduledExecutorService scheduler = 
+				Executors.newSingleThreadScheduledExecutor();
+		
+		HSQLSerializationFactory serializationFactory = 
+				new HSQLSerializationFactory();
+		serializationFactory.setDialect(new HSQLDialect());
+		
+		SQLPersisterService test = new SQLPersisterService();
+		test.setConnection(connection.toValue());
+		test.setSerializationFactory(serializationFactory);
+		test.setScheduleExecutorService(scheduler);
+		test.setFlushInterval(60000);
+		test.start();
+		
+		StandardArooaSession session = new StandardArooaSession();
+		
+		ComponentPersister persister = 
+			test.getPersister("test").persisterFor("batch");
+		
+		for (int i = 0; i < 500; ++i) {
+			Sample sample = new Sample();
+			sample.value = "First " + i;
+			persister.persist("job" + i, sample, session);
+		}
+		
+		assertEquals(0, countRows(check));
+
+		// Later changes replace earlier ones.
+		for (int i = 0; i < 500; i += 2) {
+			Sample sample = new Sample();
+			sample.value = "Second " + i;
+			persister.persist("job" + i, sample, session);
+		}
+		
+		test.flush();
+		
+		assertEquals(500, countRows(check));
+
+		// Now updates.
+		Sample sample = new Sample();
+		sample.value = "Third";
+		persister.persist("job1", sample, session);
+		persister.remove("job3", session);
+		
+		// Restore writes anything waiting first.
+		Sample copy = (Sample) persister.restore(
+				"job0", getClass().getClassLoader(), session);
+		assertEquals("Second 0", copy.value);
+		
+		assertEquals(499, countRows(check));
+		
+		copy = (Sample) persister.restore(
+				"job1", getClass().getClassLoader(), session);
+		assertEquals("Third", copy.value);
+		
+		copy = (Sample) persister.restore(
+				"job2", getClass().getClassLoader(), session);
+		assertEquals("Second 2", copy.value);
+		
+		// Restored again after what was read has been dropped.
+		copy = (Sample) persister.restore(
+				"job0", getClass().getClassLoader(), session);
+		assertEquals("Second 0", copy.value);
+		
+		assertNull(persister.restore(
+				"job3", getClass().getClassLoader(), session));
+		
+		// Stop writes anything waiting.
+		persister.remove("job5", session);
+		
+		test.stop();
+		
+		assertEquals(498, countRows(check));
+		
+		scheduler.shutdown();
+		
+		check.createStatement().execute("shutdown");
+		check.close();
+	}
+	
+	/** Fails the first batch, during which a removal arrives. */
+	private static class FailOnceSerialization implements SQLBatchSerialization {
+		
+		ComponentPersister persister;
+		
+		StandardArooaSession session;
+		
+		Map<Path, Map<String, byte[]>> written;
+		
+		@Override
+		public void persistAll(Map<Path, Map<String, byte[]>> writes)
+				throws SQLException {
+			if (written == null) {
+				written = writes;
+				try {
+					persister.remove("foo", session);
+				}
+				catch (ComponentPersistException e) {
+					throw new RuntimeException(e);
+				}
+				throw new SQLException("Failed on purpose.");
+			}
+			written = writes;
+		}
+		
+		@Override
+		public void persist(Path path, String id, Object o) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Object restore(Path path, String id, ClassLoader classLoader) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void remove(Path path, String id) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public String[] children(Path path) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void clear(Path path) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void close() {
+		}
+	}
+	
+   @Test
+	public void testFailedFlushKeepsLaterRemoval() throws Exception {
+		
+		FailOnceSerialization serialization = new FailOnceSerialization();
+		
+		ScheduledExecutorService scheduler = 
+				Executors.newSingleThreadScheduledExecutor();
+		
+		SQLPersisterService test = new SQLPersisterService();
+		test.setSerializationFactory(connection -> serialization);
+		test.setScheduleExecutorService(scheduler);
+		test.setFlushInterval(60000);
+		test.start();
+		
+		serialization.session = new StandardArooaSession();
+		serialization.persister = 
+			test.getPersister("test").persisterFor("batch");
+		
+		Sample sample = new Sample();
+		sample.value = "Apple";
+		serialization.persister.persist("foo", sample, serialization.session);
+		
+		try {
+			test.flush();
+			fail("Should fail.");
+		}
+		catch (SQLException e) {
+			// expected
+		}
+		
+		test.flush();
+		
+		Map<String, byte[]> ids = serialization.written.values().iterator().next();
+		assertTrue(ids.containsKey("foo"));
+		assertNull(ids.get("foo"));
+		
+		test.stop();
+		
+		scheduler.shutdown();
+	}
+	
    @Test
 	public void testInOddjob() throws Exception {		
 		
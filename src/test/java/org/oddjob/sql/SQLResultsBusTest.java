@@ -1,5 +1,6 @@
 package org.oddjob.sql;
 
+import org.apache.commons.beanutils.DynaBean;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -11,13 +12,18 @@ import org.oddjob.arooa.convert.ArooaConversionException;
 import org.oddjob.arooa.reflect.ArooaPropertyException;
 import org.oddjob.arooa.standard.StandardArooaSession;
 import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.io.BufferType;
 import org.oddjob.state.ParentState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
@@ -61,6 +67,66 @@ public class SQLResultsBusTest extends OjTestCase {
 		verify((Closeable) to, times(1)).close();
 	}
 
+    @Test
+    public void testReadAhead() throws Exception {
+
+        ArooaSession session = new StandardArooaSession();
+
+        ConnectionType ct = new ConnectionType();
+        ct.setDriver("org.hsqldb.jdbcDriver");
+        ct.setUrl("jdbc:hsqldb:mem:readahead");
+        ct.setUsername("sa");
+        ct.setPassword("");
+
+        StringBuilder sql = new StringBuilder("create table NUMBERS(N INTEGER);\n");
+        for (int i = 0; i < 250; ++i) {
+            sql.append("insert into NUMBERS values (" + i + ");\n");
+        }
+
+        BufferType buffer = new BufferType();
+        buffer.setText(sql.toString());
+        buffer.configured();
+
+        SQLJob test = new SQLJob();
+        test.setArooaSession(session);
+        test.setConnection(ct.toValue());
+        test.setInput(buffer.toInputStream());
+        test.run();
+
+        List<Object> numbers = new ArrayList<>();
+        Set<Thread> threads = new HashSet<>();
+
+        buffer.setText("select N from NUMBERS order by N");
+        buffer.configured();
+
+        test.setResults(bean -> {
+            threads.add(Thread.currentThread());
+            numbers.add(((DynaBean) bean).get("N"));
+        });
+        test.setFetchSize(20);
+        test.setReadAhead(2);
+        test.setReadAheadBatchSize(10);
+        test.setConnection(ct.toValue());
+        test.setInput(buffer.toInputStream());
+        test.run();
+
+        assertEquals(250, numbers.size());
+        for (int i = 0; i < 250; ++i) {
+            assertEquals(i, numbers.get(i));
+        }
+
+        // Beans are read on another thread but received on the job's.
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+
+        buffer.setText("shutdown");
+        buffer.configured();
+
+        test.setResults(null);
+        test.setConnection(ct.toValue());
+        test.setInput(buffer.toInputStream());
+        test.run();
+    }
+
     @Test
     public void testExample() throws ArooaPropertyException, ArooaConversionException {
 
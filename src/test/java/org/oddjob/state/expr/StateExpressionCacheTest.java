@@ -0,0 +1,95 @@
+package org.oddjob.state.expr;
+
+import org.junit.jupiter.api.Test;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.arooa.utils.Try;
+import org.oddjob.events.InstantEvent;
+import org.oddjob.state.FlagState;
+import org.oddjob.util.Restore;
+
+import java.text.ParseException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StateExpressionCacheTest {
+
+    @Test
+    void sameExpressionReturnedForSameText() throws ParseException {
+
+        StateExpressionCache test = new StateExpressionCache(2);
+
+        StateExpression first = test.compile("job1 is success");
+        StateExpression second = test.compile("job1 is success");
+
+        assertThat(second, sameInstance(first));
+        assertThat(test.getHits(), is(1L));
+        assertThat(test.getMisses(), is(1L));
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() throws ParseException {
+
+        StateExpressionCache test = new StateExpressionCache(2);
+
+        StateExpression a = test.compile("a is success");
+        StateExpression b = test.compile("b is success");
+        test.compile("a is success");
+        test.compile("c is success");
+
+        assertThat(test.getSize(), is(2));
+        assertThat(test.compile("a is success"), sameInstance(a));
+        assertThat(test.compile("b is success"), not(sameInstance(b)));
+    }
+
+    @Test
+    void parseFailureNotCached() {
+
+        StateExpressionCache test = new StateExpressionCache(2);
+
+        assertThrows(ParseException.class, () -> test.compile("job1 is"));
+        assertThrows(ParseException.class, () -> test.compile("job1 is"));
+
+        assertThat(test.getSize(), is(0));
+        assertThat(test.getMisses(), is(2L));
+    }
+
+    @Test
+    void cachedExpressionEvaluatedIndependently() throws ParseException {
+
+        ArooaSession session = new StandardArooaSession();
+
+        FlagState job1 = new FlagState();
+        FlagState job2 = new FlagState();
+
+        session.getBeanRegistry().register("job1", job1);
+        session.getBeanRegistry().register("job2", job2);
+
+        StateExpressionCache test = new StateExpressionCache(2);
+
+        StateExpression expression = test.compile("job1 is success and job2 is success");
+
+        AtomicReference<Try<InstantEvent<Boolean>>> result1 = new AtomicReference<>();
+        AtomicReference<Try<InstantEvent<Boolean>>> result2 = new AtomicReference<>();
+
+        try (Restore ignored1 = expression.evaluate(session, result1::set)) {
+
+            job1.run();
+
+            try (Restore ignored2 = test.compile("job1 is success and job2 is success")
+                    .evaluate(session, result2::set)) {
+
+                assertThat(result1.get().orElseThrow().getOf(), is(false));
+                assertThat(result2.get().orElseThrow().getOf(), is(false));
+
+                job2.run();
+
+                assertThat(result1.get().orElseThrow().getOf(), is(true));
+                assertThat(result2.get().orElseThrow().getOf(), is(true));
+            }
+        }
+    }
+}
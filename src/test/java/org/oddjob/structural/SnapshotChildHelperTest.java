@@ -0,0 +1,297 @@
+package org.oddjob.structural;
+
+import org.junit.jupiter.api.Test;
+import org.oddjob.MockStructural;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotChildHelperTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotChildHelperTest.class);
+
+    private static class ListCopy implements StructuralListener {
+
+        final List<Object> children = new ArrayList<>();
+
+        @Override
+        public void childAdded(StructuralEvent event) {
+            children.add(event.getIndex(), event.getChild());
+        }
+
+        @Override
+        public void childRemoved(StructuralEvent event) {
+            assertThat(children.remove(event.getIndex()), sameInstance(event.getChild()));
+        }
+    }
+
+    @Test
+    void addInsertAndRemoveKeepListenersInStep() {
+
+        SnapshotChildHelper<Object> test = new SnapshotChildHelper<>(new MockStructural());
+
+        ListCopy copy = new ListCopy();
+        test.addStructuralListener(copy);
+
+        Object o1 = new Object();
+        Object o2 = new Object();
+        Object o3 = new Object();
+        Object o4 = new Object();
+
+        assertThat(test.addChild(o1), is(0));
+        assertThat(test.addChild(o2), is(1));
+        test.insertChild(1, o3);
+        test.insertChild(0, o4);
+
+        assertThat(test.getChildren(), arrayContaining(o4, o1, o3, o2));
+        assertThat(copy.children, contains(o4, o1, o3, o2));
+        assertThat(test.contains(o3), is(true));
+
+        assertThat(test.removeChild(o3), is(2));
+        assertThat(test.contains(o3), is(false));
+        assertThat(test.removeChild(o2), is(2));
+        assertThat(test.removeChildAt(0), sameInstance(o4));
+
+        assertThat(test.getChildren(), arrayContaining(o1));
+        assertThat(copy.children, contains(o1));
+        assertThat(test.getChild(), sameInstance(o1));
+
+        assertThrows(IllegalStateException.class, () -> test.removeChild(o2));
+        assertThrows(IndexOutOfBoundsException.class, () -> test.getChildAt(1));
+
+        test.removeAllChildren();
+
+        assertThat(test.size(), is(0));
+        assertThat(copy.children, empty());
+    }
+
+    @Test
+    void oldSnapshotUnchangedByAddAfterRemoveFromEnd() {
+
+        SnapshotChildHelper<String> test = new SnapshotChildHelper<>(new MockStructural());
+        test.addChild("apple");
+        test.addChild("orange");
+
+        Iterator<String> before = test.iterator();
+        assertThat(before.hasNext(), is(true));
+        assertThat(before.next(), is("apple"));
+
+        test.removeChildAt(1);
+        Object[] snapshot = test.getChildren();
+        test.addChild("pear");
+
+        assertThat(snapshot, arrayContaining("apple"));
+        assertThat(test.getChildren(new String[0]), arrayContaining("apple", "pear"));
+
+        assertThat(before.hasNext(), is(true));
+        assertThat(before.next(), is("pear"));
+        assertThat(before.hasNext(), is(false));
+    }
+
+    @Test
+    void iteratorFollowsChangesLikeChildHelper() {
+
+        SnapshotChildHelper<String> test = new SnapshotChildHelper<>(new MockStructural());
+        test.insertChild(0, "apple");
+        test.insertChild(1, "orange");
+        test.insertChild(2, "pear");
+
+        Iterator<String> iterator = test.iterator();
+
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next(), is("apple"));
+
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next(), is("orange"));
+
+        test.removeChild("apple");
+        test.insertChild(2, "banana");
+
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next(), is("pear"));
+
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next(), is("banana"));
+
+        test.removeChild("banana");
+        test.insertChild(2, "kiwi");
+
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.next(), is("kiwi"));
+
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    void lateListenerDoesNotMissEvents() {
+
+        SnapshotChildHelper<String> test = new SnapshotChildHelper<>(new MockStructural());
+        test.insertChild(0, "apple");
+
+        List<String> children = new ArrayList<>();
+
+        test.addStructuralListener(new StructuralListener() {
+            @Override
+            public void childAdded(StructuralEvent event) {
+                children.add(event.getIndex(), (String) event.getChild());
+                if (children.size() == 1) {
+                    test.insertChild(1, "orange");
+                }
+                if (children.size() == 2) {
+                    test.removeChildAt(0);
+                }
+            }
+
+            @Override
+            public void childRemoved(StructuralEvent event) {
+                children.remove(event.getIndex());
+            }
+        });
+
+        assertThat(children, contains("orange"));
+    }
+
+    @Test
+    void duplicateChildRemovedFromFirstPosition() {
+
+        SnapshotChildHelper<String> test = new SnapshotChildHelper<>(new MockStructural());
+        String apple = "apple";
+        test.addChild(apple);
+        test.addChild("orange");
+        test.addChild(apple);
+
+        assertThat(test.removeChild(apple), is(0));
+        assertThat(test.removeChild(apple), is(1));
+        assertThat(test.contains(apple), is(false));
+    }
+
+    @Test
+    void childrenMatchedOnIdentity() {
+
+        SnapshotChildHelper<String> test = new SnapshotChildHelper<>(new MockStructural());
+        String apple = new String("apple");
+        String equalApple = new String("apple");
+        test.addChild(apple);
+
+        assertThat(test.contains(equalApple), is(false));
+        assertThrows(IllegalStateException.class, () -> test.removeChild(equalApple));
+        assertThat(test.removeChild(apple), is(0));
+    }
+
+    @Test
+    void indexKeepsUpWithInsertsAndRemoves() {
+
+        SnapshotChildHelper<Object> test = new SnapshotChildHelper<>(new MockStructural());
+        List<Object> expected = new ArrayList<>();
+
+        Object[] children = new Object[20];
+        for (int i = 0; i < children.length; ++i) {
+            children[i] = new Object();
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; ++i) {
+            Object child = children[random.nextInt(children.length)];
+            int action = random.nextInt(4);
+            if (action == 0) {
+                int index = random.nextInt(expected.size() + 1);
+                test.insertChild(index, child);
+                expected.add(index, child);
+            }
+            else if (action == 1) {
+                test.addChild(child);
+                expected.add(child);
+            }
+            else if (action == 2 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertThat(test.removeChildAt(index), sameInstance(expected.remove(index)));
+            }
+            else if (expected.contains(child)) {
+                int index = expected.indexOf(child);
+                assertThat(test.removeChild(child), is(index));
+                expected.remove(index);
+            }
+            for (Object each : children) {
+                assertThat(test.contains(each), is(expected.contains(each)));
+            }
+        }
+
+        assertThat(test.getChildren(), is(expected.toArray()));
+    }
+
+    /**
+     * Not really a test but a comparison of readers against writers
+     * for the two implementations.
+     */
+    @Test
+    void readersAgainstWriters() throws InterruptedException, ExecutionException {
+
+        compare("ChildHelper", ChildHelper::new);
+        compare("SnapshotChildHelper", SnapshotChildHelper::new);
+    }
+
+    private static void compare(String name,
+                                Function<MockStructural, ChildHelper<Object>> factory)
+            throws InterruptedException, ExecutionException {
+
+        int children = 5_000;
+        int readers = 4;
+
+        ChildHelper<Object> test = factory.apply(new MockStructural());
+        for (int i = 0; i < children; ++i) {
+            test.addChild(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicLong reads = new AtomicLong();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int r = 0; r < readers; ++r) {
+            futures.add(executor.submit(() -> {
+                while (!finished.get()) {
+                    for (Object child : test) {
+                        assertThat(child, notNullValue());
+                        reads.incrementAndGet();
+                    }
+                    test.getChildren();
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < children; ++i) {
+                Object child = new Object();
+                test.addChild(child);
+                assertThat(test.contains(child), is(true));
+                test.removeChild(child);
+            }
+        });
+        writer.get();
+        long writeNanos = System.nanoTime() - start;
+
+        finished.set(true);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(test.size(), is(children));
+
+        logger.info("{}: {} add/remove pairs in {} ms, {} child reads.",
+                name, children, TimeUnit.NANOSECONDS.toMillis(writeNanos), reads.get());
+    }
+}
@@ -0,0 +1,56 @@
+package org.oddjob.util;
+
+import org.junit.Test;
+import org.oddjob.OjTestCase;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+
+public class ContentKeyTest extends OjTestCase {
+
+	static final byte[] CONTENT = "print('Hello');".getBytes(StandardCharsets.UTF_8);
+
+   @Test
+	public void testEqualsOnSameClassLoaderAndContent() {
+
+		ClassLoader loader = new URLClassLoader(new URL[0]);
+
+		ContentKey key = ContentKey.of(loader, "js", CONTENT);
+
+		assertEquals(ContentKey.of(loader, "js", CONTENT), key);
+		assertEquals(ContentKey.of(loader, "js", CONTENT).hashCode(), key.hashCode());
+
+		assertFalse(key.equals(ContentKey.of(new URLClassLoader(new URL[0]), "js", CONTENT)));
+		assertFalse(key.equals(ContentKey.of(null, "js", CONTENT)));
+		assertFalse(key.equals(ContentKey.of(loader, "groovy", CONTENT)));
+
+		assertEquals(ContentKey.of(null, null, CONTENT), ContentKey.of(null, null, CONTENT));
+		assertFalse(ContentKey.of(null, null, CONTENT).isCleared());
+	}
+
+   @Test
+	public void testClassLoaderHeldWeakly() throws InterruptedException {
+
+		ClassLoader loader = new URLClassLoader(new URL[0]);
+
+		ContentKey key = ContentKey.of(loader, "js", CONTENT);
+		ContentKey same = ContentKey.of(loader, "js", CONTENT);
+
+		assertFalse(key.isCleared());
+
+		WeakReference<ClassLoader> ref = new WeakReference<>(loader);
+		loader = null;
+
+		for (int i = 0; i < 100 && ref.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertNull(ref.get());
+		assertTrue(key.isCleared());
+		assertFalse(key.equals(same));
+		assertEquals(key, key);
+	}
+}